@@ -28,14 +28,24 @@ fi
 
 if [ $? -eq 0 ]; then
     echo "Compilation successful!"
+
+    # Optional SIMD force kernel (JDK 17+ with the incubating Vector API)
+    JAVA_OPTS=""
+    if java --list-modules 2>/dev/null | grep -q "^jdk.incubator.vector"; then
+        if javac -d out -cp out --add-modules jdk.incubator.vector $(find simd -name "*.java") 2>/dev/null; then
+            echo "SIMD kernel enabled."
+            JAVA_OPTS="--add-modules jdk.incubator.vector"
+        fi
+    fi
+
     echo "Running application..."
     echo ""
     
     # Run application (no native dependencies needed!)
     if [ -d "libs/joml" ]; then
-        java -cp "$CLASSPATH" simulations.Main
+        java $JAVA_OPTS -cp "$CLASSPATH" simulations.Main
     else
-        java -cp out simulations.Main
+        java $JAVA_OPTS -cp out simulations.Main
     fi
 else
     echo "Compilation failed. Please check for errors above."
@@ -0,0 +1,119 @@
+package simulations.physics;
+
+import java.util.concurrent.ForkJoinPool;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorDirectSumSolver - Exact direct summation using SIMD lanes through the
+ * incubating Java Vector API.
+ *
+ * Each target body is summed against DoubleVector.SPECIES_PREFERRED lanes of sources
+ * at a time, with a scalar loop for the remainder. This trades the pair symmetry of
+ * {@link DirectSumSolver} for lane parallelism, which wins whenever the hardware has
+ * two or more double lanes.
+ *
+ * This class lives in the separate {@code simd/} source tree because it needs JDK 17+
+ * and {@code --add-modules jdk.incubator.vector}. Load it through
+ * {@link SimdSupport#createVectorSolver()}, which falls back when it is missing.
+ */
+public class VectorDirectSumSolver implements ForceSolver {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private ForkJoinPool pool;
+
+    @Override
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                                     double[] mass, double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        computeAccelerations(null, count, count, dimension, x, y, z, mass, gravitationalConstant, ax, ay, az);
+    }
+
+    @Override
+    public void computeAccelerations(int[] targets, int targetCount, int count, int dimension,
+                                     double[] x, double[] y, double[] z, double[] mass,
+                                     double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        if (pool == null) {
+            sumRange(targets, 0, targetCount, count, x, y, z, mass, gravitationalConstant, ax, ay, az);
+            return;
+        }
+        ParallelRange.forEach(pool, targetCount, (start, end) ->
+            sumRange(targets, start, end, count, x, y, z, mass, gravitationalConstant, ax, ay, az));
+    }
+
+    /**
+     * Sums targets [start, end) (bodies [start, end) when {@code targets} is null).
+     */
+    private static void sumRange(int[] targets, int start, int end, int count,
+                                 double[] x, double[] y, double[] z,
+                                 double[] mass, double gravitationalConstant,
+                                 double[] ax, double[] ay, double[] az) {
+        int lanes = SPECIES.length();
+        int vectorEnd = count - count % lanes;
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+
+        for (int n = start; n < end; n++) {
+            int i = targets == null ? n : targets[n];
+            double xi = x[i];
+            double yi = y[i];
+            double zi = z[i];
+            DoubleVector sumX = zero;
+            DoubleVector sumY = zero;
+            DoubleVector sumZ = zero;
+
+            for (int j = 0; j < vectorEnd; j += lanes) {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(xi);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(yi);
+                DoubleVector dz = DoubleVector.fromArray(SPECIES, z, j).sub(zi);
+                DoubleVector distSq = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+
+                // Coincident lanes (including i itself) contribute nothing
+                VectorMask<Double> coincident = distSq.compare(VectorOperators.EQ, 0.0);
+                DoubleVector invDist = one.div(distSq.lanewise(VectorOperators.SQRT));
+                DoubleVector scale = DoubleVector.fromArray(SPECIES, mass, j)
+                    .mul(invDist).mul(invDist).mul(invDist)
+                    .blend(zero, coincident);
+
+                sumX = dx.fma(scale, sumX);
+                sumY = dy.fma(scale, sumY);
+                sumZ = dz.fma(scale, sumZ);
+            }
+
+            double tailX = 0.0;
+            double tailY = 0.0;
+            double tailZ = 0.0;
+            for (int j = vectorEnd; j < count; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double dz = z[j] - zi;
+                double distSq = dx * dx + dy * dy + dz * dz;
+                if (distSq == 0.0) continue;
+
+                double invDist = 1.0 / Math.sqrt(distSq);
+                double scale = mass[j] * invDist * invDist * invDist;
+                tailX += dx * scale;
+                tailY += dy * scale;
+                tailZ += dz * scale;
+            }
+
+            ax[i] = gravitationalConstant * (sumX.reduceLanes(VectorOperators.ADD) + tailX);
+            ay[i] = gravitationalConstant * (sumY.reduceLanes(VectorOperators.ADD) + tailY);
+            az[i] = gravitationalConstant * (sumZ.reduceLanes(VectorOperators.ADD) + tailZ);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return ForceSolverType.DIRECT.getName();
+    }
+}
@@ -0,0 +1,96 @@
+package simulations.physics;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorFloatDirectSumSolver - {@link FloatDirectSumSolver} with SIMD lanes.
+ *
+ * FloatVector.SPECIES_PREFERRED holds twice as many lanes as the double species, so
+ * each target is summed against twice as many sources per instruction as in
+ * {@link VectorDirectSumSolver}. With double accumulation the lane sums are folded
+ * into double every {@link #BLOCK} sources, so at most that many terms are ever
+ * added in float.
+ *
+ * Like VectorDirectSumSolver this lives in the {@code simd/} source tree and is loaded
+ * through {@link SimdSupport#createVectorFloatSolver()}.
+ */
+public class VectorFloatDirectSumSolver extends FloatDirectSumSolver {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /** Sources summed in float lanes before folding into double */
+    static final int BLOCK = 256;
+
+    @Override
+    protected void sumRange(int[] targets, int start, int end, int count, double gravitationalConstant,
+                            double[] ax, double[] ay, double[] az) {
+        float[] x = fx, y = fy, z = fz, m = fm;
+        int lanes = SPECIES.length();
+        int vectorEnd = count - count % lanes;
+        // Without double accumulation one block covers everything
+        int block = isDoubleAccumulation() ? BLOCK : Integer.MAX_VALUE - lanes;
+        FloatVector zero = FloatVector.zero(SPECIES);
+        FloatVector one = FloatVector.broadcast(SPECIES, 1.0f);
+
+        for (int n = start; n < end; n++) {
+            int i = targets == null ? n : targets[n];
+            float xi = x[i];
+            float yi = y[i];
+            float zi = z[i];
+            double totalX = 0.0;
+            double totalY = 0.0;
+            double totalZ = 0.0;
+
+            for (int blockStart = 0; blockStart < vectorEnd; blockStart += block) {
+                int blockEnd = (int) Math.min((long) blockStart + block, vectorEnd);
+                FloatVector sumX = zero;
+                FloatVector sumY = zero;
+                FloatVector sumZ = zero;
+                for (int j = blockStart; j < blockEnd; j += lanes) {
+                    FloatVector dx = FloatVector.fromArray(SPECIES, x, j).sub(xi);
+                    FloatVector dy = FloatVector.fromArray(SPECIES, y, j).sub(yi);
+                    FloatVector dz = FloatVector.fromArray(SPECIES, z, j).sub(zi);
+                    FloatVector distSq = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+
+                    // Coincident lanes (including i itself) contribute nothing
+                    VectorMask<Float> coincident = distSq.compare(VectorOperators.EQ, 0.0f);
+                    FloatVector invDist = one.div(distSq.lanewise(VectorOperators.SQRT));
+                    FloatVector scale = FloatVector.fromArray(SPECIES, m, j)
+                        .mul(invDist).mul(invDist).mul(invDist)
+                        .blend(zero, coincident);
+
+                    sumX = dx.fma(scale, sumX);
+                    sumY = dy.fma(scale, sumY);
+                    sumZ = dz.fma(scale, sumZ);
+                }
+                totalX += sumX.reduceLanes(VectorOperators.ADD);
+                totalY += sumY.reduceLanes(VectorOperators.ADD);
+                totalZ += sumZ.reduceLanes(VectorOperators.ADD);
+            }
+
+            float tailX = 0.0f;
+            float tailY = 0.0f;
+            float tailZ = 0.0f;
+            for (int j = vectorEnd; j < count; j++) {
+                float dx = x[j] - xi;
+                float dy = y[j] - yi;
+                float dz = z[j] - zi;
+                float distSq = dx * dx + dy * dy + dz * dz;
+                if (distSq == 0.0f) continue;
+
+                float invDist = 1.0f / (float) Math.sqrt(distSq);
+                float scale = m[j] * invDist * invDist * invDist;
+                tailX += dx * scale;
+                tailY += dy * scale;
+                tailZ += dz * scale;
+            }
+
+            ax[i] = gravitationalConstant * (totalX + tailX);
+            ay[i] = gravitationalConstant * (totalY + tailY);
+            az[i] = gravitationalConstant * (totalZ + tailZ);
+        }
+    }
+}
@@ -3,8 +3,8 @@ package simulations.NewtonianGravity.Gravity2D;
 import simulations.BaseSimulation;
 import simulations.NewtonianGravity.Planet;
 import simulations.NewtonianGravity.PointMass;
-import simulations.NewtonianGravity.RK4Planet;
 import simulations.NewtonianGravity.Vector;
+import simulations.physics.DirectSumSolver;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -14,7 +14,10 @@ import java.awt.event.MouseMotionListener;
 import java.awt.event.KeyEvent;
 import java.awt.geom.AffineTransform;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.awt.BasicStroke;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
@@ -35,6 +38,22 @@ public class Gravity2DSimulation extends BaseSimulation {
     private double coefficientOfRestitution = 1.0;
     private double timeFactor = 1.0;
     
+    /** Reused per-planet acceleration accumulator */
+    private final Vector accelerationScratch = new Vector(2);
+    
+    /** RK4 state, stage positions and stage derivatives, grown as planets are added */
+    private static final double[] RK4_STAGE_OFFSET = {0.0, 0.5, 0.5, 1.0};
+    private final DirectSumSolver rkSolver = new DirectSumSolver();
+    private double[] rkX = new double[0], rkY = new double[0];
+    private double[] rkVX = new double[0], rkVY = new double[0];
+    private double[] rkMass = new double[0];
+    private boolean[] rkFixed = new boolean[0];
+    private double[] rkStageX = new double[0], rkStageY = new double[0], rkStageZ = new double[0];
+    private double[] rkAZ = new double[0];
+    private double[][][] rkK = new double[4][4][0];
+    private final Vector rkPosition = new Vector(2);
+    private final Vector rkVelocity = new Vector(2);
+    
     /** Animation timer - calls update() repeatedly */
     private Timer animationTimer;
     
@@ -322,15 +341,9 @@ public class Gravity2DSimulation extends BaseSimulation {
                 newObject = new PointMass(data.mass, data.radius, clickedWorldX, clickedWorldY, 
                                          angularVelocity, data.temperature, data.color, data.texturePath, planetName);
         } else {
-            // Create a Planet or RK4Planet based on integration method
             double angularVelocity = data.getAngularVelocity();
-            if (useRK4) {
-                newObject = new RK4Planet(data.mass, data.radius, clickedWorldX, clickedWorldY, 
-                                          data.vx, data.vy, angularVelocity, data.temperature, data.color, data.texturePath, planetName);
-            } else {
-                newObject = new Planet(data.mass, data.radius, clickedWorldX, clickedWorldY, 
-                                      data.vx, data.vy, angularVelocity, data.temperature, data.color, data.texturePath, planetName);
-            }
+            newObject = new Planet(data.mass, data.radius, clickedWorldX, clickedWorldY, 
+                                  data.vx, data.vy, angularVelocity, data.temperature, data.color, data.texturePath, planetName);
         }
         
         planets.add(newObject);
@@ -505,7 +518,8 @@ public class Gravity2DSimulation extends BaseSimulation {
         }
         
         List<Planet> toAdd = new ArrayList<>();
-        List<Planet> toRemove = new ArrayList<>();
+        // Looked up for every pair, so it needs constant-time contains
+        Set<Planet> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
 
         for (Planet planet : planets) {
             if (toRemove.contains(planet)) continue;
@@ -513,8 +527,8 @@ public class Gravity2DSimulation extends BaseSimulation {
             // Skip PointMass objects - they don't move or need force calculations
             if (planet instanceof PointMass) continue;
             
-            // Initialize total force components
-            Vector totalForce = new Vector(new double[]{0.0, 0.0});
+            // Reset the acceleration accumulator
+            Vector acceleration = accelerationScratch.zero();
 
             for (Planet other : planets) {
                 if (planet == other) continue;
@@ -545,16 +559,17 @@ public class Gravity2DSimulation extends BaseSimulation {
                     break; // stop computing further for this planet
                 }
 
-                // Compute gravitational force
-                Vector forceVec = planet.gravitationalForceFrom(other, gravitationalConstant);
-                totalForce.addto(forceVec);
+                // Accumulate gravitational acceleration (a = F/m) in place; RK4 finds its own
+                if (!useRK4) {
+                    planet.addGravitationalAccelerationFrom(other, gravitationalConstant, acceleration);
+                }
             }
 
             // Skip velocity update if planet is set to be removed
             if (toRemove.contains(planet)) continue;
-
-            // Newton's second law: F = ma → a = F/m
-            Vector acceleration = totalForce.divide(planet.getMass());
+            
+            // RK4 moves the whole system at once below
+            if (useRK4) continue;
 
             planet.updateVelocity(acceleration, deltaTime * timeFactor);
         }
@@ -563,12 +578,103 @@ public class Gravity2DSimulation extends BaseSimulation {
         planets.removeAll(toRemove);
         planets.addAll(toAdd);
         
+        if (useRK4) {
+            stepRK4(deltaTime * timeFactor);
+            for (Planet planet : planets) {
+                planet.advanceRotation(deltaTime, timeFactor);
+            }
+            return;
+        }
+        
         // Update positions based on velocities (after all velocities are updated)
         for (Planet planet : planets) {
             planet.updatePosition(deltaTime, timeFactor);
         }
     }
     
+    /**
+     * Advances every moving planet by one classical RK4 step of the whole system.
+     * Accelerations are recomputed at each stage from every planet's stage position,
+     * by the same direct-sum kernel the physics engine uses.
+     */
+    private void stepRK4(double dt) {
+        int n = planets.size();
+        ensureRK4Capacity(n);
+        for (int i = 0; i < n; i++) {
+            Planet planet = planets.get(i);
+            double[] pos = planet.getPositionArray();
+            double[] vel = planet.getVelocityArray();
+            rkX[i] = pos[0];
+            rkY[i] = pos[1];
+            rkVX[i] = vel[0];
+            rkVY[i] = vel[1];
+            rkMass[i] = planet.getMass();
+            rkFixed[i] = planet instanceof PointMass;
+        }
+        
+        // Stage derivatives: rkK[s] = {dx, dy, dvx, dvy} per planet
+        for (int s = 0; s < 4; s++) {
+            double h = RK4_STAGE_OFFSET[s] * dt;
+            double[][] k = rkK[s];
+            for (int i = 0; i < n; i++) {
+                if (s == 0) {
+                    rkStageX[i] = rkX[i];
+                    rkStageY[i] = rkY[i];
+                    k[0][i] = rkVX[i];
+                    k[1][i] = rkVY[i];
+                } else {
+                    double[][] previous = rkK[s - 1];
+                    rkStageX[i] = rkX[i] + h * previous[0][i];
+                    rkStageY[i] = rkY[i] + h * previous[1][i];
+                    k[0][i] = rkVX[i] + h * previous[2][i];
+                    k[1][i] = rkVY[i] + h * previous[3][i];
+                }
+            }
+            rkSolver.computeAccelerations(n, 2, rkStageX, rkStageY, rkStageZ, rkMass, gravitationalConstant,
+                                          k[2], k[3], rkAZ);
+            for (int i = 0; i < n; i++) {
+                if (rkFixed[i]) {
+                    k[0][i] = k[1][i] = k[2][i] = k[3][i] = 0.0;
+                }
+            }
+        }
+        
+        double sixth = dt / 6.0;
+        for (int i = 0; i < n; i++) {
+            if (rkFixed[i]) continue;
+            Planet planet = planets.get(i);
+            rkPosition.set(0, rkX[i] + sixth * rk4Sum(0, i));
+            rkPosition.set(1, rkY[i] + sixth * rk4Sum(1, i));
+            rkVelocity.set(0, rkVX[i] + sixth * rk4Sum(2, i));
+            rkVelocity.set(1, rkVY[i] + sixth * rk4Sum(3, i));
+            planet.setPosition(rkPosition);
+            planet.setVelocity(rkVelocity);
+        }
+    }
+    
+    /** Weighted sum k1 + 2 k2 + 2 k3 + k4 of one component for one planet */
+    private double rk4Sum(int component, int i) {
+        return rkK[0][component][i] + 2.0 * rkK[1][component][i]
+               + 2.0 * rkK[2][component][i] + rkK[3][component][i];
+    }
+    
+    /** Grows the RK4 buffers to hold n planets; they are kept between steps */
+    private void ensureRK4Capacity(int n) {
+        if (rkX.length >= n) return;
+        int capacity = Math.max(n, 2 * rkX.length);
+        rkX = new double[capacity];
+        rkY = new double[capacity];
+        rkVX = new double[capacity];
+        rkVY = new double[capacity];
+        rkMass = new double[capacity];
+        rkFixed = new boolean[capacity];
+        rkStageX = new double[capacity];
+        rkStageY = new double[capacity];
+        rkStageZ = new double[capacity];
+        rkAZ = new double[capacity];
+        rkK = new double[4][4][capacity];
+    }
+    
     
     @Override
     public void render() {
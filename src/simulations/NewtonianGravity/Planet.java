@@ -9,12 +9,17 @@ import java.io.File;
 import java.io.IOException;
 import java.awt.geom.AffineTransform;
 import java.awt.RenderingHints;
+import simulations.physics.BodyStore;
 
 /**
  * Planet class - represents a celestial body in the gravity simulation.
  * 
  * This class encapsulates all the properties and behaviors of a planet.
  * Uses Vector for position and velocity to support both 2D and 3D simulations.
+ *
+ * While a planet is attached to a {@link BodyStore} (for example after being added to a
+ * PhysicsEngine) the store holds its position and velocity, and this object acts as a
+ * handle onto that entry. Once detached it owns its state again.
  */
 public class Planet {
     
@@ -34,6 +39,10 @@ public class Planet {
     protected double rotationAngle = 0.0;
     protected String texturePath;
     
+    // Body store this planet is a handle into, null when it owns its own state
+    private volatile BodyStore store;
+    private int storeIndex = -1;
+    
 
     /**
      * Constructor with Vector position and velocity (supports 2D and 3D).
@@ -96,6 +105,57 @@ public class Planet {
         }
     }
     
+    /**
+     * Attaches this planet to a body store entry. Called by the store when the
+     * planet is added or its entry moves.
+     */
+    public void attach(BodyStore store, int index) {
+        this.storeIndex = index;
+        this.store = store;
+    }
+    
+    /**
+     * Detaches this planet from its body store, copying the stored state back first.
+     */
+    public void detach() {
+        pullFromStore();
+        this.store = null;
+        this.storeIndex = -1;
+    }
+    
+    /**
+     * Checks whether this planet is a handle into a body store.
+     */
+    public boolean isAttached() {
+        return store != null;
+    }
+    
+    /**
+     * Refreshes pos and vel from the body store when attached.
+     */
+    protected void pullFromStore() {
+        BodyStore s = store;
+        if (s == null) return;
+        synchronized (s) {
+            if (store == s) {
+                s.read(storeIndex, pos, vel);
+            }
+        }
+    }
+    
+    /**
+     * Writes pos and vel back to the body store when attached.
+     */
+    protected void pushToStore() {
+        BodyStore s = store;
+        if (s == null) return;
+        synchronized (s) {
+            if (store == s) {
+                s.write(storeIndex, pos, vel);
+            }
+        }
+    }
+    
     /**
      * Updates the planet's position based on its velocity.
      * Called during each simulation step.
@@ -103,10 +163,17 @@ public class Planet {
      * @param deltaTime Time elapsed since last update
      */
     public void updatePosition(double deltaTime, double timeFactor) {
-        Vector displacement = vel.multiply(deltaTime * timeFactor);
-        pos = pos.add(displacement);
+        pullFromStore();
+        pos.addScaled(vel, deltaTime * timeFactor);
+        pushToStore();
         
-        // Update rotation angle
+        advanceRotation(deltaTime, timeFactor);
+    }
+    
+    /**
+     * Advances the rotation angle by one time step, keeping it in [0, 2π).
+     */
+    public void advanceRotation(double deltaTime, double timeFactor) {
         this.rotationAngle += angularVelocity * timeFactor * deltaTime;
         this.rotationAngle %= (Math.PI * 2);  // reduce it into [ -2π, 2π )
 
@@ -123,8 +190,9 @@ public class Planet {
      * @param deltaTime Time elapsed since last update
      */
     public void updateVelocity(Vector accel, double deltaTime) {
-        Vector deltaVel = accel.multiply(deltaTime);
-        vel = vel.add(deltaVel);
+        pullFromStore();
+        vel.addScaled(accel, deltaTime);
+        pushToStore();
     }
     
     /**
@@ -136,8 +204,9 @@ public class Planet {
      */
 
     public double distanceTo(Planet other) {
-        Vector delta = this.pos.subtract(other.pos);
-        return delta.magnitude();
+        this.pullFromStore();
+        other.pullFromStore();
+        return Math.sqrt(this.pos.distanceSquared(other.pos));
     }
     
     /**
@@ -152,15 +221,24 @@ public class Planet {
      * Returns a Vector representing the force.
      */
     public Vector gravitationalForceFrom(Planet other, double gravitationalConstant) {
-        double distance = distanceTo(other);
-        if (distance == 0.0) {
-            return new Vector(new double[pos.dimensions()]); // Zero vector
+        Vector force = new Vector(pos.dimensions());
+        addGravitationalAccelerationFrom(other, gravitationalConstant, force);
+        return force.scale(this.mass);
+    }
+    
+    /**
+     * Adds the gravitational acceleration caused by another planet to {@code accel}
+     * without allocating. Coincident planets contribute nothing.
+     */
+    public void addGravitationalAccelerationFrom(Planet other, double gravitationalConstant, Vector accel) {
+        this.pullFromStore();
+        other.pullFromStore();
+        double distSq = this.pos.distanceSquared(other.pos);
+        if (distSq == 0.0) {
+            return;
         }
-        
-        Vector direction = other.pos.subtract(this.pos).normalize();
-        double forceMagnitude = gravitationalConstant * this.mass * other.mass / (distance * distance);
-        
-        return direction.multiply(forceMagnitude);
+        double scale = gravitationalConstant * other.mass / (distSq * Math.sqrt(distSq));
+        accel.addScaledDifference(other.pos, this.pos, scale);
     }
     
     /**
@@ -178,6 +256,7 @@ public class Planet {
      * @param g2d Graphics2D object for drawing
      */
     public void draw(Graphics2D g2d) {
+        pullFromStore();
         // For 2D drawing, use first two components
         double x = pos.get(0);
         double y = pos.dimensions() > 1 ? pos.get(1) : 0.0;
@@ -242,6 +321,8 @@ public class Planet {
     }
     
     public Planet merge(Planet other) {
+        this.pullFromStore();
+        other.pullFromStore();
         double combinedMass = this.mass + other.mass;
         
         // Weighted average of velocities
@@ -295,6 +376,8 @@ public class Planet {
     }
 
     public void bouncePlanet(double coefficientOfRestitution, Planet other) {
+        this.pullFromStore();
+        other.pullFromStore();
         Vector deltaPos = other.pos.subtract(this.pos);
         double deltaPosMag = deltaPos.magnitude();
         if (deltaPosMag == 0.0) return; // Same position, skip
@@ -324,6 +407,8 @@ public class Planet {
         
         this.vel = this.vel.add(deltaVel1);
         other.vel = other.vel.add(deltaVel2);
+        this.pushToStore();
+        other.pushToStore();
     }
 
     public double getPeriodOfRotation() {
@@ -335,22 +420,28 @@ public class Planet {
     }
 
     public void bouncePointMass(double coefficientOfRestitution) {
+        pullFromStore();
         this.vel = this.vel.multiply(-coefficientOfRestitution);
+        pushToStore();
     }
 
     public Vector getVelocity() {
+        pullFromStore();
         return vel.clone();
     }
     
     public double[] getVelocityArray() {
+        pullFromStore();
         return vel.getData();
     }
 
     public Vector getPosition() {
+        pullFromStore();
         return pos.clone();
     }
     
     public double[] getPositionArray() {
+        pullFromStore();
         return pos.getData();
     }
 
@@ -384,15 +475,34 @@ public class Planet {
     }
     
 
+    /**
+     * Copies newVel into this planet's velocity; copied in place when the dimensions match.
+     */
     public void setVelocity(Vector newVel) {
-        this.vel = newVel.clone();
+        pullFromStore();
+        if (vel.dimensions() == newVel.dimensions()) {
+            vel.setTo(newVel);
+        } else {
+            this.vel = newVel.clone();
+        }
+        pushToStore();
     }
     
+    /**
+     * Copies newPos into this planet's position; copied in place when the dimensions match.
+     */
     public void setPosition(Vector newPos) {
-        this.pos = newPos.clone();
+        pullFromStore();
+        if (pos.dimensions() == newPos.dimensions()) {
+            pos.setTo(newPos);
+        } else {
+            this.pos = newPos.clone();
+        }
+        pushToStore();
     }
 
     public boolean containsPoint(double x, double y) {
+        pullFromStore();
         double dx = x - pos.get(0);
         double dy = y - (pos.dimensions() > 1 ? pos.get(1) : 0.0);
         return Math.sqrt(dx*dx + dy*dy) <= this.radius;
@@ -414,6 +524,7 @@ public class Planet {
     
     @Override
     public String toString() {
+        pullFromStore();
         return String.format("Planet with mass = %.2f pos=%s vel=%s", mass, pos, vel);
     }
 
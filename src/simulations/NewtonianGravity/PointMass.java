@@ -34,11 +34,7 @@ public class PointMass extends Planet {
     public void updatePosition(double deltaTime, double timeFactor) {
         // Don't update position (x, y) - PointMass is stationary
         // But still update rotation angle if angularVelocity is set
-        this.rotationAngle += angularVelocity * timeFactor * deltaTime;
-        this.rotationAngle %= (Math.PI * 2);
-        if (this.rotationAngle < 0) {
-            this.rotationAngle += Math.PI * 2;
-        }
+        advanceRotation(deltaTime, timeFactor);
     }
     
     /**
@@ -49,6 +45,7 @@ public class PointMass extends Planet {
      * @return A new PointMass with combined properties
      */
     public PointMass merge(Planet other) {
+        this.pullFromStore();
         double combinedMass = this.mass + other.mass;
         
         // Use the larger radius
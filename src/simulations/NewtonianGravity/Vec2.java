@@ -0,0 +1,96 @@
+package simulations.NewtonianGravity;
+
+/**
+ * Vec2 - Mutable fixed-size 2D vector with public components.
+ *
+ * Unlike {@link Vector}, there is no backing array and every operation works in place,
+ * so a Vec2 can be reused as a scratch value in loops that run every step.
+ */
+public final class Vec2 {
+    public double x;
+    public double y;
+
+    public Vec2() {
+    }
+
+    public Vec2(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public Vec2 set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public Vec2 set(Vec2 other) {
+        this.x = other.x;
+        this.y = other.y;
+        return this;
+    }
+
+    public Vec2 zero() {
+        return set(0.0, 0.0);
+    }
+
+    public Vec2 add(Vec2 other) {
+        x += other.x;
+        y += other.y;
+        return this;
+    }
+
+    /**
+     * Adds {@code scale * other} to this vector.
+     */
+    public Vec2 addScaled(Vec2 other, double scale) {
+        x += other.x * scale;
+        y += other.y * scale;
+        return this;
+    }
+
+    /**
+     * Sets this vector to {@code a - b}.
+     */
+    public Vec2 setDifference(Vec2 a, Vec2 b) {
+        x = a.x - b.x;
+        y = a.y - b.y;
+        return this;
+    }
+
+    public Vec2 scale(double scalar) {
+        x *= scalar;
+        y *= scalar;
+        return this;
+    }
+
+    public double dot(Vec2 other) {
+        return x * other.x + y * other.y;
+    }
+
+    public double magnitudeSquared() {
+        return x * x + y * y;
+    }
+
+    public double magnitude() {
+        return Math.sqrt(magnitudeSquared());
+    }
+
+    public double distanceSquared(Vec2 other) {
+        double dx = x - other.x;
+        double dy = y - other.y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Converts to a general {@link Vector} (allocates).
+     */
+    public Vector toVector() {
+        return new Vector(new double[]{x, y});
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ")";
+    }
+}
@@ -0,0 +1,115 @@
+package simulations.NewtonianGravity;
+
+/**
+ * Vec3 - Mutable fixed-size 3D vector with public components.
+ *
+ * Unlike {@link Vector}, there is no backing array and every operation works in place,
+ * so a Vec3 can be reused as a scratch value in loops that run every step.
+ */
+public final class Vec3 {
+    public double x;
+    public double y;
+    public double z;
+
+    public Vec3() {
+    }
+
+    public Vec3(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public Vec3 set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Vec3 set(Vec3 other) {
+        this.x = other.x;
+        this.y = other.y;
+        this.z = other.z;
+        return this;
+    }
+
+    public Vec3 zero() {
+        return set(0.0, 0.0, 0.0);
+    }
+
+    public Vec3 add(Vec3 other) {
+        x += other.x;
+        y += other.y;
+        z += other.z;
+        return this;
+    }
+
+    /**
+     * Adds {@code scale * other} to this vector.
+     */
+    public Vec3 addScaled(Vec3 other, double scale) {
+        x += other.x * scale;
+        y += other.y * scale;
+        z += other.z * scale;
+        return this;
+    }
+
+    /**
+     * Sets this vector to {@code a - b}.
+     */
+    public Vec3 setDifference(Vec3 a, Vec3 b) {
+        x = a.x - b.x;
+        y = a.y - b.y;
+        z = a.z - b.z;
+        return this;
+    }
+
+    /**
+     * Sets this vector to {@code a × b}. Safe when a or b is this vector.
+     */
+    public Vec3 setCross(Vec3 a, Vec3 b) {
+        double cx = a.y * b.z - a.z * b.y;
+        double cy = a.z * b.x - a.x * b.z;
+        double cz = a.x * b.y - a.y * b.x;
+        return set(cx, cy, cz);
+    }
+
+    public Vec3 scale(double scalar) {
+        x *= scalar;
+        y *= scalar;
+        z *= scalar;
+        return this;
+    }
+
+    public double dot(Vec3 other) {
+        return x * other.x + y * other.y + z * other.z;
+    }
+
+    public double magnitudeSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    public double magnitude() {
+        return Math.sqrt(magnitudeSquared());
+    }
+
+    public double distanceSquared(Vec3 other) {
+        double dx = x - other.x;
+        double dy = y - other.y;
+        double dz = z - other.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Converts to a general {@link Vector} (allocates).
+     */
+    public Vector toVector() {
+        return new Vector(new double[]{x, y, z});
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+}
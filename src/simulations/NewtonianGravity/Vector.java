@@ -150,6 +150,103 @@ public class Vector {
         return this;
     }
     
+    // In-place operations. These modify this vector (or an output vector) and
+    // return it, so hot loops can run without allocating.
+    
+    /**
+     * Copies another vector's components into this vector.
+     */
+    public Vector setTo(Vector other) {
+        checkDimensions(other);
+        System.arraycopy(other.data, 0, this.data, 0, data.length);
+        return this;
+    }
+    
+    /**
+     * Sets every component to zero.
+     */
+    public Vector zero() {
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 0.0;
+        }
+        return this;
+    }
+    
+    /**
+     * Adds {@code scale * other} to this vector.
+     */
+    public Vector addScaled(Vector other, double scale) {
+        checkDimensions(other);
+        for (int i = 0; i < data.length; i++) {
+            this.data[i] += other.data[i] * scale;
+        }
+        return this;
+    }
+    
+    /**
+     * Adds {@code scale * (a - b)} to this vector.
+     */
+    public Vector addScaledDifference(Vector a, Vector b, double scale) {
+        checkDimensions(a);
+        checkDimensions(b);
+        for (int i = 0; i < data.length; i++) {
+            this.data[i] += (a.data[i] - b.data[i]) * scale;
+        }
+        return this;
+    }
+    
+    /**
+     * Writes {@code this - other} into {@code out} and returns out.
+     */
+    public Vector subtractInto(Vector other, Vector out) {
+        checkDimensions(other);
+        checkDimensions(out);
+        for (int i = 0; i < data.length; i++) {
+            out.data[i] = this.data[i] - other.data[i];
+        }
+        return out;
+    }
+    
+    /**
+     * Multiplies this vector by a scalar in place.
+     */
+    public Vector scale(double scalar) {
+        for (int i = 0; i < data.length; i++) {
+            data[i] *= scalar;
+        }
+        return this;
+    }
+    
+    /**
+     * Computes the squared magnitude.
+     */
+    public double magnitudeSquared() {
+        double sumSquares = 0.0;
+        for (double d : data) {
+            sumSquares += d * d;
+        }
+        return sumSquares;
+    }
+    
+    /**
+     * Computes the squared distance to another vector without temporaries.
+     */
+    public double distanceSquared(Vector other) {
+        checkDimensions(other);
+        double sumSquares = 0.0;
+        for (int i = 0; i < data.length; i++) {
+            double d = this.data[i] - other.data[i];
+            sumSquares += d * d;
+        }
+        return sumSquares;
+    }
+    
+    private void checkDimensions(Vector other) {
+        if (this.data.length != other.data.length) {
+            throw new IllegalArgumentException("Vectors must have same dimensions");
+        }
+    }
+    
     /**
      * Creates a copy of this vector.
      */
@@ -10,6 +10,7 @@ import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.Executors;
 
 public class WebServer {
     
@@ -26,7 +27,8 @@ public class WebServer {
         // REST API endpoints for web-based simulations
         server.createContext("/api/simulations", new SimulationAPIHandler());
         
-        server.setExecutor(null);
+        // A pool, so a long advance request doesn't hold up state requests
+        server.setExecutor(Executors.newCachedThreadPool());
         server.start();
         
         System.out.println("Web server started on http://localhost:" + PORT);
@@ -200,6 +202,14 @@ public class WebServer {
             else if (subPath.equals("planets") && method.equals("DELETE")) {
                 new simulations.api.SimulationAPI.ClearPlanetsHandler().handle(exchange);
             }
+            // POST /api/simulations/{id}/advance
+            else if (subPath.equals("advance") && method.equals("POST")) {
+                new simulations.api.SimulationAPI.AdvanceHandler().handle(exchange);
+            }
+            // POST /api/simulations/{id}/ensemble
+            else if (subPath.equals("ensemble") && method.equals("POST")) {
+                new simulations.api.SimulationAPI.EnsembleHandler().handle(exchange);
+            }
             // PUT /api/simulations/{id}/settings
             else if (subPath.equals("settings") && method.equals("PUT")) {
                 new simulations.api.SimulationAPI.UpdateSettingsHandler().handle(exchange);
@@ -1,6 +1,8 @@
 package simulations.api;
 
+import simulations.physics.EnsembleEngine;
 import simulations.physics.PhysicsEngine;
+import simulations.physics.StateSnapshot;
 import simulations.NewtonianGravity.Planet;
 import simulations.NewtonianGravity.PointMass;
 import simulations.NewtonianGravity.Vector;
@@ -80,9 +82,9 @@ public class SimulationAPI {
             try {
                 String requestBody = readRequestBody(exchange);
                 Planet planet = parsePlanetFromJSON(requestBody, engine.getDimension());
-                engine.addPlanet(planet);
+                long bodyId = engine.addPlanet(planet);
                 
-                sendJSON(exchange, 200, "{\"status\":\"ok\"}");
+                sendJSON(exchange, 200, "{\"status\":\"ok\",\"id\":" + bodyId + "}");
             } catch (Exception e) {
                 sendError(exchange, 400, "Invalid request: " + e.getMessage());
             }
@@ -121,6 +123,150 @@ public class SimulationAPI {
         }
     }
     
+    /**
+     * Handler for running a simulation ahead as fast as possible.
+     * POST /api/simulations/{id}/advance with {"steps": n} or {"duration": seconds}
+     */
+    public static class AdvanceHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORS(exchange)) return;
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            
+            String path = exchange.getRequestURI().getPath();
+            String id = extractSimulationId(path);
+            
+            if (id == null) {
+                sendError(exchange, 400, "Invalid simulation ID");
+                return;
+            }
+            
+            PhysicsEngine engine = manager.getSimulation(id);
+            if (engine == null) {
+                sendError(exchange, 404, "Simulation not found");
+                return;
+            }
+            
+            long steps;
+            try {
+                String requestBody = readRequestBody(exchange);
+                Map<String, String> json = SimpleJSONParser.parse(requestBody);
+                
+                if (json.containsKey("steps")) {
+                    steps = SimpleJSONParser.getInt(json, "steps", 0);
+                } else if (json.containsKey("duration")) {
+                    steps = engine.stepsFor(SimpleJSONParser.getDouble(json, "duration", 0.0));
+                } else {
+                    sendError(exchange, 400, "Invalid request: give steps or duration");
+                    return;
+                }
+                
+                long started = System.nanoTime();
+                engine.advance(steps);
+                double seconds = (System.nanoTime() - started) / 1e9;
+                
+                StringBuilder sb = new StringBuilder();
+                sb.append("{\"status\":\"ok\",");
+                sb.append("\"steps\":").append(steps).append(",");
+                sb.append("\"simulatedTime\":").append(steps * engine.getStepTime()).append(",");
+                sb.append("\"wallTime\":").append(seconds).append(",");
+                sb.append("\"stepsPerSecond\":").append(seconds > 0.0 ? steps / seconds : 0.0);
+                sb.append("}");
+                sendJSON(exchange, 200, sb.toString());
+            } catch (Exception e) {
+                sendError(exchange, 400, "Invalid request: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Handler for running an ensemble of perturbed copies of a simulation.
+     * POST /api/simulations/{id}/ensemble
+     * with {"members": k, "steps": n, "positionSpread": d, "velocitySpread": d, "seed": s}
+     */
+    public static class EnsembleHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORS(exchange)) return;
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            
+            String path = exchange.getRequestURI().getPath();
+            String id = extractSimulationId(path);
+            
+            if (id == null) {
+                sendError(exchange, 400, "Invalid simulation ID");
+                return;
+            }
+            
+            PhysicsEngine engine = manager.getSimulation(id);
+            if (engine == null) {
+                sendError(exchange, 404, "Simulation not found");
+                return;
+            }
+            
+            EnsembleEngine ensemble = null;
+            try {
+                String requestBody = readRequestBody(exchange);
+                Map<String, String> json = SimpleJSONParser.parse(requestBody);
+                
+                int members = SimpleJSONParser.getInt(json, "members", 16);
+                int steps = SimpleJSONParser.getInt(json, "steps", 0);
+                if (steps < 1 || steps > PhysicsEngine.MAX_ADVANCE_STEPS) {
+                    throw new IllegalArgumentException("Steps must be between 1 and " + PhysicsEngine.MAX_ADVANCE_STEPS);
+                }
+                try (StateSnapshot state = engine.acquireSnapshot()) {
+                    ensemble = new EnsembleEngine(state, members,
+                        SimpleJSONParser.getDouble(json, "positionSpread", 0.0),
+                        SimpleJSONParser.getDouble(json, "velocitySpread", 0.0),
+                        SimpleJSONParser.getInt(json, "seed", 0));
+                }
+                ensemble.setGravitationalConstant(engine.getGravitationalConstant());
+                // One pool thread per core at most, however many the request asks for
+                int processors = Runtime.getRuntime().availableProcessors();
+                int parallelism = SimpleJSONParser.getInt(json, "parallelism", processors);
+                ensemble.setParallelism(Math.max(1, Math.min(parallelism, processors)));
+                if (json.containsKey("ejectionDistance")) {
+                    ensemble.setEjectionDistance(SimpleJSONParser.getDouble(json, "ejectionDistance", 1.0));
+                }
+                
+                long started = System.nanoTime();
+                ensemble.advance(steps, engine.getStepTime());
+                double seconds = (System.nanoTime() - started) / 1e9;
+                
+                StringBuilder sb = new StringBuilder();
+                sb.append("{\"steps\":").append(steps).append(",");
+                sb.append("\"simulatedTime\":").append(steps * engine.getStepTime()).append(",");
+                sb.append("\"wallTime\":").append(seconds).append(",");
+                sb.append("\"members\":[");
+                boolean first = true;
+                for (EnsembleEngine.MemberSummary summary : ensemble.getSummaries()) {
+                    if (!first) sb.append(",");
+                    sb.append("{\"member\":").append(summary.getMember());
+                    sb.append(",\"bodies\":").append(summary.getBodies());
+                    sb.append(",\"merges\":").append(summary.getMerges());
+                    sb.append(",\"ejections\":").append(summary.getEjections());
+                    sb.append(",\"energyError\":").append(summary.getEnergyError());
+                    sb.append("}");
+                    first = false;
+                }
+                sb.append("]}");
+                sendJSON(exchange, 200, sb.toString());
+            } catch (Exception e) {
+                sendError(exchange, 400, "Invalid request: " + e.getMessage());
+            } finally {
+                if (ensemble != null) {
+                    ensemble.close();
+                }
+            }
+        }
+    }
+    
     /**
      * Handler for updating simulation settings.
      * PUT /api/simulations/{id}/settings
@@ -167,6 +313,65 @@ public class SimulationAPI {
                 if (json.containsKey("paused")) {
                     engine.setPaused(SimpleJSONParser.getBoolean(json, "paused", false));
                 }
+                if (json.containsKey("forceSolver")) {
+                    engine.setForceSolver(SimpleJSONParser.getString(json, "forceSolver", "direct"));
+                }
+                if (json.containsKey("broadPhase")) {
+                    engine.setBroadPhase(SimpleJSONParser.getString(json, "broadPhase", "hash"));
+                }
+                if (json.containsKey("continuousCollisions")) {
+                    engine.setContinuousCollisions(SimpleJSONParser.getBoolean(json, "continuousCollisions", false));
+                }
+                if (json.containsKey("integrator")) {
+                    engine.setIntegrator(SimpleJSONParser.getString(json, "integrator", "euler"));
+                }
+                if (json.containsKey("integratorTolerance")) {
+                    engine.setIntegratorTolerance(SimpleJSONParser.getDouble(json, "integratorTolerance", 1e-6));
+                }
+                if (json.containsKey("blockAccuracy")) {
+                    engine.setBlockAccuracy(SimpleJSONParser.getDouble(json, "blockAccuracy", 0.02));
+                }
+                if (json.containsKey("maxBlockLevel")) {
+                    engine.setMaxBlockLevel(SimpleJSONParser.getInt(json, "maxBlockLevel", 10));
+                }
+                if (json.containsKey("reorderInterval")) {
+                    engine.setReorderInterval(SimpleJSONParser.getInt(json, "reorderInterval", 0));
+                }
+                if (json.containsKey("regularization")) {
+                    engine.setRegularization(SimpleJSONParser.getBoolean(json, "regularization", false));
+                }
+                if (json.containsKey("openingAngle")) {
+                    engine.setOpeningAngle(SimpleJSONParser.getDouble(json, "openingAngle", 0.5));
+                }
+                if (json.containsKey("expansionOrder")) {
+                    engine.setExpansionOrder(SimpleJSONParser.getInt(json, "expansionOrder", 4));
+                }
+                if (json.containsKey("meshSize")) {
+                    engine.setMeshSize(SimpleJSONParser.getInt(json, "meshSize", 64));
+                }
+                if (json.containsKey("meshBoundary")) {
+                    engine.setMeshBoundary(SimpleJSONParser.getString(json, "meshBoundary", "isolated"));
+                }
+                if (json.containsKey("meshBoxSize")) {
+                    engine.setMeshBoxSize(SimpleJSONParser.getDouble(json, "meshBoxSize", 1000.0));
+                }
+                if (json.containsKey("parallelism")) {
+                    engine.setParallelism(SimpleJSONParser.getInt(json, "parallelism", 1));
+                }
+                // workers and workerAddresses start processes and open connections, so they
+                // come from the server's startup properties (see SimulationManager), not requests
+                if (json.containsKey("loadBalancing")) {
+                    engine.setLoadBalancing(SimpleJSONParser.getBoolean(json, "loadBalancing", false));
+                }
+                if (json.containsKey("simd")) {
+                    engine.setSimd(SimpleJSONParser.getBoolean(json, "simd", false));
+                }
+                if (json.containsKey("precision")) {
+                    engine.setPrecision(SimpleJSONParser.getString(json, "precision", "double"));
+                }
+                if (json.containsKey("errorSampleSize")) {
+                    engine.setErrorSampleSize(SimpleJSONParser.getInt(json, "errorSampleSize", 32));
+                }
                 
                 sendJSON(exchange, 200, "{\"status\":\"ok\"}");
             } catch (Exception e) {
@@ -309,60 +514,94 @@ public class SimulationAPI {
         sb.append("\"timeFactor\":").append(engine.getTimeFactor()).append(",");
         sb.append("\"bounce\":").append(engine.isBounce()).append(",");
         sb.append("\"coefficientOfRestitution\":").append(engine.getCoefficientOfRestitution()).append(",");
-        sb.append("\"paused\":").append(engine.isPaused());
-        sb.append("},\"planets\":[");
+        sb.append("\"paused\":").append(engine.isPaused()).append(",");
+        sb.append("\"forceSolver\":\"").append(engine.getForceSolver()).append("\",");
+        sb.append("\"broadPhase\":\"").append(engine.getBroadPhase()).append("\",");
+        sb.append("\"continuousCollisions\":").append(engine.isContinuousCollisions()).append(",");
+        sb.append("\"integrator\":\"").append(engine.getIntegrator()).append("\",");
+        sb.append("\"integratorTolerance\":").append(engine.getIntegratorTolerance()).append(",");
+        sb.append("\"blockAccuracy\":").append(engine.getBlockAccuracy()).append(",");
+        sb.append("\"maxBlockLevel\":").append(engine.getMaxBlockLevel()).append(",");
+        sb.append("\"reorderInterval\":").append(engine.getReorderInterval()).append(",");
+        sb.append("\"regularization\":").append(engine.isRegularization()).append(",");
+        sb.append("\"openingAngle\":").append(engine.getOpeningAngle()).append(",");
+        sb.append("\"expansionOrder\":").append(engine.getExpansionOrder()).append(",");
+        sb.append("\"meshSize\":").append(engine.getMeshSize()).append(",");
+        sb.append("\"meshBoundary\":\"").append(engine.getMeshBoundary()).append("\",");
+        sb.append("\"meshBoxSize\":").append(engine.getMeshBoxSize()).append(",");
+        sb.append("\"parallelism\":").append(engine.getParallelism()).append(",");
+        sb.append("\"loadBalancing\":").append(engine.isLoadBalancing()).append(",");
+        sb.append("\"workers\":").append(engine.getWorkers()).append(",");
+        sb.append("\"workerAddresses\":\"").append(engine.getWorkerAddresses()).append("\",");
+        sb.append("\"simd\":").append(engine.isSimd()).append(",");
+        sb.append("\"precision\":\"").append(engine.getPrecision()).append("\",");
+        sb.append("\"errorSampleSize\":").append(engine.getErrorSampleSize());
+        sb.append("},\"diagnostics\":{");
+        sb.append("\"solverUsed\":\"").append(engine.getLastSolverUsed()).append("\",");
+        sb.append("\"forceErrorRms\":").append(engine.getForceErrorRms()).append(",");
+        sb.append("\"forceErrorMax\":").append(engine.getForceErrorMax()).append(",");
+        sb.append("\"simdAvailable\":").append(engine.isSimdAvailable()).append(",");
+        sb.append("\"substeps\":").append(engine.getLastSubsteps()).append(",");
+        sb.append("\"regularizedPairs\":").append(engine.getRegularizedPairs()).append(",");
+        sb.append("\"connectedWorkers\":").append(engine.getConnectedWorkers()).append(",");
+        sb.append("\"threadTimes\":[");
+        double[] threadTimes = engine.getThreadTimes();
+        for (int t = 0; t < threadTimes.length; t++) {
+            if (t > 0) sb.append(",");
+            sb.append(threadTimes[t]);
+        }
+        sb.append("],");
+        sb.append("\"realTimeFactor\":").append(engine.getRealTimeFactor()).append(",");
+        sb.append("\"droppedSteps\":").append(engine.getDroppedSteps()).append(",");
         
-        List<Planet> planets = engine.getPlanets();
-        boolean first = true;
-        for (Planet planet : planets) {
-            if (!first) sb.append(",");
-            sb.append(planetToJSON(planet));
-            first = false;
+        // Bodies come from the last published snapshot, so this never waits on the physics thread
+        try (StateSnapshot state = engine.acquireSnapshot()) {
+            sb.append("\"step\":").append(state.getStep());
+            sb.append("},\"planets\":[");
+            for (int i = 0; i < state.size(); i++) {
+                if (i > 0) sb.append(",");
+                appendBodyJSON(sb, state, i);
+            }
         }
         
         sb.append("]}");
         return sb.toString();
     }
     
-    private static String planetToJSON(Planet planet) {
-        StringBuilder sb = new StringBuilder();
+    private static void appendBodyJSON(StringBuilder sb, StateSnapshot state, int i) {
         sb.append("{");
+        sb.append("\"id\":").append(state.getId(i)).append(",");
         
-        Vector pos = planet.getPosition();
-        double[] posArray = pos.getData();
-        sb.append("\"position\":{\"x\":").append(posArray[0]);
-        sb.append(",\"y\":").append(posArray[1]);
-        if (posArray.length > 2) {
-            sb.append(",\"z\":").append(posArray[2]);
+        boolean is3D = state.getDimension() == 3;
+        sb.append("\"position\":{\"x\":").append(state.getX(i));
+        sb.append(",\"y\":").append(state.getY(i));
+        if (is3D) {
+            sb.append(",\"z\":").append(state.getZ(i));
         }
         sb.append("},");
         
-        Vector vel = planet.getVelocity();
-        double[] velArray = vel.getData();
-        sb.append("\"velocity\":{\"x\":").append(velArray[0]);
-        sb.append(",\"y\":").append(velArray[1]);
-        if (velArray.length > 2) {
-            sb.append(",\"z\":").append(velArray[2]);
+        sb.append("\"velocity\":{\"x\":").append(state.getVelocityX(i));
+        sb.append(",\"y\":").append(state.getVelocityY(i));
+        if (is3D) {
+            sb.append(",\"z\":").append(state.getVelocityZ(i));
         }
         sb.append("},");
         
-        sb.append("\"mass\":").append(planet.getMass()).append(",");
-        sb.append("\"radius\":").append(planet.getRadius()).append(",");
-        sb.append("\"angularVelocity\":").append(planet.getAngularVelocity()).append(",");
-        sb.append("\"rotationAngle\":").append(planet.getRotationAngle()).append(",");
-        sb.append("\"temperature\":").append(planet.getTemperature()).append(",");
-        sb.append("\"name\":\"").append(planet.getName() != null ? planet.getName() : "").append("\",");
+        sb.append("\"mass\":").append(state.getMass(i)).append(",");
+        sb.append("\"radius\":").append(state.getRadius(i)).append(",");
+        sb.append("\"angularVelocity\":").append(state.getAngularVelocity(i)).append(",");
+        sb.append("\"rotationAngle\":").append(state.getRotationAngle(i)).append(",");
+        sb.append("\"temperature\":").append(state.getTemperature(i)).append(",");
+        sb.append("\"name\":\"").append(state.getName(i) != null ? state.getName(i) : "").append("\",");
         
-        Color color = planet.getColor();
+        Color color = state.getColor(i);
         sb.append("\"color\":{\"r\":").append(color.getRed());
         sb.append(",\"g\":").append(color.getGreen());
         sb.append(",\"b\":").append(color.getBlue());
         sb.append("},");
         
-        sb.append("\"fixedLocation\":").append(planet instanceof PointMass);
+        sb.append("\"fixedLocation\":").append(state.isFixed(i));
         sb.append("}");
-        
-        return sb.toString();
     }
     
     private static void sendJSON(HttpExchange exchange, int code, String json) throws IOException {
@@ -29,6 +29,7 @@ public class SimulationManager {
     public String createSimulation3D() {
         String id = UUID.randomUUID().toString();
         PhysicsEngine engine = new PhysicsEngine(3);
+        configureWorkers(engine);
         engine.start();
         simulations.put(id, engine);
         return id;
@@ -40,11 +41,32 @@ public class SimulationManager {
     public String createSimulation2D() {
         String id = UUID.randomUUID().toString();
         PhysicsEngine engine = new PhysicsEngine(2);
+        configureWorkers(engine);
         engine.start();
         simulations.put(id, engine);
         return id;
     }
     
+    /**
+     * Applies the distributed-solver workers from the server's startup properties,
+     * {@code -Dphysics.workers=n} or {@code -Dphysics.workerAddresses=host:port,...}.
+     * They can't be set over HTTP, since they launch processes and open connections.
+     */
+    private static void configureWorkers(PhysicsEngine engine) {
+        String workers = System.getProperty("physics.workers");
+        if (workers != null) {
+            try {
+                engine.setWorkers(Integer.parseInt(workers.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("physics.workers must be a number: " + workers);
+            }
+        }
+        String addresses = System.getProperty("physics.workerAddresses");
+        if (addresses != null) {
+            engine.setWorkerAddresses(addresses);
+        }
+    }
+    
     /**
      * Gets a simulation by ID.
      */
@@ -0,0 +1,36 @@
+package simulations.physics;
+
+/**
+ * AllPairsBroadPhase - Tests every pair of bodies, O(N²).
+ * The reference the other broad-phases are checked against.
+ */
+public class AllPairsBroadPhase implements BroadPhase {
+
+    @Override
+    public void findOverlaps(int count, int dimension, double[] x, double[] y, double[] z,
+                             double[] radius, CollisionPairs out) {
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (overlaps(i, j, x, y, z, radius)) {
+                    out.add(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the spheres of bodies i and j overlap (touching does not count).
+     */
+    static boolean overlaps(int i, int j, double[] x, double[] y, double[] z, double[] radius) {
+        double dx = x[i] - x[j];
+        double dy = y[i] - y[j];
+        double dz = z[i] - z[j];
+        double reach = radius[i] + radius[j];
+        return dx * dx + dy * dy + dz * dz < reach * reach;
+    }
+
+    @Override
+    public String getName() {
+        return BroadPhaseType.ALL_PAIRS.getName();
+    }
+}
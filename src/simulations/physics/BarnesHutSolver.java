@@ -0,0 +1,279 @@
+package simulations.physics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BarnesHutSolver - Approximates far-away groups of bodies by their center of mass.
+ *
+ * Keeps a quadtree (2D) or octree (3D) between steps and walks it once per body.
+ * A cell of width s is treated as a single point mass when its center of mass is
+ * further than s / θ + δ away, where δ is the offset between the cell center and
+ * its center of mass. Smaller opening angles θ are more accurate; θ = 0 opens
+ * every cell and gives the same result as direct summation.
+ *
+ * Each call refits the tree to the new positions, growing cells to hold bodies
+ * that have left them, and rebuilds it only when the cells have grown too much or
+ * {@link #bodiesChanged} was called.
+ *
+ * The tree is updated on the calling thread; with a pool set the per-body walks
+ * are split across threads, giving the same result as the serial walk. By default
+ * the bodies are split into index ranges that idle threads steal. With load
+ * balancing on they are split into one spatial domain per thread instead, by
+ * orthogonal recursive bisection over each body's interaction count on the last
+ * walk, and re-split when the slowest domain takes more than
+ * {@link #IMBALANCE_LIMIT} longer than the average.
+ */
+public class BarnesHutSolver implements ForceSolver {
+
+    /** Slowest domain time over the mean at which the domains are re-split */
+    static final double IMBALANCE_LIMIT = 1.1;
+
+    private final SpatialTree tree = new SpatialTree();
+    private final int[] stack = new int[SpatialTree.MAX_DEPTH * 8 + 8];
+    private double openingAngle;
+    private ForkJoinPool pool;
+
+    /** ORB load balancing: per-body interaction counts from the last walk, and the domains */
+    private boolean loadBalancing = false;
+    private final OrbDecomposition domains = new OrbDecomposition();
+    private double[] cost = new double[0];
+    private boolean rebalanceDue = true;
+    private int rebalances;
+
+    /** Walk time of each thread on the last full pass, in nanoseconds; read by other threads */
+    private static final AtomicLongArray SERIAL = new AtomicLongArray(0);
+    private volatile AtomicLongArray threadNanos = SERIAL;
+
+    public BarnesHutSolver(double openingAngle) {
+        setOpeningAngle(openingAngle);
+    }
+
+    public double getOpeningAngle() {
+        return openingAngle;
+    }
+
+    public void setOpeningAngle(double openingAngle) {
+        if (openingAngle < 0.0 || Double.isNaN(openingAngle)) {
+            throw new IllegalArgumentException("Opening angle must be non-negative");
+        }
+        this.openingAngle = openingAngle;
+    }
+
+    public boolean isLoadBalancing() {
+        return loadBalancing;
+    }
+
+    /**
+     * Splits the walks across threads by cost-weighted spatial domains (true) or by
+     * stolen index ranges (false). Results are the same either way.
+     */
+    public void setLoadBalancing(boolean loadBalancing) {
+        this.loadBalancing = loadBalancing;
+        rebalanceDue = true;
+    }
+
+    /** Number of times the domains have been split so far */
+    public int getRebalanceCount() {
+        return rebalances;
+    }
+
+    /**
+     * Gets each thread's walk time on the last full pass in milliseconds, or an empty
+     * array if the last pass ran on one thread. With load balancing on, entry d is
+     * domain d; otherwise it is the pool worker with that index.
+     */
+    public double[] getThreadTimes() {
+        double[] times = new double[threadNanos.length()];
+        for (int t = 0; t < times.length; t++) {
+            times[t] = threadNanos.get(t) / 1e6;
+        }
+        return times;
+    }
+
+    @Override
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        rebalanceDue = true;
+    }
+
+    @Override
+    public void bodiesChanged() {
+        tree.invalidate();
+        rebalanceDue = true;
+        Arrays.fill(cost, 1.0);
+    }
+
+    /** Number of full tree builds so far; the other calls refit the tree */
+    public int getRebuildCount() {
+        return tree.getRebuildCount();
+    }
+
+    @Override
+    public void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                                     double[] mass, double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        computeAccelerations(null, count, count, dimension, x, y, z, mass, gravitationalConstant, ax, ay, az);
+    }
+
+    /**
+     * Updates the tree from every body and walks it for the targets only.
+     */
+    @Override
+    public void computeAccelerations(int[] targets, int targetCount, int count, int dimension,
+                                     double[] x, double[] y, double[] z, double[] mass,
+                                     double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        tree.update(count, dimension, x, y, z, mass);
+        double invTheta = openingAngle > 0.0 ? 1.0 / openingAngle : Double.POSITIVE_INFINITY;
+
+        int threads = pool == null ? 1 : pool.getParallelism();
+        if (threads <= 1) {
+            walk(targets, 0, targetCount, x, y, z, mass, gravitationalConstant, invTheta, ax, ay, az, stack);
+            if (targets == null) {
+                threadNanos = SERIAL;
+            }
+            return;
+        }
+        if (targets != null) {
+            ParallelRange.forEach(pool, targetCount, (start, end) ->
+                walk(targets, start, end, x, y, z, mass, gravitationalConstant, invTheta, ax, ay, az,
+                     new int[stack.length]));
+            return;
+        }
+
+        AtomicLongArray nanos = new AtomicLongArray(threads);
+        if (!loadBalancing) {
+            ParallelRange.forEach(pool, count, (start, end) -> {
+                long begin = System.nanoTime();
+                walk(null, start, end, x, y, z, mass, gravitationalConstant, invTheta, ax, ay, az,
+                     new int[stack.length]);
+                Thread thread = Thread.currentThread();
+                int worker = thread instanceof ForkJoinWorkerThread
+                    ? ((ForkJoinWorkerThread) thread).getPoolIndex() : 0;
+                nanos.addAndGet(Math.floorMod(worker, threads), System.nanoTime() - begin);
+            });
+            threadNanos = nanos;
+            return;
+        }
+
+        ensureCostCapacity(count);
+        if (rebalanceDue || domains.domainCount != threads || domains.domainStart[threads] != count) {
+            domains.split(count, dimension, x, y, z, cost, threads);
+            rebalanceDue = false;
+            rebalances++;
+        }
+        int[] order = domains.order;
+        int[] domainStart = domains.domainStart;
+        ParallelRange.forEach(pool, threads, 1, (first, last) -> {
+            for (int d = first; d < last; d++) {
+                long begin = System.nanoTime();
+                walk(order, domainStart[d], domainStart[d + 1], x, y, z, mass, gravitationalConstant, invTheta,
+                     ax, ay, az, new int[stack.length]);
+                nanos.set(d, System.nanoTime() - begin);
+            }
+        });
+        threadNanos = nanos;
+
+        long slowest = 0, total = 0;
+        for (int d = 0; d < threads; d++) {
+            slowest = Math.max(slowest, nanos.get(d));
+            total += nanos.get(d);
+        }
+        if (slowest * threads > IMBALANCE_LIMIT * total) {
+            rebalanceDue = true;
+        }
+    }
+
+    private void ensureCostCapacity(int count) {
+        if (cost.length < count) {
+            int old = cost.length;
+            cost = Arrays.copyOf(cost, Math.max(count, old * 2));
+            Arrays.fill(cost, old, cost.length, 1.0);
+        }
+    }
+
+    /**
+     * Walks the tree for targets [start, end) (bodies [start, end) when {@code targets}
+     * is null), using {@code stack} as the node stack.
+     */
+    private void walk(int[] targets, int start, int end, double[] x, double[] y, double[] z, double[] mass,
+                      double gravitationalConstant, double invTheta,
+                      double[] ax, double[] ay, double[] az, int[] stack) {
+        for (int n = start; n < end; n++) {
+            int i = targets == null ? n : targets[n];
+            double xi = x[i];
+            double yi = y[i];
+            double zi = z[i];
+            double sumX = 0.0;
+            double sumY = 0.0;
+            double sumZ = 0.0;
+
+            int interactions = 0;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+
+                if (!tree.isLeaf(node)) {
+                    double dx = tree.comX[node] - xi;
+                    double dy = tree.comY[node] - yi;
+                    double dz = tree.comZ[node] - zi;
+                    double distSq = dx * dx + dy * dy + dz * dz;
+
+                    double ox = tree.comX[node] - tree.centerX[node];
+                    double oy = tree.comY[node] - tree.centerY[node];
+                    double oz = tree.comZ[node] - tree.centerZ[node];
+                    double limit = 2.0 * tree.halfSize[node] * invTheta + Math.sqrt(ox * ox + oy * oy + oz * oz);
+
+                    if (distSq > limit * limit) {
+                        // Far enough away - use the cell's center of mass
+                        interactions++;
+                        double invDist = 1.0 / Math.sqrt(distSq);
+                        double scale = gravitationalConstant * tree.mass[node] * invDist * invDist * invDist;
+                        sumX += dx * scale;
+                        sumY += dy * scale;
+                        sumZ += dz * scale;
+                    } else {
+                        int first = tree.firstChild[node];
+                        for (int c = tree.childCount[node] - 1; c >= 0; c--) {
+                            stack[top++] = first + c;
+                        }
+                    }
+                    continue;
+                }
+
+                // Leaf - sum its bodies directly
+                interactions += tree.bodyEnd[node] - tree.bodyStart[node];
+                for (int k = tree.bodyStart[node]; k < tree.bodyEnd[node]; k++) {
+                    int j = tree.order[k];
+                    double dx = x[j] - xi;
+                    double dy = y[j] - yi;
+                    double dz = z[j] - zi;
+                    double distSq = dx * dx + dy * dy + dz * dz;
+                    if (distSq == 0.0) continue; // also skips i == j
+
+                    double invDist = 1.0 / Math.sqrt(distSq);
+                    double scale = gravitationalConstant * mass[j] * invDist * invDist * invDist;
+                    sumX += dx * scale;
+                    sumY += dy * scale;
+                    sumZ += dz * scale;
+                }
+            }
+
+            ax[i] = sumX;
+            ay[i] = sumY;
+            az[i] = sumZ;
+            if (i < cost.length) {
+                cost[i] = interactions;
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return ForceSolverType.BARNES_HUT.getName();
+    }
+}
@@ -0,0 +1,248 @@
+package simulations.physics;
+
+import java.util.Arrays;
+
+/**
+ * BlockTimestepIntegrator - Kick-drift-kick leapfrog with individual power-of-two steps.
+ *
+ * Each body sits on a level L and steps by {@code dt / 2^L}, so a tight binary can take
+ * hundreds of steps while the rest of the system takes one. Between events every body
+ * drifts, so positions are always synchronised. At each event only the bodies whose
+ * step ends there have their forces evaluated and are kicked. All levels end together
+ * at the end of {@code dt}, so after a call every body is at the same time.
+ *
+ * A body's next step is {@code accuracy * |a| / |da/dt|}, with da/dt the change in its
+ * acceleration over its last step. A body can move to any finer level at the end of a
+ * step, but only one level coarser, and only where the coarser level's steps begin.
+ * Bodies without a previous step (at the start or after bodies are added, removed or
+ * edited) use {@code accuracy * |v| / |a|} instead.
+ */
+public class BlockTimestepIntegrator implements Integrator {
+
+    /** Default accuracy parameter: roughly 1/50 of the time for a body's acceleration to change */
+    public static final double DEFAULT_ACCURACY = 0.02;
+    /** Default finest level: steps down to dt / 1024 */
+    public static final int DEFAULT_MAX_LEVEL = 10;
+    /** Largest allowed finest level */
+    public static final int LEVEL_LIMIT = 20;
+
+    private double accuracy = DEFAULT_ACCURACY;
+    private int maxLevel = DEFAULT_MAX_LEVEL;
+
+    private int[] level = new int[0];
+    private double[] oldX = new double[0];
+    private double[] oldY = new double[0];
+    private double[] oldZ = new double[0];
+    private int[] active = new int[0];
+    /** Store version the levels belong to */
+    private long levelsVersion = -1;
+    private int levelsCount = -1;
+    private int lastSubsteps = 0;
+    private int lastDeepestLevel = 0;
+
+    @Override
+    public void step(BodyStore bodies, double dt, ForceEvaluator forces) {
+        int count = bodies.size();
+        ensureCapacity(count);
+        boolean[] fixed = bodies.fixed;
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+
+        forces.ensureCurrent();
+        double[] ax = forces.getAccelX(), ay = forces.getAccelY(), az = forces.getAccelZ();
+        System.arraycopy(ax, 0, oldX, 0, count);
+        System.arraycopy(ay, 0, oldY, 0, count);
+        System.arraycopy(az, 0, oldZ, 0, count);
+
+        if (bodies.version != levelsVersion || count != levelsCount) {
+            initialLevels(bodies, count, Math.abs(dt));
+        }
+
+        // Time in ticks of dt / 2^maxLevel
+        int ticks = 1 << maxLevel;
+        double tick = dt / ticks;
+        int free = 0;
+        for (int i = 0; i < count; i++) {
+            level[i] = Math.min(level[i], maxLevel);
+            if (fixed[i]) continue;
+            free++;
+            // Opening half-kick of each body's first step
+            double h = 0.5 * tick * (ticks >> level[i]);
+            vx[i] += oldX[i] * h;
+            vy[i] += oldY[i] * h;
+            vz[i] += oldZ[i] * h;
+        }
+
+        int t = 0;
+        int events = 0;
+        int deepest = 0;
+        while (t < ticks) {
+            int finest = 0;
+            for (int i = 0; i < count; i++) {
+                if (!fixed[i]) finest = Math.max(finest, level[i]);
+            }
+            deepest = Math.max(deepest, finest);
+            int span = ticks >> finest;
+            int next = (t / span + 1) * span;
+            IntegratorSteps.drift(bodies, count, tick * (next - t));
+            t = next;
+            events++;
+
+            int activeCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (!fixed[i] && t % (ticks >> level[i]) == 0) {
+                    active[activeCount++] = i;
+                }
+            }
+            if (activeCount == free) {
+                forces.evaluate();
+            } else {
+                forces.evaluate(active, activeCount);
+            }
+
+            for (int n = 0; n < activeCount; n++) {
+                int i = active[n];
+                double stepTime = tick * (ticks >> level[i]);
+                // Closing half-kick with the new forces
+                vx[i] += ax[i] * 0.5 * stepTime;
+                vy[i] += ay[i] * 0.5 * stepTime;
+                vz[i] += az[i] * 0.5 * stepTime;
+
+                double dax = ax[i] - oldX[i];
+                double day = ay[i] - oldY[i];
+                double daz = az[i] - oldZ[i];
+                double change = Math.sqrt(dax * dax + day * day + daz * daz);
+                double accel = Math.sqrt(ax[i] * ax[i] + ay[i] * ay[i] + az[i] * az[i]);
+                double wanted = change > 0.0 ? accuracy * accel * Math.abs(stepTime) / change : Double.POSITIVE_INFINITY;
+                level[i] = nextLevel(level[i], levelFor(Math.abs(dt), wanted), t, ticks);
+                oldX[i] = ax[i];
+                oldY[i] = ay[i];
+                oldZ[i] = az[i];
+
+                if (t < ticks) {
+                    // Opening half-kick of the body's next step
+                    double h = 0.5 * tick * (ticks >> level[i]);
+                    vx[i] += ax[i] * h;
+                    vy[i] += ay[i] * h;
+                    vz[i] += az[i] * h;
+                }
+            }
+        }
+
+        lastSubsteps = events;
+        lastDeepestLevel = deepest;
+        levelsVersion = bodies.version;
+        levelsCount = count;
+    }
+
+    /**
+     * Assigns levels to bodies without a step history from {@code accuracy * |v| / |a|}.
+     */
+    private void initialLevels(BodyStore bodies, int count, double dt) {
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+        for (int i = 0; i < count; i++) {
+            double speed = Math.sqrt(vx[i] * vx[i] + vy[i] * vy[i] + vz[i] * vz[i]);
+            double accel = Math.sqrt(oldX[i] * oldX[i] + oldY[i] * oldY[i] + oldZ[i] * oldZ[i]);
+            double wanted = accel > 0.0 ? accuracy * speed / accel : Double.POSITIVE_INFINITY;
+            level[i] = levelFor(dt, wanted);
+        }
+    }
+
+    /**
+     * Smallest level whose step {@code dt / 2^L} is no longer than {@code wanted}.
+     */
+    private int levelFor(double dt, double wanted) {
+        if (!(wanted < dt)) {
+            return 0;
+        }
+        int wantedLevel = (int) Math.ceil(Math.log(dt / wanted) / Math.log(2.0));
+        return Math.max(0, Math.min(maxLevel, wantedLevel));
+    }
+
+    /**
+     * Level for a body's next step starting at tick {@code t}: finer at once, but only
+     * one level coarser and only if {@code t} is a step boundary of that level.
+     */
+    private static int nextLevel(int current, int wanted, int t, int ticks) {
+        if (wanted >= current) {
+            return wanted;
+        }
+        int coarser = current - 1;
+        return t % (ticks >> coarser) == 0 ? coarser : current;
+    }
+
+    /** Levels move with their bodies; the old accelerations are refilled every step */
+    @Override
+    public void bodiesReordered(int[] order, int count) {
+        if (count != levelsCount || level.length < count) return;
+        for (int k = 0; k < count; k++) {
+            active[k] = level[order[k]];
+        }
+        System.arraycopy(active, 0, level, 0, count);
+    }
+
+    private void ensureCapacity(int count) {
+        if (level.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, level.length * 2);
+        level = Arrays.copyOf(level, capacity);
+        oldX = new double[capacity];
+        oldY = new double[capacity];
+        oldZ = new double[capacity];
+        active = new int[capacity];
+        levelsVersion = -1;
+    }
+
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Sets the accuracy parameter that scales every body's step size.
+     */
+    public void setAccuracy(double accuracy) {
+        if (!(accuracy > 0.0)) {
+            throw new IllegalArgumentException("Block timestep accuracy must be positive");
+        }
+        this.accuracy = accuracy;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Sets the finest level, so the shortest step is {@code dt / 2^maxLevel}.
+     */
+    public void setMaxLevel(int maxLevel) {
+        if (maxLevel < 0 || maxLevel > LEVEL_LIMIT) {
+            throw new IllegalArgumentException("Block timestep level must be between 0 and " + LEVEL_LIMIT);
+        }
+        this.maxLevel = maxLevel;
+    }
+
+    /**
+     * Gets how many events (force evaluations) the last call made.
+     */
+    @Override
+    public int getLastSubsteps() {
+        return lastSubsteps;
+    }
+
+    /**
+     * Gets the finest level any body used during the last call.
+     */
+    public int getLastDeepestLevel() {
+        return lastDeepestLevel;
+    }
+
+    @Override
+    public boolean endsWithForceEvaluation() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return IntegratorType.BLOCK.getName();
+    }
+}
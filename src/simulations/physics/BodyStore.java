@@ -0,0 +1,316 @@
+package simulations.physics;
+
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.PointMass;
+import simulations.NewtonianGravity.Vector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BodyStore - Structure-of-arrays storage for the bodies of a simulation.
+ *
+ * Positions, velocities, masses and radii live in contiguous primitive arrays so the
+ * force and integration loops never touch Planet objects. Each stored body keeps its
+ * Planet as a handle: the Planet reads and writes its position and velocity through
+ * the store while attached, so callers holding Planet references still see live values.
+ *
+ * Only the first {@link #size()} entries of each array are valid, and the arrays are
+ * replaced when capacity grows or the bodies are reordered. For 2D simulations z, vz
+ * stay zero. Indices change when bodies are removed or reordered; each body also has
+ * an id that never changes and is never reused.
+ * The store is also the lock that guards its contents.
+ */
+public class BodyStore {
+
+    private final int dimension;
+    private int count = 0;
+
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] z = new double[0];
+    double[] vx = new double[0];
+    double[] vy = new double[0];
+    double[] vz = new double[0];
+    double[] mass = new double[0];
+    double[] radius = new double[0];
+    /** True for bodies that never move (PointMass) */
+    boolean[] fixed = new boolean[0];
+    private Planet[] planets = new Planet[0];
+    /** Stable id of each body, and the id the next added body gets */
+    long[] id = new long[0];
+    private long nextId = 0;
+    /** Arrays the next reorder gathers into, swapped with the live ones */
+    private double[][] spare = new double[8][0];
+    private boolean[] spareFixed = new boolean[0];
+    private long[] spareId = new long[0];
+    private Planet[] sparePlanets = new Planet[0];
+    /** Bumped whenever bodies are added, removed or written through a handle */
+    long version = 0;
+    /** Bumped whenever bodies are added, removed or reordered, so an index may name another body */
+    long layoutVersion = 0;
+
+    /**
+     * @param dimension 2 for 2D, 3 for 3D
+     */
+    public BodyStore(int dimension) {
+        if (dimension != 2 && dimension != 3) {
+            throw new IllegalArgumentException("Dimension must be 2 or 3");
+        }
+        this.dimension = dimension;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Copies a planet's state into the store and attaches the planet to it.
+     * @return the planet's index
+     */
+    public synchronized int add(Planet planet) {
+        Vector pos = planet.getPosition();
+        Vector vel = planet.getVelocity();
+        if (pos.dimensions() != dimension) {
+            throw new IllegalArgumentException("Planet dimension must match store dimension");
+        }
+        if (planet.isAttached()) {
+            throw new IllegalArgumentException("Planet already belongs to a simulation");
+        }
+        ensureCapacity(count + 1);
+
+        int i = count++;
+        x[i] = pos.get(0);
+        y[i] = pos.get(1);
+        z[i] = dimension == 3 ? pos.get(2) : 0.0;
+        vx[i] = vel.get(0);
+        vy[i] = vel.get(1);
+        vz[i] = dimension == 3 ? vel.get(2) : 0.0;
+        mass[i] = planet.getMass();
+        radius[i] = planet.getRadius();
+        fixed[i] = planet instanceof PointMass;
+        id[i] = nextId++;
+        planets[i] = planet;
+        planet.attach(this, i);
+        version++;
+        layoutVersion++;
+        return i;
+    }
+
+    /**
+     * Removes a planet, keeping the order of the remaining bodies.
+     * @return true if the planet was in this store
+     */
+    public synchronized boolean remove(Planet planet) {
+        for (int i = 0; i < count; i++) {
+            if (planets[i] == planet) {
+                boolean[] marked = new boolean[count];
+                marked[i] = true;
+                removeMarked(marked);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every body whose entry in {@code marked} is true, compacting the
+     * arrays in place. Removed planets are detached and keep their final state.
+     */
+    public synchronized void removeMarked(boolean[] marked) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (marked[i]) {
+                planets[i].detach();
+                planets[i] = null;
+                continue;
+            }
+            if (kept != i) {
+                x[kept] = x[i];
+                y[kept] = y[i];
+                z[kept] = z[i];
+                vx[kept] = vx[i];
+                vy[kept] = vy[i];
+                vz[kept] = vz[i];
+                mass[kept] = mass[i];
+                radius[kept] = radius[i];
+                fixed[kept] = fixed[i];
+                id[kept] = id[i];
+                planets[kept] = planets[i];
+                planets[i] = null;
+                planets[kept].attach(this, kept);
+            }
+            kept++;
+        }
+        count = kept;
+        version++;
+        layoutVersion++;
+    }
+
+    /**
+     * Detaches and removes every body.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < count; i++) {
+            planets[i].detach();
+            planets[i] = null;
+        }
+        count = 0;
+        version++;
+        layoutVersion++;
+    }
+
+    /**
+     * Moves the body at index {@code order[k]} to index k for every k below
+     * {@link #size()}. {@code order} must be a permutation of those indices. Handles are
+     * re-attached and ids move with their bodies. Only {@link #layoutVersion} changes;
+     * whoever reorders moves other per-index state with the same order.
+     */
+    public synchronized void reorder(int[] order) {
+        if (spareId.length < x.length) {
+            spare = new double[8][x.length];
+            spareFixed = new boolean[x.length];
+            spareId = new long[x.length];
+            sparePlanets = new Planet[x.length];
+        }
+        x = gather(x, 0, order);
+        y = gather(y, 1, order);
+        z = gather(z, 2, order);
+        vx = gather(vx, 3, order);
+        vy = gather(vy, 4, order);
+        vz = gather(vz, 5, order);
+        mass = gather(mass, 6, order);
+        radius = gather(radius, 7, order);
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            spareFixed[k] = fixed[i];
+            spareId[k] = id[i];
+            sparePlanets[k] = planets[i];
+        }
+        boolean[] oldFixed = fixed;
+        fixed = spareFixed;
+        spareFixed = oldFixed;
+        long[] oldId = id;
+        id = spareId;
+        spareId = oldId;
+        Planet[] oldPlanets = planets;
+        planets = sparePlanets;
+        sparePlanets = oldPlanets;
+        Arrays.fill(sparePlanets, 0, count, null);
+
+        for (int k = 0; k < count; k++) {
+            planets[k].attach(this, k);
+        }
+        // Same bodies in the same state, so only index-keyed state has to follow
+        layoutVersion++;
+    }
+
+    /** Gathers {@code from} in the given order into spare slot {@code slot}, which takes {@code from} */
+    private double[] gather(double[] from, int slot, int[] order) {
+        double[] to = spare[slot];
+        for (int k = 0; k < count; k++) {
+            to[k] = from[order[k]];
+        }
+        spare[slot] = from;
+        return to;
+    }
+
+    /**
+     * Gets the id of the body at an index.
+     */
+    public synchronized long getId(int index) {
+        checkIndex(index);
+        return id[index];
+    }
+
+    /**
+     * Finds the current index of the body with the given id.
+     * @return the index, or -1 if no such body is stored
+     */
+    public synchronized int indexOf(long bodyId) {
+        for (int i = 0; i < count; i++) {
+            if (id[i] == bodyId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the planet handle at an index.
+     */
+    public synchronized Planet getPlanet(int index) {
+        checkIndex(index);
+        return planets[index];
+    }
+
+    /**
+     * Gets the planet handles in store order.
+     */
+    public synchronized List<Planet> getPlanets() {
+        List<Planet> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(planets[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Copies the stored position and velocity of a body into the given vectors.
+     */
+    public synchronized void read(int index, Vector pos, Vector vel) {
+        checkIndex(index);
+        pos.set(0, x[index]);
+        pos.set(1, y[index]);
+        vel.set(0, vx[index]);
+        vel.set(1, vy[index]);
+        if (dimension == 3) {
+            pos.set(2, z[index]);
+            vel.set(2, vz[index]);
+        }
+    }
+
+    /**
+     * Overwrites the stored position and velocity of a body.
+     */
+    public synchronized void write(int index, Vector pos, Vector vel) {
+        checkIndex(index);
+        version++;
+        x[index] = pos.get(0);
+        y[index] = pos.get(1);
+        vx[index] = vel.get(0);
+        vy[index] = vel.get(1);
+        if (dimension == 3) {
+            z[index] = pos.get(2);
+            vz[index] = vel.get(2);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Body index " + index + " out of range for " + count + " bodies");
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (x.length >= needed) {
+            return;
+        }
+        int capacity = Math.max(needed, Math.max(16, x.length * 2));
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        vz = Arrays.copyOf(vz, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        fixed = Arrays.copyOf(fixed, capacity);
+        id = Arrays.copyOf(id, capacity);
+        planets = Arrays.copyOf(planets, capacity);
+    }
+}
@@ -0,0 +1,35 @@
+package simulations.physics;
+
+/**
+ * BroadPhase - Finds the pairs of bodies whose spheres overlap.
+ * Implementations differ only in how they avoid testing every pair; all of them
+ * report exactly the pairs with distance below the sum of the radii.
+ */
+public interface BroadPhase {
+
+    /**
+     * Adds every overlapping pair to {@code out}, each pair once.
+     *
+     * @param count Number of bodies (arrays may be longer)
+     * @param dimension 2 or 3
+     * @param x Body x positions
+     * @param y Body y positions
+     * @param z Body z positions (zeros in 2D)
+     * @param radius Body radii
+     * @param out Pair list to append to
+     */
+    void findOverlaps(int count, int dimension, double[] x, double[] y, double[] z,
+                      double[] radius, CollisionPairs out);
+
+    /**
+     * Tells the broad-phase that bodies were added, removed or reordered since the last
+     * call, so anything it keeps between calls that is keyed by body index must be rebuilt.
+     */
+    default void bodiesChanged() {
+    }
+
+    /**
+     * Gets the name used for this broad-phase in the settings API.
+     */
+    String getName();
+}
@@ -0,0 +1,51 @@
+package simulations.physics;
+
+/**
+ * The collision broad-phases that can be selected for a PhysicsEngine.
+ * Names match the "broadPhase" value accepted by the settings API.
+ */
+public enum BroadPhaseType {
+    /** Test every pair, O(N²) */
+    ALL_PAIRS("all-pairs"),
+    /** Uniform hashed grid, O(N) for similar radii */
+    SPATIAL_HASH("hash"),
+    /** Sweep-and-prune on one axis, re-sorted incrementally; copes with very uneven radii */
+    SWEEP_AND_PRUNE("sweep");
+
+    private final String name;
+
+    BroadPhaseType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Creates a new broad-phase of this type.
+     */
+    public BroadPhase create() {
+        switch (this) {
+            case ALL_PAIRS:
+                return new AllPairsBroadPhase();
+            case SWEEP_AND_PRUNE:
+                return new SweepAndPruneBroadPhase();
+            default:
+                return new SpatialHashBroadPhase();
+        }
+    }
+
+    /**
+     * Looks up a broad-phase type by its API name.
+     * @throws IllegalArgumentException if the name is not recognised
+     */
+    public static BroadPhaseType fromName(String name) {
+        for (BroadPhaseType type : values()) {
+            if (type.name.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown broad-phase: " + name);
+    }
+}
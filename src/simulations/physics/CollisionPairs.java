@@ -0,0 +1,46 @@
+package simulations.physics;
+
+import java.util.Arrays;
+
+/**
+ * CollisionPairs - Growable list of body index pairs, packed into longs so it can be
+ * filled and sorted without allocating once it has grown.
+ */
+public final class CollisionPairs {
+
+    private long[] pairs = new long[16];
+    private int size = 0;
+
+    /**
+     * Appends the pair (a, b).
+     */
+    public void add(int a, int b) {
+        if (size == pairs.length) {
+            pairs = Arrays.copyOf(pairs, size * 2);
+        }
+        pairs[size++] = ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int first(int index) {
+        return (int) (pairs[index] >>> 32);
+    }
+
+    public int second(int index) {
+        return (int) pairs[index];
+    }
+
+    /**
+     * Sorts the pairs by first index, then second.
+     */
+    public void sort() {
+        Arrays.sort(pairs, 0, size);
+    }
+}
@@ -0,0 +1,211 @@
+package simulations.physics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * DirectSumSolver - Exact O(N²) pairwise force summation.
+ * This is the reference solver that approximate solvers are checked against.
+ *
+ * Each pair is visited once and both bodies receive equal and opposite contributions,
+ * which roughly halves the work of summing per body. Bodies are processed in tiles of
+ * {@link #TILE_SIZE} so both tiles of a pair stay in cache. Tile pairs are scheduled
+ * round-robin: within a round no two tile pairs share a tile, so with a pool set a
+ * round's pairs run on different threads without locking. Every body receives its
+ * contributions in the same order on any number of threads, so results are
+ * bit-identical to the serial path.
+ */
+public class DirectSumSolver implements ForceSolver {
+
+    /** Bodies per tile; two tiles of positions, masses and accelerations fit in L1/L2 */
+    static final int TILE_SIZE = 256;
+
+    private ForkJoinPool pool;
+
+    // Arrays of the current computeAccelerations call
+    private double[] x, y, z, mass;
+    private double[] ax, ay, az;
+    private double gravitationalConstant;
+    private int count;
+
+    @Override
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                                     double[] mass, double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.mass = mass;
+        this.ax = ax;
+        this.ay = ay;
+        this.az = az;
+        this.gravitationalConstant = gravitationalConstant;
+        this.count = count;
+
+        Arrays.fill(ax, 0, count, 0.0);
+        Arrays.fill(ay, 0, count, 0.0);
+        Arrays.fill(az, 0, count, 0.0);
+
+        int tiles = (count + TILE_SIZE - 1) / TILE_SIZE;
+
+        // Pairs inside each tile - tiles are independent of each other
+        if (pool == null) {
+            for (int t = 0; t < tiles; t++) {
+                interactTiles(t, t);
+            }
+        } else {
+            ParallelRange.forEach(pool, tiles, 1, (start, end) -> {
+                for (int t = start; t < end; t++) {
+                    interactTiles(t, t);
+                }
+            });
+        }
+
+        // Pairs across tiles, one round-robin round at a time. An odd tile count
+        // gets a dummy slot, and pairs with the dummy are skipped.
+        int slots = tiles + (tiles & 1);
+        int pairsPerRound = slots / 2;
+        for (int round = 0; round < slots - 1; round++) {
+            if (pool == null) {
+                for (int k = 0; k < pairsPerRound; k++) {
+                    interactScheduledPair(round, k, slots, tiles);
+                }
+            } else {
+                int r = round;
+                ParallelRange.forEach(pool, pairsPerRound, 1, (start, end) -> {
+                    for (int k = start; k < end; k++) {
+                        interactScheduledPair(r, k, slots, tiles);
+                    }
+                });
+            }
+        }
+
+        this.x = this.y = this.z = this.mass = null;
+        this.ax = this.ay = this.az = null;
+    }
+
+    /**
+     * Interacts the k-th tile pair of a round in the circle-method schedule. Slot
+     * {@code slots - 1} stays put while the others rotate, so over {@code slots - 1}
+     * rounds every pair of slots meets exactly once.
+     */
+    private void interactScheduledPair(int round, int k, int slots, int tiles) {
+        int m = slots - 1;
+        int a;
+        int b;
+        if (k == 0) {
+            a = round;
+            b = m;
+        } else {
+            a = (round + k) % m;
+            b = (round - k + m) % m;
+        }
+        if (a < tiles && b < tiles) {
+            interactTiles(a, b);
+        }
+    }
+
+    /**
+     * Adds the mutual accelerations of every pair with one body in tile a and one
+     * in tile b (each pair once when a == b).
+     */
+    private void interactTiles(int a, int b) {
+        int iEnd = Math.min(count, (a + 1) * TILE_SIZE);
+        int jStart = b * TILE_SIZE;
+        int jEnd = Math.min(count, (b + 1) * TILE_SIZE);
+        double g = gravitationalConstant;
+
+        for (int i = a * TILE_SIZE; i < iEnd; i++) {
+            double xi = x[i];
+            double yi = y[i];
+            double zi = z[i];
+            double mi = mass[i];
+            double sumX = 0.0;
+            double sumY = 0.0;
+            double sumZ = 0.0;
+
+            for (int j = a == b ? i + 1 : jStart; j < jEnd; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double dz = z[j] - zi;
+                double distSq = dx * dx + dy * dy + dz * dz;
+                if (distSq == 0.0) continue;
+
+                double invDist = 1.0 / Math.sqrt(distSq);
+                double pairScale = g * invDist * invDist * invDist;
+                double toJ = pairScale * mass[j];
+                double toI = pairScale * mi;
+                sumX += dx * toJ;
+                sumY += dy * toJ;
+                sumZ += dz * toJ;
+                ax[j] -= dx * toI;
+                ay[j] -= dy * toI;
+                az[j] -= dz * toI;
+            }
+
+            ax[i] += sumX;
+            ay[i] += sumY;
+            az[i] += sumZ;
+        }
+    }
+
+    /**
+     * Sums each target against every body with {@link #computeAcceleration}, so the
+     * cost is O(targetCount · N) instead of the full pass.
+     */
+    @Override
+    public void computeAccelerations(int[] targets, int targetCount, int count, int dimension,
+                                     double[] x, double[] y, double[] z, double[] mass,
+                                     double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        ParallelRange.forEach(pool, targetCount, (start, end) -> {
+            for (int n = start; n < end; n++) {
+                int i = targets[n];
+                computeAcceleration(i, count, x, y, z, mass, gravitationalConstant, ax, ay, az, i);
+            }
+        });
+    }
+
+    /**
+     * Computes the exact acceleration of a single body.
+     * The result is written to ax/ay/az at index {@code slot}.
+     */
+    public void computeAcceleration(int target, int count, double[] x, double[] y, double[] z,
+                                    double[] mass, double gravitationalConstant,
+                                    double[] ax, double[] ay, double[] az, int slot) {
+        double xi = x[target];
+        double yi = y[target];
+        double zi = z[target];
+        double sumX = 0.0;
+        double sumY = 0.0;
+        double sumZ = 0.0;
+
+        for (int j = 0; j < count; j++) {
+            double dx = x[j] - xi;
+            double dy = y[j] - yi;
+            double dz = z[j] - zi;
+            double distSq = dx * dx + dy * dy + dz * dz;
+            if (distSq == 0.0) continue; // also skips the target itself
+
+            double invDist = 1.0 / Math.sqrt(distSq);
+            double scale = gravitationalConstant * mass[j] * invDist * invDist * invDist;
+            sumX += dx * scale;
+            sumY += dy * scale;
+            sumZ += dz * scale;
+        }
+
+        ax[slot] = sumX;
+        ay[slot] = sumY;
+        az[slot] = sumZ;
+    }
+
+    @Override
+    public String getName() {
+        return ForceSolverType.DIRECT.getName();
+    }
+}
@@ -0,0 +1,374 @@
+package simulations.physics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DistributedSolver - Barnes-Hut with the walks split across {@link ForceWorker} processes.
+ *
+ * Each call the coordinator splits the bodies into one spatial domain per worker by
+ * orthogonal recursive bisection and updates its own tree over all bodies. For every
+ * domain it walks that tree against the domain's bounding box: cells that pass the
+ * Barnes-Hut opening test for every point of the box are sent as a single pseudo-body
+ * at their center of mass, and leaves that don't are sent body by body. Together with
+ * the domain's own bodies this locally essential set is all a worker needs, so no body
+ * outside it is ever sent. Requests go out to every worker before any reply is read,
+ * so the workers compute at the same time.
+ *
+ * A cell accepted for a whole box is also accepted for each body in it, so the far
+ * field is never coarser than a local Barnes-Hut walk with the same opening angle.
+ *
+ * Workers are either started by hand (possibly on other machines) and connected with
+ * {@link #connect}, or launched as local JVMs with {@link #launchLocal}. A failed
+ * worker surfaces as an {@link UncheckedIOException} from the force pass.
+ */
+public class DistributedSolver implements ForceSolver, AutoCloseable {
+
+    /** How long {@link #launchLocal} waits for a worker to report its port */
+    private static final long LAUNCH_TIMEOUT_SECONDS = 30;
+
+    /** How long a connection to a worker may take before it counts as unreachable */
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private final List<SocketChannel> channels;
+    private final List<Process> processes;
+    private double openingAngle;
+
+    private final SpatialTree tree = new SpatialTree();
+    private final OrbDecomposition domains = new OrbDecomposition();
+    private final int[] stack = new int[SpatialTree.MAX_DEPTH * 8 + 8];
+    private int[] domainOf = new int[0];
+    private double[] unitCost = new double[0];
+    private ByteBuffer[] requests;
+    private ByteBuffer[] responses;
+    /** Bodies and pseudo-bodies sent on the last call, summed over workers */
+    private long lastSourceCount;
+
+    private DistributedSolver(List<SocketChannel> channels, List<Process> processes, double openingAngle) {
+        this.channels = channels;
+        this.processes = processes;
+        setOpeningAngle(openingAngle);
+        requests = new ByteBuffer[channels.size()];
+        responses = new ByteBuffer[channels.size()];
+        for (int w = 0; w < channels.size(); w++) {
+            requests[w] = ByteBuffer.allocate(ForceWorker.HEADER_BYTES);
+            responses[w] = ByteBuffer.allocate(0);
+        }
+    }
+
+    /**
+     * Connects to workers that are already listening, e.g. started on other machines.
+     */
+    public static DistributedSolver connect(List<InetSocketAddress> workers, double openingAngle) throws IOException {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        List<SocketChannel> channels = new ArrayList<>();
+        try {
+            for (InetSocketAddress address : workers) {
+                channels.add(open(address));
+            }
+        } catch (IOException e) {
+            closeAll(channels);
+            throw e;
+        }
+        return new DistributedSolver(channels, new ArrayList<>(), openingAngle);
+    }
+
+    /**
+     * Starts {@code count} worker JVMs on this machine, listening on loopback, and
+     * connects to them. They use this JVM's class path and exit when the solver closes
+     * or this JVM goes away.
+     */
+    public static DistributedSolver launchLocal(int count, double openingAngle) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        List<SocketChannel> channels = new ArrayList<>();
+        try {
+            for (int w = 0; w < count; w++) {
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                                            ForceWorker.class.getName(), "0", "127.0.0.1", "--once");
+                builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                processes.add(builder.start());
+            }
+            for (Process process : processes) {
+                channels.add(open(readAddress(process)));
+            }
+        } catch (IOException e) {
+            closeAll(channels);
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+            throw e;
+        }
+        return new DistributedSolver(channels, processes, openingAngle);
+    }
+
+    /** Reads the "listening host:port" line a worker prints once it is ready */
+    private static InetSocketAddress readAddress(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String[] line = new String[1];
+        Thread readerThread = new Thread(() -> {
+            try {
+                line[0] = reader.readLine();
+            } catch (IOException e) {
+                line[0] = null;
+            }
+        }, "ForceWorker-Launch");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        try {
+            readerThread.join(TimeUnit.SECONDS.toMillis(LAUNCH_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while starting a worker");
+        }
+        String ready = line[0];
+        if (ready == null || !ready.startsWith("listening ")) {
+            throw new IOException("Worker did not start" + (ready == null ? "" : ": " + ready));
+        }
+        String address = ready.substring("listening ".length());
+        int colon = address.lastIndexOf(':');
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    private static SocketChannel open(InetSocketAddress address) throws IOException {
+        if (address.isUnresolved()) {
+            address = new InetSocketAddress(address.getHostString(), address.getPort());
+            if (address.isUnresolved()) {
+                throw new IOException("Unknown worker host " + address.getHostString());
+            }
+        }
+        SocketChannel channel = SocketChannel.open();
+        try {
+            // The channel's own connect() has no timeout; its socket adaptor's does
+            channel.socket().connect(address, CONNECT_TIMEOUT_MILLIS);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private static void closeAll(List<SocketChannel> channels) {
+        for (SocketChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+
+    public double getOpeningAngle() {
+        return openingAngle;
+    }
+
+    public void setOpeningAngle(double openingAngle) {
+        if (openingAngle < 0.0 || Double.isNaN(openingAngle)) {
+            throw new IllegalArgumentException("Opening angle must be non-negative");
+        }
+        this.openingAngle = openingAngle;
+    }
+
+    /** Number of connected workers */
+    public int getWorkerCount() {
+        return channels.size();
+    }
+
+    /** Bodies and pseudo-bodies sent to all workers on the last call, own bodies included */
+    public long getLastSourceCount() {
+        return lastSourceCount;
+    }
+
+    @Override
+    public void bodiesChanged() {
+        tree.invalidate();
+    }
+
+    @Override
+    public void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                                     double[] mass, double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        int workers = channels.size();
+        ensureCapacity(count);
+        tree.update(count, dimension, x, y, z, mass);
+        domains.split(count, dimension, x, y, z, unitCost, workers);
+        for (int w = 0; w < workers; w++) {
+            for (int k = domains.domainStart[w]; k < domains.domainStart[w + 1]; k++) {
+                domainOf[domains.order[k]] = w;
+            }
+        }
+
+        try {
+            lastSourceCount = 0;
+            for (int w = 0; w < workers; w++) {
+                ByteBuffer request = buildRequest(w, dimension, x, y, z, mass, gravitationalConstant);
+                SocketChannel channel = channels.get(w);
+                while (request.hasRemaining()) {
+                    channel.write(request);
+                }
+            }
+            for (int w = 0; w < workers; w++) {
+                int start = domains.domainStart[w];
+                int end = domains.domainStart[w + 1];
+                ByteBuffer response = responses[w];
+                if (response.capacity() < (end - start) * ForceWorker.RESULT_BYTES) {
+                    response = responses[w] = ByteBuffer.allocate((end - start) * ForceWorker.RESULT_BYTES * 2);
+                }
+                response.clear().limit((end - start) * ForceWorker.RESULT_BYTES);
+                ForceWorker.readFully(channels.get(w), response, false);
+                response.flip();
+                for (int k = start; k < end; k++) {
+                    int i = domains.order[k];
+                    ax[i] = response.getDouble();
+                    ay[i] = response.getDouble();
+                    az[i] = response.getDouble();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Distributed force pass failed", e);
+        }
+    }
+
+    /**
+     * Writes worker w's request: its own bodies first, then the locally essential set
+     * from the other domains.
+     */
+    private ByteBuffer buildRequest(int w, int dimension, double[] x, double[] y, double[] z, double[] mass,
+                                    double gravitationalConstant) {
+        int start = domains.domainStart[w];
+        int end = domains.domainStart[w + 1];
+        ByteBuffer request = requests[w];
+        request.clear();
+        request.putInt(ForceWorker.STEP).putInt(dimension).putDouble(gravitationalConstant).putDouble(openingAngle);
+        request.putInt(end - start).putInt(0);
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int k = start; k < end; k++) {
+            int i = domains.order[k];
+            request = put(w, request, x[i], y[i], z[i], mass[i]);
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        int sources = end - start;
+
+        double invTheta = openingAngle > 0.0 ? 1.0 / openingAngle : Double.POSITIVE_INFINITY;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0 && start < end) {
+            int node = stack[--top];
+            if (!tree.isLeaf(node)) {
+                // Distance from the com to the nearest point of the domain's box
+                double dx = Math.max(0.0, Math.max(minX - tree.comX[node], tree.comX[node] - maxX));
+                double dy = Math.max(0.0, Math.max(minY - tree.comY[node], tree.comY[node] - maxY));
+                double dz = Math.max(0.0, Math.max(minZ - tree.comZ[node], tree.comZ[node] - maxZ));
+                double distSq = dx * dx + dy * dy + dz * dz;
+
+                double ox = tree.comX[node] - tree.centerX[node];
+                double oy = tree.comY[node] - tree.centerY[node];
+                double oz = tree.comZ[node] - tree.centerZ[node];
+                double limit = 2.0 * tree.halfSize[node] * invTheta + Math.sqrt(ox * ox + oy * oy + oz * oz);
+
+                if (distSq > limit * limit) {
+                    request = put(w, request, tree.comX[node], tree.comY[node], tree.comZ[node], tree.mass[node]);
+                    sources++;
+                } else {
+                    int first = tree.firstChild[node];
+                    for (int c = tree.childCount[node] - 1; c >= 0; c--) {
+                        stack[top++] = first + c;
+                    }
+                }
+                continue;
+            }
+            for (int k = tree.bodyStart[node]; k < tree.bodyEnd[node]; k++) {
+                int j = tree.order[k];
+                if (domainOf[j] != w) {
+                    request = put(w, request, x[j], y[j], z[j], mass[j]);
+                    sources++;
+                }
+            }
+        }
+
+        request.putInt(ForceWorker.HEADER_BYTES - 4, sources);
+        lastSourceCount += sources;
+        return request.flip();
+    }
+
+    /** Appends one source, growing worker w's buffer if needed */
+    private ByteBuffer put(int w, ByteBuffer request, double px, double py, double pz, double m) {
+        if (request.remaining() < ForceWorker.SOURCE_BYTES) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(request.capacity() * 2, 64 * ForceWorker.SOURCE_BYTES));
+            request.flip();
+            larger.put(request);
+            request = requests[w] = larger;
+        }
+        return request.putDouble(px).putDouble(py).putDouble(pz).putDouble(m);
+    }
+
+    private void ensureCapacity(int count) {
+        if (domainOf.length < count) {
+            int capacity = Math.max(count, domainOf.length * 2);
+            domainOf = new int[capacity];
+            unitCost = new double[capacity];
+            Arrays.fill(unitCost, 1.0);
+        }
+    }
+
+    /**
+     * Asks every worker to stop and closes the connections. Local workers that don't
+     * exit within a second are killed.
+     */
+    @Override
+    public void close() {
+        ByteBuffer shutdown = ByteBuffer.allocate(ForceWorker.HEADER_BYTES);
+        shutdown.putInt(0, ForceWorker.SHUTDOWN);
+        for (SocketChannel channel : channels) {
+            try {
+                shutdown.clear();
+                while (shutdown.hasRemaining()) {
+                    channel.write(shutdown);
+                }
+            } catch (IOException e) {
+                // The worker is already gone
+            }
+        }
+        closeAll(channels);
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return ForceSolverType.DISTRIBUTED.getName();
+    }
+}
@@ -0,0 +1,180 @@
+package simulations.physics;
+
+/**
+ * DormandPrinceIntegrator - Adaptive Runge-Kutta 5(4) of Dormand and Prince.
+ *
+ * Each call covers the requested interval with as many sub-steps as the tolerance
+ * needs. Every sub-step makes a fifth-order solution and an embedded fourth-order
+ * one; their difference estimates the local error. A sub-step whose error exceeds
+ * the tolerance is retried shorter, and the next sub-step is sized from the error
+ * of the last, so quiet phases are crossed in one step per call while close
+ * encounters get many short ones. The sub-step size carries over between calls.
+ *
+ * The last stage is evaluated at the accepted state (first-same-as-last), so a
+ * sub-step costs six force evaluations and the next one starts from those forces.
+ */
+public class DormandPrinceIntegrator implements Integrator {
+
+    /** Default relative and absolute error tolerance per sub-step */
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    private static final double SAFETY = 0.9;
+    private static final double MIN_SHRINK = 0.2;
+    private static final double MAX_GROWTH = 5.0;
+    /** Sub-steps are never shorter than this fraction of the requested interval */
+    private static final double MIN_STEP_FRACTION = 1e-6;
+
+    private static final double[][] A = {
+        {},
+        {1.0 / 5.0},
+        {3.0 / 40.0, 9.0 / 40.0},
+        {44.0 / 45.0, -56.0 / 15.0, 32.0 / 9.0},
+        {19372.0 / 6561.0, -25360.0 / 2187.0, 64448.0 / 6561.0, -212.0 / 729.0},
+        {9017.0 / 3168.0, -355.0 / 33.0, 46732.0 / 5247.0, 49.0 / 176.0, -5103.0 / 18656.0},
+        // Fifth-order solution; the last stage is evaluated here
+        {35.0 / 384.0, 0.0, 500.0 / 1113.0, 125.0 / 192.0, -2187.0 / 6784.0, 11.0 / 84.0},
+    };
+    /** Fifth-order minus fourth-order weights */
+    private static final double[] E = {
+        71.0 / 57600.0, 0.0, -71.0 / 16695.0, 71.0 / 1920.0,
+        -17253.0 / 339200.0, 22.0 / 525.0, -1.0 / 40.0,
+    };
+
+    private final RungeKuttaStages stages = new RungeKuttaStages(7);
+    private double tolerance = DEFAULT_TOLERANCE;
+    /** Size of the next sub-step, 0 before the first call */
+    private double nextStep = 0.0;
+    private int lastSubsteps = 0;
+    private int lastRejected = 0;
+
+    @Override
+    public void step(BodyStore bodies, double dt, ForceEvaluator forces) {
+        int count = bodies.size();
+        double direction = dt < 0 ? -1.0 : 1.0;
+        double remaining = Math.abs(dt);
+        double minStep = remaining * MIN_STEP_FRACTION;
+        double h = nextStep > 0.0 ? nextStep : remaining;
+        lastSubsteps = 0;
+        lastRejected = 0;
+
+        stages.begin(bodies, count);
+        stages.derive(bodies, count, forces, 0, true);
+
+        while (remaining > 0.0) {
+            boolean truncated = h >= remaining;
+            double tryStep = truncated ? remaining : h;
+
+            for (int s = 1; s < 7; s++) {
+                stages.load(count, direction * tryStep, A[s]);
+                stages.derive(bodies, count, forces, s, false);
+            }
+            double error = errorNorm(count, tryStep);
+
+            if (error <= 1.0 || tryStep <= minStep) {
+                remaining = truncated ? 0.0 : remaining - tryStep;
+                lastSubsteps++;
+                double proposed = tryStep * stepScale(error);
+                // A sub-step cut short to end the interval says little about the
+                // size that would have worked, so only let it shrink the next one
+                h = truncated ? Math.min(h, proposed) : proposed;
+                h = Math.max(h, minStep);
+                // The accepted state's forces open the next sub-step
+                stages.swap(0, 6);
+                if (remaining > 0.0) {
+                    stages.begin(bodies, count);
+                }
+            } else {
+                lastRejected++;
+                h = Math.max(tryStep * stepScale(error), minStep);
+            }
+        }
+        if (dt != 0.0) {
+            nextStep = h;
+        }
+    }
+
+    /**
+     * Largest ratio of a body's position or velocity error estimate to its
+     * allowance {@code tolerance * (1 + |value|)}, taken over the start and end
+     * of the sub-step. At most 1 means the sub-step is accepted.
+     */
+    private double errorNorm(int count, double h) {
+        double[][] start = stages.start;
+        double[][] end = stages.state;
+        double[][][] k = stages.k;
+        double worst = 0.0;
+        for (int i = 0; i < count; i++) {
+            for (int base = 0; base < 6; base += 3) {
+                double errSq = 0.0;
+                double startSq = 0.0;
+                double endSq = 0.0;
+                for (int c = base; c < base + 3; c++) {
+                    double e = 0.0;
+                    for (int j = 0; j < 7; j++) {
+                        e += E[j] * k[j][c][i];
+                    }
+                    e *= h;
+                    errSq += e * e;
+                    startSq += start[c][i] * start[c][i];
+                    endSq += end[c][i] * end[c][i];
+                }
+                double scale = tolerance * (1.0 + Math.sqrt(Math.max(startSq, endSq)));
+                worst = Math.max(worst, Math.sqrt(errSq) / scale);
+            }
+        }
+        return worst;
+    }
+
+    /** Factor to scale a sub-step by for a given error ratio (fifth-order local error) */
+    private static double stepScale(double error) {
+        if (error == 0.0) {
+            return MAX_GROWTH;
+        }
+        double scale = SAFETY * Math.pow(error, -0.2);
+        return Math.min(MAX_GROWTH, Math.max(MIN_SHRINK, scale));
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Sets the error allowed per sub-step, relative to each body's distance from the
+     * origin and speed (and absolute below 1).
+     */
+    public void setTolerance(double tolerance) {
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Tolerance must be positive");
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Gets the size of the next sub-step.
+     */
+    public double getStepSize() {
+        return nextStep;
+    }
+
+    @Override
+    public int getLastSubsteps() {
+        return lastSubsteps;
+    }
+
+    /**
+     * Gets how many sub-steps the last call retried because their error was too large.
+     */
+    public int getLastRejected() {
+        return lastRejected;
+    }
+
+    @Override
+    public boolean endsWithForceEvaluation() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return IntegratorType.DOPRI5.getName();
+    }
+}
@@ -0,0 +1,535 @@
+package simulations.physics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * EnsembleEngine - Steps many perturbed copies of one scenario together.
+ *
+ * Every member starts from the same bodies; member 0 is the scenario itself and the
+ * others have Gaussian noise added to the positions and velocities of their free
+ * bodies. All members live in one set of arrays, interleaved so that body i of member
+ * k sits at {@code i * members + k}. The force kernel visits each body pair once and
+ * runs the innermost loop over members, which is unit-stride and branch-light, so one
+ * pass serves the whole ensemble. With a parallelism above 1 the members are split
+ * across a ForkJoin pool; each member's result does not depend on the thread count.
+ *
+ * Members step with kick-drift-kick leapfrog and direct summation. Overlapping bodies
+ * merge as in {@link PhysicsEngine} (mass-weighted position and velocity, larger
+ * radius, PointMasses stay put and never merge with each other); merged bodies keep
+ * their slot with zero mass. A body counts as ejected once it is further than the
+ * ejection distance from its member's centre of mass and unbound from the rest.
+ */
+public class EnsembleEngine {
+
+    /** Largest number of members an ensemble may have */
+    public static final int MAX_MEMBERS = 4096;
+
+    /** Members per parallel task; the member loop is the vectorised one */
+    private static final int MEMBER_GRAIN = 8;
+
+    private final int dimension;
+    private final int members;
+    private final int bodyCount;
+
+    // Interleaved per body and member: [body * members + member]
+    final double[] x, y, z, vx, vy, vz, mass, radius;
+    private final double[] ax, ay, az;
+    /** True for merged-away bodies and PointMasses; they never move */
+    private final boolean[] frozen;
+    private final boolean[] alive;
+    private final boolean[] ejected;
+    /** Per body: PointMass in the scenario */
+    private final boolean[] fixed;
+
+    // Per member
+    private final int[] merges;
+    private final int[] ejections;
+    private final double[] initialEnergy;
+
+    private double gravitationalConstant = 6000.0;
+    private double ejectionDistance;
+    private boolean forcesCurrent = false;
+    private long stepCount = 0;
+
+    private int parallelism = 1;
+    private ForkJoinPool pool;
+
+    /**
+     * Builds an ensemble from a snapshot of a simulation.
+     *
+     * @param scenario bodies every member starts from
+     * @param members number of copies, member 0 unperturbed
+     * @param positionSpread standard deviation of the noise added to each position component
+     * @param velocitySpread standard deviation of the noise added to each velocity component
+     * @param seed seed of the noise, so an ensemble can be reproduced
+     */
+    public EnsembleEngine(StateSnapshot scenario, int members, double positionSpread,
+                          double velocitySpread, long seed) {
+        if (members < 1 || members > MAX_MEMBERS) {
+            throw new IllegalArgumentException("Members must be between 1 and " + MAX_MEMBERS);
+        }
+        if (!(positionSpread >= 0.0) || !(velocitySpread >= 0.0)) {
+            throw new IllegalArgumentException("Spreads must not be negative");
+        }
+        this.dimension = scenario.getDimension();
+        this.members = members;
+        this.bodyCount = scenario.size();
+
+        int slots = bodyCount * members;
+        x = new double[slots];
+        y = new double[slots];
+        z = new double[slots];
+        vx = new double[slots];
+        vy = new double[slots];
+        vz = new double[slots];
+        mass = new double[slots];
+        radius = new double[slots];
+        ax = new double[slots];
+        ay = new double[slots];
+        az = new double[slots];
+        frozen = new boolean[slots];
+        alive = new boolean[slots];
+        ejected = new boolean[slots];
+        fixed = new boolean[bodyCount];
+        merges = new int[members];
+        ejections = new int[members];
+        initialEnergy = new double[members];
+
+        Random random = new Random(seed);
+        for (int k = 0; k < members; k++) {
+            for (int i = 0; i < bodyCount; i++) {
+                int s = i * members + k;
+                fixed[i] = scenario.isFixed(i);
+                x[s] = scenario.getX(i);
+                y[s] = scenario.getY(i);
+                z[s] = scenario.getZ(i);
+                vx[s] = scenario.getVelocityX(i);
+                vy[s] = scenario.getVelocityY(i);
+                vz[s] = scenario.getVelocityZ(i);
+                mass[s] = scenario.getMass(i);
+                radius[s] = scenario.getRadius(i);
+                frozen[s] = fixed[i];
+                alive[s] = true;
+                if (k == 0 || fixed[i]) continue;
+                x[s] += positionSpread * random.nextGaussian();
+                y[s] += positionSpread * random.nextGaussian();
+                vx[s] += velocitySpread * random.nextGaussian();
+                vy[s] += velocitySpread * random.nextGaussian();
+                if (dimension == 3) {
+                    z[s] += positionSpread * random.nextGaussian();
+                    vz[s] += velocitySpread * random.nextGaussian();
+                }
+            }
+        }
+        ejectionDistance = 10.0 * Math.max(1.0, extent(0));
+        resetEnergyBaseline();
+    }
+
+    /**
+     * Advances every member by {@code steps} steps of {@code dt}.
+     */
+    public void advance(long steps, double dt) {
+        for (long n = 0; n < steps; n++) {
+            step(dt);
+        }
+    }
+
+    /**
+     * Advances every member by one kick-drift-kick step, after merging overlapping bodies.
+     */
+    public void step(double dt) {
+        ParallelRange.forEach(pool, members, MEMBER_GRAIN, (start, end) -> {
+            boolean merged = resolveCollisions(start, end);
+            if (merged || !forcesCurrent) {
+                computeAccelerations(start, end);
+            }
+            kick(start, end, 0.5 * dt);
+            drift(start, end, dt);
+            computeAccelerations(start, end);
+            kick(start, end, 0.5 * dt);
+            for (int k = start; k < end; k++) {
+                countEjections(k);
+            }
+        });
+        forcesCurrent = true;
+        stepCount++;
+    }
+
+    /**
+     * Accelerations for members [start, end). Each body pair is visited once, with
+     * the members in the inner loop.
+     */
+    private void computeAccelerations(int start, int end) {
+        int m = members;
+        double g = gravitationalConstant;
+        for (int i = 0; i < bodyCount; i++) {
+            for (int k = start; k < end; k++) {
+                int s = i * m + k;
+                ax[s] = 0.0;
+                ay[s] = 0.0;
+                az[s] = 0.0;
+            }
+        }
+        for (int i = 0; i < bodyCount; i++) {
+            int bi = i * m;
+            for (int j = i + 1; j < bodyCount; j++) {
+                int bj = j * m;
+                for (int k = start; k < end; k++) {
+                    int si = bi + k;
+                    int sj = bj + k;
+                    double dx = x[sj] - x[si];
+                    double dy = y[sj] - y[si];
+                    double dz = z[sj] - z[si];
+                    double distSq = dx * dx + dy * dy + dz * dz;
+                    double invDist = distSq > 0.0 ? 1.0 / Math.sqrt(distSq) : 0.0;
+                    double pairScale = g * invDist * invDist * invDist;
+                    double toJ = pairScale * mass[sj];
+                    double toI = pairScale * mass[si];
+                    ax[si] += dx * toJ;
+                    ay[si] += dy * toJ;
+                    az[si] += dz * toJ;
+                    ax[sj] -= dx * toI;
+                    ay[sj] -= dy * toI;
+                    az[sj] -= dz * toI;
+                }
+            }
+        }
+    }
+
+    private void kick(int start, int end, double h) {
+        for (int i = 0; i < bodyCount; i++) {
+            for (int s = i * members + start; s < i * members + end; s++) {
+                if (frozen[s]) continue;
+                vx[s] += ax[s] * h;
+                vy[s] += ay[s] * h;
+                vz[s] += az[s] * h;
+            }
+        }
+    }
+
+    private void drift(int start, int end, double dt) {
+        for (int i = 0; i < bodyCount; i++) {
+            for (int s = i * members + start; s < i * members + end; s++) {
+                if (frozen[s]) continue;
+                x[s] += vx[s] * dt;
+                y[s] += vy[s] * dt;
+                z[s] += vz[s] * dt;
+            }
+        }
+    }
+
+    /**
+     * Merges overlapping bodies of members [start, end). Each member sees its pairs in
+     * index order, and a merged body can absorb further bodies later in the same pass.
+     * Like the force kernel, the member loop is innermost.
+     *
+     * @return whether anything merged
+     */
+    private boolean resolveCollisions(int start, int end) {
+        boolean merged = false;
+        for (int i = 0; i < bodyCount; i++) {
+            int bi = i * members;
+            for (int j = i + 1; j < bodyCount; j++) {
+                if (fixed[i] && fixed[j]) continue;
+                int bj = j * members;
+                for (int k = start; k < end; k++) {
+                    int si = bi + k;
+                    int sj = bj + k;
+                    double dx = x[sj] - x[si];
+                    double dy = y[sj] - y[si];
+                    double dz = z[sj] - z[si];
+                    double reach = radius[si] + radius[sj];
+                    if (dx * dx + dy * dy + dz * dz >= reach * reach) continue;
+                    // Merged-away bodies keep their last position
+                    if (!alive[si] || !alive[sj]) continue;
+
+                    if (fixed[j]) {
+                        // The PointMass survives where it is
+                        merge(k, sj, si, true);
+                    } else {
+                        merge(k, si, sj, fixed[i]);
+                    }
+                    merged = true;
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Merges slot {@code other} into slot {@code into}.
+     */
+    private void merge(int k, int into, int other, boolean intoFixed) {
+        double combined = mass[into] + mass[other];
+        if (!intoFixed) {
+            double wa = mass[into] / combined;
+            double wb = mass[other] / combined;
+            x[into] = x[into] * wa + x[other] * wb;
+            y[into] = y[into] * wa + y[other] * wb;
+            z[into] = z[into] * wa + z[other] * wb;
+            vx[into] = vx[into] * wa + vx[other] * wb;
+            vy[into] = vy[into] * wa + vy[other] * wb;
+            vz[into] = vz[into] * wa + vz[other] * wb;
+        }
+        mass[into] = combined;
+        radius[into] = Math.max(radius[into], radius[other]);
+
+        alive[other] = false;
+        frozen[other] = true;
+        mass[other] = 0.0;
+        vx[other] = 0.0;
+        vy[other] = 0.0;
+        vz[other] = 0.0;
+        merges[k]++;
+    }
+
+    /**
+     * Flags member k's bodies that are far from its centre of mass and unbound.
+     */
+    private void countEjections(int k) {
+        double total = 0.0;
+        double cx = 0.0, cy = 0.0, cz = 0.0;
+        double cvx = 0.0, cvy = 0.0, cvz = 0.0;
+        for (int i = 0; i < bodyCount; i++) {
+            int s = i * members + k;
+            double m = mass[s];
+            total += m;
+            cx += m * x[s];
+            cy += m * y[s];
+            cz += m * z[s];
+            cvx += m * vx[s];
+            cvy += m * vy[s];
+            cvz += m * vz[s];
+        }
+        if (total == 0.0) return;
+        cx /= total;
+        cy /= total;
+        cz /= total;
+        cvx /= total;
+        cvy /= total;
+        cvz /= total;
+
+        double limitSq = ejectionDistance * ejectionDistance;
+        for (int i = 0; i < bodyCount; i++) {
+            int s = i * members + k;
+            if (!alive[s] || ejected[s] || fixed[i]) continue;
+            double dx = x[s] - cx;
+            double dy = y[s] - cy;
+            double dz = z[s] - cz;
+            double distSq = dx * dx + dy * dy + dz * dz;
+            if (distSq <= limitSq) continue;
+            double ux = vx[s] - cvx;
+            double uy = vy[s] - cvy;
+            double uz = vz[s] - cvz;
+            double specific = 0.5 * (ux * ux + uy * uy + uz * uz)
+                - gravitationalConstant * (total - mass[s]) / Math.sqrt(distSq);
+            if (specific > 0.0) {
+                ejected[s] = true;
+                ejections[k]++;
+            }
+        }
+    }
+
+    /**
+     * Largest distance of member k's bodies from their centre of mass.
+     */
+    private double extent(int k) {
+        double total = 0.0;
+        double cx = 0.0, cy = 0.0, cz = 0.0;
+        for (int i = 0; i < bodyCount; i++) {
+            int s = i * members + k;
+            total += mass[s];
+            cx += mass[s] * x[s];
+            cy += mass[s] * y[s];
+            cz += mass[s] * z[s];
+        }
+        if (total == 0.0) return 0.0;
+        cx /= total;
+        cy /= total;
+        cz /= total;
+        double largest = 0.0;
+        for (int i = 0; i < bodyCount; i++) {
+            int s = i * members + k;
+            double dx = x[s] - cx;
+            double dy = y[s] - cy;
+            double dz = z[s] - cz;
+            largest = Math.max(largest, Math.sqrt(dx * dx + dy * dy + dz * dz));
+        }
+        return largest;
+    }
+
+    /**
+     * Total kinetic plus potential energy of member k, O(N²).
+     */
+    public double computeEnergy(int k) {
+        double kinetic = 0.0;
+        double potential = 0.0;
+        for (int i = 0; i < bodyCount; i++) {
+            int si = i * members + k;
+            kinetic += 0.5 * mass[si] * (vx[si] * vx[si] + vy[si] * vy[si] + vz[si] * vz[si]);
+            for (int j = i + 1; j < bodyCount; j++) {
+                int sj = j * members + k;
+                double dx = x[sj] - x[si];
+                double dy = y[sj] - y[si];
+                double dz = z[sj] - z[si];
+                double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                if (dist == 0.0) continue;
+                potential -= gravitationalConstant * mass[si] * mass[sj] / dist;
+            }
+        }
+        return kinetic + potential;
+    }
+
+    private void resetEnergyBaseline() {
+        for (int k = 0; k < members; k++) {
+            initialEnergy[k] = computeEnergy(k);
+        }
+    }
+
+    /**
+     * Gets member k's summary as of the last step.
+     */
+    public MemberSummary getSummary(int k) {
+        if (k < 0 || k >= members) {
+            throw new IllegalArgumentException("No member " + k);
+        }
+        int remaining = 0;
+        for (int i = 0; i < bodyCount; i++) {
+            if (alive[i * members + k]) remaining++;
+        }
+        double energy = computeEnergy(k);
+        double reference = Math.abs(initialEnergy[k]);
+        double error = reference > 0.0 ? Math.abs(energy - initialEnergy[k]) / reference : Math.abs(energy);
+        return new MemberSummary(k, remaining, merges[k], ejections[k], error);
+    }
+
+    /**
+     * Gets every member's summary, in member order.
+     */
+    public List<MemberSummary> getSummaries() {
+        List<MemberSummary> summaries = new ArrayList<>(members);
+        for (int k = 0; k < members; k++) {
+            summaries.add(getSummary(k));
+        }
+        return summaries;
+    }
+
+    public int getMembers() {
+        return members;
+    }
+
+    public int getBodyCount() {
+        return bodyCount;
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    public double getGravitationalConstant() {
+        return gravitationalConstant;
+    }
+
+    /**
+     * Sets G for every member. The energy baseline is taken again, so energy errors
+     * are measured from here.
+     */
+    public void setGravitationalConstant(double gravitationalConstant) {
+        this.gravitationalConstant = gravitationalConstant;
+        forcesCurrent = false;
+        resetEnergyBaseline();
+    }
+
+    public double getEjectionDistance() {
+        return ejectionDistance;
+    }
+
+    /**
+     * Sets how far from its member's centre of mass an unbound body must be to count
+     * as ejected. Defaults to 10 times the scenario's extent.
+     */
+    public void setEjectionDistance(double ejectionDistance) {
+        if (!(ejectionDistance > 0.0)) {
+            throw new IllegalArgumentException("Ejection distance must be positive");
+        }
+        this.ejectionDistance = ejectionDistance;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets how many threads share the members. 1 (the default) steps on the calling thread.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (parallelism == this.parallelism) {
+            return;
+        }
+        this.parallelism = parallelism;
+        close();
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * Releases the pool's threads.
+     */
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * MemberSummary - Outcome of one ensemble member.
+     */
+    public static final class MemberSummary {
+        private final int member;
+        private final int bodies;
+        private final int merges;
+        private final int ejections;
+        private final double energyError;
+
+        MemberSummary(int member, int bodies, int merges, int ejections, double energyError) {
+            this.member = member;
+            this.bodies = bodies;
+            this.merges = merges;
+            this.ejections = ejections;
+            this.energyError = energyError;
+        }
+
+        public int getMember() {
+            return member;
+        }
+
+        /** Bodies left after merges */
+        public int getBodies() {
+            return bodies;
+        }
+
+        public int getMerges() {
+            return merges;
+        }
+
+        public int getEjections() {
+            return ejections;
+        }
+
+        /**
+         * Relative change of total energy since the start. Merges are inelastic, so
+         * members with merges show their energy loss here as well as integration error.
+         */
+        public double getEnergyError() {
+            return energyError;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package simulations.physics;
+
+/**
+ * EulerIntegrator - Semi-implicit (symplectic) Euler: v += a(x) dt, then x += v dt.
+ * First order but symplectic, so energy errors stay bounded. This is the engine's
+ * original scheme and remains the default.
+ */
+public class EulerIntegrator implements Integrator {
+
+    @Override
+    public void step(BodyStore bodies, double dt, ForceEvaluator forces) {
+        int count = bodies.size();
+        forces.ensureCurrent();
+        IntegratorSteps.kick(bodies, count, forces, dt);
+        IntegratorSteps.drift(bodies, count, dt);
+    }
+
+    @Override
+    public boolean endsWithForceEvaluation() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return IntegratorType.EULER.getName();
+    }
+}
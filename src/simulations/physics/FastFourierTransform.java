@@ -0,0 +1,121 @@
+package simulations.physics;
+
+/**
+ * FastFourierTransform - In-place radix-2 complex FFT over square (2D) or cubic (3D) grids.
+ *
+ * Grids are flat arrays of real and imaginary parts indexed as (i * n + j) * n + k in 3D
+ * and i * n + j in 2D. The forward transform is unnormalised; the inverse divides by the
+ * total number of cells, so inverse(forward(f)) == f.
+ */
+class FastFourierTransform {
+
+    private final int size;
+    private final int levels;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final int[] bitReversed;
+    private final double[] lineRe;
+    private final double[] lineIm;
+
+    /**
+     * @param size Points per axis, must be a power of two
+     */
+    FastFourierTransform(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two");
+        }
+        this.size = size;
+        this.levels = Integer.numberOfTrailingZeros(size);
+        this.cosTable = new double[size / 2 + 1];
+        this.sinTable = new double[size / 2 + 1];
+        for (int i = 0; i < cosTable.length; i++) {
+            cosTable[i] = Math.cos(2.0 * Math.PI * i / size);
+            sinTable[i] = Math.sin(2.0 * Math.PI * i / size);
+        }
+        this.bitReversed = new int[size];
+        for (int i = 0; i < size; i++) {
+            bitReversed[i] = levels == 0 ? 0 : Integer.reverse(i) >>> (32 - levels);
+        }
+        this.lineRe = new double[size];
+        this.lineIm = new double[size];
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Transforms a grid along every axis.
+     *
+     * @param dimension 2 or 3
+     * @param inverse true for the (normalised) inverse transform
+     */
+    void transform(double[] re, double[] im, int dimension, boolean inverse) {
+        int n = size;
+        int cells = dimension == 3 ? n * n * n : n * n;
+        int lines = cells / n;
+
+        for (int axis = 0; axis < dimension; axis++) {
+            // Stride between consecutive points along this axis
+            int stride = 1;
+            for (int a = axis + 1; a < dimension; a++) {
+                stride *= n;
+            }
+            for (int line = 0; line < lines; line++) {
+                // Split the line number into the part below and above this axis
+                int low = line % stride;
+                int high = line / stride;
+                int start = high * stride * n + low;
+
+                for (int p = 0; p < n; p++) {
+                    lineRe[p] = re[start + p * stride];
+                    lineIm[p] = im[start + p * stride];
+                }
+                transformLine(lineRe, lineIm, inverse);
+                for (int p = 0; p < n; p++) {
+                    re[start + p * stride] = lineRe[p];
+                    im[start + p * stride] = lineIm[p];
+                }
+            }
+        }
+
+        if (inverse) {
+            double scale = 1.0 / cells;
+            for (int c = 0; c < cells; c++) {
+                re[c] *= scale;
+                im[c] *= scale;
+            }
+        }
+    }
+
+    /** Iterative Cooley-Tukey transform of one line, unnormalised. */
+    private void transformLine(double[] re, double[] im, boolean inverse) {
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            int j = bitReversed[i];
+            if (j > i) {
+                double t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+
+        double sign = inverse ? 1.0 : -1.0;
+        for (int half = 1; half < n; half <<= 1) {
+            int tableStep = n / (2 * half);
+            for (int start = 0; start < n; start += 2 * half) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cosTable[k * tableStep];
+                    double wi = sign * sinTable[k * tableStep];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = wr * re[b] - wi * im[b];
+                    double ti = wr * im[b] + wi * re[b];
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
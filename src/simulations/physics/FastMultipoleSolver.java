@@ -0,0 +1,490 @@
+package simulations.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FastMultipoleSolver - O(N) force evaluation using Cartesian multipole and local expansions.
+ *
+ * Every tree cell gets a multipole expansion of its bodies about the cell center (P2M, M2M).
+ * A dual tree walk pairs up cells: well separated pairs exchange their expansions as
+ * local (Taylor) expansions (M2L), touching leaves are summed directly (P2P). Local
+ * expansions are then pushed down the tree (L2L) and evaluated at each body (L2P).
+ *
+ * Two cells are well separated when (rA + rB) < θ · d, with r the distance from the cell
+ * center to its furthest body and d the distance between the cell centers. The expansion order p controls accuracy:
+ * the error falls roughly like θ^(p+1) and the cost grows with the number of terms.
+ *
+ * The tree is kept between calls and refit while the bodies stay close to their cells
+ * (see SpatialTree); expansions are always taken about the cell centers,
+ * which a refit leaves in place, and the radii above are measured from the bodies.
+ *
+ * The kernel is the 1/r potential in both 2D and 3D (the engine uses F = G m1 m2 / r²
+ * in 2D too), so 2D simply uses the multi-indices with no z component.
+ */
+public class FastMultipoleSolver implements ForceSolver {
+
+    /** Highest supported expansion order */
+    public static final int MAX_ORDER = 12;
+
+    /** Larger leaves than Barnes-Hut: P2P is cheap next to an M2L at high order */
+    private static final int LEAF_CAPACITY = 64;
+
+    private final SpatialTree tree = new SpatialTree();
+    private double openingAngle;
+    private int order;
+
+    /** Multi-index tables for the current order and dimension */
+    private int tableDimension = -1;
+    private int tableOrder = -1;
+    private int expansionTerms;     // multi-indices with |α| <= p
+    private int derivativeTerms;    // multi-indices with |γ| <= 2p
+    private int[][] exponents;      // [index] -> {i, j, k}
+    private int[] degree;
+    private int[][] minusOne;       // [index][axis] -> index of γ - e_axis, or -1
+    private int[][] minusTwo;       // [index][axis] -> index of γ - 2e_axis, or -1
+    private int[] monomialParent;   // index of γ - e_axis for the first non-zero axis
+    private int[] monomialAxis;
+
+    /** M2L terms: L[alpha] += coeff * a[gamma] * M[beta] */
+    private int[] m2lAlpha, m2lBeta, m2lGamma;
+    private double[] m2lCoeff;
+
+    /** Shift terms (M2M / L2L): outer >= inner, coeff * d^(outer - inner) */
+    private int[] shiftOuter, shiftInner, shiftDelta;
+    private double[] shiftCoeff;
+
+    /** Expansion storage: node * expansionTerms + index */
+    private double[] multipoles = new double[0];
+    private double[] locals = new double[0];
+
+    /** Distance from each cell center to its furthest body */
+    private double[] radii = new double[0];
+
+    /** Scratch buffers */
+    private double[] derivatives = new double[0];
+    private double[] powers = new double[0];
+    private double[] mirrored = new double[0];
+
+    /** Current call state */
+    private double[] x, y, z, mass;
+    private double[] ax, ay, az;
+    private double gravitationalConstant;
+
+    public FastMultipoleSolver(double openingAngle, int order) {
+        setOpeningAngle(openingAngle);
+        setOrder(order);
+    }
+
+    public double getOpeningAngle() {
+        return openingAngle;
+    }
+
+    public void setOpeningAngle(double openingAngle) {
+        if (openingAngle < 0.0 || Double.isNaN(openingAngle)) {
+            throw new IllegalArgumentException("Opening angle must be non-negative");
+        }
+        this.openingAngle = openingAngle;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Sets the expansion order p (0 = monopole only).
+     */
+    public void setOrder(int order) {
+        if (order < 0 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("Expansion order must be between 0 and " + MAX_ORDER);
+        }
+        this.order = order;
+    }
+
+    @Override
+    public void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                                     double[] mass, double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.mass = mass;
+        this.ax = ax;
+        this.ay = ay;
+        this.az = az;
+        this.gravitationalConstant = gravitationalConstant;
+
+        Arrays.fill(ax, 0, count, 0.0);
+        Arrays.fill(ay, 0, count, 0.0);
+        Arrays.fill(az, 0, count, 0.0);
+        if (count == 0) return;
+
+        buildTables(dimension, order);
+        tree.leafCapacity = LEAF_CAPACITY;
+        tree.update(count, dimension, x, y, z, mass);
+
+        int nodes = tree.nodeCount;
+        if (multipoles.length < nodes * expansionTerms) {
+            multipoles = new double[nodes * expansionTerms * 2];
+            locals = new double[nodes * expansionTerms * 2];
+        }
+        if (radii.length < nodes) {
+            radii = new double[nodes * 2];
+        }
+        Arrays.fill(multipoles, 0, nodes * expansionTerms, 0.0);
+        Arrays.fill(locals, 0, nodes * expansionTerms, 0.0);
+
+        upwardPass();
+        interact(0, 0);
+        downwardPass();
+
+        this.x = this.y = this.z = this.mass = null;
+        this.ax = this.ay = this.az = null;
+    }
+
+    @Override
+    public void bodiesChanged() {
+        tree.invalidate();
+    }
+
+    @Override
+    public String getName() {
+        return ForceSolverType.FAST_MULTIPOLE.getName();
+    }
+
+    // ---------------------------------------------------------------------
+    // Tree passes
+    // ---------------------------------------------------------------------
+
+    /**
+     * P2M at leaves, M2M up to the root, and the bounding radius of every cell.
+     * Children always have larger indices than their parents.
+     */
+    private void upwardPass() {
+        for (int node = tree.nodeCount - 1; node >= 0; node--) {
+            int base = node * expansionTerms;
+            double radius = 0.0;
+            if (tree.isLeaf(node)) {
+                for (int k = tree.bodyStart[node]; k < tree.bodyEnd[node]; k++) {
+                    int i = tree.order[k];
+                    double dx = x[i] - tree.centerX[node];
+                    double dy = y[i] - tree.centerY[node];
+                    double dz = z[i] - tree.centerZ[node];
+                    radius = Math.max(radius, dx * dx + dy * dy + dz * dz);
+                    monomials(dx, dy, dz, order);
+                    double m = mass[i];
+                    for (int t = 0; t < expansionTerms; t++) {
+                        multipoles[base + t] += m * powers[t];
+                    }
+                }
+                radius = Math.sqrt(radius);
+            } else {
+                int first = tree.firstChild[node];
+                for (int child = first; child < first + tree.childCount[node]; child++) {
+                    // M_β(parent) += C(β, γ) d^(β-γ) M_γ(child), d = child center - parent center
+                    double dx = tree.centerX[child] - tree.centerX[node];
+                    double dy = tree.centerY[child] - tree.centerY[node];
+                    double dz = tree.centerZ[child] - tree.centerZ[node];
+                    radius = Math.max(radius, radii[child] + Math.sqrt(dx * dx + dy * dy + dz * dz));
+                    monomials(dx, dy, dz, order);
+                    int childBase = child * expansionTerms;
+                    for (int s = 0; s < shiftOuter.length; s++) {
+                        multipoles[base + shiftOuter[s]] +=
+                            shiftCoeff[s] * powers[shiftDelta[s]] * multipoles[childBase + shiftInner[s]];
+                    }
+                }
+            }
+            radii[node] = radius;
+        }
+    }
+
+    /** L2L down the tree, then L2P at every body. */
+    private void downwardPass() {
+        for (int node = 0; node < tree.nodeCount; node++) {
+            int base = node * expansionTerms;
+            if (!tree.isLeaf(node)) {
+                int first = tree.firstChild[node];
+                for (int child = first; child < first + tree.childCount[node]; child++) {
+                    // L'_γ(child) += C(α, γ) d^(α-γ) L_α(parent), d = child center - parent center
+                    monomials(tree.centerX[child] - tree.centerX[node],
+                              tree.centerY[child] - tree.centerY[node],
+                              tree.centerZ[child] - tree.centerZ[node], order);
+                    int childBase = child * expansionTerms;
+                    for (int s = 0; s < shiftOuter.length; s++) {
+                        locals[childBase + shiftInner[s]] +=
+                            shiftCoeff[s] * powers[shiftDelta[s]] * locals[base + shiftOuter[s]];
+                    }
+                }
+                continue;
+            }
+
+            for (int k = tree.bodyStart[node]; k < tree.bodyEnd[node]; k++) {
+                int i = tree.order[k];
+                // φ(c + y) = Σ L_α y^α, so ∂φ/∂y_axis = Σ α_axis L_α y^(α - e_axis)
+                monomials(x[i] - tree.centerX[node], y[i] - tree.centerY[node], z[i] - tree.centerZ[node],
+                          order);
+                double gx = 0.0, gy = 0.0, gz = 0.0;
+                for (int t = 1; t < expansionTerms; t++) {
+                    double l = locals[base + t];
+                    int[] e = exponents[t];
+                    if (e[0] > 0) gx += e[0] * l * powers[minusOne[t][0]];
+                    if (e[1] > 0) gy += e[1] * l * powers[minusOne[t][1]];
+                    if (e[2] > 0) gz += e[2] * l * powers[minusOne[t][2]];
+                }
+                ax[i] += gravitationalConstant * gx;
+                ay[i] += gravitationalConstant * gy;
+                az[i] += gravitationalConstant * gz;
+            }
+        }
+    }
+
+    /** Dual tree walk: every pair of cells is either expanded (M2L) or split until leaves meet (P2P). */
+    private void interact(int a, int b) {
+        if (a == b) {
+            if (tree.isLeaf(a)) {
+                selfInteraction(a);
+                return;
+            }
+            int first = tree.firstChild[a];
+            int last = first + tree.childCount[a];
+            for (int c1 = first; c1 < last; c1++) {
+                for (int c2 = c1; c2 < last; c2++) {
+                    interact(c1, c2);
+                }
+            }
+            return;
+        }
+
+        double dx = tree.centerX[a] - tree.centerX[b];
+        double dy = tree.centerY[a] - tree.centerY[b];
+        double dz = tree.centerZ[a] - tree.centerZ[b];
+        double distSq = dx * dx + dy * dy + dz * dz;
+        double reach = (radii[a] + radii[b]) / openingAngle;
+
+        if (distSq > reach * reach) {
+            multipoleToLocal(a, b, dx, dy, dz);
+            return;
+        }
+
+        boolean leafA = tree.isLeaf(a);
+        boolean leafB = tree.isLeaf(b);
+        if (leafA && leafB) {
+            mutualInteraction(a, b);
+        } else if (leafB || (!leafA && tree.halfSize[a] >= tree.halfSize[b])) {
+            int first = tree.firstChild[a];
+            for (int c = first; c < first + tree.childCount[a]; c++) {
+                interact(c, b);
+            }
+        } else {
+            int first = tree.firstChild[b];
+            for (int c = first; c < first + tree.childCount[b]; c++) {
+                interact(a, c);
+            }
+        }
+    }
+
+    /**
+     * M2L in both directions for the cell pair (a, b), with (dx, dy, dz) = center(a) - center(b).
+     * L_α(a) += (-1)^|α| Σ_β C(α+β, α) a_{α+β}(R) M_β(b), where a_γ(R) are the Taylor
+     * coefficients of 1/|R - h|. Reversing R flips the sign of odd-degree coefficients.
+     */
+    private void multipoleToLocal(int a, int b, double dx, double dy, double dz) {
+        taylorCoefficients(dx, dy, dz);
+        for (int g = 0; g < derivativeTerms; g++) {
+            mirrored[g] = (degree[g] & 1) == 0 ? derivatives[g] : -derivatives[g];
+        }
+
+        int baseA = a * expansionTerms;
+        int baseB = b * expansionTerms;
+        for (int s = 0; s < m2lAlpha.length; s++) {
+            double c = m2lCoeff[s];
+            int gamma = m2lGamma[s];
+            locals[baseA + m2lAlpha[s]] += c * derivatives[gamma] * multipoles[baseB + m2lBeta[s]];
+            locals[baseB + m2lAlpha[s]] += c * mirrored[gamma] * multipoles[baseA + m2lBeta[s]];
+        }
+    }
+
+    private void selfInteraction(int node) {
+        int start = tree.bodyStart[node];
+        int end = tree.bodyEnd[node];
+        for (int p = start; p < end; p++) {
+            for (int q = p + 1; q < end; q++) {
+                pairForce(tree.order[p], tree.order[q]);
+            }
+        }
+    }
+
+    private void mutualInteraction(int a, int b) {
+        for (int p = tree.bodyStart[a]; p < tree.bodyEnd[a]; p++) {
+            for (int q = tree.bodyStart[b]; q < tree.bodyEnd[b]; q++) {
+                pairForce(tree.order[p], tree.order[q]);
+            }
+        }
+    }
+
+    private void pairForce(int i, int j) {
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        double dz = z[j] - z[i];
+        double distSq = dx * dx + dy * dy + dz * dz;
+        if (distSq == 0.0) return;
+
+        double invDist = 1.0 / Math.sqrt(distSq);
+        double scale = gravitationalConstant * invDist * invDist * invDist;
+        double si = scale * mass[j];
+        double sj = scale * mass[i];
+        ax[i] += dx * si;
+        ay[i] += dy * si;
+        az[i] += dz * si;
+        ax[j] -= dx * sj;
+        ay[j] -= dy * sj;
+        az[j] -= dz * sj;
+    }
+
+    // ---------------------------------------------------------------------
+    // Expansion math
+    // ---------------------------------------------------------------------
+
+    /** Fills powers[t] = v^α_t for every multi-index with |α| <= maxDegree. */
+    private void monomials(double vx, double vy, double vz, int maxDegree) {
+        powers[0] = 1.0;
+        for (int t = 1; t < derivativeTerms && degree[t] <= maxDegree; t++) {
+            int axis = monomialAxis[t];
+            double v = axis == 0 ? vx : axis == 1 ? vy : vz;
+            powers[t] = powers[monomialParent[t]] * v;
+        }
+    }
+
+    /**
+     * Taylor coefficients of 1/|R - h| about h = 0 up to degree 2p, using the recurrence
+     * n |R|² a_γ = (2n - 1) Σ_i R_i a_{γ-e_i} - (n - 1) Σ_i a_{γ-2e_i}, with n = |γ|.
+     */
+    private void taylorCoefficients(double rx, double ry, double rz) {
+        double distSq = rx * rx + ry * ry + rz * rz;
+        double invDistSq = 1.0 / distSq;
+        derivatives[0] = Math.sqrt(invDistSq);
+        for (int g = 1; g < derivativeTerms; g++) {
+            int n = degree[g];
+            double first = 0.0;
+            double second = 0.0;
+            int[] one = minusOne[g];
+            int[] two = minusTwo[g];
+            if (one[0] >= 0) first += rx * derivatives[one[0]];
+            if (one[1] >= 0) first += ry * derivatives[one[1]];
+            if (one[2] >= 0) first += rz * derivatives[one[2]];
+            if (two[0] >= 0) second += derivatives[two[0]];
+            if (two[1] >= 0) second += derivatives[two[1]];
+            if (two[2] >= 0) second += derivatives[two[2]];
+            derivatives[g] = ((2 * n - 1) * first - (n - 1) * second) * invDistSq / n;
+        }
+    }
+
+    /** Builds the multi-index tables for the given dimension and order. */
+    private void buildTables(int dimension, int p) {
+        if (dimension == tableDimension && p == tableOrder) return;
+        tableDimension = dimension;
+        tableOrder = p;
+
+        int maxDegree = 2 * p;
+        int side = maxDegree + 1;
+        int[][][] lookup = new int[side][side][side];
+        List<int[]> list = new ArrayList<>();
+        for (int n = 0; n <= maxDegree; n++) {
+            for (int i = n; i >= 0; i--) {
+                for (int j = n - i; j >= 0; j--) {
+                    int k = n - i - j;
+                    if (dimension == 2 && k != 0) continue;
+                    lookup[i][j][k] = list.size();
+                    list.add(new int[]{i, j, k});
+                }
+            }
+        }
+
+        derivativeTerms = list.size();
+        exponents = list.toArray(new int[0][]);
+        degree = new int[derivativeTerms];
+        minusOne = new int[derivativeTerms][3];
+        minusTwo = new int[derivativeTerms][3];
+        monomialParent = new int[derivativeTerms];
+        monomialAxis = new int[derivativeTerms];
+        expansionTerms = 0;
+
+        for (int t = 0; t < derivativeTerms; t++) {
+            int[] e = exponents[t];
+            degree[t] = e[0] + e[1] + e[2];
+            if (degree[t] <= p) expansionTerms++;
+            for (int axis = 0; axis < 3; axis++) {
+                minusOne[t][axis] = e[axis] >= 1 ? lookup[e[0] - (axis == 0 ? 1 : 0)]
+                                                         [e[1] - (axis == 1 ? 1 : 0)]
+                                                         [e[2] - (axis == 2 ? 1 : 0)] : -1;
+                minusTwo[t][axis] = e[axis] >= 2 ? lookup[e[0] - (axis == 0 ? 2 : 0)]
+                                                         [e[1] - (axis == 1 ? 2 : 0)]
+                                                         [e[2] - (axis == 2 ? 2 : 0)] : -1;
+            }
+            if (t > 0) {
+                int axis = e[0] > 0 ? 0 : e[1] > 0 ? 1 : 2;
+                monomialAxis[t] = axis;
+                monomialParent[t] = minusOne[t][axis];
+            }
+        }
+
+        // M2L: pairs (α, β) with |α|, |β| <= p
+        int pairs = expansionTerms * expansionTerms;
+        m2lAlpha = new int[pairs];
+        m2lBeta = new int[pairs];
+        m2lGamma = new int[pairs];
+        m2lCoeff = new double[pairs];
+        int s = 0;
+        for (int a = 0; a < expansionTerms; a++) {
+            for (int b = 0; b < expansionTerms; b++) {
+                int[] ea = exponents[a];
+                int[] eb = exponents[b];
+                m2lAlpha[s] = a;
+                m2lBeta[s] = b;
+                m2lGamma[s] = lookup[ea[0] + eb[0]][ea[1] + eb[1]][ea[2] + eb[2]];
+                double sign = (degree[a] & 1) == 0 ? 1.0 : -1.0;
+                m2lCoeff[s] = sign * binomial(ea[0] + eb[0], ea[0]) * binomial(ea[1] + eb[1], ea[1])
+                            * binomial(ea[2] + eb[2], ea[2]);
+                s++;
+            }
+        }
+
+        // Shifts: pairs (outer, inner) with inner <= outer component-wise
+        List<int[]> shifts = new ArrayList<>();
+        for (int o = 0; o < expansionTerms; o++) {
+            for (int in = 0; in < expansionTerms; in++) {
+                int[] eo = exponents[o];
+                int[] ei = exponents[in];
+                if (ei[0] <= eo[0] && ei[1] <= eo[1] && ei[2] <= eo[2]) {
+                    shifts.add(new int[]{o, in, lookup[eo[0] - ei[0]][eo[1] - ei[1]][eo[2] - ei[2]]});
+                }
+            }
+        }
+        shiftOuter = new int[shifts.size()];
+        shiftInner = new int[shifts.size()];
+        shiftDelta = new int[shifts.size()];
+        shiftCoeff = new double[shifts.size()];
+        for (int k = 0; k < shifts.size(); k++) {
+            int[] entry = shifts.get(k);
+            int[] eo = exponents[entry[0]];
+            int[] ei = exponents[entry[1]];
+            shiftOuter[k] = entry[0];
+            shiftInner[k] = entry[1];
+            shiftDelta[k] = entry[2];
+            shiftCoeff[k] = binomial(eo[0], ei[0]) * binomial(eo[1], ei[1]) * binomial(eo[2], ei[2]);
+        }
+
+        derivatives = new double[derivativeTerms];
+        mirrored = new double[derivativeTerms];
+        powers = new double[derivativeTerms];
+    }
+
+    private static double binomial(int n, int k) {
+        double result = 1.0;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+}
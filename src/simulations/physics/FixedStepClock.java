@@ -0,0 +1,91 @@
+package simulations.physics;
+
+/**
+ * FixedStepClock - Turns wall-clock time into a number of fixed-length steps.
+ *
+ * Elapsed time goes into an accumulator, and each whole step in it is one step to run,
+ * so a late tick catches up with several steps instead of slowing the simulation down.
+ * At most {@code maxStepsPerTick} steps run per tick. Anything beyond that is dropped
+ * and counted, so a simulation that can't keep up falls behind real time visibly
+ * rather than piling up work it can never finish.
+ *
+ * The real-time factor is the simulated step time run per second of wall time,
+ * measured over windows of about a second: 1 means the loop keeps up.
+ */
+final class FixedStepClock {
+
+    /** Length of the window the real-time factor is measured over */
+    static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final long stepNanos;
+    private final int maxStepsPerTick;
+
+    /** Time of the last tick, or -1 right after a reset */
+    private long lastTick = -1;
+    private long accumulated = 0;
+    private long droppedSteps = 0;
+
+    private long windowStart = -1;
+    private long windowSteps = 0;
+    private double realTimeFactor = 0.0;
+
+    FixedStepClock(long stepNanos, int maxStepsPerTick) {
+        if (stepNanos <= 0) {
+            throw new IllegalArgumentException("Step length must be positive");
+        }
+        if (maxStepsPerTick < 1) {
+            throw new IllegalArgumentException("Steps per tick must be at least 1");
+        }
+        this.stepNanos = stepNanos;
+        this.maxStepsPerTick = maxStepsPerTick;
+    }
+
+    /**
+     * Records a tick at time {@code now} and returns how many steps to run for it.
+     */
+    int tick(long now) {
+        if (lastTick < 0) {
+            lastTick = now;
+            windowStart = now;
+            return 0;
+        }
+        accumulated += now - lastTick;
+        lastTick = now;
+
+        int steps = (int) Math.min(accumulated / stepNanos, maxStepsPerTick);
+        accumulated -= steps * stepNanos;
+        if (accumulated >= stepNanos) {
+            long behind = accumulated / stepNanos;
+            droppedSteps += behind;
+            accumulated -= behind * stepNanos;
+        }
+
+        windowSteps += steps;
+        long elapsed = now - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            realTimeFactor = (double) (windowSteps * stepNanos) / elapsed;
+            windowStart = now;
+            windowSteps = 0;
+        }
+        return steps;
+    }
+
+    /**
+     * Forgets the time since the last tick, e.g. after a pause, so it isn't caught up
+     * with. The real-time factor reads 0 until a new window completes.
+     */
+    void reset() {
+        lastTick = -1;
+        accumulated = 0;
+        windowSteps = 0;
+        realTimeFactor = 0.0;
+    }
+
+    long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    double getRealTimeFactor() {
+        return realTimeFactor;
+    }
+}
@@ -0,0 +1,161 @@
+package simulations.physics;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * FloatDirectSumSolver - Direct summation over single-precision copies of the bodies.
+ *
+ * Each pass converts positions and masses to float, measured from the bodies' centre
+ * of mass (computed in double) so the float mantissa isn't spent on a large common
+ * offset. The O(N²) pair loop then reads half as many bytes per body as the double
+ * kernel and does its square roots and divisions in float. Each target sums its pair
+ * terms in float, or in double with {@link #setDoubleAccumulation} so long sums
+ * don't lose the small contributions of distant bodies.
+ *
+ * Positions and velocities stay double in the BodyStore, so only the accelerations
+ * carry float rounding; the integrator's state does not.
+ */
+public class FloatDirectSumSolver implements ForceSolver {
+
+    protected ForkJoinPool pool;
+    private boolean doubleAccumulation = false;
+
+    /** Centre-relative float positions and float masses of the current pass */
+    protected float[] fx = new float[0];
+    protected float[] fy = new float[0];
+    protected float[] fz = new float[0];
+    protected float[] fm = new float[0];
+
+    @Override
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public boolean isDoubleAccumulation() {
+        return doubleAccumulation;
+    }
+
+    /**
+     * Sets whether each target's pair terms are summed in double instead of float.
+     */
+    public void setDoubleAccumulation(boolean doubleAccumulation) {
+        this.doubleAccumulation = doubleAccumulation;
+    }
+
+    @Override
+    public void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                                     double[] mass, double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        computeAccelerations(null, count, count, dimension, x, y, z, mass, gravitationalConstant, ax, ay, az);
+    }
+
+    @Override
+    public void computeAccelerations(int[] targets, int targetCount, int count, int dimension,
+                                     double[] x, double[] y, double[] z, double[] mass,
+                                     double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        convert(count, x, y, z, mass);
+        if (pool == null) {
+            sumRange(targets, 0, targetCount, count, gravitationalConstant, ax, ay, az);
+            return;
+        }
+        ParallelRange.forEach(pool, targetCount, (start, end) ->
+            sumRange(targets, start, end, count, gravitationalConstant, ax, ay, az));
+    }
+
+    /**
+     * Fills the float arrays with positions relative to the centre of mass (the plain
+     * centre when the total mass is 0).
+     */
+    private void convert(int count, double[] x, double[] y, double[] z, double[] mass) {
+        if (fx.length < count) {
+            int capacity = Math.max(count, fx.length * 2);
+            fx = new float[capacity];
+            fy = new float[capacity];
+            fz = new float[capacity];
+            fm = new float[capacity];
+        }
+        double total = 0.0;
+        double cx = 0.0, cy = 0.0, cz = 0.0;
+        for (int i = 0; i < count; i++) {
+            total += mass[i];
+            cx += mass[i] * x[i];
+            cy += mass[i] * y[i];
+            cz += mass[i] * z[i];
+        }
+        if (total != 0.0) {
+            cx /= total;
+            cy /= total;
+            cz /= total;
+        } else {
+            cx = cy = cz = 0.0;
+            for (int i = 0; i < count; i++) {
+                cx += x[i] / count;
+                cy += y[i] / count;
+                cz += z[i] / count;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            fx[i] = (float) (x[i] - cx);
+            fy[i] = (float) (y[i] - cy);
+            fz[i] = (float) (z[i] - cz);
+            fm[i] = (float) mass[i];
+        }
+    }
+
+    /**
+     * Sums targets [start, end) (bodies [start, end) when {@code targets} is null)
+     * against the float arrays.
+     */
+    protected void sumRange(int[] targets, int start, int end, int count, double gravitationalConstant,
+                            double[] ax, double[] ay, double[] az) {
+        float[] x = fx, y = fy, z = fz, m = fm;
+        for (int n = start; n < end; n++) {
+            int i = targets == null ? n : targets[n];
+            float xi = x[i];
+            float yi = y[i];
+            float zi = z[i];
+            double sumX, sumY, sumZ;
+            if (doubleAccumulation) {
+                sumX = sumY = sumZ = 0.0;
+                for (int j = 0; j < count; j++) {
+                    float dx = x[j] - xi;
+                    float dy = y[j] - yi;
+                    float dz = z[j] - zi;
+                    float distSq = dx * dx + dy * dy + dz * dz;
+                    if (distSq == 0.0f) continue;
+                    float invDist = 1.0f / (float) Math.sqrt(distSq);
+                    float scale = m[j] * invDist * invDist * invDist;
+                    sumX += dx * scale;
+                    sumY += dy * scale;
+                    sumZ += dz * scale;
+                }
+            } else {
+                float sx = 0.0f, sy = 0.0f, sz = 0.0f;
+                for (int j = 0; j < count; j++) {
+                    float dx = x[j] - xi;
+                    float dy = y[j] - yi;
+                    float dz = z[j] - zi;
+                    float distSq = dx * dx + dy * dy + dz * dz;
+                    if (distSq == 0.0f) continue;
+                    float invDist = 1.0f / (float) Math.sqrt(distSq);
+                    float scale = m[j] * invDist * invDist * invDist;
+                    sx += dx * scale;
+                    sy += dy * scale;
+                    sz += dz * scale;
+                }
+                sumX = sx;
+                sumY = sy;
+                sumZ = sz;
+            }
+            ax[i] = gravitationalConstant * sumX;
+            ay[i] = gravitationalConstant * sumY;
+            az[i] = gravitationalConstant * sumZ;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return ForceSolverType.DIRECT.getName();
+    }
+}
@@ -0,0 +1,32 @@
+package simulations.physics;
+
+/**
+ * ForceEvaluator - Gives integrators the accelerations of the bodies they move.
+ * The acceleration arrays are indexed like the BodyStore and stay the same
+ * objects for the whole of a step.
+ */
+public interface ForceEvaluator {
+
+    /**
+     * Makes the acceleration arrays match the bodies' current positions, reusing the
+     * previous step's final evaluation when nothing has changed since.
+     */
+    void ensureCurrent();
+
+    /**
+     * Recomputes the accelerations after the integrator has moved the bodies.
+     */
+    void evaluate();
+
+    /**
+     * Recomputes the accelerations of the bodies {@code targets[0..targetCount)} only.
+     * Other bodies' entries may be left as they were or overwritten.
+     */
+    void evaluate(int[] targets, int targetCount);
+
+    double[] getAccelX();
+
+    double[] getAccelY();
+
+    double[] getAccelZ();
+}
@@ -0,0 +1,62 @@
+package simulations.physics;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ForceSolver - Computes gravitational accelerations for a set of bodies.
+ * Bodies are passed as primitive coordinate arrays so solvers can work without
+ * touching Planet objects. For 2D simulations the z array is all zeros.
+ */
+public interface ForceSolver {
+
+    /**
+     * Computes the acceleration of every body due to all the others.
+     * Uses F = G * m1 * m2 / r², so the acceleration of body i is G * m_j / r² towards body j.
+     * Pairs at zero distance exert no force on each other.
+     *
+     * @param count Number of bodies (arrays may be longer)
+     * @param dimension 2 or 3
+     * @param x Body x positions
+     * @param y Body y positions
+     * @param z Body z positions (zeros in 2D)
+     * @param mass Body masses
+     * @param gravitationalConstant Gravitational constant G
+     * @param ax Output x accelerations
+     * @param ay Output y accelerations
+     * @param az Output z accelerations
+     */
+    void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                              double[] mass, double gravitationalConstant,
+                              double[] ax, double[] ay, double[] az);
+
+    /**
+     * Computes the accelerations of the bodies {@code targets[0..targetCount)} due to
+     * all {@code count} bodies. Other entries of ax/ay/az may be left as they were or
+     * overwritten. The default computes every body.
+     */
+    default void computeAccelerations(int[] targets, int targetCount, int count, int dimension,
+                                      double[] x, double[] y, double[] z, double[] mass,
+                                      double gravitationalConstant,
+                                      double[] ax, double[] ay, double[] az) {
+        computeAccelerations(count, dimension, x, y, z, mass, gravitationalConstant, ax, ay, az);
+    }
+
+    /**
+     * Sets the pool used to split the force pass across threads, or null to run on
+     * the calling thread. Solvers that cannot split their work ignore it.
+     */
+    default void setPool(ForkJoinPool pool) {
+    }
+
+    /**
+     * Tells the solver that bodies were added, removed or reordered since the last call,
+     * so anything it keeps between calls that is keyed by body index must be rebuilt.
+     */
+    default void bodiesChanged() {
+    }
+
+    /**
+     * Gets the name used for this solver in the settings API.
+     */
+    String getName();
+}
@@ -0,0 +1,41 @@
+package simulations.physics;
+
+/**
+ * The force solvers that can be selected for a PhysicsEngine.
+ * Names match the "forceSolver" value accepted by the settings API.
+ */
+public enum ForceSolverType {
+    /** Exact pairwise summation, O(N²) */
+    DIRECT("direct"),
+    /** Barnes-Hut quadtree (2D) / octree (3D), O(N log N) */
+    BARNES_HUT("barnes-hut"),
+    /** Fast multipole method with Cartesian expansions, O(N) */
+    FAST_MULTIPOLE("fmm"),
+    /** Particle-mesh: CIC mass assignment and an FFT Poisson solve, O(N + M log M) */
+    PARTICLE_MESH("pm"),
+    /** Barnes-Hut with the walks split across worker processes */
+    DISTRIBUTED("distributed");
+
+    private final String name;
+
+    ForceSolverType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Looks up a solver type by its API name.
+     * @throws IllegalArgumentException if the name is not recognised
+     */
+    public static ForceSolverType fromName(String name) {
+        for (ForceSolverType type : values()) {
+            if (type.name.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown force solver: " + name);
+    }
+}
@@ -0,0 +1,202 @@
+package simulations.physics;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * ForceWorker - A worker process for {@link DistributedSolver}.
+ *
+ * Listens on a TCP port and answers force requests from one coordinator at a time.
+ * Each request carries the worker's own bodies (the targets) followed by every other
+ * source it needs: nearby bodies from other domains and far-away tree cells reduced to
+ * their mass and center of mass. The worker runs Barnes-Hut over those sources for the
+ * targets and sends their accelerations back.
+ *
+ * Usage: {@code java -cp out simulations.physics.ForceWorker [port] [bindAddress] [--once]}.
+ * Port 0 picks a free port; the first line printed is {@code listening <host>:<port>}.
+ * The default bind address is 127.0.0.1; use 0.0.0.0 to accept coordinators from the LAN.
+ * With {@code --once} the worker exits when its first coordinator disconnects.
+ *
+ * The protocol has no authentication, so only expose workers on trusted networks.
+ */
+public final class ForceWorker {
+
+    /** Message types, the first int of every request */
+    static final int STEP = 1;
+    static final int SHUTDOWN = 2;
+
+    /** Type, dimension, G, opening angle, target count, source count */
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+    /** x, y, z and mass of each source */
+    static final int SOURCE_BYTES = 4 * 8;
+    /** ax, ay and az of each target */
+    static final int RESULT_BYTES = 3 * 8;
+
+    /** Largest source count a request may carry, so the source buffer fits in an int */
+    static final int MAX_SOURCES = Integer.MAX_VALUE / SOURCE_BYTES;
+
+    private final BarnesHutSolver solver = new BarnesHutSolver(0.5);
+    private ByteBuffer request = ByteBuffer.allocate(HEADER_BYTES);
+    private ByteBuffer response = ByteBuffer.allocate(0);
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private double[] mass = new double[0];
+    private double[] ax = new double[0];
+    private double[] ay = new double[0];
+    private double[] az = new double[0];
+    private int[] targets = new int[0];
+
+    private ForceWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 0;
+        String bindAddress = "127.0.0.1";
+        boolean once = false;
+        int positional = 0;
+        for (String arg : args) {
+            if (arg.equals("--once")) {
+                once = true;
+            } else if (positional++ == 0) {
+                port = Integer.parseInt(arg);
+            } else {
+                bindAddress = arg;
+            }
+        }
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(bindAddress, port));
+            InetSocketAddress local = (InetSocketAddress) server.getLocalAddress();
+            System.out.println("listening " + local.getHostString() + ":" + local.getPort());
+            System.out.flush();
+
+            ForceWorker worker = new ForceWorker();
+            while (true) {
+                try (SocketChannel channel = server.accept()) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    if (worker.serve(channel) || once) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // Coordinator went away mid-request or sent a malformed one
+                    if (once || !server.isOpen()) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers requests until the coordinator disconnects or asks the worker to stop.
+     * @return true if the coordinator sent {@link #SHUTDOWN}
+     */
+    private boolean serve(SocketChannel channel) throws IOException {
+        while (true) {
+            request.clear().limit(HEADER_BYTES);
+            if (!readFully(channel, request, true)) {
+                return false;
+            }
+            request.flip();
+            int type = request.getInt();
+            if (type == SHUTDOWN) {
+                return true;
+            }
+            if (type != STEP) {
+                throw new IOException("Unknown request type " + type);
+            }
+            int dimension = request.getInt();
+            double gravitationalConstant = request.getDouble();
+            double openingAngle = request.getDouble();
+            int targetCount = request.getInt();
+            int sourceCount = request.getInt();
+            if (dimension != 2 && dimension != 3) {
+                throw new IOException("Bad dimension " + dimension);
+            }
+            if (sourceCount < 0 || sourceCount > MAX_SOURCES || targetCount < 0 || targetCount > sourceCount) {
+                throw new IOException("Bad body counts: " + targetCount + " targets, " + sourceCount + " sources");
+            }
+
+            ensureCapacity(sourceCount, targetCount);
+            request.clear().limit(sourceCount * SOURCE_BYTES);
+            readFully(channel, request, false);
+            request.flip();
+            for (int i = 0; i < sourceCount; i++) {
+                x[i] = request.getDouble();
+                y[i] = request.getDouble();
+                z[i] = request.getDouble();
+                mass[i] = request.getDouble();
+            }
+
+            // Every request has a different source set, so the tree is always rebuilt
+            solver.setOpeningAngle(openingAngle);
+            solver.bodiesChanged();
+            solver.computeAccelerations(targets, targetCount, sourceCount, dimension, x, y, z, mass,
+                                        gravitationalConstant, ax, ay, az);
+
+            response.clear().limit(targetCount * RESULT_BYTES);
+            for (int i = 0; i < targetCount; i++) {
+                response.putDouble(ax[i]).putDouble(ay[i]).putDouble(az[i]);
+            }
+            response.flip();
+            while (response.hasRemaining()) {
+                channel.write(response);
+            }
+        }
+    }
+
+    /** Grows the buffers, doubling where that stays in range; the counts are already checked */
+    private void ensureCapacity(int sourceCount, int targetCount) {
+        if (request.capacity() < sourceCount * SOURCE_BYTES) {
+            request = ByteBuffer.allocate(grow(request.capacity(), sourceCount * SOURCE_BYTES));
+        }
+        if (response.capacity() < targetCount * RESULT_BYTES) {
+            response = ByteBuffer.allocate(grow(response.capacity(), targetCount * RESULT_BYTES));
+        }
+        if (x.length < sourceCount) {
+            int capacity = grow(x.length, sourceCount);
+            x = new double[capacity];
+            y = new double[capacity];
+            z = new double[capacity];
+            mass = new double[capacity];
+            ax = new double[capacity];
+            ay = new double[capacity];
+            az = new double[capacity];
+        }
+        if (targets.length < targetCount) {
+            targets = new int[grow(targets.length, targetCount)];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = i;
+            }
+        }
+    }
+
+    private static int grow(int capacity, int needed) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * capacity));
+    }
+
+    /**
+     * Reads until the buffer is full.
+     * @param eofAllowed whether end of stream before the first byte is a clean close
+     * @return false on a clean close
+     */
+    static boolean readFully(SocketChannel channel, ByteBuffer buffer, boolean eofAllowed) throws IOException {
+        boolean first = true;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && first) {
+                    return false;
+                }
+                throw new EOFException("Connection closed mid-message");
+            }
+            first = false;
+        }
+        return true;
+    }
+}
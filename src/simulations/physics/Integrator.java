@@ -0,0 +1,43 @@
+package simulations.physics;
+
+/**
+ * Integrator - Advances the bodies of a BodyStore by one time step.
+ * Fixed bodies (PointMass) are never moved.
+ */
+public interface Integrator {
+
+    /**
+     * Advances every body by {@code dt}.
+     *
+     * @param bodies Bodies to move, updated in place
+     * @param dt Time step (already scaled by the engine's time factor)
+     * @param forces Source of accelerations for the bodies' current positions
+     */
+    void step(BodyStore bodies, double dt, ForceEvaluator forces);
+
+    /**
+     * Whether the last thing a step does is evaluate forces at the final positions.
+     * If so, the engine can reuse those accelerations at the start of the next step.
+     */
+    boolean endsWithForceEvaluation();
+
+    /**
+     * Gets how many steps the last call to {@link #step} took. Adaptive integrators
+     * may divide the interval; fixed-step ones always take one.
+     */
+    default int getLastSubsteps() {
+        return 1;
+    }
+
+    /**
+     * Tells the integrator that the body at index {@code order[k]} moved to index k, for
+     * every k below {@code count}, so state it keeps per body can move with it.
+     */
+    default void bodiesReordered(int[] order, int count) {
+    }
+
+    /**
+     * Gets the name used for this integrator in the settings API.
+     */
+    String getName();
+}
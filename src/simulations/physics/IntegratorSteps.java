@@ -0,0 +1,41 @@
+package simulations.physics;
+
+/**
+ * IntegratorSteps - The drift and kick sub-steps the integrators are composed of.
+ * Both skip fixed bodies. In 2D the z components stay zero.
+ */
+final class IntegratorSteps {
+
+    private IntegratorSteps() {
+    }
+
+    /**
+     * Moves every free body along its velocity: x += v * h.
+     */
+    static void drift(BodyStore bodies, int count, double h) {
+        double[] x = bodies.x, y = bodies.y, z = bodies.z;
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+        boolean[] fixed = bodies.fixed;
+        for (int i = 0; i < count; i++) {
+            if (fixed[i]) continue;
+            x[i] += vx[i] * h;
+            y[i] += vy[i] * h;
+            z[i] += vz[i] * h;
+        }
+    }
+
+    /**
+     * Changes every free body's velocity by its acceleration: v += a * h.
+     */
+    static void kick(BodyStore bodies, int count, ForceEvaluator forces, double h) {
+        double[] ax = forces.getAccelX(), ay = forces.getAccelY(), az = forces.getAccelZ();
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+        boolean[] fixed = bodies.fixed;
+        for (int i = 0; i < count; i++) {
+            if (fixed[i]) continue;
+            vx[i] += ax[i] * h;
+            vy[i] += ay[i] * h;
+            vz[i] += az[i] * h;
+        }
+    }
+}
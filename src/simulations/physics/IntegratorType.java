@@ -0,0 +1,67 @@
+package simulations.physics;
+
+/**
+ * The time integrators that can be selected for a PhysicsEngine.
+ * Names match the "integrator" value accepted by the settings API.
+ */
+public enum IntegratorType {
+    /** Semi-implicit (symplectic) Euler, 1st order, 1 force evaluation per step */
+    EULER("euler"),
+    /** Kick-drift-kick leapfrog, 2nd order, 1 force evaluation per step */
+    LEAPFROG("leapfrog"),
+    /** Velocity Verlet, 2nd order, 1 force evaluation per step */
+    VELOCITY_VERLET("verlet"),
+    /** Yoshida's 4th-order composition of leapfrog, 3 force evaluations per step */
+    YOSHIDA4("yoshida4"),
+    /** Classical Runge-Kutta, 4th order, 4 force evaluations per step */
+    RK4("rk4"),
+    /** Adaptive Dormand-Prince 5(4), 6 force evaluations per accepted sub-step */
+    DOPRI5("dopri5"),
+    /** Leapfrog with individual power-of-two steps, forces evaluated only for bodies ending a step */
+    BLOCK("block");
+
+    private final String name;
+
+    IntegratorType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Creates a new integrator of this type.
+     */
+    public Integrator create() {
+        switch (this) {
+            case LEAPFROG:
+                return new LeapfrogIntegrator();
+            case VELOCITY_VERLET:
+                return new VelocityVerletIntegrator();
+            case YOSHIDA4:
+                return new YoshidaIntegrator();
+            case RK4:
+                return new RK4Integrator();
+            case DOPRI5:
+                return new DormandPrinceIntegrator();
+            case BLOCK:
+                return new BlockTimestepIntegrator();
+            default:
+                return new EulerIntegrator();
+        }
+    }
+
+    /**
+     * Looks up an integrator type by its API name.
+     * @throws IllegalArgumentException if the name is not recognised
+     */
+    public static IntegratorType fromName(String name) {
+        for (IntegratorType type : values()) {
+            if (type.name.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown integrator: " + name);
+    }
+}
@@ -0,0 +1,508 @@
+package simulations.physics;
+
+import java.util.Arrays;
+
+/**
+ * KSRegularization - Integrates tightly bound pairs in Kustaanheimo-Stiefel variables.
+ *
+ * The relative orbit of a hard binary makes 1/r² forces change fast near pericentre, so
+ * an ordinary integrator needs tiny steps there. KS maps the relative position x onto a
+ * 4-vector u with x = L(u)u and |x| = |u|², and measures time by the fictitious s with
+ * dt = r ds. In u and s the Kepler problem is a harmonic oscillator of frequency
+ * sqrt(-h/2), with h the pair's energy per unit reduced mass, so a fixed number of steps
+ * in s covers every orbit whatever its eccentricity.
+ *
+ * For the rest of the system a pair is a single body at its centre of mass. At the start
+ * of a step {@link #begin} moves both members onto the centre of mass with its velocity,
+ * so the engine's integrator moves them as one (coincident bodies don't attract each
+ * other in any solver). {@link #end} then advances the relative motion over the step in
+ * KS variables and puts the members back around the new centre of mass. The tidal field
+ * of the other bodies enters as a perturbing acceleration T·x, with T the tidal tensor at
+ * the centre of mass at the start of the step. The bodies keep their real positions
+ * between steps, so nothing else has to know about the pairs.
+ *
+ * A pair enters when it is bound, compact, and hard: its apocentre is well inside the
+ * distance to the nearest other body, and the tidal energy the rest of the system can
+ * put into the orbit, |T|·Q² at apocentre Q, is a small fraction of the binding energy
+ * GM/Q. It leaves when it becomes unbound or either ratio passes a looser limit, so a
+ * pair near the threshold doesn't flip in and out. Candidates are bodies that come within
+ * reach of each other in a few steps, found with a broad-phase.
+ */
+final class KSRegularization {
+
+    /** Steps in s per orbit of the relative motion */
+    static final int STEPS_PER_ORBIT = 64;
+    /** Candidates are pairs that can meet within this many steps at their current speeds */
+    static final double ENCOUNTER_STEPS = 4.0;
+    /** Largest tidal-to-binding energy ratio to enter, and to stay */
+    static final double ENTER_PERTURBATION = 1e-3;
+    static final double EXIT_PERTURBATION = 1e-2;
+    /** Smallest ratio of the nearest other body's distance to the apocentre to enter, and to stay */
+    static final double ENTER_ISOLATION = 10.0;
+    static final double EXIT_ISOLATION = 5.0;
+    /** Newton iterations allowed to land the last step on the end of the interval */
+    private static final int MAX_END_ITERATIONS = 8;
+
+    /** Each body's partner, or -1; pairs hold for the store version they were made in */
+    private int[] partner = new int[0];
+    private long partnerVersion = -1;
+    private int partnerCount = -1;
+
+    /** Pairs of this step: members, relative state at the start, and tidal tensor */
+    private int pairCount = 0;
+    private int[] first = new int[0];
+    private int[] second = new int[0];
+    private double[] relX = new double[0], relY = new double[0], relZ = new double[0];
+    private double[] relVX = new double[0], relVY = new double[0], relVZ = new double[0];
+    private double[] txx = new double[0], txy = new double[0], txz = new double[0];
+    private double[] tyy = new double[0], tyz = new double[0], tzz = new double[0];
+
+    /** Reorder scratch: new index of each old index, and the partners in the new order */
+    private int[] moved = new int[0];
+    private int[] movedPartner = new int[0];
+
+    private final BroadPhase broadPhase = new SweepAndPruneBroadPhase();
+    private long broadPhaseLayoutVersion = -1;
+    private final CollisionPairs candidates = new CollisionPairs();
+    private double[] reach = new double[0];
+
+    /** KS state (u, du/ds, h, t) and Runge-Kutta scratch */
+    private final double[] state = new double[10];
+    private final double[] start = new double[10];
+    private final double[] trial = new double[10];
+    private final double[] k1 = new double[10];
+    private final double[] k2 = new double[10];
+    private final double[] k3 = new double[10];
+    private final double[] k4 = new double[10];
+    private long lastSteps = 0;
+
+    /**
+     * Updates which pairs are regularized and moves each pair's members onto their centre
+     * of mass. Called with the store's lock held, before the integrator step.
+     *
+     * @param dt Step about to be taken, used to find candidates
+     * @return true if pairs entered or left, so accelerations computed before are stale
+     */
+    boolean begin(BodyStore bodies, double gravitationalConstant, double dt) {
+        int count = bodies.size();
+        ensureCapacity(count);
+        boolean changed = false;
+        if (bodies.version != partnerVersion || count != partnerCount) {
+            // Indices may have moved: start over, the criteria re-pair what still qualifies
+            changed = pairCount > 0;
+            Arrays.fill(partner, 0, count, -1);
+            partnerVersion = bodies.version;
+            partnerCount = count;
+        }
+
+        pairCount = 0;
+        for (int i = 0; i < count; i++) {
+            int j = partner[i];
+            if (j <= i) continue;
+            if (qualifies(bodies, count, gravitationalConstant, i, j, EXIT_PERTURBATION, EXIT_ISOLATION)) {
+                addPair(i, j);
+            } else {
+                partner[i] = -1;
+                partner[j] = -1;
+                changed = true;
+            }
+        }
+
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+        double reachTime = ENCOUNTER_STEPS * Math.abs(dt);
+        for (int i = 0; i < count; i++) {
+            double speed = Math.sqrt(vx[i] * vx[i] + vy[i] * vy[i] + vz[i] * vz[i]);
+            reach[i] = bodies.radius[i] + speed * reachTime;
+        }
+        candidates.clear();
+        if (bodies.layoutVersion != broadPhaseLayoutVersion) {
+            broadPhaseLayoutVersion = bodies.layoutVersion;
+            broadPhase.bodiesChanged();
+        }
+        broadPhase.findOverlaps(count, bodies.getDimension(), bodies.x, bodies.y, bodies.z, reach, candidates);
+        candidates.sort();
+        for (int k = 0; k < candidates.size(); k++) {
+            int i = Math.min(candidates.first(k), candidates.second(k));
+            int j = Math.max(candidates.first(k), candidates.second(k));
+            if (partner[i] >= 0 || partner[j] >= 0 || bodies.fixed[i] || bodies.fixed[j]) continue;
+            if (qualifies(bodies, count, gravitationalConstant, i, j, ENTER_PERTURBATION, ENTER_ISOLATION)) {
+                partner[i] = j;
+                partner[j] = i;
+                addPair(i, j);
+                changed = true;
+            }
+        }
+
+        for (int p = 0; p < pairCount; p++) {
+            collapse(bodies, first[p], second[p]);
+        }
+        return changed;
+    }
+
+    /**
+     * Advances each pair's relative motion by {@code dt} and moves the members back
+     * around their centre of mass, which the integrator has moved. Called with the
+     * store's lock held, right after the integrator step.
+     */
+    void end(BodyStore bodies, double gravitationalConstant, double dt) {
+        lastSteps = 0;
+        double[] x = bodies.x, y = bodies.y, z = bodies.z;
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+        double[] mass = bodies.mass;
+        boolean planar = bodies.getDimension() == 2;
+        for (int p = 0; p < pairCount; p++) {
+            int i = first[p];
+            int j = second[p];
+            double total = mass[i] + mass[j];
+            double wi = mass[i] / total;
+            double wj = mass[j] / total;
+            double cx = wi * x[i] + wj * x[j];
+            double cy = wi * y[i] + wj * y[j];
+            double cz = wi * z[i] + wj * z[j];
+            double cvx = wi * vx[i] + wj * vx[j];
+            double cvy = wi * vy[i] + wj * vy[j];
+            double cvz = wi * vz[i] + wj * vz[j];
+
+            if (dt != 0.0) {
+                integrate(p, gravitationalConstant * total, dt);
+            }
+            if (planar) {
+                relZ[p] = 0.0;
+                relVZ[p] = 0.0;
+            }
+            x[i] = cx - wj * relX[p];
+            y[i] = cy - wj * relY[p];
+            z[i] = cz - wj * relZ[p];
+            x[j] = cx + wi * relX[p];
+            y[j] = cy + wi * relY[p];
+            z[j] = cz + wi * relZ[p];
+            vx[i] = cvx - wj * relVX[p];
+            vy[i] = cvy - wj * relVY[p];
+            vz[i] = cvz - wj * relVZ[p];
+            vx[j] = cvx + wi * relVX[p];
+            vy[j] = cvy + wi * relVY[p];
+            vz[j] = cvz + wi * relVZ[p];
+        }
+    }
+
+    /**
+     * Dissolves every pair. The members already sit at their real positions between steps.
+     */
+    void clear() {
+        Arrays.fill(partner, -1);
+        pairCount = 0;
+    }
+
+    /** Number of pairs regularized on the last step */
+    int getPairCount() {
+        return pairCount;
+    }
+
+    /** KS steps taken over all pairs on the last step */
+    long getLastSteps() {
+        return lastSteps;
+    }
+
+    /**
+     * Moves the pairs with their bodies when the body at index {@code order[k]} moves to
+     * index k, so a re-sort neither dissolves pairs nor makes them pass the entry test again.
+     */
+    void bodiesReordered(int[] order, int count) {
+        if (count != partnerCount || partner.length < count) return;
+        if (moved.length < count) {
+            moved = new int[partner.length];
+            movedPartner = new int[partner.length];
+        }
+        for (int k = 0; k < count; k++) {
+            moved[order[k]] = k;
+        }
+        for (int k = 0; k < count; k++) {
+            int j = partner[order[k]];
+            movedPartner[k] = j < 0 ? -1 : moved[j];
+        }
+        System.arraycopy(movedPartner, 0, partner, 0, count);
+    }
+
+    /** Gets the partner of body i, or -1 if it isn't regularized */
+    int getPartner(int i) {
+        return i < partner.length ? partner[i] : -1;
+    }
+
+    /**
+     * Checks the entry or exit criteria for (i, j) and, as the next pair slot, records
+     * its relative state and the tidal tensor at its centre of mass.
+     */
+    private boolean qualifies(BodyStore bodies, int count, double gravitationalConstant, int i, int j,
+                              double maxPerturbation, double minIsolation) {
+        double[] x = bodies.x, y = bodies.y, z = bodies.z;
+        double[] mass = bodies.mass;
+        double total = mass[i] + mass[j];
+        double gm = gravitationalConstant * total;
+        if (!(gm > 0.0)) return false;
+
+        int p = pairCount;
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        double dz = z[j] - z[i];
+        double dvx = bodies.vx[j] - bodies.vx[i];
+        double dvy = bodies.vy[j] - bodies.vy[i];
+        double dvz = bodies.vz[j] - bodies.vz[i];
+        double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (r == 0.0) return false;
+        double h = 0.5 * (dvx * dvx + dvy * dvy + dvz * dvz) - gm / r;
+        if (h >= 0.0) return false;
+
+        // Apocentre a(1 + e) from the energy and angular momentum
+        double semiMajor = -gm / (2.0 * h);
+        double lx = dy * dvz - dz * dvy;
+        double ly = dz * dvx - dx * dvz;
+        double lz = dx * dvy - dy * dvx;
+        double eccentricitySq = 1.0 + 2.0 * h * (lx * lx + ly * ly + lz * lz) / (gm * gm);
+        double apocentre = semiMajor * (1.0 + Math.sqrt(Math.max(0.0, eccentricitySq)));
+
+        double cx = (mass[i] * x[i] + mass[j] * x[j]) / total;
+        double cy = (mass[i] * y[i] + mass[j] * y[j]) / total;
+        double cz = (mass[i] * z[i] + mass[j] * z[j]) / total;
+        double nearestSq = Double.POSITIVE_INFINITY;
+        double sxx = 0.0, sxy = 0.0, sxz = 0.0, syy = 0.0, syz = 0.0, szz = 0.0;
+        for (int k = 0; k < count; k++) {
+            if (k == i || k == j) continue;
+            double ex = x[k] - cx;
+            double ey = y[k] - cy;
+            double ez = z[k] - cz;
+            double distSq = ex * ex + ey * ey + ez * ez;
+            nearestSq = Math.min(nearestSq, distSq);
+            if (distSq == 0.0) continue;
+            double invDist = 1.0 / Math.sqrt(distSq);
+            double scale = gravitationalConstant * mass[k] * invDist * invDist * invDist;
+            double radial = 3.0 * scale / distSq;
+            sxx += radial * ex * ex - scale;
+            syy += radial * ey * ey - scale;
+            szz += radial * ez * ez - scale;
+            sxy += radial * ex * ey;
+            sxz += radial * ex * ez;
+            syz += radial * ey * ez;
+        }
+        double tidal = Math.sqrt(sxx * sxx + syy * syy + szz * szz + 2.0 * (sxy * sxy + sxz * sxz + syz * syz));
+        double perturbation = tidal * apocentre * apocentre * apocentre / gm;
+        if (perturbation > maxPerturbation || apocentre * minIsolation > Math.sqrt(nearestSq)) {
+            return false;
+        }
+
+        relX[p] = dx;
+        relY[p] = dy;
+        relZ[p] = dz;
+        relVX[p] = dvx;
+        relVY[p] = dvy;
+        relVZ[p] = dvz;
+        txx[p] = sxx;
+        txy[p] = sxy;
+        txz[p] = sxz;
+        tyy[p] = syy;
+        tyz[p] = syz;
+        tzz[p] = szz;
+        return true;
+    }
+
+    /** Takes the slot {@link #qualifies} just filled */
+    private void addPair(int i, int j) {
+        first[pairCount] = i;
+        second[pairCount] = j;
+        pairCount++;
+    }
+
+    /** Puts both members at their centre of mass, moving with it */
+    private static void collapse(BodyStore bodies, int i, int j) {
+        double[] mass = bodies.mass;
+        double total = mass[i] + mass[j];
+        double wi = mass[i] / total;
+        double wj = mass[j] / total;
+        moveToCentre(bodies.x, i, j, wi, wj);
+        moveToCentre(bodies.y, i, j, wi, wj);
+        moveToCentre(bodies.z, i, j, wi, wj);
+        moveToCentre(bodies.vx, i, j, wi, wj);
+        moveToCentre(bodies.vy, i, j, wi, wj);
+        moveToCentre(bodies.vz, i, j, wi, wj);
+    }
+
+    private static void moveToCentre(double[] a, int i, int j, double wi, double wj) {
+        double centre = wi * a[i] + wj * a[j];
+        a[i] = centre;
+        a[j] = centre;
+    }
+
+    /**
+     * Advances pair p's relative state by dt: Runge-Kutta steps of fixed length in s
+     * until the next one would pass dt, then one step sized by Newton's method to end
+     * exactly on it.
+     */
+    private void integrate(int p, double gm, double dt) {
+        double r = toKS(p, gm);
+        double h = state[8];
+        // x repeats every half period of u, so an orbit is pi / omega in s
+        double ds = Math.PI / (Math.sqrt(-0.5 * h) * STEPS_PER_ORBIT);
+        if (dt < 0.0) {
+            ds = -ds;
+        }
+
+        while (true) {
+            rungeKuttaStep(p, state, ds, trial);
+            if ((trial[9] - dt) * ds >= 0.0) break;
+            System.arraycopy(trial, 0, state, 0, 10);
+            lastSteps++;
+        }
+
+        // t' = r, so Newton's step for t(s) = dt is (dt - t) / r
+        System.arraycopy(state, 0, start, 0, 10);
+        double sigma = (dt - start[9]) / radius(start);
+        for (int n = 0; n < MAX_END_ITERATIONS; n++) {
+            rungeKuttaStep(p, start, sigma, state);
+            lastSteps++;
+            double miss = dt - state[9];
+            if (Math.abs(miss) <= 1e-14 * Math.abs(dt)) break;
+            sigma += miss / radius(state);
+        }
+
+        fromKS(p, gm);
+    }
+
+    /**
+     * Converts pair p's relative state to KS variables in {@link #state}, choosing the u
+     * that also satisfies the bilinear constraint. Returns r.
+     */
+    private double toKS(int p, double gm) {
+        double x1 = relX[p], x2 = relY[p], x3 = relZ[p];
+        double r = Math.sqrt(x1 * x1 + x2 * x2 + x3 * x3);
+        double u1, u2, u3, u4;
+        if (x1 >= 0.0) {
+            u1 = Math.sqrt(0.5 * (r + x1));
+            u2 = x2 / (2.0 * u1);
+            u3 = x3 / (2.0 * u1);
+            u4 = 0.0;
+        } else {
+            u2 = Math.sqrt(0.5 * (r - x1));
+            u1 = x2 / (2.0 * u2);
+            u3 = 0.0;
+            u4 = x3 / (2.0 * u2);
+        }
+        double v1 = relVX[p], v2 = relVY[p], v3 = relVZ[p];
+        state[0] = u1;
+        state[1] = u2;
+        state[2] = u3;
+        state[3] = u4;
+        // du/ds = L(u)^T v / 2
+        state[4] = 0.5 * (u1 * v1 + u2 * v2 + u3 * v3);
+        state[5] = 0.5 * (-u2 * v1 + u1 * v2 + u4 * v3);
+        state[6] = 0.5 * (-u3 * v1 - u4 * v2 + u1 * v3);
+        state[7] = 0.5 * (u4 * v1 - u3 * v2 + u2 * v3);
+        state[8] = 0.5 * (v1 * v1 + v2 * v2 + v3 * v3) - gm / r;
+        state[9] = 0.0;
+        return r;
+    }
+
+    /**
+     * Writes {@link #state} back to pair p's relative position and velocity. du/ds is
+     * first rescaled so the pair's Kepler energy equals the integrated h, which keeps
+     * truncation error from feeding into the energy.
+     */
+    private void fromKS(int p, double gm) {
+        double u1 = state[0], u2 = state[1], u3 = state[2], u4 = state[3];
+        double w1 = state[4], w2 = state[5], w3 = state[6], w4 = state[7];
+        double h = state[8];
+        double r = u1 * u1 + u2 * u2 + u3 * u3 + u4 * u4;
+        double speedSq = w1 * w1 + w2 * w2 + w3 * w3 + w4 * w4;
+        double target = 0.5 * (gm + h * r);
+        if (target > 0.0 && speedSq > 0.0) {
+            double scale = Math.sqrt(target / speedSq);
+            w1 *= scale;
+            w2 *= scale;
+            w3 *= scale;
+            w4 *= scale;
+        }
+        relX[p] = u1 * u1 - u2 * u2 - u3 * u3 + u4 * u4;
+        relY[p] = 2.0 * (u1 * u2 - u3 * u4);
+        relZ[p] = 2.0 * (u1 * u3 + u2 * u4);
+        // v = 2 L(u) du/ds / r
+        double f = 2.0 / r;
+        relVX[p] = f * (u1 * w1 - u2 * w2 - u3 * w3 + u4 * w4);
+        relVY[p] = f * (u2 * w1 + u1 * w2 - u4 * w3 - u3 * w4);
+        relVZ[p] = f * (u3 * w1 + u4 * w2 + u1 * w3 + u2 * w4);
+    }
+
+    private static double radius(double[] y) {
+        return y[0] * y[0] + y[1] * y[1] + y[2] * y[2] + y[3] * y[3];
+    }
+
+    /** One classical Runge-Kutta step of length ds from y into out */
+    private void rungeKuttaStep(int p, double[] y, double ds, double[] out) {
+        derivative(p, y, k1);
+        for (int n = 0; n < 10; n++) out[n] = y[n] + 0.5 * ds * k1[n];
+        derivative(p, out, k2);
+        for (int n = 0; n < 10; n++) out[n] = y[n] + 0.5 * ds * k2[n];
+        derivative(p, out, k3);
+        for (int n = 0; n < 10; n++) out[n] = y[n] + ds * k3[n];
+        derivative(p, out, k4);
+        for (int n = 0; n < 10; n++) {
+            out[n] = y[n] + ds / 6.0 * (k1[n] + 2.0 * k2[n] + 2.0 * k3[n] + k4[n]);
+        }
+    }
+
+    /**
+     * KS equations with perturbation P = T·x:
+     * u'' = (h/2) u + (r/2) L(u)^T P, h' = 2 u'·L(u)^T P, t' = r.
+     */
+    private void derivative(int p, double[] y, double[] dy) {
+        double u1 = y[0], u2 = y[1], u3 = y[2], u4 = y[3];
+        double h = y[8];
+        double r = u1 * u1 + u2 * u2 + u3 * u3 + u4 * u4;
+        double x1 = u1 * u1 - u2 * u2 - u3 * u3 + u4 * u4;
+        double x2 = 2.0 * (u1 * u2 - u3 * u4);
+        double x3 = 2.0 * (u1 * u3 + u2 * u4);
+        double p1 = txx[p] * x1 + txy[p] * x2 + txz[p] * x3;
+        double p2 = txy[p] * x1 + tyy[p] * x2 + tyz[p] * x3;
+        double p3 = txz[p] * x1 + tyz[p] * x2 + tzz[p] * x3;
+        double q1 = u1 * p1 + u2 * p2 + u3 * p3;
+        double q2 = -u2 * p1 + u1 * p2 + u4 * p3;
+        double q3 = -u3 * p1 - u4 * p2 + u1 * p3;
+        double q4 = u4 * p1 - u3 * p2 + u2 * p3;
+        dy[0] = y[4];
+        dy[1] = y[5];
+        dy[2] = y[6];
+        dy[3] = y[7];
+        dy[4] = 0.5 * (h * u1 + r * q1);
+        dy[5] = 0.5 * (h * u2 + r * q2);
+        dy[6] = 0.5 * (h * u3 + r * q3);
+        dy[7] = 0.5 * (h * u4 + r * q4);
+        dy[8] = 2.0 * (y[4] * q1 + y[5] * q2 + y[6] * q3 + y[7] * q4);
+        dy[9] = r;
+    }
+
+    private void ensureCapacity(int count) {
+        if (partner.length < count) {
+            int capacity = Math.max(count, partner.length * 2);
+            int old = partner.length;
+            partner = Arrays.copyOf(partner, capacity);
+            Arrays.fill(partner, old, capacity, -1);
+            reach = new double[capacity];
+        }
+        // At most count / 2 pairs
+        int pairs = count / 2 + 1;
+        if (first.length < pairs) {
+            int capacity = Math.max(pairs, first.length * 2);
+            first = new int[capacity];
+            second = new int[capacity];
+            relX = new double[capacity];
+            relY = new double[capacity];
+            relZ = new double[capacity];
+            relVX = new double[capacity];
+            relVY = new double[capacity];
+            relVZ = new double[capacity];
+            txx = new double[capacity];
+            txy = new double[capacity];
+            txz = new double[capacity];
+            tyy = new double[capacity];
+            tyz = new double[capacity];
+            tzz = new double[capacity];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package simulations.physics;
+
+/**
+ * LeapfrogIntegrator - Kick-drift-kick leapfrog.
+ * Second order, symplectic and time-reversible. The closing kick's forces are the
+ * next step's opening forces, so it costs one force evaluation per step.
+ */
+public class LeapfrogIntegrator implements Integrator {
+
+    @Override
+    public void step(BodyStore bodies, double dt, ForceEvaluator forces) {
+        int count = bodies.size();
+        forces.ensureCurrent();
+        IntegratorSteps.kick(bodies, count, forces, 0.5 * dt);
+        IntegratorSteps.drift(bodies, count, dt);
+        forces.evaluate();
+        IntegratorSteps.kick(bodies, count, forces, 0.5 * dt);
+    }
+
+    @Override
+    public boolean endsWithForceEvaluation() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return IntegratorType.LEAPFROG.getName();
+    }
+}
@@ -0,0 +1,188 @@
+package simulations.physics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * MortonOrder - Sorts bodies along a Z-order (Morton) curve.
+ *
+ * Positions are quantised on the bounding cube of the bodies, 21 bits per axis in 3D
+ * and 31 in 2D, and the bits of the axes are interleaved into one key. Sorting by key
+ * puts bodies that are close in space close in the arrays, which is the order the tree
+ * solvers walk and the broad-phases test in.
+ *
+ * Keys are sorted with a least-significant-digit radix sort, 8 bits per pass. Each pass
+ * splits the bodies into one chunk per thread: the chunks count their digits in
+ * parallel, a serial prefix sum gives every (digit, chunk) its output offset, and the
+ * chunks scatter in parallel. Chunks keep their relative order, so the sort is stable
+ * and the result doesn't depend on the thread count. Passes where every key has the
+ * same digit are skipped, which for clustered bodies skips most of the high bytes.
+ */
+final class MortonOrder {
+
+    private static final int RADIX_BITS = 8;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+    /** Smallest chunk worth sorting on its own thread */
+    private static final int MIN_CHUNK = 4096;
+
+    private long[] keys = new long[0];
+    private long[] keyScratch = new long[0];
+    private int[] order = new int[0];
+    private int[] orderScratch = new int[0];
+    /** Digit counts per chunk, then the chunks' output offsets */
+    private int[] offsets = new int[0];
+    private double[] values = new double[0];
+
+    /**
+     * Computes the Morton order of the first {@code count} bodies.
+     *
+     * @param pool Pool to sort on, or null to sort on the calling thread
+     * @return order[k] is the index of the k-th body along the curve; valid until the next call
+     */
+    int[] sort(int count, int dimension, double[] x, double[] y, double[] z, ForkJoinPool pool) {
+        ensureCapacity(count);
+        computeKeys(count, dimension, x, y, z);
+        int chunks = pool == null ? 1 : Math.max(1, Math.min(pool.getParallelism(), count / MIN_CHUNK));
+        if (offsets.length < chunks * BUCKETS) {
+            offsets = new int[chunks * BUCKETS];
+        }
+        for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+            if (radixPass(count, shift, chunks, pool)) {
+                long[] swapKeys = keys;
+                keys = keyScratch;
+                keyScratch = swapKeys;
+                int[] swapOrder = order;
+                order = orderScratch;
+                orderScratch = swapOrder;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Rearranges {@code a[0..count)} into the order of the last {@link #sort}.
+     */
+    void apply(double[] a, int count) {
+        if (values.length < count) {
+            values = new double[count];
+        }
+        for (int k = 0; k < count; k++) {
+            values[k] = a[order[k]];
+        }
+        System.arraycopy(values, 0, a, 0, count);
+    }
+
+    private void computeKeys(int count, int dimension, double[] x, double[] y, double[] z) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        double side = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+        int bits = dimension == 3 ? 21 : 31;
+        // Largest cell index is 2^bits - 1; a zero-size cube puts every body in cell 0
+        double scale = side > 0.0 ? ((1L << bits) - 1) / side : 0.0;
+        for (int i = 0; i < count; i++) {
+            long cx = (long) ((x[i] - minX) * scale);
+            long cy = (long) ((y[i] - minY) * scale);
+            if (dimension == 3) {
+                long cz = (long) ((z[i] - minZ) * scale);
+                keys[i] = spread3(cx) | (spread3(cy) << 1) | (spread3(cz) << 2);
+            } else {
+                keys[i] = spread2(cx) | (spread2(cy) << 1);
+            }
+            order[i] = i;
+        }
+    }
+
+    /** Spaces the low 21 bits of v three bits apart */
+    static long spread3(long v) {
+        v &= 0x1FFFFFL;
+        v = (v | v << 32) & 0x1F00000000FFFFL;
+        v = (v | v << 16) & 0x1F0000FF0000FFL;
+        v = (v | v << 8) & 0x100F00F00F00F00FL;
+        v = (v | v << 4) & 0x10C30C30C30C30C3L;
+        v = (v | v << 2) & 0x1249249249249249L;
+        return v;
+    }
+
+    /** Spaces the low 31 bits of v two bits apart */
+    static long spread2(long v) {
+        v &= 0x7FFFFFFFL;
+        v = (v | v << 16) & 0x0000FFFF0000FFFFL;
+        v = (v | v << 8) & 0x00FF00FF00FF00FFL;
+        v = (v | v << 4) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | v << 2) & 0x3333333333333333L;
+        v = (v | v << 1) & 0x5555555555555555L;
+        return v;
+    }
+
+    /**
+     * Sorts by the digit at {@code shift} from keys/order into the scratch arrays.
+     * @return false if every key has the same digit, so nothing was moved
+     */
+    private boolean radixPass(int count, int shift, int chunks, ForkJoinPool pool) {
+        int[] offsets = this.offsets;
+        long[] keys = this.keys;
+        ParallelRange.forEach(pool, chunks, 1, (start, end) -> {
+            for (int c = start; c < end; c++) {
+                int base = c * BUCKETS;
+                Arrays.fill(offsets, base, base + BUCKETS, 0);
+                for (int i = chunkStart(c, chunks, count); i < chunkStart(c + 1, chunks, count); i++) {
+                    offsets[base + (int) ((keys[i] >>> shift) & (BUCKETS - 1))]++;
+                }
+            }
+        });
+
+        for (int d = 0; d < BUCKETS; d++) {
+            int n = 0;
+            for (int c = 0; c < chunks; c++) {
+                n += offsets[c * BUCKETS + d];
+            }
+            if (n == count) return false;
+        }
+        // Digit-major prefix sum, chunks in order within a digit
+        int total = 0;
+        for (int d = 0; d < BUCKETS; d++) {
+            for (int c = 0; c < chunks; c++) {
+                int n = offsets[c * BUCKETS + d];
+                offsets[c * BUCKETS + d] = total;
+                total += n;
+            }
+        }
+
+        int[] order = this.order;
+        long[] keyOut = keyScratch;
+        int[] orderOut = orderScratch;
+        ParallelRange.forEach(pool, chunks, 1, (start, end) -> {
+            for (int c = start; c < end; c++) {
+                int base = c * BUCKETS;
+                for (int i = chunkStart(c, chunks, count); i < chunkStart(c + 1, chunks, count); i++) {
+                    int slot = offsets[base + (int) ((keys[i] >>> shift) & (BUCKETS - 1))]++;
+                    keyOut[slot] = keys[i];
+                    orderOut[slot] = order[i];
+                }
+            }
+        });
+        return true;
+    }
+
+    private static int chunkStart(int chunk, int chunks, int count) {
+        return (int) ((long) count * chunk / chunks);
+    }
+
+    private void ensureCapacity(int count) {
+        if (keys.length < count) {
+            int capacity = Math.max(count, keys.length * 2);
+            keys = new long[capacity];
+            keyScratch = new long[capacity];
+            order = new int[capacity];
+            orderScratch = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package simulations.physics;
+
+/**
+ * OrbDecomposition - Splits bodies into spatial domains of equal cost by orthogonal
+ * recursive bisection (ORB).
+ *
+ * The bodies are cut by a plane across the longest side of their bounding box, placed
+ * so that the cost on each side matches the number of domains that side gets, and
+ * each side is cut again until there is one side per domain. Domains are compact
+ * boxes, so the bodies a thread walks for are also close together in the tree.
+ *
+ * Cut planes are found by bisecting on the coordinate, which needs no sorting and
+ * allocates nothing once the arrays have grown.
+ */
+final class OrbDecomposition {
+
+    /** Bisection steps per cut; more than enough to separate distinct doubles in a box */
+    private static final int CUT_ITERATIONS = 64;
+
+    /** A cut this close to its share of the cost, as a fraction of the total, is kept */
+    private static final double CUT_TOLERANCE = 1e-3;
+
+    /** Body indices grouped by domain: domain d is order[domainStart[d] .. domainStart[d + 1]) */
+    int[] order = new int[0];
+    int[] domainStart = new int[1];
+    int domainCount;
+
+    /**
+     * Splits the first {@code count} bodies into {@code domains} domains of about
+     * equal total cost.
+     *
+     * @param cost Cost of each body, e.g. its interaction count on the last step; must be non-negative
+     */
+    void split(int count, int dimension, double[] x, double[] y, double[] z, double[] cost, int domains) {
+        if (order.length < count) {
+            order = new int[count];
+        }
+        if (domainStart.length < domains + 1) {
+            domainStart = new int[domains + 1];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        domainCount = domains;
+        domainStart[domains] = count;
+        bisect(0, count, 0, domains, dimension, x, y, z, cost);
+    }
+
+    private void bisect(int start, int end, int firstDomain, int domains, int dimension,
+                        double[] x, double[] y, double[] z, double[] cost) {
+        if (domains == 1) {
+            domainStart[firstDomain] = start;
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        double total = 0.0;
+        for (int k = start; k < end; k++) {
+            int i = order[k];
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+            total += cost[i];
+        }
+        double[] axis = x;
+        double low = minX, high = maxX;
+        if (maxY - minY > high - low) {
+            axis = y;
+            low = minY;
+            high = maxY;
+        }
+        if (dimension == 3 && maxZ - minZ > high - low) {
+            axis = z;
+            low = minZ;
+            high = maxZ;
+        }
+
+        // Smallest cut whose lower side holds at least its share of the cost, to within the tolerance
+        int lowerDomains = domains / 2;
+        double target = total * lowerDomains / domains;
+        double cut = high;
+        for (int iteration = 0; iteration < CUT_ITERATIONS && low < high; iteration++) {
+            double mid = 0.5 * (low + high);
+            if (mid <= low || mid >= high) break;
+            double below = 0.0;
+            for (int k = start; k < end; k++) {
+                int i = order[k];
+                if (axis[i] < mid) below += cost[i];
+            }
+            if (below >= target) {
+                high = mid;
+                cut = mid;
+                if (below - target <= CUT_TOLERANCE * total) break;
+            } else {
+                low = mid;
+            }
+        }
+
+        // Partition bodies below the cut to the front
+        int split = start;
+        for (int k = start; k < end; k++) {
+            int i = order[k];
+            if (axis[i] < cut) {
+                order[k] = order[split];
+                order[split++] = i;
+            }
+        }
+        bisect(start, split, firstDomain, lowerDomains, dimension, x, y, z, cost);
+        bisect(split, end, firstDomain + lowerDomains, domains - lowerDomains, dimension, x, y, z, cost);
+    }
+}
@@ -0,0 +1,74 @@
+package simulations.physics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelRange - Splits an index range [0, count) across a ForkJoin pool.
+ *
+ * Each index is handled by exactly one kernel call and the split does not change
+ * what a kernel computes, so per-index results do not depend on the thread count.
+ */
+final class ParallelRange {
+
+    /** Smallest range worth handing to another thread */
+    static final int MIN_GRAIN = 32;
+
+    /**
+     * Work on the half-open index range [start, end).
+     */
+    interface Kernel {
+        void run(int start, int end);
+    }
+
+    private ParallelRange() {
+    }
+
+    /**
+     * Runs the kernel over [0, count), in parallel when a pool is given.
+     * A null pool or a pool of one thread runs the whole range on the calling thread.
+     */
+    static void forEach(ForkJoinPool pool, int count, Kernel kernel) {
+        forEach(pool, count, MIN_GRAIN, kernel);
+    }
+
+    /**
+     * Runs the kernel over [0, count) in chunks of at least {@code minGrain} indices.
+     * Use a small grain when each index is a large piece of work.
+     */
+    static void forEach(ForkJoinPool pool, int count, int minGrain, Kernel kernel) {
+        if (pool == null || pool.getParallelism() <= 1 || count < 2 * minGrain) {
+            kernel.run(0, count);
+            return;
+        }
+        // A few chunks per thread so uneven work (e.g. tree walks) still balances
+        int grain = Math.max(minGrain, count / (pool.getParallelism() * 4));
+        pool.invoke(new RangeTask(kernel, 0, count, grain));
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Kernel kernel;
+        private final int start;
+        private final int end;
+        private final int grain;
+
+        RangeTask(Kernel kernel, int start, int end, int grain) {
+            this.kernel = kernel;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= grain) {
+                kernel.run(start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new RangeTask(kernel, start, mid, grain), new RangeTask(kernel, mid, end, grain));
+        }
+    }
+}
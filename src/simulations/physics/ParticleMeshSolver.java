@@ -0,0 +1,352 @@
+package simulations.physics;
+
+import java.util.Arrays;
+
+/**
+ * ParticleMeshSolver - Grid-based gravity for dense, roughly uniform mass distributions.
+ *
+ * Each step the bodies' masses are spread onto a mesh with cloud-in-cell (CIC) weights,
+ * the potential is found by convolving with the 1/r Green's function using an FFT, and
+ * the mesh gradient is interpolated back to the bodies with the same CIC weights. The
+ * cost is O(N + M log M) for M mesh cells, independent of how clustered the bodies are,
+ * but forces are smoothed below a couple of cell widths.
+ *
+ * Two boundary types are supported:
+ * - isolated: the mesh covers the bodies' bounding cube and is zero-padded to twice its
+ *   size, so there are no periodic images (Hockney and Eastwood's method).
+ * - periodic: the mesh covers the fixed box [0, boxSize) along every axis and positions
+ *   are wrapped into it, so every body also feels the periodic images of all the others.
+ *
+ * The engine uses F = G m1 m2 / r² in 2D as well, so the 2D Green's function is also
+ * 1/r (Fourier transform 2π / |k|) rather than the logarithmic 2D Poisson kernel.
+ */
+public class ParticleMeshSolver implements ForceSolver {
+
+    /** Smallest mesh size; isolated meshes need a two-cell margin on each side */
+    public static final int MIN_MESH_SIZE = 8;
+
+    /** Largest mesh size per axis */
+    public static final int MAX_MESH_SIZE = 1024;
+
+    /**
+     * Largest transform grid, in cells. This is the isolated 2D grid at {@link #MAX_MESH_SIZE};
+     * in 3D it allows meshes up to 64 isolated or 128 periodic.
+     */
+    public static final long MAX_GRID_CELLS = 1L << 22;
+
+    /** Plummer softening of the isolated Green's function, in cell widths */
+    private static final double KERNEL_SOFTENING = 0.5;
+
+    private int meshSize;
+    private boolean periodic;
+    private double boxSize;
+    private final int dimension;
+
+    /** Transform grid: meshSize (periodic) or 2 * meshSize (isolated) points per axis */
+    private FastFourierTransform fft;
+    private double[] gridRe = new double[0];
+    private double[] gridIm = new double[0];
+
+    /** Green's function spectrum (real, since the kernel is even) and what it was built for */
+    private double[] greens = new double[0];
+    private int greensDimension = -1;
+    private int greensGridSize = -1;
+    private boolean greensPeriodic;
+    private double greensCellSize;
+
+    /** Mesh geometry for the current step */
+    private int gridSize;
+    private double originX, originY, originZ, cellSize;
+
+    /** Interpolation output for one body */
+    private final double[] result = new double[3];
+
+    public ParticleMeshSolver(int meshSize, boolean periodic, double boxSize) {
+        this(meshSize, periodic, boxSize, 3);
+    }
+
+    /**
+     * @param dimension Dimension the solver will run in, which bounds the mesh size
+     */
+    public ParticleMeshSolver(int meshSize, boolean periodic, double boxSize, int dimension) {
+        if (dimension != 2 && dimension != 3) {
+            throw new IllegalArgumentException("Dimension must be 2 or 3");
+        }
+        this.dimension = dimension;
+        this.periodic = periodic;
+        setMeshSize(meshSize);
+        setBoxSize(boxSize);
+    }
+
+    public int getMeshSize() {
+        return meshSize;
+    }
+
+    /**
+     * Sets the number of mesh cells per axis. Must be a power of two, and the transform
+     * grid it needs with the current boundary must fit in {@link #MAX_GRID_CELLS}.
+     */
+    public void setMeshSize(int meshSize) {
+        if (meshSize < MIN_MESH_SIZE || meshSize > MAX_MESH_SIZE || Integer.bitCount(meshSize) != 1) {
+            throw new IllegalArgumentException("Mesh size must be a power of two between "
+                                               + MIN_MESH_SIZE + " and " + MAX_MESH_SIZE);
+        }
+        checkGrid(meshSize, periodic, dimension);
+        this.meshSize = meshSize;
+    }
+
+    public boolean isPeriodic() {
+        return periodic;
+    }
+
+    /**
+     * Sets the boundary type. Isolated grids are padded to twice the mesh size, so
+     * switching to them can make the current mesh too large.
+     */
+    public void setPeriodic(boolean periodic) {
+        checkGrid(meshSize, periodic, dimension);
+        this.periodic = periodic;
+    }
+
+    /** Cells in the transform grid for a mesh size, boundary and dimension */
+    static long gridCells(int meshSize, boolean periodic, int dimension) {
+        long n = periodic ? meshSize : 2L * meshSize;
+        return dimension == 3 ? n * n * n : n * n;
+    }
+
+    private static void checkGrid(int meshSize, boolean periodic, int dimension) {
+        if (gridCells(meshSize, periodic, dimension) > MAX_GRID_CELLS) {
+            throw new IllegalArgumentException("Mesh size " + meshSize + " is too large for a "
+                                               + (periodic ? "periodic " : "isolated ") + dimension
+                                               + "D mesh");
+        }
+    }
+
+    public double getBoxSize() {
+        return boxSize;
+    }
+
+    /**
+     * Sets the side length of the periodic box. Only used with periodic boundaries.
+     */
+    public void setBoxSize(double boxSize) {
+        if (!(boxSize > 0.0) || Double.isInfinite(boxSize)) {
+            throw new IllegalArgumentException("Box size must be positive");
+        }
+        this.boxSize = boxSize;
+    }
+
+    @Override
+    public void computeAccelerations(int count, int dimension, double[] x, double[] y, double[] z,
+                                     double[] mass, double gravitationalConstant,
+                                     double[] ax, double[] ay, double[] az) {
+        if (count == 0) return;
+        if (dimension != this.dimension) {
+            checkGrid(meshSize, periodic, dimension);
+        }
+
+        setUpMesh(count, dimension, x, y, z);
+        int cells = (int) gridCells(meshSize, periodic, dimension);
+        if (gridRe.length < cells) {
+            gridRe = new double[cells];
+            gridIm = new double[cells];
+        }
+        Arrays.fill(gridRe, 0, cells, 0.0);
+        Arrays.fill(gridIm, 0, cells, 0.0);
+
+        // Mass assignment
+        for (int i = 0; i < count; i++) {
+            depositOrInterpolate(dimension, x[i], y[i], z[i], mass[i], null);
+        }
+
+        // Potential: φ = G * (M ⊛ K)
+        buildGreensFunction(dimension);
+        fft.transform(gridRe, gridIm, dimension, false);
+        double scale = gravitationalConstant * (periodic ? 1.0 : 1.0 / cellSize);
+        for (int c = 0; c < cells; c++) {
+            double g = greens[c] * scale;
+            gridRe[c] *= g;
+            gridIm[c] *= g;
+        }
+        fft.transform(gridRe, gridIm, dimension, true);
+
+        // Force interpolation
+        for (int i = 0; i < count; i++) {
+            result[0] = result[1] = result[2] = 0.0;
+            depositOrInterpolate(dimension, x[i], y[i], z[i], 0.0, result);
+            ax[i] = result[0];
+            ay[i] = result[1];
+            az[i] = dimension == 3 ? result[2] : 0.0;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return ForceSolverType.PARTICLE_MESH.getName();
+    }
+
+    /** Chooses the mesh origin and cell size for this step. */
+    private void setUpMesh(int count, int dimension, double[] x, double[] y, double[] z) {
+        gridSize = periodic ? meshSize : 2 * meshSize;
+        if (fft == null || fft.getSize() != gridSize) {
+            fft = new FastFourierTransform(gridSize);
+        }
+
+        if (periodic) {
+            originX = originY = originZ = 0.0;
+            cellSize = boxSize / meshSize;
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        double extent = Math.max(maxX - minX, maxY - minY);
+        if (dimension == 3) {
+            extent = Math.max(extent, maxZ - minZ);
+        }
+        // Keep two empty cells on every side so CIC and gradient stencils stay on the mesh
+        cellSize = extent > 0.0 ? extent * (1.0 + 1e-9) / (meshSize - 4) : 1.0;
+        double half = 0.5 * meshSize * cellSize;
+        originX = 0.5 * (minX + maxX) - half;
+        originY = 0.5 * (minY + maxY) - half;
+        originZ = dimension == 3 ? 0.5 * (minZ + maxZ) - half : 0.0;
+    }
+
+    /**
+     * Visits the 2^d mesh points around a position with CIC weights. With {@code out == null}
+     * the mass is deposited; otherwise the interpolated acceleration -∇φ is added to out.
+     */
+    private void depositOrInterpolate(int dimension, double px, double py, double pz,
+                                      double m, double[] out) {
+        double ux = (px - originX) / cellSize - 0.5;
+        double uy = (py - originY) / cellSize - 0.5;
+        double uz = dimension == 3 ? (pz - originZ) / cellSize - 0.5 : 0.0;
+        if (periodic) {
+            ux = wrap(ux + 0.5) - 0.5;
+            uy = wrap(uy + 0.5) - 0.5;
+            uz = dimension == 3 ? wrap(uz + 0.5) - 0.5 : 0.0;
+        }
+        int ix = (int) Math.floor(ux);
+        int iy = (int) Math.floor(uy);
+        int iz = (int) Math.floor(uz);
+        double fx = ux - ix;
+        double fy = uy - iy;
+        double fz = uz - iz;
+        int cornersZ = dimension == 3 ? 2 : 1;
+
+        for (int a = 0; a < 2; a++) {
+            double wx = a == 0 ? 1.0 - fx : fx;
+            for (int b = 0; b < 2; b++) {
+                double wy = b == 0 ? 1.0 - fy : fy;
+                for (int c = 0; c < cornersZ; c++) {
+                    double w = wx * wy * (dimension == 3 ? (c == 0 ? 1.0 - fz : fz) : 1.0);
+                    int cx = ix + a;
+                    int cy = iy + b;
+                    int cz = iz + c;
+                    if (out == null) {
+                        gridRe[index(dimension, cx, cy, cz)] += w * m;
+                    } else {
+                        double inv2h = 0.5 / cellSize;
+                        out[0] -= w * inv2h * (potential(dimension, cx + 1, cy, cz) - potential(dimension, cx - 1, cy, cz));
+                        out[1] -= w * inv2h * (potential(dimension, cx, cy + 1, cz) - potential(dimension, cx, cy - 1, cz));
+                        if (dimension == 3) {
+                            out[2] -= w * inv2h * (potential(dimension, cx, cy, cz + 1) - potential(dimension, cx, cy, cz - 1));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private double potential(int dimension, int cx, int cy, int cz) {
+        return gridRe[index(dimension, cx, cy, cz)];
+    }
+
+    /** Flat grid index; periodic meshes wrap, isolated meshes are padded so indices stay in range. */
+    private int index(int dimension, int cx, int cy, int cz) {
+        if (periodic) {
+            cx = Math.floorMod(cx, meshSize);
+            cy = Math.floorMod(cy, meshSize);
+            cz = Math.floorMod(cz, meshSize);
+        }
+        return dimension == 3 ? (cx * gridSize + cy) * gridSize + cz : cx * gridSize + cy;
+    }
+
+    /** Wraps a coordinate in cell units into [0, meshSize). */
+    private double wrap(double u) {
+        double wrapped = u % meshSize;
+        return wrapped < 0.0 ? wrapped + meshSize : wrapped;
+    }
+
+    /**
+     * Builds the Green's function spectrum, reusing it while the mesh layout is unchanged.
+     * Isolated kernels are built for unit cells and scaled by 1 / h at use.
+     */
+    private void buildGreensFunction(int dimension) {
+        boolean upToDate = greensDimension == dimension && greensGridSize == gridSize
+                           && greensPeriodic == periodic && (!periodic || greensCellSize == cellSize);
+        if (upToDate) return;
+
+        int n = gridSize;
+        int cells = (int) gridCells(meshSize, periodic, dimension);
+        greens = new double[cells];
+        int nz = dimension == 3 ? n : 1;
+
+        if (periodic) {
+            // Continuous transform of -1/r divided by the cell volume (area in 2D)
+            double kUnit = 2.0 * Math.PI / boxSize;
+            double cellVolume = Math.pow(cellSize, dimension);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    for (int k = 0; k < nz; k++) {
+                        double kx = kUnit * signedIndex(i, n);
+                        double ky = kUnit * signedIndex(j, n);
+                        double kz = dimension == 3 ? kUnit * signedIndex(k, n) : 0.0;
+                        double kSq = kx * kx + ky * ky + kz * kz;
+                        int c = dimension == 3 ? (i * n + j) * n + k : i * n + j;
+                        if (kSq == 0.0) {
+                            greens[c] = 0.0; // uniform background has no force
+                        } else if (dimension == 3) {
+                            greens[c] = -4.0 * Math.PI / (kSq * cellVolume);
+                        } else {
+                            greens[c] = -2.0 * Math.PI / (Math.sqrt(kSq) * cellVolume);
+                        }
+                    }
+                }
+            }
+        } else {
+            // Real-space softened -1/r on the padded mesh, then transformed
+            double[] im = new double[cells];
+            double epsSq = KERNEL_SOFTENING * KERNEL_SOFTENING;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    for (int k = 0; k < nz; k++) {
+                        double di = signedIndex(i, n);
+                        double dj = signedIndex(j, n);
+                        double dk = dimension == 3 ? signedIndex(k, n) : 0.0;
+                        int c = dimension == 3 ? (i * n + j) * n + k : i * n + j;
+                        greens[c] = -1.0 / Math.sqrt(di * di + dj * dj + dk * dk + epsSq);
+                    }
+                }
+            }
+            fft.transform(greens, im, dimension, false);
+        }
+
+        greensDimension = dimension;
+        greensGridSize = gridSize;
+        greensPeriodic = periodic;
+        greensCellSize = cellSize;
+    }
+
+    private static int signedIndex(int i, int n) {
+        return i <= n / 2 ? i : i - n;
+    }
+}
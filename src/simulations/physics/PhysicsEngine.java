@@ -3,9 +3,16 @@ package simulations.physics;
 import simulations.NewtonianGravity.Planet;
 import simulations.NewtonianGravity.PointMass;
 import simulations.NewtonianGravity.Vector;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * PhysicsEngine - Handles all physics calculations for the gravity simulation.
@@ -13,20 +20,143 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class PhysicsEngine {
     
-    /** List of all planets/point masses in the simulation */
-    private List<Planet> planets = new CopyOnWriteArrayList<>();
+    /** All planets/point masses in the simulation, stored as primitive arrays */
+    private final BodyStore bodies;
     
     /** Simulation settings */
     private double gravitationalConstant = 6000.0;
     private boolean bounce = false;
-    // Note: useRK4 is kept for future RK4 integration support
-    @SuppressWarnings("unused")
-    private boolean useRK4 = false;
     private double coefficientOfRestitution = 1.0;
     private double timeFactor = 1.0;
     
+    /** Force solver selection */
+    private ForceSolverType forceSolverType = ForceSolverType.DIRECT;
+    private final DirectSumSolver directSolver = new DirectSumSolver();
+    /** SIMD direct-sum kernel, loaded on first use; null when the JVM can't run it */
+    private ForceSolver vectorSolver;
+    private boolean vectorSolverLoaded = false;
+    private boolean simd = false;
+    /** Precision of the direct-sum kernel, with its float variants (SIMD one loaded with vectorSolver) */
+    private PrecisionType precision = PrecisionType.DOUBLE;
+    private final FloatDirectSumSolver floatSolver = new FloatDirectSumSolver();
+    private FloatDirectSumSolver vectorFloatSolver;
+    private final BarnesHutSolver barnesHutSolver = new BarnesHutSolver(0.5);
+    private final FastMultipoleSolver fastMultipoleSolver = new FastMultipoleSolver(0.5, 4);
+    private final ParticleMeshSolver particleMeshSolver;
+    
+    /**
+     * Worker processes for the distributed solver: a number of local JVMs to launch, or
+     * the addresses of running workers. They are connected on a background thread from
+     * the first step that needs them, and steps run local Barnes-Hut until they're
+     * ready; after a failure the engine stays local until the settings change.
+     */
+    private int workers = 0;
+    private volatile List<InetSocketAddress> workerAddresses = new ArrayList<>();
+    private DistributedSolver distributedSolver;
+    private boolean workersFailed = false;
+    private boolean workersConnecting = false;
+    /** Bumped whenever the workers are closed, so a connection that finishes late is discarded */
+    private long workerGeneration = 0;
+    private volatile int connectedWorkers = 0;
+    private static final int MAX_WORKERS = 64;
+    
+    /** Time integration scheme */
+    private Integrator integrator = new EulerIntegrator();
+    private final EngineForces forces = new EngineForces();
+    /** Error tolerance for adaptive integrators */
+    private double integratorTolerance = DormandPrinceIntegrator.DEFAULT_TOLERANCE;
+    /** Step-size accuracy and finest level of the block timestep integrator */
+    private double blockAccuracy = BlockTimestepIntegrator.DEFAULT_ACCURACY;
+    private int maxBlockLevel = BlockTimestepIntegrator.DEFAULT_MAX_LEVEL;
+    private volatile int lastSubsteps = 1;
+    
+    /** Threads used for the force pass; 1 runs it on the physics thread */
+    private int parallelism = 1;
+    private ForkJoinPool forcePool;
+    
+    /** Bodies are sorted into Morton order every this many steps; 0 keeps insertion order */
+    private int reorderInterval = 0;
+    private final MortonOrder mortonOrder = new MortonOrder();
+    
+    /** Below this many bodies the approximate solvers fall back to direct summation */
+    private static final int MIN_APPROX_BODIES = 64;
+    
+    /** Accelerations written by the force solver, reused between steps */
+    private double[] accelX = new double[0];
+    private double[] accelY = new double[0];
+    private double[] accelZ = new double[0];
+    
+    /** Bodies marked for removal and merged bodies to add during collision handling */
+    private boolean[] removed = new boolean[0];
+    private final List<Planet> toAdd = new ArrayList<>();
+    
+    /** Collision broad-phase and the overlapping pairs it finds */
+    private BroadPhase broadPhase = new SpatialHashBroadPhase();
+    private final CollisionPairs overlaps = new CollisionPairs();
+    private final CollisionPairs contacts = new CollisionPairs();
+    /** Union-find over bodies for merge clusters, and each cluster's members as a linked list */
+    private int[] clusterParent = new int[0];
+    private boolean[] clusterHasFixed = new boolean[0];
+    private int[] clusterHead = new int[0];
+    private int[] clusterNext = new int[0];
+    
+    /**
+     * Continuous collision detection: start-of-step positions, the spheres that
+     * bound each body's path over the step, and the pairs whose paths cross.
+     */
+    private boolean continuousCollisions = false;
+    private BroadPhase sweptBroadPhase = new SpatialHashBroadPhase();
+    private double[] startX = new double[0];
+    private double[] startY = new double[0];
+    private double[] startZ = new double[0];
+    private double[] sweptX = new double[0];
+    private double[] sweptY = new double[0];
+    private double[] sweptZ = new double[0];
+    private double[] sweptRadius = new double[0];
+    private boolean[] contacted = new boolean[0];
+    private final CollisionPairs sweptPairs = new CollisionPairs();
+    /** Hits packed as (float time bits << 32 | index into sweptPairs), sorted by time */
+    private long[] hits = new long[16];
+    
+    /** KS regularization of tightly bound pairs, and how many were regularized last step */
+    private boolean regularization = false;
+    private final KSRegularization regularizer = new KSRegularization();
+    private volatile int regularizedPairs = 0;
+    
+    /**
+     * Whether accelX/Y/Z hold the accelerations of the bodies' current positions, and the
+     * body store version they were computed for. Collisions, handle writes and setting
+     * changes invalidate them.
+     */
+    private boolean forcesCurrent = false;
+    private long forcesVersion = -1;
+    /** Body store layout the tree solvers last saw; when it changes they rebuild their trees */
+    private long solverLayoutVersion = -1;
+    /** Body store layout the broad phases last saw; when it changes they drop their saved order */
+    private long broadPhaseLayoutVersion = -1;
+    
+    /** Solver diagnostics: which solver ran last and its sampled error against direct summation */
+    private volatile String lastSolverUsed = ForceSolverType.DIRECT.getName();
+    /** Whether the last solver was exact double-precision direct summation; the float kernels share its name */
+    private volatile boolean lastSolverExact = true;
+    private volatile double forceErrorRms = 0.0;
+    private volatile double forceErrorMax = 0.0;
+    private int errorSampleSize = 32;
+    private long stepCount = 0;
+    private boolean errorSampleDue = false;
+    private final double[] sampleX = new double[1];
+    private final double[] sampleY = new double[1];
+    private final double[] sampleZ = new double[1];
+    
+    /** How often (in steps) the force error is sampled */
+    private static final int ERROR_SAMPLE_INTERVAL = 60;
+    
     /** Time step for physics calculations (in seconds) */
     private static final double DELTA_TIME = 1.0 / 60.0; // 60 FPS
+    private static final long STEP_NANOS = Math.round(DELTA_TIME * 1e9);
+    
+    /** Most steps the physics loop runs per tick when catching up; the rest is dropped */
+    public static final int MAX_STEPS_PER_TICK = 4;
     
     /** Dimension of simulation (2 or 3) */
     private int dimension;
@@ -37,8 +167,22 @@ public class PhysicsEngine {
     /** Running state */
     private volatile boolean running = false;
     
-    /** Physics thread */
-    private Thread physicsThread;
+    /** Most steps one {@link #advance} call may run */
+    public static final long MAX_ADVANCE_STEPS = 10_000_000L;
+    
+    /** Held while stepping, so the loop's ticks and advance() never interleave */
+    private final Object loopLock = new Object();
+    
+    /** Runs the physics loop's ticks, one per step period */
+    private ScheduledExecutorService scheduler;
+    /** Converts tick times into steps; guarded by loopLock */
+    private final FixedStepClock clock = new FixedStepClock(STEP_NANOS, MAX_STEPS_PER_TICK);
+    private volatile double realTimeFactor = 0.0;
+    private volatile long droppedSteps = 0;
+    
+    /** State published at the end of each step, and the previous one to refill next */
+    private volatile StateSnapshot snapshot;
+    private StateSnapshot spareSnapshot;
     
     /**
      * Creates a new physics engine for the specified dimension.
@@ -49,145 +193,809 @@ public class PhysicsEngine {
             throw new IllegalArgumentException("Dimension must be 2 or 3");
         }
         this.dimension = dimension;
+        this.bodies = new BodyStore(dimension);
+        this.particleMeshSolver = new ParticleMeshSolver(64, false, 1000.0, dimension);
+        publishSnapshot();
     }
     
     /**
-     * Starts the physics simulation loop in a separate thread.
+     * Starts the physics simulation loop in a separate thread. The loop ticks once per
+     * step period and runs as many fixed steps as the elapsed time calls for, up to
+     * {@link #MAX_STEPS_PER_TICK}, so a slow step delays the simulation only when it
+     * can't catch up.
      */
-    public void start() {
+    public synchronized void start() {
         if (running) {
             return;
         }
         running = true;
         isPaused = false;
+        synchronized (loopLock) {
+            clock.reset();
+        }
         
-        physicsThread = new Thread(() -> {
-            while (running) {
-                if (!isPaused) {
-                    update(DELTA_TIME);
-                }
-                try {
-                    Thread.sleep(16); // ~60 FPS
-                } catch (InterruptedException e) {
-                    break;
-                }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "PhysicsEngine-Thread"));
+        scheduler.scheduleAtFixedRate(this::tick, 0, STEP_NANOS, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * One tick of the physics loop.
+     */
+    private void tick() {
+        synchronized (loopLock) {
+            if (isPaused) {
+                // Time spent paused is not caught up with
+                clock.reset();
+                realTimeFactor = 0.0;
+                return;
             }
-        }, "PhysicsEngine-Thread");
-        physicsThread.start();
+            int steps = clock.tick(System.nanoTime());
+            for (int s = 0; s < steps && running; s++) {
+                update(DELTA_TIME);
+            }
+            realTimeFactor = clock.getRealTimeFactor();
+            droppedSteps = clock.getDroppedSteps();
+        }
     }
     
     /**
-     * Stops the physics simulation.
+     * Runs {@code steps} regular steps back to back, without waiting for wall-clock
+     * time, and returns once they are done. The background loop makes no steps in the
+     * meantime and doesn't try to catch up on them afterwards. Works whether the loop
+     * is running, paused or stopped.
      */
-    public void stop() {
+    public void advance(long steps) {
+        if (steps < 1 || steps > MAX_ADVANCE_STEPS) {
+            throw new IllegalArgumentException("Steps must be between 1 and " + MAX_ADVANCE_STEPS);
+        }
+        synchronized (loopLock) {
+            for (long s = 0; s < steps; s++) {
+                update(DELTA_TIME);
+            }
+            // The loop's next tick starts counting from now
+            clock.reset();
+        }
+    }
+    
+    /**
+     * Gets how many steps cover {@code duration} seconds of simulated time at the
+     * current time factor, rounding up.
+     */
+    public long stepsFor(double duration) {
+        if (!(duration > 0.0)) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        double stepTime = Math.abs(DELTA_TIME * timeFactor);
+        if (stepTime == 0.0) {
+            throw new IllegalArgumentException("Time factor is 0, so no number of steps covers a duration");
+        }
+        double steps = Math.ceil(duration / stepTime - 1e-9);
+        if (steps > MAX_ADVANCE_STEPS) {
+            throw new IllegalArgumentException("Duration needs more than " + MAX_ADVANCE_STEPS + " steps");
+        }
+        return Math.max(1L, (long) steps);
+    }
+    
+    /**
+     * Gets the simulated time one step covers at the current time factor.
+     */
+    public double getStepTime() {
+        return DELTA_TIME * timeFactor;
+    }
+    
+    /**
+     * Stops the physics simulation and releases the force pool's threads.
+     */
+    public synchronized void stop() {
         running = false;
-        if (physicsThread != null) {
+        if (scheduler != null) {
+            scheduler.shutdown();
             try {
-                physicsThread.join(1000);
+                scheduler.awaitTermination(1, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+            scheduler = null;
+            realTimeFactor = 0.0;
+        }
+        synchronized (bodies) {
+            if (forcePool != null) {
+                forcePool.shutdown();
+                forcePool = null;
+                applyPool(null);
+            }
+            closeWorkers();
         }
     }
     
     /**
      * Updates the physics simulation by one time step.
      * This is the core physics loop that calculates forces and updates positions.
+     * With the direct solver and no collisions a step allocates nothing.
      */
     public void update(double deltaTime) {
-        List<Planet> toAdd = new ArrayList<>();
-        List<Planet> toRemove = new ArrayList<>();
-
-        for (Planet planet : planets) {
-            if (toRemove.contains(planet)) continue;
-            
-            // Skip PointMass objects - they don't move or need force calculations
-            if (planet instanceof PointMass) continue;
-            
-            // Initialize total force vector (works for both 2D and 3D)
-            Vector totalForce = new Vector(dimension);
-
-            for (Planet other : planets) {
-                if (planet == other) continue;
-                if (toRemove.contains(other)) continue;
-
-                // Check for collisions
-                if (planet.collidesWith(other)) {
-                    if (bounce) {
-                        if (other instanceof PointMass) {
-                            planet.bouncePointMass(coefficientOfRestitution);
-                        } else {
-                            planet.bouncePlanet(coefficientOfRestitution, other);
-                        }
-                    } else {
-                        // Handle merge - PointMass always wins
-                        if (other instanceof PointMass) {
-                            PointMass merged = ((PointMass) other).merge(planet);
-                            toAdd.add(merged);
-                            toRemove.add(planet);
-                            toRemove.add(other);
-                        } else {
-                            Planet merged = planet.merge(other);
-                            toAdd.add(merged);
-                            toRemove.add(planet);
-                            toRemove.add(other);
-                        }
-                    }
-                    break; // stop computing further for this planet
+        synchronized (bodies) {
+            ensureScratchCapacity(bodies.size());
+            resolveCollisions();
+            if (reorderInterval > 0 && stepCount % reorderInterval == 0) {
+                reorderBodies();
+            }
+
+            int count = bodies.size();
+            if (continuousCollisions) {
+                saveStartPositions(count);
+            }
+            // Regularized pairs move as one body at their centre of mass during the step
+            if (regularization && regularizer.begin(bodies, gravitationalConstant, deltaTime * timeFactor)) {
+                forcesCurrent = false;
+            }
+            if (parallelism > 1 && forcePool == null) {
+                forcePool = new ForkJoinPool(parallelism);
+                applyPool(forcePool);
+            }
+            if (forceSolverType == ForceSolverType.DISTRIBUTED && distributedSolver == null) {
+                connectWorkers();
+            }
+
+            // The first force evaluation of every ERROR_SAMPLE_INTERVAL-th step is sampled
+            errorSampleDue = errorSampleSize > 0 && stepCount % ERROR_SAMPLE_INTERVAL == 0;
+            stepCount++;
+
+            // PointMass bodies are skipped by the integrators - they don't move.
+            // z and vz stay 0 in 2D since the solvers leave az at 0.
+            integrator.step(bodies, deltaTime * timeFactor, forces);
+            if (regularization) {
+                regularizer.end(bodies, gravitationalConstant, deltaTime * timeFactor);
+                regularizedPairs = regularizer.getPairCount();
+            }
+            forcesCurrent = integrator.endsWithForceEvaluation();
+            lastSubsteps = integrator.getLastSubsteps();
+            forcesVersion = bodies.version;
+
+            if (continuousCollisions) {
+                resolveSweptCollisions(count, deltaTime * timeFactor);
+                count = bodies.size();
+            }
+
+            for (int i = 0; i < count; i++) {
+                bodies.getPlanet(i).advanceRotation(deltaTime, timeFactor);
+            }
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Copies the bodies into a snapshot and publishes it. The previous snapshot is
+     * refilled unless a reader still holds it, so a step with no readers allocates
+     * nothing. Called with the store's lock held.
+     */
+    private void publishSnapshot() {
+        StateSnapshot next = spareSnapshot;
+        if (next == null || !next.isFree()) {
+            next = new StateSnapshot(dimension);
+        }
+        next.fill(bodies, stepCount);
+        spareSnapshot = snapshot;
+        snapshot = next;
+    }
+
+    /**
+     * Gets the state published at the end of the last step (or the last change made
+     * through {@link #addPlanet}, {@link #removePlanet} or {@link #clearPlanets}),
+     * without taking the engine's lock or copying. The snapshot stays unchanged until
+     * it is closed. Edits made through a Planet handle appear after the next step.
+     */
+    public StateSnapshot acquireSnapshot() {
+        while (true) {
+            StateSnapshot current = snapshot;
+            current.retain();
+            // Once retained, the engine won't refill it; if it was replaced first, retry
+            if (current == snapshot) {
+                return current;
+            }
+            current.close();
+        }
+    }
+
+    /**
+     * Supplies the integrator with accelerations from the selected force solver.
+     */
+    private final class EngineForces implements ForceEvaluator {
+        @Override
+        public void ensureCurrent() {
+            if (!forcesCurrent || forcesVersion != bodies.version) {
+                evaluate();
+            }
+        }
+
+        @Override
+        public void evaluate() {
+            int count = bodies.size();
+            ForceSolver solver = selectSolver(count);
+            checkLayout();
+            try {
+                solver.computeAccelerations(count, dimension, bodies.x, bodies.y, bodies.z, bodies.mass,
+                                            gravitationalConstant, accelX, accelY, accelZ);
+            } catch (UncheckedIOException e) {
+                solver = dropWorkers(solver, e);
+                solver.computeAccelerations(count, dimension, bodies.x, bodies.y, bodies.z, bodies.mass,
+                                            gravitationalConstant, accelX, accelY, accelZ);
+            }
+            lastSolverUsed = solver.getName();
+            lastSolverExact = solver == directSolver || solver == vectorSolver;
+            if (errorSampleDue) {
+                errorSampleDue = false;
+                if (!lastSolverExact) {
+                    sampleForceError(count);
+                }
+            }
+        }
+
+        @Override
+        public void evaluate(int[] targets, int targetCount) {
+            int count = bodies.size();
+            ForceSolver solver = selectSolver(count);
+            checkLayout();
+            try {
+                solver.computeAccelerations(targets, targetCount, count, dimension, bodies.x, bodies.y, bodies.z,
+                                            bodies.mass, gravitationalConstant, accelX, accelY, accelZ);
+            } catch (UncheckedIOException e) {
+                solver = dropWorkers(solver, e);
+                solver.computeAccelerations(targets, targetCount, count, dimension, bodies.x, bodies.y, bodies.z,
+                                            bodies.mass, gravitationalConstant, accelX, accelY, accelZ);
+            }
+            lastSolverUsed = solver.getName();
+            lastSolverExact = solver == directSolver || solver == vectorSolver;
+        }
+
+        /** Tells the solvers that keep trees when bodies were added, removed or reordered */
+        private void checkLayout() {
+            if (bodies.layoutVersion != solverLayoutVersion) {
+                solverLayoutVersion = bodies.layoutVersion;
+                barnesHutSolver.bodiesChanged();
+                fastMultipoleSolver.bodiesChanged();
+                if (distributedSolver != null) {
+                    distributedSolver.bodiesChanged();
                 }
+            }
+        }
 
-                // Compute gravitational force (returns a Vector, works for 2D and 3D)
-                Vector forceVec = planet.gravitationalForceFrom(other, gravitationalConstant);
-                totalForce = totalForce.add(forceVec);
+        /** Gives up on the workers after a failed pass; rethrows failures of other solvers */
+        private ForceSolver dropWorkers(ForceSolver solver, UncheckedIOException failure) {
+            if (solver != distributedSolver) {
+                throw failure;
             }
+            closeWorkers();
+            workersFailed = true;
+            return barnesHutSolver;
+        }
+
+        @Override
+        public double[] getAccelX() {
+            return accelX;
+        }
 
-            // Skip velocity update if planet is set to be removed
-            if (toRemove.contains(planet)) continue;
+        @Override
+        public double[] getAccelY() {
+            return accelY;
+        }
 
-            // Newton's second law: F = ma → a = F/m
-            Vector acceleration = totalForce.multiply(1.0 / planet.getMass());
-            planet.updateVelocity(acceleration, deltaTime * timeFactor);
+        @Override
+        public double[] getAccelZ() {
+            return accelZ;
         }
+    }
+
+    /**
+     * Handles collisions between overlapping planets, either bouncing or merging them.
+     * When bouncing, each planet reacts to the first (lowest-index) planet it overlaps
+     * with. When merging, every group of bodies connected by overlaps merges into one
+     * body in the same step.
+     */
+    private void resolveCollisions() {
+        int count = bodies.size();
+        toAdd.clear();
+        Arrays.fill(removed, 0, count, false);
+
+        // Overlaps depend only on positions, which collisions don't change, so
+        // they can all be found up front
+        overlaps.clear();
+        checkBroadPhaseLayout();
+        broadPhase.findOverlaps(count, dimension, bodies.x, bodies.y, bodies.z, bodies.radius, overlaps);
+        if (overlaps.size() == 0) return;
+        overlaps.sort();
+
+        boolean anyRemoved = bounce ? bounceContacts() : mergeClusters(count);
 
         // Apply removals and additions safely after iteration
-        planets.removeAll(toRemove);
-        planets.addAll(toAdd);
-        
-        // Update positions based on velocities (after all velocities are updated)
-        for (Planet planet : planets) {
-            planet.updatePosition(deltaTime, timeFactor);
+        if (anyRemoved) {
+            bodies.removeMarked(removed);
+        }
+        for (int k = 0; k < toAdd.size(); k++) {
+            bodies.add(toAdd.get(k));
+        }
+    }
+
+    /**
+     * Bounces each planet off the first planet it overlaps with. Both orders of each
+     * pair are listed and sorted so each body sees its partners in index order.
+     */
+    private boolean bounceContacts() {
+        boolean[] fixed = bodies.fixed;
+        contacts.clear();
+        for (int k = 0; k < overlaps.size(); k++) {
+            contacts.add(overlaps.first(k), overlaps.second(k));
+            contacts.add(overlaps.second(k), overlaps.first(k));
         }
+        contacts.sort();
+
+        int previous = -1;
+        for (int k = 0; k < contacts.size(); k++) {
+            int i = contacts.first(k);
+            int j = contacts.second(k);
+            // Only the first contact of each planet counts
+            if (i == previous) continue;
+
+            // PointMass objects only take part as the "other" planet
+            if (fixed[i]) continue;
+            previous = i;
+
+            Planet planet = bodies.getPlanet(i);
+            Planet other = bodies.getPlanet(j);
+            if (other instanceof PointMass) {
+                planet.bouncePointMass(coefficientOfRestitution);
+            } else {
+                planet.bouncePlanet(coefficientOfRestitution, other);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Groups overlapping bodies with a union-find and merges each group into one body,
+     * marking the originals removed. A group holds at most one PointMass: an overlap
+     * that would join two of them is ignored. The merge folds the members in index
+     * order with {@link Planet#merge}, starting from the PointMass if there is one,
+     * so it always wins.
+     *
+     * @return whether anything merged
+     */
+    private boolean mergeClusters(int count) {
+        boolean[] fixed = bodies.fixed;
+        for (int i = 0; i < count; i++) {
+            clusterParent[i] = i;
+            clusterHasFixed[i] = fixed[i];
+            clusterHead[i] = -1;
+        }
+        for (int k = 0; k < overlaps.size(); k++) {
+            int a = findCluster(overlaps.first(k));
+            int b = findCluster(overlaps.second(k));
+            if (a == b || (clusterHasFixed[a] && clusterHasFixed[b])) continue;
+            // The lower index stays the root
+            int root = Math.min(a, b);
+            int child = Math.max(a, b);
+            clusterParent[child] = root;
+            clusterHasFixed[root] |= clusterHasFixed[child];
+        }
+
+        // Members of each cluster as a linked list in index order
+        for (int i = count - 1; i >= 0; i--) {
+            int root = findCluster(i);
+            clusterNext[i] = clusterHead[root];
+            clusterHead[root] = i;
+        }
+
+        boolean anyRemoved = false;
+        for (int root = 0; root < count; root++) {
+            int first = clusterHead[root];
+            if (first < 0 || clusterNext[first] < 0) continue;
+
+            int start = first;
+            if (clusterHasFixed[root]) {
+                while (!fixed[start]) {
+                    start = clusterNext[start];
+                }
+            }
+            Planet merged = bodies.getPlanet(start);
+            for (int m = first; m >= 0; m = clusterNext[m]) {
+                if (m != start) {
+                    merged = merged.merge(bodies.getPlanet(m));
+                }
+                removed[m] = true;
+            }
+            toAdd.add(merged);
+            anyRemoved = true;
+        }
+        return anyRemoved;
+    }
+
+    /** Finds a body's cluster root, halving the path on the way */
+    private int findCluster(int i) {
+        while (clusterParent[i] != i) {
+            clusterParent[i] = clusterParent[clusterParent[i]];
+            i = clusterParent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Copies the bodies' positions before the integrator moves them.
+     */
+    private void saveStartPositions(int count) {
+        if (startX.length < count) {
+            int capacity = Math.max(count, startX.length * 2);
+            startX = new double[capacity];
+            startY = new double[capacity];
+            startZ = new double[capacity];
+            sweptX = new double[capacity];
+            sweptY = new double[capacity];
+            sweptZ = new double[capacity];
+            sweptRadius = new double[capacity];
+            contacted = new boolean[capacity];
+        }
+        System.arraycopy(bodies.x, 0, startX, 0, count);
+        System.arraycopy(bodies.y, 0, startY, 0, count);
+        System.arraycopy(bodies.z, 0, startZ, 0, count);
+    }
+
+    /**
+     * Finds pairs that touched during the step, treating each body's motion as a
+     * straight line from its start to its end position, and resolves them in order
+     * of time of impact. Both bodies are moved back to where they touched, merged or
+     * bounced there, and the result moves on with its new velocity for the rest of
+     * the step. Each body takes part in at most one such collision per step; pairs
+     * that already overlapped at the start were handled by {@link #resolveCollisions}.
+     */
+    private void resolveSweptCollisions(int count, double dt) {
+        double[] x = bodies.x, y = bodies.y, z = bodies.z;
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+        boolean[] fixed = bodies.fixed;
+
+        // A sphere around the midpoint that contains the body along its whole path
+        for (int i = 0; i < count; i++) {
+            double dx = x[i] - startX[i];
+            double dy = y[i] - startY[i];
+            double dz = z[i] - startZ[i];
+            sweptX[i] = startX[i] + 0.5 * dx;
+            sweptY[i] = startY[i] + 0.5 * dy;
+            sweptZ[i] = startZ[i] + 0.5 * dz;
+            sweptRadius[i] = bodies.radius[i] + 0.5 * Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+        sweptPairs.clear();
+        checkBroadPhaseLayout();
+        sweptBroadPhase.findOverlaps(count, dimension, sweptX, sweptY, sweptZ, sweptRadius, sweptPairs);
+
+        int hitCount = 0;
+        for (int k = 0; k < sweptPairs.size(); k++) {
+            // A regularized pair orbits during the step, so its straight-line paths mean
+            // nothing; KS already followed the members' relative motion exactly
+            if (regularization && regularizer.getPartner(sweptPairs.first(k)) == sweptPairs.second(k)) continue;
+            double s = timeOfImpact(sweptPairs.first(k), sweptPairs.second(k));
+            if (s < 0.0) continue;
+            if (hitCount == hits.length) {
+                hits = Arrays.copyOf(hits, hitCount * 2);
+            }
+            hits[hitCount++] = ((long) Float.floatToIntBits((float) s) << 32) | k;
+        }
+        if (hitCount == 0) return;
+        Arrays.sort(hits, 0, hitCount);
+
+        toAdd.clear();
+        Arrays.fill(removed, 0, count, false);
+        Arrays.fill(contacted, 0, count, false);
+        boolean anyRemoved = false;
+        for (int h = 0; h < hitCount; h++) {
+            int k = (int) hits[h];
+            int i = sweptPairs.first(k);
+            int j = sweptPairs.second(k);
+            if (contacted[i] || contacted[j]) continue;
+            // PointMass objects only take part as the "other" planet
+            if (fixed[i]) {
+                int t = i;
+                i = j;
+                j = t;
+            }
+            double s = timeOfImpact(i, j);
+            contacted[i] = true;
+            contacted[j] = true;
+
+            // Back to where they touched
+            for (int b = 0; b < 2; b++) {
+                int body = b == 0 ? i : j;
+                x[body] = startX[body] + s * (x[body] - startX[body]);
+                y[body] = startY[body] + s * (y[body] - startY[body]);
+                z[body] = startZ[body] + s * (z[body] - startZ[body]);
+            }
+            double remaining = (1.0 - s) * dt;
+
+            Planet planet = bodies.getPlanet(i);
+            Planet other = bodies.getPlanet(j);
+            if (bounce) {
+                if (other instanceof PointMass) {
+                    planet.bouncePointMass(coefficientOfRestitution);
+                } else {
+                    planet.bouncePlanet(coefficientOfRestitution, other);
+                }
+                for (int b = 0; b < 2; b++) {
+                    int body = b == 0 ? i : j;
+                    if (fixed[body]) continue;
+                    x[body] += vx[body] * remaining;
+                    y[body] += vy[body] * remaining;
+                    z[body] += vz[body] * remaining;
+                }
+            } else {
+                // Handle merge - PointMass always wins
+                if (other instanceof PointMass) {
+                    toAdd.add(((PointMass) other).merge(planet));
+                } else {
+                    Planet merged = planet.merge(other);
+                    Vector pos = merged.getPosition();
+                    pos.addScaled(merged.getVelocity(), remaining);
+                    merged.setPosition(pos);
+                    toAdd.add(merged);
+                }
+                removed[i] = true;
+                removed[j] = true;
+                anyRemoved = true;
+            }
+        }
+        bodies.version++;
+
+        if (anyRemoved) {
+            bodies.removeMarked(removed);
+        }
+        for (int k = 0; k < toAdd.size(); k++) {
+            bodies.add(toAdd.get(k));
+        }
+    }
+
+    /**
+     * Fraction of the step at which bodies i and j first touch while moving in
+     * straight lines from their start to their end positions, or -1 if they don't
+     * touch during the step or already overlapped at its start.
+     */
+    private double timeOfImpact(int i, int j) {
+        double[] x = bodies.x, y = bodies.y, z = bodies.z;
+        double dx = startX[i] - startX[j];
+        double dy = startY[i] - startY[j];
+        double dz = startZ[i] - startZ[j];
+        double ex = (x[i] - x[j]) - dx;
+        double ey = (y[i] - y[j]) - dy;
+        double ez = (z[i] - z[j]) - dz;
+        double reach = bodies.radius[i] + bodies.radius[j];
+
+        // |d + s e|² = reach² as a quadratic in s: a s² + 2 b s + c = 0
+        double c = dx * dx + dy * dy + dz * dz - reach * reach;
+        double a = ex * ex + ey * ey + ez * ez;
+        double b = dx * ex + dy * ey + dz * ez;
+        if (c < 0.0 || a == 0.0 || b >= 0.0) return -1.0;
+        double discriminant = b * b - a * c;
+        if (discriminant < 0.0) return -1.0;
+        double s = (-b - Math.sqrt(discriminant)) / a;
+        return s <= 1.0 ? s : -1.0;
+    }
+
+    /**
+     * Sorts the bodies into Morton order so neighbours in space are neighbours in
+     * memory. Cached accelerations, block levels and regularized pairs are moved with
+     * their bodies, so they stay valid.
+     */
+    private void reorderBodies() {
+        int count = bodies.size();
+        int[] order = mortonOrder.sort(count, dimension, bodies.x, bodies.y, bodies.z, forcePool);
+        bodies.reorder(order);
+        mortonOrder.apply(accelX, count);
+        mortonOrder.apply(accelY, count);
+        mortonOrder.apply(accelZ, count);
+        integrator.bodiesReordered(order, count);
+        regularizer.bodiesReordered(order, count);
+    }
+
+    /** Tells the broad phases when bodies were added, removed or reordered since their last call */
+    private void checkBroadPhaseLayout() {
+        if (bodies.layoutVersion != broadPhaseLayoutVersion) {
+            broadPhaseLayoutVersion = bodies.layoutVersion;
+            broadPhase.bodiesChanged();
+            sweptBroadPhase.bodiesChanged();
+        }
+    }
+
+    /**
+     * Compares the approximate accelerations from this step against direct summation
+     * for an evenly spaced sample of bodies.
+     */
+    private void sampleForceError(int count) {
+        int samples = Math.min(errorSampleSize, count);
+        if (samples == 0) return;
+        int stride = count / samples;
+        double sumSq = 0.0;
+        double max = 0.0;
+        int used = 0;
+
+        for (int s = 0; s < samples; s++) {
+            int i = s * stride;
+            directSolver.computeAcceleration(i, count, bodies.x, bodies.y, bodies.z, bodies.mass,
+                                             gravitationalConstant, sampleX, sampleY, sampleZ, 0);
+            double ex = accelX[i] - sampleX[0];
+            double ey = accelY[i] - sampleY[0];
+            double ez = accelZ[i] - sampleZ[0];
+            double ref = sampleX[0] * sampleX[0] + sampleY[0] * sampleY[0] + sampleZ[0] * sampleZ[0];
+            if (ref == 0.0) continue;
+
+            double relative = Math.sqrt((ex * ex + ey * ey + ez * ez) / ref);
+            sumSq += relative * relative;
+            max = Math.max(max, relative);
+            used++;
+        }
+
+        forceErrorRms = used > 0 ? Math.sqrt(sumSq / used) : 0.0;
+        forceErrorMax = max;
     }
     
     /**
-     * Gets a copy of the current planets list.
+     * Picks the solver for this step. Small systems always use direct summation,
+     * since building a tree costs more than it saves.
+     */
+    private ForceSolver selectSolver(int count) {
+        if (count < MIN_APPROX_BODIES) {
+            return exactSolver();
+        }
+        switch (forceSolverType) {
+            case BARNES_HUT:
+                return barnesHutSolver;
+            case FAST_MULTIPOLE:
+                return fastMultipoleSolver;
+            case PARTICLE_MESH:
+                return particleMeshSolver;
+            case DISTRIBUTED:
+                return distributedSolver != null ? distributedSolver : barnesHutSolver;
+            default:
+                return exactSolver();
+        }
+    }
+    
+    /**
+     * The direct-sum solver to use: the kernel for the selected precision, SIMD when
+     * enabled and available.
+     */
+    private ForceSolver exactSolver() {
+        if (precision != PrecisionType.DOUBLE) {
+            return simd && vectorFloatSolver != null ? vectorFloatSolver : floatSolver;
+        }
+        return simd && vectorSolver != null ? vectorSolver : directSolver;
+    }
+    
+    /**
+     * Starts launching or connecting to the configured workers on a background thread,
+     * which hands the solver over once every worker is ready. Launching and connecting
+     * can take seconds, so it never happens under the bodies lock. On failure the
+     * engine keeps using local Barnes-Hut and doesn't retry until the worker settings
+     * change.
+     */
+    private void connectWorkers() {
+        if (workersConnecting || workersFailed || (workers == 0 && workerAddresses.isEmpty())) {
+            return;
+        }
+        workersConnecting = true;
+        long generation = workerGeneration;
+        int count = workers;
+        List<InetSocketAddress> addresses = workerAddresses;
+        double openingAngle = barnesHutSolver.getOpeningAngle();
+        Thread connector = new Thread(() -> {
+            DistributedSolver solver = null;
+            try {
+                solver = addresses.isEmpty()
+                    ? DistributedSolver.launchLocal(count, openingAngle)
+                    : DistributedSolver.connect(addresses, openingAngle);
+            } catch (IOException e) {
+                // Reported as workersFailed below
+            }
+            synchronized (bodies) {
+                if (generation != workerGeneration) {
+                    // The settings changed or the engine stopped while connecting
+                    if (solver != null) {
+                        solver.close();
+                    }
+                    return;
+                }
+                workersConnecting = false;
+                if (solver == null) {
+                    workersFailed = true;
+                    return;
+                }
+                solver.setOpeningAngle(barnesHutSolver.getOpeningAngle());
+                distributedSolver = solver;
+                connectedWorkers = solver.getWorkerCount();
+                forcesCurrent = false;
+            }
+        }, "ForceWorker-Connect");
+        connector.setDaemon(true);
+        connector.start();
+    }
+
+    /**
+     * Shuts down the workers and abandons a connection in progress; they are started
+     * again on the next step that needs them.
+     */
+    private void closeWorkers() {
+        workerGeneration++;
+        workersConnecting = false;
+        if (distributedSolver != null) {
+            distributedSolver.close();
+            distributedSolver = null;
+            connectedWorkers = 0;
+        }
+    }
+
+    private void applyPool(ForkJoinPool pool) {
+        directSolver.setPool(pool);
+        barnesHutSolver.setPool(pool);
+        floatSolver.setPool(pool);
+        if (vectorSolver != null) {
+            vectorSolver.setPool(pool);
+        }
+        if (vectorFloatSolver != null) {
+            vectorFloatSolver.setPool(pool);
+        }
+    }
+
+    private void ensureScratchCapacity(int count) {
+        if (accelX.length < count) {
+            int capacity = Math.max(count, accelX.length * 2);
+            accelX = new double[capacity];
+            accelY = new double[capacity];
+            accelZ = new double[capacity];
+            removed = new boolean[capacity];
+            clusterParent = new int[capacity];
+            clusterHasFixed = new boolean[capacity];
+            clusterHead = new int[capacity];
+            clusterNext = new int[capacity];
+        }
+    }
+    
+    /**
+     * Gets a copy of the current planets list. The planets are live handles
+     * into the engine's body store.
      */
     public List<Planet> getPlanets() {
-        return new ArrayList<>(planets);
+        return bodies.getPlanets();
     }
     
     /**
-     * Adds a planet to the simulation.
+     * Adds a planet to the simulation. The planet stays a handle onto its
+     * simulated state until it is removed.
+     * @return the planet's stable id
      */
-    public void addPlanet(Planet planet) {
+    public long addPlanet(Planet planet) {
         if (planet.getPosition().dimensions() != dimension) {
             throw new IllegalArgumentException("Planet dimension must match engine dimension");
         }
-        planets.add(planet);
+        synchronized (bodies) {
+            int index = bodies.add(planet);
+            publishSnapshot();
+            return bodies.getId(index);
+        }
     }
     
     /**
      * Removes a planet from the simulation.
      */
     public void removePlanet(Planet planet) {
-        planets.remove(planet);
+        synchronized (bodies) {
+            if (bodies.remove(planet)) {
+                publishSnapshot();
+            }
+        }
     }
     
     /**
      * Clears all planets from the simulation.
      */
     public void clearPlanets() {
-        planets.clear();
+        synchronized (bodies) {
+            bodies.clear();
+            publishSnapshot();
+        }
     }
     
     // Getters and setters for simulation settings
@@ -196,7 +1004,10 @@ public class PhysicsEngine {
     }
     
     public void setGravitationalConstant(double gravitationalConstant) {
-        this.gravitationalConstant = gravitationalConstant;
+        synchronized (bodies) {
+            this.gravitationalConstant = gravitationalConstant;
+            forcesCurrent = false;
+        }
     }
     
     public boolean isBounce() {
@@ -223,6 +1034,546 @@ public class PhysicsEngine {
         this.timeFactor = timeFactor;
     }
     
+    public String getForceSolver() {
+        return forceSolverType.getName();
+    }
+    
+    /**
+     * Selects the force solver by name ("direct", "barnes-hut", "fmm", "pm" or
+     * "distributed"). "distributed" runs Barnes-Hut on the workers set with
+     * {@link #setWorkers} or {@link #setWorkerAddresses}, and locally without them.
+     */
+    public void setForceSolver(String name) {
+        ForceSolverType type = ForceSolverType.fromName(name);
+        synchronized (bodies) {
+            this.forceSolverType = type;
+            forcesCurrent = false;
+        }
+    }
+    
+    public String getBroadPhase() {
+        return broadPhase.getName();
+    }
+    
+    /**
+     * Selects the collision broad-phase by name ("all-pairs", "hash" or "sweep").
+     */
+    public void setBroadPhase(String name) {
+        BroadPhaseType type = BroadPhaseType.fromName(name);
+        synchronized (bodies) {
+            if (!type.getName().equals(broadPhase.getName())) {
+                this.broadPhase = type.create();
+                this.sweptBroadPhase = type.create();
+            }
+        }
+    }
+    
+    public boolean isContinuousCollisions() {
+        return continuousCollisions;
+    }
+    
+    /**
+     * Turns continuous collision detection on or off. When on, bodies whose paths
+     * cross during a step collide at the time they touch, so fast bodies can't pass
+     * through each other between steps.
+     */
+    public void setContinuousCollisions(boolean continuousCollisions) {
+        synchronized (bodies) {
+            this.continuousCollisions = continuousCollisions;
+        }
+    }
+    
+    public int getReorderInterval() {
+        return reorderInterval;
+    }
+    
+    /**
+     * Sets how often, in steps, the bodies are sorted into Morton order for cache
+     * locality; 0 turns sorting off. Sorting changes body indices, so use
+     * {@link #getBodyId} to follow a body across steps.
+     */
+    public void setReorderInterval(int reorderInterval) {
+        if (reorderInterval < 0) {
+            throw new IllegalArgumentException("Reorder interval must be 0 or more");
+        }
+        synchronized (bodies) {
+            this.reorderInterval = reorderInterval;
+        }
+    }
+    
+    /**
+     * Gets the stable id of a planet in this engine, which survives reordering.
+     * @return the id, or -1 if the planet isn't in this engine
+     */
+    public long getBodyId(Planet planet) {
+        synchronized (bodies) {
+            int count = bodies.size();
+            for (int i = 0; i < count; i++) {
+                if (bodies.getPlanet(i) == planet) {
+                    return bodies.getId(i);
+                }
+            }
+            return -1;
+        }
+    }
+    
+    public boolean isRegularization() {
+        return regularization;
+    }
+    
+    /**
+     * Turns KS regularization on or off. When on, tightly bound pairs that are well
+     * isolated from the other bodies follow their relative orbit in Kustaanheimo-Stiefel
+     * variables while the integrator moves their centre of mass, so hard binaries cost
+     * a fixed number of steps per orbit.
+     */
+    public void setRegularization(boolean regularization) {
+        synchronized (bodies) {
+            if (this.regularization != regularization) {
+                this.regularization = regularization;
+                regularizer.clear();
+                regularizedPairs = 0;
+                forcesCurrent = false;
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of pairs that were regularized on the last step.
+     */
+    public int getRegularizedPairs() {
+        return regularizedPairs;
+    }
+    
+    public String getIntegrator() {
+        return integrator.getName();
+    }
+    
+    /**
+     * Selects the time integrator by name ("euler", "leapfrog", "verlet", "yoshida4",
+     * "rk4", "dopri5" or "block").
+     */
+    public void setIntegrator(String name) {
+        IntegratorType type = IntegratorType.fromName(name);
+        synchronized (bodies) {
+            if (!type.getName().equals(integrator.getName())) {
+                this.integrator = type.create();
+                applyIntegratorSettings();
+            }
+        }
+    }
+    
+    public double getIntegratorTolerance() {
+        return integratorTolerance;
+    }
+    
+    /**
+     * Sets the error tolerance per sub-step of the adaptive "dopri5" integrator.
+     */
+    public void setIntegratorTolerance(double tolerance) {
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Integrator tolerance must be positive");
+        }
+        synchronized (bodies) {
+            this.integratorTolerance = tolerance;
+            applyIntegratorSettings();
+        }
+    }
+    
+    public double getBlockAccuracy() {
+        return blockAccuracy;
+    }
+    
+    /**
+     * Sets the accuracy parameter of the "block" integrator; each body's step is about
+     * this fraction of the time its acceleration takes to change.
+     */
+    public void setBlockAccuracy(double accuracy) {
+        if (!(accuracy > 0.0)) {
+            throw new IllegalArgumentException("Block timestep accuracy must be positive");
+        }
+        synchronized (bodies) {
+            this.blockAccuracy = accuracy;
+            applyIntegratorSettings();
+        }
+    }
+    
+    public int getMaxBlockLevel() {
+        return maxBlockLevel;
+    }
+    
+    /**
+     * Sets the finest level of the "block" integrator: the shortest step is
+     * deltaTime / 2^level.
+     */
+    public void setMaxBlockLevel(int level) {
+        if (level < 0 || level > BlockTimestepIntegrator.LEVEL_LIMIT) {
+            throw new IllegalArgumentException("Block timestep level must be between 0 and "
+                                               + BlockTimestepIntegrator.LEVEL_LIMIT);
+        }
+        synchronized (bodies) {
+            this.maxBlockLevel = level;
+            applyIntegratorSettings();
+        }
+    }
+    
+    private void applyIntegratorSettings() {
+        if (integrator instanceof DormandPrinceIntegrator) {
+            ((DormandPrinceIntegrator) integrator).setTolerance(integratorTolerance);
+        } else if (integrator instanceof BlockTimestepIntegrator) {
+            BlockTimestepIntegrator block = (BlockTimestepIntegrator) integrator;
+            block.setAccuracy(blockAccuracy);
+            block.setMaxLevel(maxBlockLevel);
+        }
+    }
+    
+    /**
+     * Gets how many sub-steps the integrator took on the last step (1 unless adaptive
+     * or block-stepped).
+     */
+    public int getLastSubsteps() {
+        return lastSubsteps;
+    }
+    
+    /**
+     * Computes the total kinetic plus gravitational potential energy by direct
+     * summation, O(N²). Pairs involving two fixed bodies are included, so this
+     * is a constant offset when PointMasses are present.
+     */
+    public double computeTotalEnergy() {
+        synchronized (bodies) {
+            int count = bodies.size();
+            double[] x = bodies.x, y = bodies.y, z = bodies.z;
+            double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+            double[] mass = bodies.mass;
+            double kinetic = 0.0;
+            double potential = 0.0;
+            for (int i = 0; i < count; i++) {
+                kinetic += 0.5 * mass[i] * (vx[i] * vx[i] + vy[i] * vy[i] + vz[i] * vz[i]);
+                for (int j = i + 1; j < count; j++) {
+                    double dx = x[j] - x[i];
+                    double dy = y[j] - y[i];
+                    double dz = z[j] - z[i];
+                    double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                    if (dist == 0.0) continue;
+                    potential -= gravitationalConstant * mass[i] * mass[j] / dist;
+                }
+            }
+            return kinetic + potential;
+        }
+    }
+    
+    public double getOpeningAngle() {
+        return barnesHutSolver.getOpeningAngle();
+    }
+    
+    /**
+     * Sets the opening angle θ used by the tree solvers. Smaller is more accurate, 0 is exact.
+     */
+    public void setOpeningAngle(double openingAngle) {
+        synchronized (bodies) {
+            barnesHutSolver.setOpeningAngle(openingAngle);
+            fastMultipoleSolver.setOpeningAngle(openingAngle);
+            if (distributedSolver != null) {
+                distributedSolver.setOpeningAngle(openingAngle);
+            }
+            forcesCurrent = false;
+        }
+    }
+    
+    public int getExpansionOrder() {
+        return fastMultipoleSolver.getOrder();
+    }
+    
+    /**
+     * Sets the FMM expansion order p. Higher orders are more accurate and more expensive.
+     */
+    public void setExpansionOrder(int expansionOrder) {
+        synchronized (bodies) {
+            fastMultipoleSolver.setOrder(expansionOrder);
+            forcesCurrent = false;
+        }
+    }
+    
+    public int getMeshSize() {
+        return particleMeshSolver.getMeshSize();
+    }
+    
+    /**
+     * Sets the particle-mesh cells per axis (a power of two). 3D meshes are limited to
+     * 64 isolated or 128 periodic.
+     */
+    public void setMeshSize(int meshSize) {
+        synchronized (bodies) {
+            particleMeshSolver.setMeshSize(meshSize);
+            forcesCurrent = false;
+        }
+    }
+    
+    /**
+     * Gets the particle-mesh boundary type, "isolated" or "periodic".
+     */
+    public String getMeshBoundary() {
+        return particleMeshSolver.isPeriodic() ? "periodic" : "isolated";
+    }
+    
+    /**
+     * Sets the particle-mesh boundary type, "isolated" or "periodic".
+     */
+    public void setMeshBoundary(String boundary) {
+        boolean periodic;
+        if (boundary.equalsIgnoreCase("periodic")) {
+            periodic = true;
+        } else if (boundary.equalsIgnoreCase("isolated")) {
+            periodic = false;
+        } else {
+            throw new IllegalArgumentException("Unknown mesh boundary: " + boundary);
+        }
+        synchronized (bodies) {
+            particleMeshSolver.setPeriodic(periodic);
+            forcesCurrent = false;
+        }
+    }
+    
+    public double getMeshBoxSize() {
+        return particleMeshSolver.getBoxSize();
+    }
+    
+    /**
+     * Sets the side length of the periodic particle-mesh box [0, size).
+     */
+    public void setMeshBoxSize(double boxSize) {
+        synchronized (bodies) {
+            particleMeshSolver.setBoxSize(boxSize);
+            forcesCurrent = false;
+        }
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Sets how many threads share the force pass. 1 (the default) runs it on the
+     * physics thread. Only the direct and Barnes-Hut solvers split their work;
+     * either way each body's acceleration is bit-identical to the serial result.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        synchronized (bodies) {
+            if (parallelism == this.parallelism) {
+                return;
+            }
+            this.parallelism = parallelism;
+            if (forcePool != null) {
+                forcePool.shutdown();
+                forcePool = null;
+            }
+            // The pool is created on the next step
+            applyPool(null);
+        }
+    }
+    
+    public int getWorkers() {
+        return workers;
+    }
+    
+    /**
+     * Sets how many local worker JVMs the "distributed" solver launches; 0 (the default)
+     * launches none. Workers are started in the background from the next distributed
+     * step and shut down when the engine stops. Ignored while worker addresses are set.
+     */
+    public void setWorkers(int workers) {
+        if (workers < 0 || workers > MAX_WORKERS) {
+            throw new IllegalArgumentException("Workers must be between 0 and " + MAX_WORKERS);
+        }
+        synchronized (bodies) {
+            this.workers = workers;
+            closeWorkers();
+            workersFailed = false;
+            forcesCurrent = false;
+        }
+    }
+    
+    /**
+     * Gets the worker addresses as "host:port" separated by commas, or "" if none are set.
+     */
+    public String getWorkerAddresses() {
+        StringBuilder sb = new StringBuilder();
+        for (InetSocketAddress address : workerAddresses) {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(address.getHostString()).append(":").append(address.getPort());
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Sets running {@link ForceWorker}s for the "distributed" solver to connect to, as
+     * "host:port" separated by commas. An empty string goes back to local workers.
+     */
+    public void setWorkerAddresses(String addresses) {
+        List<InetSocketAddress> parsed = new ArrayList<>();
+        for (String entry : addresses.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+            int colon = entry.lastIndexOf(':');
+            int port;
+            try {
+                port = colon > 0 ? Integer.parseInt(entry.substring(colon + 1)) : -1;
+            } catch (NumberFormatException e) {
+                port = -1;
+            }
+            if (port < 1 || port > 65535) {
+                throw new IllegalArgumentException("Worker address must be host:port: " + entry);
+            }
+            parsed.add(InetSocketAddress.createUnresolved(entry.substring(0, colon), port));
+        }
+        if (parsed.size() > MAX_WORKERS) {
+            throw new IllegalArgumentException("At most " + MAX_WORKERS + " workers are supported");
+        }
+        synchronized (bodies) {
+            workerAddresses = parsed;
+            closeWorkers();
+            workersFailed = false;
+            forcesCurrent = false;
+        }
+    }
+    
+    /**
+     * Gets the number of workers the distributed solver is connected to.
+     */
+    public int getConnectedWorkers() {
+        return connectedWorkers;
+    }
+    
+    public boolean isLoadBalancing() {
+        return barnesHutSolver.isLoadBalancing();
+    }
+    
+    /**
+     * Splits Barnes-Hut walks across the threads by orthogonal recursive bisection
+     * over each body's cost on the last step, instead of by index ranges. Only matters
+     * with parallelism above 1; results are the same either way.
+     */
+    public void setLoadBalancing(boolean loadBalancing) {
+        synchronized (bodies) {
+            barnesHutSolver.setLoadBalancing(loadBalancing);
+        }
+    }
+    
+    /**
+     * Gets each thread's share of the last Barnes-Hut force pass in milliseconds, or an
+     * empty array if the last pass used another solver or ran on one thread.
+     */
+    public double[] getThreadTimes() {
+        if (!ForceSolverType.BARNES_HUT.getName().equals(lastSolverUsed)) {
+            return new double[0];
+        }
+        return barnesHutSolver.getThreadTimes();
+    }
+    
+    public String getPrecision() {
+        return precision.getName();
+    }
+    
+    /**
+     * Selects the precision of direct summation by name ("double", "float" or "mixed").
+     * The float kernels work on centre-of-mass-relative float copies of the positions;
+     * "mixed" sums each body's pair terms in double. Bodies are always stored and
+     * integrated in double, and the tree and mesh solvers are unaffected.
+     */
+    public void setPrecision(String name) {
+        PrecisionType type = PrecisionType.fromName(name);
+        synchronized (bodies) {
+            precision = type;
+            floatSolver.setDoubleAccumulation(type == PrecisionType.MIXED);
+            if (vectorFloatSolver != null) {
+                vectorFloatSolver.setDoubleAccumulation(type == PrecisionType.MIXED);
+            }
+            forcesCurrent = false;
+        }
+    }
+    
+    public boolean isSimd() {
+        return simd;
+    }
+    
+    /**
+     * Turns the SIMD direct-sum kernel on or off. When the JVM can't run it
+     * (see {@link #isSimdAvailable()}) direct summation stays scalar.
+     */
+    public void setSimd(boolean simd) {
+        synchronized (bodies) {
+            if (simd) {
+                loadVectorSolver();
+            }
+            this.simd = simd;
+            forcesCurrent = false;
+        }
+    }
+    
+    /**
+     * Checks whether the SIMD kernel can run on this JVM. It needs the classes built
+     * from simd/ and {@code --add-modules jdk.incubator.vector}.
+     */
+    public boolean isSimdAvailable() {
+        return SimdSupport.isAvailable();
+    }
+    
+    private void loadVectorSolver() {
+        if (!vectorSolverLoaded) {
+            vectorSolver = SimdSupport.createVectorSolver();
+            vectorFloatSolver = SimdSupport.createVectorFloatSolver();
+            vectorSolverLoaded = true;
+            if (vectorSolver != null) {
+                vectorSolver.setPool(forcePool);
+            }
+            if (vectorFloatSolver != null) {
+                vectorFloatSolver.setPool(forcePool);
+                vectorFloatSolver.setDoubleAccumulation(precision == PrecisionType.MIXED);
+            }
+        }
+    }
+    
+    public int getErrorSampleSize() {
+        return errorSampleSize;
+    }
+    
+    /**
+     * Sets how many bodies are checked against direct summation when sampling
+     * the force error of an approximate solver. 0 turns sampling off.
+     */
+    public void setErrorSampleSize(int errorSampleSize) {
+        if (errorSampleSize < 0) {
+            throw new IllegalArgumentException("Error sample size must be non-negative");
+        }
+        this.errorSampleSize = errorSampleSize;
+    }
+    
+    /**
+     * Gets the name of the solver that ran on the last step. This can differ from
+     * {@link #getForceSolver()} when a small system falls back to direct summation.
+     */
+    public String getLastSolverUsed() {
+        return lastSolverUsed;
+    }
+    
+    /**
+     * RMS relative acceleration error of the last sample, 0 when the exact solver ran.
+     */
+    public double getForceErrorRms() {
+        return lastSolverExact ? 0.0 : forceErrorRms;
+    }
+    
+    /**
+     * Largest relative acceleration error of the last sample, 0 when the exact solver ran.
+     */
+    public double getForceErrorMax() {
+        return lastSolverExact ? 0.0 : forceErrorMax;
+    }
+    
     public boolean isPaused() {
         return isPaused;
     }
@@ -235,6 +1586,23 @@ public class PhysicsEngine {
         return running;
     }
     
+    /**
+     * Gets the simulated step time the physics loop ran per second of wall time over
+     * the last second: 1 when it keeps up, below 1 when steps are being dropped.
+     * 0 while paused or stopped.
+     */
+    public double getRealTimeFactor() {
+        return realTimeFactor;
+    }
+    
+    /**
+     * Gets how many steps the physics loop has dropped because it could not run them
+     * within {@link #MAX_STEPS_PER_TICK} per tick.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+    
     public int getDimension() {
         return dimension;
     }
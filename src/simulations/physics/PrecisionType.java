@@ -0,0 +1,37 @@
+package simulations.physics;
+
+/**
+ * Floating-point precisions the direct-sum force kernel can run in.
+ * Names match the "precision" value accepted by the settings API.
+ */
+public enum PrecisionType {
+    /** Positions, pair terms and sums in double */
+    DOUBLE("double"),
+    /** Centre-relative float positions, float pair terms and float sums */
+    FLOAT("float"),
+    /** Float positions and pair terms, summed in double */
+    MIXED("mixed");
+
+    private final String name;
+
+    PrecisionType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Looks up a precision by its API name.
+     * @throws IllegalArgumentException if the name is not recognised
+     */
+    public static PrecisionType fromName(String name) {
+        for (PrecisionType type : values()) {
+            if (type.name.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown precision: " + name);
+    }
+}
@@ -0,0 +1,42 @@
+package simulations.physics;
+
+/**
+ * RK4Integrator - Classical fourth-order Runge-Kutta on the whole system.
+ * Forces are re-evaluated at every stage, so each stage sees where all the other
+ * bodies have moved to. Four force evaluations per step. Not symplectic: energy
+ * drifts slowly, but the local error is fifth order in the step.
+ */
+public class RK4Integrator implements Integrator {
+
+    private static final double[][] A = {
+        {},
+        {0.5},
+        {0.0, 0.5},
+        {0.0, 0.0, 1.0},
+    };
+    private static final double[] B = {1.0 / 6.0, 1.0 / 3.0, 1.0 / 3.0, 1.0 / 6.0};
+
+    private final RungeKuttaStages stages = new RungeKuttaStages(4);
+
+    @Override
+    public void step(BodyStore bodies, double dt, ForceEvaluator forces) {
+        int count = bodies.size();
+        stages.begin(bodies, count);
+        stages.derive(bodies, count, forces, 0, true);
+        for (int s = 1; s < 4; s++) {
+            stages.load(count, dt, A[s]);
+            stages.derive(bodies, count, forces, s, false);
+        }
+        stages.load(count, dt, B);
+    }
+
+    @Override
+    public boolean endsWithForceEvaluation() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return IntegratorType.RK4.getName();
+    }
+}
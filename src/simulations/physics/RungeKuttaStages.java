@@ -0,0 +1,107 @@
+package simulations.physics;
+
+import java.util.Arrays;
+
+/**
+ * RungeKuttaStages - Stage buffers shared by the explicit Runge-Kutta integrators.
+ *
+ * The state of the system is six components per body (x, y, z, vx, vy, vz). A step
+ * saves the starting state, then for each stage writes a trial state into the
+ * BodyStore, evaluates forces there and records the derivative (velocity and
+ * acceleration). Fixed bodies get a zero derivative, so they never move.
+ */
+final class RungeKuttaStages {
+
+    private static final int COMPONENTS = 6;
+
+    /** State at the start of the step, [component][body] */
+    final double[][] start = new double[COMPONENTS][0];
+    /** Stage derivatives, [stage][component][body] */
+    final double[][][] k;
+    /** The store's arrays for the current step, [component][body] */
+    final double[][] state = new double[COMPONENTS][];
+
+    RungeKuttaStages(int stages) {
+        k = new double[stages][COMPONENTS][0];
+    }
+
+    /**
+     * Prepares the buffers for a step and saves the bodies' current state.
+     */
+    void begin(BodyStore bodies, int count) {
+        state[0] = bodies.x;
+        state[1] = bodies.y;
+        state[2] = bodies.z;
+        state[3] = bodies.vx;
+        state[4] = bodies.vy;
+        state[5] = bodies.vz;
+        if (start[0].length < count) {
+            int capacity = Math.max(count, start[0].length * 2);
+            for (int c = 0; c < COMPONENTS; c++) {
+                start[c] = Arrays.copyOf(start[c], capacity);
+                for (double[][] stage : k) {
+                    stage[c] = Arrays.copyOf(stage[c], capacity);
+                }
+            }
+        }
+        for (int c = 0; c < COMPONENTS; c++) {
+            System.arraycopy(state[c], 0, start[c], 0, count);
+        }
+    }
+
+    /**
+     * Records the derivative of the state currently in the store as stage {@code s}.
+     *
+     * @param reuse true to accept cached accelerations for these positions
+     */
+    void derive(BodyStore bodies, int count, ForceEvaluator forces, int s, boolean reuse) {
+        if (reuse) {
+            forces.ensureCurrent();
+        } else {
+            forces.evaluate();
+        }
+        double[] ax = forces.getAccelX(), ay = forces.getAccelY(), az = forces.getAccelZ();
+        double[][] d = k[s];
+        boolean[] fixed = bodies.fixed;
+        for (int i = 0; i < count; i++) {
+            if (fixed[i]) {
+                d[0][i] = d[1][i] = d[2][i] = 0.0;
+                d[3][i] = d[4][i] = d[5][i] = 0.0;
+            } else {
+                d[0][i] = state[3][i];
+                d[1][i] = state[4][i];
+                d[2][i] = state[5][i];
+                d[3][i] = ax[i];
+                d[4][i] = ay[i];
+                d[5][i] = az[i];
+            }
+        }
+    }
+
+    /**
+     * Writes {@code start + h * sum(weights[j] * k[j])} into the store.
+     */
+    void load(int count, double h, double[] weights) {
+        for (int c = 0; c < COMPONENTS; c++) {
+            double[] out = state[c];
+            System.arraycopy(start[c], 0, out, 0, count);
+            for (int j = 0; j < weights.length; j++) {
+                double w = h * weights[j];
+                if (w == 0.0) continue;
+                double[] kc = k[j][c];
+                for (int i = 0; i < count; i++) {
+                    out[i] += w * kc[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Swaps the derivative buffers of two stages.
+     */
+    void swap(int a, int b) {
+        double[][] t = k[a];
+        k[a] = k[b];
+        k[b] = t;
+    }
+}
@@ -0,0 +1,62 @@
+package simulations.physics;
+
+/**
+ * SimdSupport - Loads the optional SIMD direct-sum kernels.
+ *
+ * The kernels are compiled from the {@code simd/} source tree only on JDK 17+ and needs
+ * {@code --add-modules jdk.incubator.vector} at run time. When either is missing the
+ * engine keeps using the scalar {@link DirectSumSolver}.
+ */
+final class SimdSupport {
+
+    private static final String VECTOR_SOLVER = "simulations.physics.VectorDirectSumSolver";
+    private static final String VECTOR_FLOAT_SOLVER = "simulations.physics.VectorFloatDirectSumSolver";
+
+    private SimdSupport() {
+    }
+
+    /** Checked once per JVM on first use; class initialization makes this safe without locks */
+    private static final class Availability {
+        static final boolean AVAILABLE = createVectorSolver() != null;
+    }
+
+    /**
+     * Checks whether the SIMD kernels can run on this JVM.
+     */
+    static boolean isAvailable() {
+        return Availability.AVAILABLE;
+    }
+
+    /**
+     * Creates the SIMD solver, or returns null when it cannot run on this JVM.
+     */
+    static ForceSolver createVectorSolver() {
+        try {
+            ForceSolver solver = (ForceSolver) Class.forName(VECTOR_SOLVER).getDeclaredConstructor().newInstance();
+            // Exercise the kernel once - the vector classes are only linked on first use
+            double[] coords = {0.0, 1.0};
+            double[] out = new double[2];
+            solver.computeAccelerations(2, 2, coords, coords, new double[2], coords, 1.0, out, new double[2], new double[2]);
+            return solver;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates the single-precision SIMD solver, or returns null when it cannot run on
+     * this JVM.
+     */
+    static FloatDirectSumSolver createVectorFloatSolver() {
+        try {
+            FloatDirectSumSolver solver = (FloatDirectSumSolver) Class.forName(VECTOR_FLOAT_SOLVER)
+                .getDeclaredConstructor().newInstance();
+            double[] coords = {0.0, 1.0};
+            double[] out = new double[2];
+            solver.computeAccelerations(2, 2, coords, coords, new double[2], coords, 1.0, out, new double[2], new double[2]);
+            return solver;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+}
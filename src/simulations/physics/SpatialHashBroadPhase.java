@@ -0,0 +1,157 @@
+package simulations.physics;
+
+import java.util.Arrays;
+
+/**
+ * SpatialHashBroadPhase - Bins bodies into a uniform grid stored in a hash table.
+ *
+ * Cells are as wide as the largest diameter, so two overlapping bodies always sit in
+ * the same or neighbouring cells and each body only tests the 9 (2D) or 27 (3D) cells
+ * around it. Cells are hashed into a table of two to four buckets per body, which is
+ * counting-sorted each step, so empty space costs nothing.
+ *
+ * Merging makes radii very uneven, and one huge body would make every cell huge.
+ * Bodies with a radius above {@link #OVERSIZE_FACTOR} times the mean are kept out of
+ * the grid: the cell size comes from the remaining bodies, and each oversized body is
+ * tested against every body directly.
+ */
+public class SpatialHashBroadPhase implements BroadPhase {
+
+    /** Bodies with a radius above this multiple of the mean radius skip the grid */
+    static final double OVERSIZE_FACTOR = 4.0;
+
+    private long[] cellX = new long[0];
+    private long[] cellY = new long[0];
+    private long[] cellZ = new long[0];
+    private int[] bucketOf = new int[0];
+    private int[] sorted = new int[0];
+    private boolean[] oversized = new boolean[0];
+    private int[] bucketStart = new int[0];
+    private int oversizedCount = 0;
+
+    @Override
+    public void findOverlaps(int count, int dimension, double[] x, double[] y, double[] z,
+                             double[] radius, CollisionPairs out) {
+        if (count < 2) return;
+        ensureCapacity(count);
+
+        double meanRadius = 0.0;
+        for (int i = 0; i < count; i++) {
+            meanRadius += radius[i];
+        }
+        meanRadius /= count;
+        double limit = OVERSIZE_FACTOR * meanRadius;
+
+        double largest = 0.0;
+        oversizedCount = 0;
+        for (int i = 0; i < count; i++) {
+            oversized[i] = radius[i] > limit;
+            if (oversized[i]) {
+                oversizedCount++;
+            } else {
+                largest = Math.max(largest, radius[i]);
+            }
+        }
+
+        // With no regular radius above 0, regular bodies cannot overlap each other
+        if (largest > 0.0) {
+            findGridOverlaps(count, dimension, x, y, z, radius, 2.0 * largest, out);
+        }
+        if (oversizedCount > 0) {
+            findOversizedOverlaps(count, x, y, z, radius, out);
+        }
+    }
+
+    private void findGridOverlaps(int count, int dimension, double[] x, double[] y, double[] z,
+                                  double[] radius, double cellSize, CollisionPairs out) {
+        int regular = count - oversizedCount;
+        int buckets = Integer.highestOneBit(Math.max(1, regular)) * 4;
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        }
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+
+        double inverse = 1.0 / cellSize;
+        for (int i = 0; i < count; i++) {
+            if (oversized[i]) continue;
+            cellX[i] = (long) Math.floor(x[i] * inverse);
+            cellY[i] = (long) Math.floor(y[i] * inverse);
+            cellZ[i] = (long) Math.floor(z[i] * inverse);
+            bucketOf[i] = bucket(cellX[i], cellY[i], cellZ[i], buckets);
+            bucketStart[bucketOf[i] + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        // Counting sort by bucket; bucketStart[b] ends up as the end of bucket b - 1
+        for (int i = 0; i < count; i++) {
+            if (oversized[i]) continue;
+            sorted[bucketStart[bucketOf[i]]++] = i;
+        }
+        for (int b = buckets; b > 0; b--) {
+            bucketStart[b] = bucketStart[b - 1];
+        }
+        bucketStart[0] = 0;
+
+        int reachZ = dimension == 3 ? 1 : 0;
+        for (int i = 0; i < count; i++) {
+            if (oversized[i]) continue;
+            for (int ox = -1; ox <= 1; ox++) {
+                for (int oy = -1; oy <= 1; oy++) {
+                    for (int oz = -reachZ; oz <= reachZ; oz++) {
+                        long cx = cellX[i] + ox;
+                        long cy = cellY[i] + oy;
+                        long cz = cellZ[i] + oz;
+                        int b = bucket(cx, cy, cz, buckets);
+                        for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                            int j = sorted[k];
+                            // Each pair once, and skip other cells that share the bucket
+                            if (j <= i || cellX[j] != cx || cellY[j] != cy || cellZ[j] != cz) continue;
+                            if (AllPairsBroadPhase.overlaps(i, j, x, y, z, radius)) {
+                                out.add(i, j);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void findOversizedOverlaps(int count, double[] x, double[] y, double[] z,
+                                       double[] radius, CollisionPairs out) {
+        for (int i = 0; i < count; i++) {
+            if (!oversized[i]) continue;
+            for (int j = 0; j < count; j++) {
+                // A pair of oversized bodies is reported from the lower index only
+                if (j == i || (oversized[j] && j < i)) continue;
+                if (AllPairsBroadPhase.overlaps(i, j, x, y, z, radius)) {
+                    out.add(Math.min(i, j), Math.max(i, j));
+                }
+            }
+        }
+    }
+
+    private static int bucket(long cx, long cy, long cz, int buckets) {
+        long h = cx * 0x9E3779B97F4A7C15L ^ cy * 0xC2B2AE3D27D4EB4FL ^ cz * 0x165667B19E3779F9L;
+        h ^= h >>> 32;
+        return (int) h & (buckets - 1);
+    }
+
+    private void ensureCapacity(int count) {
+        if (cellX.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, cellX.length * 2);
+        cellX = new long[capacity];
+        cellY = new long[capacity];
+        cellZ = new long[capacity];
+        bucketOf = new int[capacity];
+        sorted = new int[capacity];
+        oversized = new boolean[capacity];
+    }
+
+    @Override
+    public String getName() {
+        return BroadPhaseType.SPATIAL_HASH.getName();
+    }
+}
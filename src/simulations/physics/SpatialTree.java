@@ -0,0 +1,313 @@
+package simulations.physics;
+
+import java.util.Arrays;
+
+/**
+ * SpatialTree - Quadtree (2D) or octree (3D) over a set of bodies, stored in flat arrays.
+ *
+ * Nodes are identified by index. Each node owns a contiguous range of the body
+ * index array {@code order}, and its children are stored next to each other, so
+ * the tree can be walked without allocating. The arrays grow as needed and are
+ * reused between builds.
+ *
+ * Between rebuilds the tree can be refit: the nodes keep their bodies and centers,
+ * each cell grows just enough to hold its bodies again, and the moments are
+ * recomputed bottom-up. A refit tree is always a valid bounding hierarchy, but cells
+ * that have grown overlap and get opened more often, so {@link #update} rebuilds once
+ * the cells have grown by {@link #REFIT_LIMIT} on average or the bodies' indices
+ * changed.
+ */
+class SpatialTree {
+
+    /** Default maximum number of bodies in a leaf before it is split */
+    static final int LEAF_CAPACITY = 8;
+
+    /** Depth limit, stops coincident bodies from splitting forever */
+    static final int MAX_DEPTH = 48;
+
+    /** Largest total cell size, relative to the last build, a refit tree is kept at */
+    static final double REFIT_LIMIT = 1.02;
+
+    int dimension;
+    int nodeCount;
+    int bodyCount;
+    int leafCapacity = LEAF_CAPACITY;
+
+    /** Body indices, grouped so that node n covers order[bodyStart[n] .. bodyEnd[n]) */
+    int[] order = new int[0];
+    private int[] scratch = new int[0];
+
+    /** Cell geometry (cubes), used for partitioning and the opening criterion */
+    double[] centerX, centerY, centerZ, halfSize;
+
+    /** Half size of each cell when it was built; refits only grow cells past it */
+    private double[] builtHalfSize;
+    private double builtTotalSize;
+
+    /** Set when the next {@link #update} has to rebuild, e.g. because bodies were added */
+    private boolean stale = true;
+    private int rebuilds;
+
+    /** Monopole moments: total mass and center of mass */
+    double[] mass, comX, comY, comZ;
+
+    /** Children of node n are firstChild[n] .. firstChild[n] + childCount[n] - 1 */
+    int[] firstChild, childCount, bodyStart, bodyEnd;
+
+    /** Per-depth octant counters for the counting sort */
+    private final int[] octantCounts = new int[(MAX_DEPTH + 1) * 8];
+
+    SpatialTree() {
+        allocateNodes(64);
+    }
+
+    /**
+     * Rebuilds the tree from scratch for the given bodies.
+     */
+    void build(int count, int dimension, double[] x, double[] y, double[] z, double[] m) {
+        this.dimension = dimension;
+        this.bodyCount = count;
+        if (order.length < count) {
+            order = new int[count];
+            scratch = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        // Root cube encloses every body
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        double extent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+        double half = extent > 0.0 ? 0.5 * extent * (1.0 + 1e-9) : 1.0;
+
+        nodeCount = 1;
+        centerX[0] = count > 0 ? 0.5 * (minX + maxX) : 0.0;
+        centerY[0] = count > 0 ? 0.5 * (minY + maxY) : 0.0;
+        centerZ[0] = count > 0 ? 0.5 * (minZ + maxZ) : 0.0;
+        halfSize[0] = half;
+        bodyStart[0] = 0;
+        bodyEnd[0] = count;
+        subdivide(0, 0, x, y, z, m);
+
+        builtTotalSize = 0.0;
+        for (int node = 0; node < nodeCount; node++) {
+            builtHalfSize[node] = halfSize[node];
+            builtTotalSize += halfSize[node];
+        }
+        stale = false;
+        rebuilds++;
+    }
+
+    /**
+     * Refits the tree to the bodies' new positions and masses, or rebuilds it if it was
+     * marked stale, the body count or dimension changed, or the refit cells have grown
+     * past {@link #REFIT_LIMIT}.
+     */
+    void update(int count, int dimension, double[] x, double[] y, double[] z, double[] m) {
+        if (stale || count != bodyCount || dimension != this.dimension || !refit(x, y, z, m)) {
+            build(count, dimension, x, y, z, m);
+        }
+    }
+
+    /** Makes the next {@link #update} rebuild; call when bodies are added, removed or reordered. */
+    void invalidate() {
+        stale = true;
+    }
+
+    /** Number of full builds so far */
+    int getRebuildCount() {
+        return rebuilds;
+    }
+
+    /**
+     * Grows every cell about its center to hold its bodies again and recomputes the
+     * moments. Children always have larger indices than their parents, so one reverse
+     * pass over the nodes visits children first.
+     *
+     * @return false if the cells have grown past {@link #REFIT_LIMIT}; the tree is still valid
+     */
+    boolean refit(double[] x, double[] y, double[] z, double[] m) {
+        double totalSize = 0.0;
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            double cx = centerX[node];
+            double cy = centerY[node];
+            double cz = centerZ[node];
+            double half = builtHalfSize[node];
+            if (isLeaf(node)) {
+                for (int k = bodyStart[node]; k < bodyEnd[node]; k++) {
+                    int i = order[k];
+                    half = Math.max(half, Math.max(Math.abs(x[i] - cx),
+                                                   Math.max(Math.abs(y[i] - cy), Math.abs(z[i] - cz))));
+                }
+                halfSize[node] = half;
+                computeLeafMoments(node, x, y, z, m);
+            } else {
+                double totalMass = 0.0, sumX = 0.0, sumY = 0.0, sumZ = 0.0;
+                int first = firstChild[node];
+                for (int child = first; child < first + childCount[node]; child++) {
+                    double reach = halfSize[child] + Math.max(Math.abs(centerX[child] - cx),
+                        Math.max(Math.abs(centerY[child] - cy), Math.abs(centerZ[child] - cz)));
+                    half = Math.max(half, reach);
+                    double cm = mass[child];
+                    totalMass += cm;
+                    sumX += cm * comX[child];
+                    sumY += cm * comY[child];
+                    sumZ += cm * comZ[child];
+                }
+                halfSize[node] = half;
+                setMoments(node, totalMass, sumX, sumY, sumZ);
+            }
+            totalSize += half;
+        }
+        return totalSize <= REFIT_LIMIT * builtTotalSize;
+    }
+
+    boolean isLeaf(int node) {
+        return childCount[node] == 0;
+    }
+
+    private void subdivide(int node, int depth, double[] x, double[] y, double[] z, double[] m) {
+        int start = bodyStart[node];
+        int end = bodyEnd[node];
+        firstChild[node] = 0;
+        childCount[node] = 0;
+
+        if (end - start <= leafCapacity || depth >= MAX_DEPTH) {
+            computeLeafMoments(node, x, y, z, m);
+            return;
+        }
+
+        double cx = centerX[node];
+        double cy = centerY[node];
+        double cz = centerZ[node];
+        int octants = 1 << dimension;
+        int base = depth * 8;
+
+        // Counting sort of this node's bodies by octant
+        Arrays.fill(octantCounts, base, base + 8, 0);
+        for (int k = start; k < end; k++) {
+            int i = order[k];
+            octantCounts[base + octant(x[i], y[i], z[i], cx, cy, cz)]++;
+        }
+        int offset = start;
+        for (int o = 0; o < octants; o++) {
+            int c = octantCounts[base + o];
+            octantCounts[base + o] = offset;
+            offset += c;
+        }
+        for (int k = start; k < end; k++) {
+            int i = order[k];
+            scratch[octantCounts[base + octant(x[i], y[i], z[i], cx, cy, cz)]++] = i;
+        }
+        System.arraycopy(scratch, start, order, start, end - start);
+
+        // After the scatter pass, octantCounts[base + o] holds the end of octant o
+        double quarter = 0.5 * halfSize[node];
+        int first = nodeCount;
+        int rangeStart = start;
+        for (int o = 0; o < octants; o++) {
+            int rangeEnd = octantCounts[base + o];
+            if (rangeEnd == rangeStart) continue;
+
+            ensureNodeCapacity(nodeCount + 1);
+            int child = nodeCount++;
+            centerX[child] = cx + ((o & 1) != 0 ? quarter : -quarter);
+            centerY[child] = cy + ((o & 2) != 0 ? quarter : -quarter);
+            centerZ[child] = dimension == 3 ? cz + ((o & 4) != 0 ? quarter : -quarter) : cz;
+            halfSize[child] = quarter;
+            bodyStart[child] = rangeStart;
+            bodyEnd[child] = rangeEnd;
+            rangeStart = rangeEnd;
+        }
+        firstChild[node] = first;
+        childCount[node] = nodeCount - first;
+
+        int last = nodeCount;
+        for (int child = first; child < last; child++) {
+            subdivide(child, depth + 1, x, y, z, m);
+        }
+
+        // Combine child moments
+        double totalMass = 0.0, sumX = 0.0, sumY = 0.0, sumZ = 0.0;
+        for (int child = first; child < last; child++) {
+            double cm = mass[child];
+            totalMass += cm;
+            sumX += cm * comX[child];
+            sumY += cm * comY[child];
+            sumZ += cm * comZ[child];
+        }
+        setMoments(node, totalMass, sumX, sumY, sumZ);
+    }
+
+    private void computeLeafMoments(int node, double[] x, double[] y, double[] z, double[] m) {
+        double totalMass = 0.0, sumX = 0.0, sumY = 0.0, sumZ = 0.0;
+        for (int k = bodyStart[node]; k < bodyEnd[node]; k++) {
+            int i = order[k];
+            totalMass += m[i];
+            sumX += m[i] * x[i];
+            sumY += m[i] * y[i];
+            sumZ += m[i] * z[i];
+        }
+        setMoments(node, totalMass, sumX, sumY, sumZ);
+    }
+
+    private void setMoments(int node, double totalMass, double sumX, double sumY, double sumZ) {
+        mass[node] = totalMass;
+        if (totalMass != 0.0) {
+            comX[node] = sumX / totalMass;
+            comY[node] = sumY / totalMass;
+            comZ[node] = sumZ / totalMass;
+        } else {
+            comX[node] = centerX[node];
+            comY[node] = centerY[node];
+            comZ[node] = centerZ[node];
+        }
+    }
+
+    private int octant(double px, double py, double pz, double cx, double cy, double cz) {
+        int o = 0;
+        if (px >= cx) o |= 1;
+        if (py >= cy) o |= 2;
+        if (dimension == 3 && pz >= cz) o |= 4;
+        return o;
+    }
+
+    private void ensureNodeCapacity(int required) {
+        if (required > centerX.length) {
+            allocateNodes(Math.max(required, centerX.length * 2));
+        }
+    }
+
+    private void allocateNodes(int capacity) {
+        centerX = grow(centerX, capacity);
+        centerY = grow(centerY, capacity);
+        centerZ = grow(centerZ, capacity);
+        halfSize = grow(halfSize, capacity);
+        builtHalfSize = grow(builtHalfSize, capacity);
+        mass = grow(mass, capacity);
+        comX = grow(comX, capacity);
+        comY = grow(comY, capacity);
+        comZ = grow(comZ, capacity);
+        firstChild = grow(firstChild, capacity);
+        childCount = grow(childCount, capacity);
+        bodyStart = grow(bodyStart, capacity);
+        bodyEnd = grow(bodyEnd, capacity);
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
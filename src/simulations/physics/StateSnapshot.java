@@ -0,0 +1,204 @@
+package simulations.physics;
+
+import simulations.NewtonianGravity.Planet;
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StateSnapshot - A copy of every body's state at the end of one step.
+ *
+ * The physics thread fills a snapshot and publishes it through a volatile reference,
+ * so readers get a consistent view without taking the engine's lock and without
+ * copying. Snapshots are double-buffered: the engine refills the previous one at the
+ * next step unless a reader still holds it, in which case it starts a new one. A
+ * snapshot from {@link PhysicsEngine#acquireSnapshot()} therefore never changes until
+ * it is closed, and must not be used after that.
+ *
+ * <pre>
+ * try (StateSnapshot state = engine.acquireSnapshot()) {
+ *     for (int i = 0; i < state.size(); i++) { ... }
+ * }
+ * </pre>
+ */
+public final class StateSnapshot implements AutoCloseable {
+
+    private final int dimension;
+    /** Readers holding this snapshot; it is only refilled at 0 */
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private long step;
+    private int count;
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private double[] vx = new double[0];
+    private double[] vy = new double[0];
+    private double[] vz = new double[0];
+    private double[] mass = new double[0];
+    private double[] radius = new double[0];
+    private double[] angularVelocity = new double[0];
+    private double[] rotationAngle = new double[0];
+    private double[] temperature = new double[0];
+    private boolean[] fixed = new boolean[0];
+    private long[] id = new long[0];
+    private String[] name = new String[0];
+    private Color[] color = new Color[0];
+
+    StateSnapshot(int dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * Copies the store's bodies into this snapshot. Called with the store's lock held.
+     */
+    void fill(BodyStore bodies, long step) {
+        int n = bodies.size();
+        ensureCapacity(n);
+        System.arraycopy(bodies.x, 0, x, 0, n);
+        System.arraycopy(bodies.y, 0, y, 0, n);
+        System.arraycopy(bodies.z, 0, z, 0, n);
+        System.arraycopy(bodies.vx, 0, vx, 0, n);
+        System.arraycopy(bodies.vy, 0, vy, 0, n);
+        System.arraycopy(bodies.vz, 0, vz, 0, n);
+        System.arraycopy(bodies.mass, 0, mass, 0, n);
+        System.arraycopy(bodies.radius, 0, radius, 0, n);
+        System.arraycopy(bodies.fixed, 0, fixed, 0, n);
+        System.arraycopy(bodies.id, 0, id, 0, n);
+        for (int i = 0; i < n; i++) {
+            Planet planet = bodies.getPlanet(i);
+            angularVelocity[i] = planet.getAngularVelocity();
+            rotationAngle[i] = planet.getRotationAngle();
+            temperature[i] = planet.getTemperature();
+            name[i] = planet.getName();
+            color[i] = planet.getColor();
+        }
+        // Drop references to bodies that are gone
+        Arrays.fill(name, n, Math.max(n, count), null);
+        Arrays.fill(color, n, Math.max(n, count), null);
+        this.count = n;
+        this.step = step;
+    }
+
+    private void ensureCapacity(int n) {
+        if (x.length >= n) {
+            return;
+        }
+        int capacity = Math.max(n, x.length * 2);
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        vz = new double[capacity];
+        mass = new double[capacity];
+        radius = new double[capacity];
+        angularVelocity = new double[capacity];
+        rotationAngle = new double[capacity];
+        temperature = new double[capacity];
+        fixed = new boolean[capacity];
+        id = new long[capacity];
+        name = Arrays.copyOf(name, capacity);
+        color = Arrays.copyOf(color, capacity);
+    }
+
+    /**
+     * Registers a reader. The caller must check afterwards that this snapshot is still
+     * the published one, since the engine may otherwise already be refilling it.
+     */
+    void retain() {
+        readers.incrementAndGet();
+    }
+
+    /** True if no reader holds this snapshot, so it can be refilled */
+    boolean isFree() {
+        return readers.get() == 0;
+    }
+
+    /**
+     * Releases this snapshot so the engine can reuse it.
+     */
+    @Override
+    public void close() {
+        readers.decrementAndGet();
+    }
+
+    /**
+     * Gets the number of steps the engine had taken when this snapshot was filled.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    /** Always 0 in 2D */
+    public double getZ(int i) {
+        return z[i];
+    }
+
+    public double getVelocityX(int i) {
+        return vx[i];
+    }
+
+    public double getVelocityY(int i) {
+        return vy[i];
+    }
+
+    /** Always 0 in 2D */
+    public double getVelocityZ(int i) {
+        return vz[i];
+    }
+
+    public double getMass(int i) {
+        return mass[i];
+    }
+
+    public double getRadius(int i) {
+        return radius[i];
+    }
+
+    public double getAngularVelocity(int i) {
+        return angularVelocity[i];
+    }
+
+    public double getRotationAngle(int i) {
+        return rotationAngle[i];
+    }
+
+    public double getTemperature(int i) {
+        return temperature[i];
+    }
+
+    /** True for bodies that never move (PointMass) */
+    public boolean isFixed(int i) {
+        return fixed[i];
+    }
+
+    /** Stable id of the body, the same in every snapshot even when indices change */
+    public long getId(int i) {
+        return id[i];
+    }
+
+    public String getName(int i) {
+        return name[i];
+    }
+
+    public Color getColor(int i) {
+        return color[i];
+    }
+}
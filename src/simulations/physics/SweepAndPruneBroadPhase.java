@@ -0,0 +1,156 @@
+package simulations.physics;
+
+/**
+ * SweepAndPruneBroadPhase - Sorts bodies by the start of their extent along one axis
+ * and only tests pairs whose extents overlap on it.
+ *
+ * Each body covers [c - r, c + r] on the sweep axis. With bodies sorted by c - r, the
+ * candidates for a body are the ones after it that start before it ends, so a huge
+ * body costs work in proportion to how many bodies it spans instead of inflating a grid.
+ *
+ * Bodies move little per step, so the order from the previous call is kept and
+ * repaired with insertion sort, which is close to O(N) for a nearly sorted list. When
+ * the number of bodies changes (merges, additions) or {@link #bodiesChanged()} reports
+ * a reorder, the indices no longer match the old order; the sweep axis is then
+ * re-chosen as the one with the widest spread and the order is rebuilt with a merge sort.
+ */
+public class SweepAndPruneBroadPhase implements BroadPhase {
+
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private double[] lower = new double[0];
+    private double[] upper = new double[0];
+    /** Body count the order was built for, -1 before the first call */
+    private int sortedCount = -1;
+    private int axis = 0;
+    private long lastShifts = 0;
+
+    @Override
+    public void bodiesChanged() {
+        sortedCount = -1;
+    }
+
+    @Override
+    public void findOverlaps(int count, int dimension, double[] x, double[] y, double[] z,
+                             double[] radius, CollisionPairs out) {
+        ensureCapacity(count);
+        if (count != sortedCount) {
+            axis = widestAxis(count, dimension, x, y, z);
+        }
+        double[] c = axis == 0 ? x : axis == 1 ? y : z;
+        for (int i = 0; i < count; i++) {
+            lower[i] = c[i] - radius[i];
+            upper[i] = c[i] + radius[i];
+        }
+
+        if (count != sortedCount) {
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            mergeSort(0, count);
+            sortedCount = count;
+            lastShifts = 0;
+        } else {
+            insertionSort(count);
+        }
+
+        for (int a = 0; a < count; a++) {
+            int i = order[a];
+            double end = upper[i];
+            for (int b = a + 1; b < count; b++) {
+                int j = order[b];
+                // Extents that merely touch don't overlap
+                if (lower[j] >= end) break;
+                if (AllPairsBroadPhase.overlaps(i, j, x, y, z, radius)) {
+                    out.add(Math.min(i, j), Math.max(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores the order by lower bound, counting how far bodies moved.
+     */
+    private void insertionSort(int count) {
+        long shifts = 0;
+        for (int a = 1; a < count; a++) {
+            int body = order[a];
+            double key = lower[body];
+            int b = a - 1;
+            while (b >= 0 && lower[order[b]] > key) {
+                order[b + 1] = order[b];
+                b--;
+                shifts++;
+            }
+            order[b + 1] = body;
+        }
+        lastShifts = shifts;
+    }
+
+    /**
+     * Sorts order[start, end) by lower bound.
+     */
+    private void mergeSort(int start, int end) {
+        if (end - start < 2) return;
+        int middle = (start + end) >>> 1;
+        mergeSort(start, middle);
+        mergeSort(middle, end);
+        int a = start;
+        int b = middle;
+        int k = start;
+        while (a < middle && b < end) {
+            scratch[k++] = lower[order[b]] < lower[order[a]] ? order[b++] : order[a++];
+        }
+        while (a < middle) scratch[k++] = order[a++];
+        while (b < end) scratch[k++] = order[b++];
+        System.arraycopy(scratch, start, order, start, end - start);
+    }
+
+    /**
+     * Picks the axis along which body positions are most spread out (largest variance).
+     */
+    private static int widestAxis(int count, int dimension, double[] x, double[] y, double[] z) {
+        int best = 0;
+        double bestVariance = -1.0;
+        for (int axis = 0; axis < dimension; axis++) {
+            double[] c = axis == 0 ? x : axis == 1 ? y : z;
+            double sum = 0.0;
+            double sumSq = 0.0;
+            for (int i = 0; i < count; i++) {
+                sum += c[i];
+                sumSq += c[i] * c[i];
+            }
+            double mean = count > 0 ? sum / count : 0.0;
+            double variance = count > 0 ? sumSq / count - mean * mean : 0.0;
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = axis;
+            }
+        }
+        return best;
+    }
+
+    private void ensureCapacity(int count) {
+        if (order.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, order.length * 2);
+        order = new int[capacity];
+        scratch = new int[capacity];
+        lower = new double[capacity];
+        upper = new double[capacity];
+        sortedCount = -1;
+    }
+
+    /**
+     * Gets how many places bodies moved in the last incremental re-sort (0 after a rebuild).
+     */
+    public long getLastShifts() {
+        return lastShifts;
+    }
+
+    @Override
+    public String getName() {
+        return BroadPhaseType.SWEEP_AND_PRUNE.getName();
+    }
+}
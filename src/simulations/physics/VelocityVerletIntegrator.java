@@ -0,0 +1,62 @@
+package simulations.physics;
+
+/**
+ * VelocityVerletIntegrator - Velocity Verlet:
+ * x += v dt + a dt² / 2, then v += (a + a') dt / 2 with a' at the new positions.
+ * The same trajectory as kick-drift-kick leapfrog up to rounding, written in its
+ * position-first form. One force evaluation per step.
+ */
+public class VelocityVerletIntegrator implements Integrator {
+
+    /** Accelerations at the start of the step */
+    private double[] oldX = new double[0];
+    private double[] oldY = new double[0];
+    private double[] oldZ = new double[0];
+
+    @Override
+    public void step(BodyStore bodies, double dt, ForceEvaluator forces) {
+        int count = bodies.size();
+        if (oldX.length < count) {
+            int capacity = Math.max(count, oldX.length * 2);
+            oldX = new double[capacity];
+            oldY = new double[capacity];
+            oldZ = new double[capacity];
+        }
+
+        forces.ensureCurrent();
+        double[] ax = forces.getAccelX(), ay = forces.getAccelY(), az = forces.getAccelZ();
+        double[] x = bodies.x, y = bodies.y, z = bodies.z;
+        double[] vx = bodies.vx, vy = bodies.vy, vz = bodies.vz;
+        boolean[] fixed = bodies.fixed;
+        double halfDtSq = 0.5 * dt * dt;
+
+        for (int i = 0; i < count; i++) {
+            oldX[i] = ax[i];
+            oldY[i] = ay[i];
+            oldZ[i] = az[i];
+            if (fixed[i]) continue;
+            x[i] += vx[i] * dt + ax[i] * halfDtSq;
+            y[i] += vy[i] * dt + ay[i] * halfDtSq;
+            z[i] += vz[i] * dt + az[i] * halfDtSq;
+        }
+
+        forces.evaluate();
+        double halfDt = 0.5 * dt;
+        for (int i = 0; i < count; i++) {
+            if (fixed[i]) continue;
+            vx[i] += (oldX[i] + ax[i]) * halfDt;
+            vy[i] += (oldY[i] + ay[i]) * halfDt;
+            vz[i] += (oldZ[i] + az[i]) * halfDt;
+        }
+    }
+
+    @Override
+    public boolean endsWithForceEvaluation() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return IntegratorType.VELOCITY_VERLET.getName();
+    }
+}
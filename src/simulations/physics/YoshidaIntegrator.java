@@ -0,0 +1,42 @@
+package simulations.physics;
+
+/**
+ * YoshidaIntegrator - Yoshida's 4th-order symplectic integrator.
+ *
+ * A symmetric composition of three leapfrog steps of lengths w1, w0, w1 (times dt) with
+ * w1 = 1 / (2 - 2^(1/3)) and w0 = 1 - 2 w1, written drift-kick-...-drift. The middle
+ * step is negative. It costs three force evaluations per step, so compare it with
+ * second-order schemes at three times their step size.
+ */
+public class YoshidaIntegrator implements Integrator {
+
+    private static final double CBRT2 = Math.cbrt(2.0);
+    private static final double W1 = 1.0 / (2.0 - CBRT2);
+    private static final double W0 = -CBRT2 * W1;
+
+    /** Drift coefficients c1..c4 */
+    private static final double[] DRIFT = {W1 / 2.0, (W0 + W1) / 2.0, (W0 + W1) / 2.0, W1 / 2.0};
+    /** Kick coefficients d1..d3 */
+    private static final double[] KICK = {W1, W0, W1};
+
+    @Override
+    public void step(BodyStore bodies, double dt, ForceEvaluator forces) {
+        int count = bodies.size();
+        for (int k = 0; k < KICK.length; k++) {
+            IntegratorSteps.drift(bodies, count, DRIFT[k] * dt);
+            forces.evaluate();
+            IntegratorSteps.kick(bodies, count, forces, KICK[k] * dt);
+        }
+        IntegratorSteps.drift(bodies, count, DRIFT[3] * dt);
+    }
+
+    @Override
+    public boolean endsWithForceEvaluation() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return IntegratorType.YOSHIDA4.getName();
+    }
+}
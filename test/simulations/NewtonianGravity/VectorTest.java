@@ -0,0 +1,85 @@
+package simulations.NewtonianGravity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class VectorTest {
+
+    @Nested
+    @DisplayName("In-place Vector operations")
+    class InPlace {
+        @Test
+        void addScaledModifiesThisVector() {
+            Vector v = new Vector(new double[]{1.0, 2.0});
+            Vector result = v.addScaled(new Vector(new double[]{3.0, -1.0}), 2.0);
+            assertSame(v, result);
+            assertEquals(7.0, v.get(0));
+            assertEquals(0.0, v.get(1));
+        }
+
+        @Test
+        void addScaledDifferenceAccumulates() {
+            Vector acc = new Vector(new double[]{1.0, 1.0, 1.0});
+            acc.addScaledDifference(new Vector(new double[]{4.0, 2.0, 0.0}),
+                                    new Vector(new double[]{1.0, 1.0, 1.0}), 0.5);
+            assertEquals(2.5, acc.get(0));
+            assertEquals(1.5, acc.get(1));
+            assertEquals(0.5, acc.get(2));
+        }
+
+        @Test
+        void subtractIntoWritesTheOutput() {
+            Vector out = new Vector(2);
+            new Vector(new double[]{5.0, 3.0}).subtractInto(new Vector(new double[]{1.0, 4.0}), out);
+            assertEquals(4.0, out.get(0));
+            assertEquals(-1.0, out.get(1));
+        }
+
+        @Test
+        void distanceSquaredMatchesSubtractMagnitude() {
+            Vector a = new Vector(new double[]{1.0, -2.0, 3.0});
+            Vector b = new Vector(new double[]{-4.0, 0.5, 2.0});
+            double expected = a.subtract(b).magnitude();
+            assertEquals(expected * expected, a.distanceSquared(b), 1e-12);
+        }
+
+        @Test
+        void rejectsMismatchedDimensions() {
+            Vector v = new Vector(2);
+            assertThrows(IllegalArgumentException.class, () -> v.addScaled(new Vector(3), 1.0));
+            assertThrows(IllegalArgumentException.class, () -> v.setTo(new Vector(3)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Fixed-size Vec2 and Vec3")
+    class FixedSize {
+        @Test
+        void vec2Operations() {
+            Vec2 v = new Vec2(1.0, 2.0).addScaled(new Vec2(2.0, 2.0), 0.5).scale(2.0);
+            assertEquals(4.0, v.x);
+            assertEquals(6.0, v.y);
+            assertEquals(52.0, v.magnitudeSquared());
+            assertEquals(25.0, v.distanceSquared(new Vec2(1.0, 2.0)));
+        }
+
+        @Test
+        void vec3CrossAllowsAliasing() {
+            Vec3 a = new Vec3(1.0, 0.0, 0.0);
+            a.setCross(a, new Vec3(0.0, 1.0, 0.0));
+            assertEquals(0.0, a.x);
+            assertEquals(0.0, a.y);
+            assertEquals(1.0, a.z);
+        }
+
+        @Test
+        void vec3Difference() {
+            Vec3 d = new Vec3().setDifference(new Vec3(3.0, 2.0, 1.0), new Vec3(1.0, 1.0, 1.0));
+            assertEquals(5.0, d.dot(new Vec3(2.0, 1.0, 7.0)));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package simulations.physics;
+
+import java.awt.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdvanceTest {
+
+    static PhysicsEngine drifting() {
+        PhysicsEngine engine = new PhysicsEngine(2);
+        engine.setGravitationalConstant(0.0);
+        engine.addPlanet(new Planet(1.0, 1.0, 0.0, 0.0, 6.0, 0.0, 0.0, 0.0, Color.WHITE, null, "p"));
+        return engine;
+    }
+
+    static long step(PhysicsEngine engine) {
+        try (StateSnapshot state = engine.acquireSnapshot()) {
+            return state.getStep();
+        }
+    }
+
+    @Nested
+    @DisplayName("Fast-forward")
+    class FastForward {
+        @Test
+        void runsTheRequestedSteps() {
+            PhysicsEngine engine = drifting();
+            engine.advance(120);
+            assertEquals(120L, step(engine));
+            // Two simulated seconds at 6 units/s
+            assertEquals(12.0, engine.getPlanets().get(0).getPosition().get(0), 1e-9);
+        }
+
+        @Test
+        void durationRoundsUpToWholeSteps() {
+            PhysicsEngine engine = drifting();
+            assertEquals(60L, engine.stepsFor(1.0));
+            assertEquals(61L, engine.stepsFor(1.001));
+            engine.setTimeFactor(2.0);
+            assertEquals(30L, engine.stepsFor(1.0));
+        }
+
+        @Test
+        void rejectsBadRequests() {
+            PhysicsEngine engine = drifting();
+            assertThrows(IllegalArgumentException.class, () -> engine.advance(0));
+            assertThrows(IllegalArgumentException.class, () -> engine.advance(PhysicsEngine.MAX_ADVANCE_STEPS + 1));
+            assertThrows(IllegalArgumentException.class, () -> engine.stepsFor(-1.0));
+            engine.setTimeFactor(0.0);
+            assertThrows(IllegalArgumentException.class, () -> engine.stepsFor(1.0));
+        }
+
+        @Test
+        void outrunsTheBackgroundLoop() {
+            PhysicsEngine engine = drifting();
+            engine.start();
+            try {
+                long before = step(engine);
+                long started = System.nanoTime();
+                engine.advance(6000);
+                double seconds = (System.nanoTime() - started) / 1e9;
+                // 6000 steps are 100 s of wall time at 60 Hz
+                assertTrue(seconds < 10.0);
+                assertTrue(step(engine) >= before + 6000);
+            } finally {
+                engine.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package simulations.physics;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BarnesHutSolverTest {
+
+    static final double G = 6000.0;
+
+    /** Random bodies in a cube (or square in 2D) of side 1000 */
+    static double[][] randomBodies(int count, int dimension, long seed) {
+        Random random = new Random(seed);
+        double[][] bodies = new double[4][count];
+        for (int i = 0; i < count; i++) {
+            bodies[0][i] = random.nextDouble() * 1000.0;
+            bodies[1][i] = random.nextDouble() * 1000.0;
+            bodies[2][i] = dimension == 3 ? random.nextDouble() * 1000.0 : 0.0;
+            bodies[3][i] = 1.0 + random.nextDouble() * 10.0;
+        }
+        return bodies;
+    }
+
+    static double[][] accelerations(ForceSolver solver, double[][] bodies, int dimension) {
+        int count = bodies[0].length;
+        double[][] acc = new double[3][count];
+        solver.computeAccelerations(count, dimension, bodies[0], bodies[1], bodies[2], bodies[3],
+                                    G, acc[0], acc[1], acc[2]);
+        return acc;
+    }
+
+    /** RMS of |a - reference| / |reference| over all bodies */
+    static double rmsRelativeError(double[][] acc, double[][] reference) {
+        double sum = 0.0;
+        int count = acc[0].length;
+        for (int i = 0; i < count; i++) {
+            double ex = acc[0][i] - reference[0][i];
+            double ey = acc[1][i] - reference[1][i];
+            double ez = acc[2][i] - reference[2][i];
+            double ref = reference[0][i] * reference[0][i] + reference[1][i] * reference[1][i]
+                       + reference[2][i] * reference[2][i];
+            sum += (ex * ex + ey * ey + ez * ez) / ref;
+        }
+        return Math.sqrt(sum / count);
+    }
+
+    @Nested
+    @DisplayName("Accuracy against direct summation")
+    class Accuracy {
+        @Test
+        void zeroOpeningAngleIsExact3D() {
+            double[][] bodies = randomBodies(500, 3, 1L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            double[][] tree = accelerations(new BarnesHutSolver(0.0), bodies, 3);
+            assertEquals(0.0, rmsRelativeError(tree, direct), 1e-12);
+        }
+
+        @Test
+        void octreeWithinOnePercent() {
+            double[][] bodies = randomBodies(3000, 3, 2L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            double[][] tree = accelerations(new BarnesHutSolver(0.5), bodies, 3);
+            assertTrue(rmsRelativeError(tree, direct) < 1e-2);
+        }
+
+        @Test
+        void quadtreeWithinOnePercent() {
+            double[][] bodies = randomBodies(3000, 2, 3L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 2);
+            double[][] tree = accelerations(new BarnesHutSolver(0.3), bodies, 2);
+            assertTrue(rmsRelativeError(tree, direct) < 1e-2);
+        }
+
+        @Test
+        void errorShrinksWithOpeningAngle() {
+            double[][] bodies = randomBodies(2000, 3, 4L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            double coarse = rmsRelativeError(accelerations(new BarnesHutSolver(1.0), bodies, 3), direct);
+            double fine = rmsRelativeError(accelerations(new BarnesHutSolver(0.3), bodies, 3), direct);
+            assertTrue(fine < coarse);
+        }
+
+        @Test
+        void coincidentBodiesDoNotBlowUp() {
+            double[][] bodies = new double[4][20];
+            for (int i = 0; i < 20; i++) {
+                bodies[0][i] = 5.0;
+                bodies[1][i] = 5.0;
+                bodies[3][i] = 1.0;
+            }
+            bodies[0][19] = 100.0;
+            double[][] tree = accelerations(new BarnesHutSolver(0.5), bodies, 2);
+            for (int i = 0; i < 20; i++) {
+                assertTrue(Double.isFinite(tree[0][i]));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Tree refit")
+    class Refit {
+        /** Moves every body by up to {@code step} along each axis */
+        void jitter(double[][] bodies, double step, long seed) {
+            Random random = new Random(seed);
+            for (int i = 0; i < bodies[0].length; i++) {
+                bodies[0][i] += (random.nextDouble() - 0.5) * 2.0 * step;
+                bodies[1][i] += (random.nextDouble() - 0.5) * 2.0 * step;
+                bodies[2][i] += (random.nextDouble() - 0.5) * 2.0 * step;
+            }
+        }
+
+        @Test
+        void unmovedBodiesGiveTheBuiltTree() {
+            double[][] bodies = randomBodies(2000, 3, 5L);
+            BarnesHutSolver solver = new BarnesHutSolver(0.5);
+            double[][] built = accelerations(solver, bodies, 3);
+            double[][] refit = accelerations(solver, bodies, 3);
+            assertEquals(1, solver.getRebuildCount());
+            assertEquals(0.0, rmsRelativeError(refit, built), 0.0);
+        }
+
+        @Test
+        void smallMovesRefitAndStayAccurate() {
+            double[][] bodies = randomBodies(3000, 3, 6L);
+            BarnesHutSolver solver = new BarnesHutSolver(0.5);
+            accelerations(solver, bodies, 3);
+            jitter(bodies, 0.05, 7L);
+            double[][] tree = accelerations(solver, bodies, 3);
+            assertEquals(1, solver.getRebuildCount());
+            assertTrue(rmsRelativeError(tree, accelerations(new DirectSumSolver(), bodies, 3)) < 1e-2);
+        }
+
+        @Test
+        void largeMovesRebuild() {
+            double[][] bodies = randomBodies(3000, 3, 8L);
+            BarnesHutSolver solver = new BarnesHutSolver(0.5);
+            accelerations(solver, bodies, 3);
+            jitter(bodies, 50.0, 9L);
+            accelerations(solver, bodies, 3);
+            assertEquals(2, solver.getRebuildCount());
+        }
+
+        @Test
+        void changedBodiesRebuild() {
+            double[][] bodies = randomBodies(500, 2, 10L);
+            BarnesHutSolver solver = new BarnesHutSolver(0.5);
+            accelerations(solver, bodies, 2);
+            solver.bodiesChanged();
+            accelerations(solver, bodies, 2);
+            accelerations(solver, randomBodies(400, 2, 11L), 2);
+            assertEquals(3, solver.getRebuildCount());
+        }
+
+        @Test
+        void multipoleRefitStaysAccurate() {
+            double[][] bodies = randomBodies(3000, 3, 12L);
+            FastMultipoleSolver solver = new FastMultipoleSolver(0.5, 4);
+            accelerations(solver, bodies, 3);
+            jitter(bodies, 0.05, 13L);
+            double[][] fmm = accelerations(solver, bodies, 3);
+            solver.bodiesChanged();
+            double[][] rebuilt = accelerations(solver, bodies, 3);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            assertTrue(rmsRelativeError(fmm, direct) < 2.0 * rmsRelativeError(rebuilt, direct) + 1e-6);
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine settings")
+    class Settings {
+        @Test
+        void directIsDefault() {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            assertEquals("direct", engine.getForceSolver());
+        }
+
+        @Test
+        void selectsSolverByName() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            engine.setForceSolver("barnes-hut");
+            engine.setOpeningAngle(0.7);
+            assertEquals("barnes-hut", engine.getForceSolver());
+            assertEquals(0.7, engine.getOpeningAngle(), 0.0);
+        }
+
+        @Test
+        void rejectsUnknownSolverAndNegativeAngle() {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            assertThrows(IllegalArgumentException.class, () -> engine.setForceSolver("magic"));
+            assertThrows(IllegalArgumentException.class, () -> engine.setOpeningAngle(-1.0));
+        }
+    }
+}
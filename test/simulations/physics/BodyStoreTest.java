@@ -0,0 +1,151 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.PointMass;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BodyStoreTest {
+
+    static Planet planet(double x, double y, double vx, double vy) {
+        return new Planet(1.0, 1.0, x, y, vx, vy, 0.0, 300.0, Color.WHITE, null, "p");
+    }
+
+    @Nested
+    @DisplayName("Planets as handles")
+    class Handles {
+        @Test
+        void planetReadsAndWritesThroughTheStore() {
+            BodyStore store = new BodyStore(2);
+            Planet p = planet(1.0, 2.0, 3.0, 4.0);
+            int index = store.add(p);
+            assertTrue(p.isAttached());
+
+            store.x[index] = 10.0;
+            store.vy[index] = -5.0;
+            assertEquals(10.0, p.getPosition().get(0));
+            assertEquals(-5.0, p.getVelocity().get(1));
+
+            p.setPosition(new Vector(new double[]{7.0, 8.0}));
+            assertEquals(7.0, store.x[index]);
+            assertEquals(8.0, store.y[index]);
+        }
+
+        @Test
+        void removedPlanetsKeepTheirFinalState() {
+            BodyStore store = new BodyStore(2);
+            Planet a = planet(0.0, 0.0, 0.0, 0.0);
+            Planet b = planet(5.0, 0.0, 0.0, 0.0);
+            Planet c = planet(9.0, 0.0, 0.0, 0.0);
+            store.add(a);
+            store.add(b);
+            store.add(c);
+            store.x[1] = 6.0;
+
+            assertTrue(store.remove(b));
+            assertFalse(b.isAttached());
+            assertEquals(6.0, b.getPosition().get(0));
+
+            // Order is kept and the moved planet follows its entry
+            List<Planet> planets = store.getPlanets();
+            assertEquals(2, planets.size());
+            assertSame(a, planets.get(0));
+            assertSame(c, planets.get(1));
+            store.x[1] = 11.0;
+            assertEquals(11.0, c.getPosition().get(0));
+        }
+
+        @Test
+        void reorderingKeepsHandlesAndIds() {
+            BodyStore store = new BodyStore(2);
+            Planet a = planet(0.0, 0.0, 0.0, 0.0);
+            Planet b = planet(5.0, 0.0, 1.0, 0.0);
+            Planet c = planet(9.0, 0.0, 0.0, 0.0);
+            store.add(a);
+            store.add(b);
+            store.add(c);
+            long version = store.version;
+            long layoutVersion = store.layoutVersion;
+
+            store.reorder(new int[]{2, 0, 1});
+            assertSame(c, store.getPlanet(0));
+            assertSame(b, store.getPlanet(2));
+            assertEquals(1L, store.getId(2));
+            assertEquals(2, store.indexOf(1L));
+            assertEquals(1.0, store.vx[2]);
+            assertEquals(version, store.version);
+            assertTrue(store.layoutVersion > layoutVersion);
+
+            // Handles follow their entries to the new indices
+            store.x[2] = 6.0;
+            assertEquals(6.0, b.getPosition().get(0));
+            store.remove(a);
+            assertEquals(-1, store.indexOf(0L));
+            assertEquals(3L, store.getId(store.add(planet(1.0, 1.0, 0.0, 0.0))));
+        }
+
+        @Test
+        void rejectsMismatchedOrAttachedPlanets() {
+            BodyStore store = new BodyStore(3);
+            assertThrows(IllegalArgumentException.class, () -> store.add(planet(0.0, 0.0, 0.0, 0.0)));
+
+            BodyStore other = new BodyStore(2);
+            Planet p = planet(0.0, 0.0, 0.0, 0.0);
+            other.add(p);
+            assertThrows(IllegalArgumentException.class, () -> other.add(p));
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine stepping on the store")
+    class Engine {
+        @Test
+        void handlesSeeEngineUpdates() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            Planet p = planet(0.0, 0.0, 60.0, 0.0);
+            engine.addPlanet(p);
+            engine.update(1.0 / 60.0);
+            assertEquals(1.0, p.getPosition().get(0), 1e-12);
+            assertEquals(1.0, engine.getPlanets().get(0).getPosition().get(0), 1e-12);
+        }
+
+        @Test
+        void pointMassesStayPut() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            PointMass sun = new PointMass(1000.0, 5.0, 0.0, 0.0, 0.0, 5000.0, Color.YELLOW, null, "sun");
+            Planet p = planet(100.0, 0.0, 0.0, 0.0);
+            engine.addPlanet(sun);
+            engine.addPlanet(p);
+            for (int i = 0; i < 10; i++) {
+                engine.update(1.0 / 60.0);
+            }
+            assertEquals(0.0, sun.getPosition().get(0));
+            assertTrue(p.getPosition().get(0) < 100.0);
+        }
+
+        @Test
+        void mergingReplacesBothPlanets() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            Planet a = planet(0.0, 0.0, 0.0, 0.0);
+            Planet b = planet(1.0, 0.0, 0.0, 0.0);
+            engine.addPlanet(a);
+            engine.addPlanet(b);
+            engine.update(1.0 / 60.0);
+
+            List<Planet> planets = engine.getPlanets();
+            assertEquals(1, planets.size());
+            assertEquals(2.0, planets.get(0).getMass());
+            assertFalse(a.isAttached());
+            assertFalse(b.isAttached());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BroadPhaseTest {
+
+    /**
+     * Random bodies in a cube (or square in 2D) of side 1000: x, y, z, radius.
+     * Most radii are 1 - 5; every 50th body is 20 - 100 times larger, like the
+     * products of a few merges.
+     */
+    static double[][] unevenBodies(int count, int dimension, long seed) {
+        Random random = new Random(seed);
+        double[][] bodies = new double[4][count];
+        for (int i = 0; i < count; i++) {
+            bodies[0][i] = random.nextDouble() * 1000.0;
+            bodies[1][i] = random.nextDouble() * 1000.0;
+            bodies[2][i] = dimension == 3 ? random.nextDouble() * 1000.0 : 0.0;
+            bodies[3][i] = 1.0 + random.nextDouble() * 4.0;
+            if (i % 50 == 0) {
+                bodies[3][i] *= 20.0 + random.nextDouble() * 80.0;
+            }
+        }
+        return bodies;
+    }
+
+    /** The overlapping pairs a broad-phase finds, sorted, as packed longs */
+    static long[] overlaps(BroadPhase broadPhase, double[][] bodies, int dimension) {
+        CollisionPairs pairs = new CollisionPairs();
+        int count = bodies[0].length;
+        broadPhase.findOverlaps(count, dimension, bodies[0], bodies[1], bodies[2], bodies[3], pairs);
+        pairs.sort();
+        long[] packed = new long[pairs.size()];
+        for (int k = 0; k < pairs.size(); k++) {
+            assertTrue(pairs.first(k) < pairs.second(k));
+            packed[k] = ((long) pairs.first(k) << 32) | pairs.second(k);
+        }
+        return packed;
+    }
+
+    @Nested
+    @DisplayName("Same pairs as testing every pair")
+    class Equivalence {
+        @Test
+        void hashMatchesAllPairs3D() {
+            double[][] bodies = unevenBodies(3000, 3, 1L);
+            long[] expected = overlaps(new AllPairsBroadPhase(), bodies, 3);
+            assertTrue(expected.length > 50, "only " + expected.length + " overlaps");
+            assertArrayEquals(expected, overlaps(new SpatialHashBroadPhase(), bodies, 3));
+        }
+
+        @Test
+        void hashMatchesAllPairs2D() {
+            double[][] bodies = unevenBodies(2000, 2, 2L);
+            long[] expected = overlaps(new AllPairsBroadPhase(), bodies, 2);
+            assertTrue(expected.length > 50, "only " + expected.length + " overlaps");
+            assertArrayEquals(expected, overlaps(new SpatialHashBroadPhase(), bodies, 2));
+        }
+
+        @Test
+        void sweepMatchesAllPairs() {
+            for (int dimension = 2; dimension <= 3; dimension++) {
+                double[][] bodies = unevenBodies(2000, dimension, 4L);
+                assertArrayEquals(overlaps(new AllPairsBroadPhase(), bodies, dimension),
+                                  overlaps(new SweepAndPruneBroadPhase(), bodies, dimension));
+            }
+        }
+
+        @Test
+        void sweepStaysCorrectAsBodiesMove() {
+            double[][] bodies = unevenBodies(1000, 3, 5L);
+            Random random = new Random(6L);
+            SweepAndPruneBroadPhase sweep = new SweepAndPruneBroadPhase();
+            overlaps(sweep, bodies, 3);
+            for (int step = 0; step < 20; step++) {
+                for (int i = 0; i < 1000; i++) {
+                    bodies[0][i] += random.nextGaussian() * 2.0;
+                    bodies[1][i] += random.nextGaussian() * 2.0;
+                    bodies[2][i] += random.nextGaussian() * 2.0;
+                }
+                assertArrayEquals(overlaps(new AllPairsBroadPhase(), bodies, 3), overlaps(sweep, bodies, 3));
+            }
+            // Small moves only need local repairs
+            assertTrue(sweep.getLastShifts() < 10 * 1000, "shifts " + sweep.getLastShifts());
+        }
+
+        @Test
+        void sweepRebuildsAfterBodiesAreReordered() {
+            double[][] bodies = unevenBodies(1000, 3, 7L);
+            SweepAndPruneBroadPhase sweep = new SweepAndPruneBroadPhase();
+            overlaps(sweep, bodies, 3);
+            // Reverse the bodies, as a reorder would permute them
+            for (double[] column : bodies) {
+                for (int i = 0, j = column.length - 1; i < j; i++, j--) {
+                    double t = column[i];
+                    column[i] = column[j];
+                    column[j] = t;
+                }
+            }
+            sweep.bodiesChanged();
+            assertArrayEquals(overlaps(new AllPairsBroadPhase(), bodies, 3), overlaps(sweep, bodies, 3));
+            assertEquals(0, sweep.getLastShifts());
+        }
+
+        @Test
+        void handlesNegativeCoordinatesAndCellEdges() {
+            // Bodies straddling cell boundaries on both sides of the origin
+            double[][] bodies = {
+                {-1.5, -0.5, 0.5, 1.5, 3.9, 4.1, -4.0},
+                {0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0},
+                {0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0},
+                {0.6, 0.6, 0.6, 0.6, 1.0, 1.0, 1.0},
+            };
+            assertArrayEquals(overlaps(new AllPairsBroadPhase(), bodies, 2),
+                              overlaps(new SpatialHashBroadPhase(), bodies, 2));
+            assertArrayEquals(overlaps(new AllPairsBroadPhase(), bodies, 2),
+                              overlaps(new SweepAndPruneBroadPhase(), bodies, 2));
+        }
+
+        @Test
+        void zeroRadiiNeverOverlap() {
+            double[][] bodies = {{1.0, 1.0, 2.0}, {0.0, 0.0, 0.0}, {0.0, 0.0, 0.0}, {0.0, 0.0, 0.0}};
+            assertEquals(0, overlaps(new SpatialHashBroadPhase(), bodies, 3).length);
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine collisions")
+    class EngineCollisions {
+        /** A crowded 3D swarm that merges heavily during the first steps */
+        PhysicsEngine swarm(String broadPhase) {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            engine.setBroadPhase(broadPhase);
+            double[][] bodies = unevenBodies(400, 3, 3L);
+            for (int i = 0; i < 400; i++) {
+                Vector pos = new Vector(new double[]{bodies[0][i] * 0.3, bodies[1][i] * 0.3, bodies[2][i] * 0.3});
+                engine.addPlanet(new Planet(3, 1.0, bodies[3][i], pos, new Vector(3), 0.0, 0.0,
+                                            Color.WHITE, null, "b" + i));
+            }
+            return engine;
+        }
+
+        @Test
+        void mergesMatchAllPairs() {
+            for (String name : new String[]{"hash", "sweep"}) {
+                PhysicsEngine reference = swarm("all-pairs");
+                PhysicsEngine engine = swarm(name);
+                for (int step = 0; step < 30; step++) {
+                    reference.update(1.0 / 60.0);
+                    engine.update(1.0 / 60.0);
+                }
+                assertTrue(reference.getPlanets().size() < 300, "only merged down to " + reference.getPlanets().size());
+                assertEquals(reference.getPlanets().size(), engine.getPlanets().size(), name);
+                for (int i = 0; i < reference.getPlanets().size(); i++) {
+                    Planet a = reference.getPlanets().get(i);
+                    Planet b = engine.getPlanets().get(i);
+                    assertEquals(a.getMass(), b.getMass(), 0.0, name);
+                    assertEquals(a.getPosition().get(0), b.getPosition().get(0), 0.0, name);
+                }
+            }
+        }
+
+        @Test
+        void bouncesMatchAllPairs() {
+            PhysicsEngine reference = swarm("all-pairs");
+            PhysicsEngine engine = swarm("sweep");
+            reference.setBounce(true);
+            engine.setBounce(true);
+            for (int step = 0; step < 30; step++) {
+                reference.update(1.0 / 60.0);
+                engine.update(1.0 / 60.0);
+            }
+            assertEquals(400, engine.getPlanets().size());
+            for (int i = 0; i < 400; i++) {
+                assertEquals(reference.getPlanets().get(i).getVelocity().get(0),
+                             engine.getPlanets().get(i).getVelocity().get(0), 0.0);
+            }
+        }
+
+        @Test
+        void rejectsUnknownBroadPhases() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            assertEquals("hash", engine.getBroadPhase());
+            assertThrows(IllegalArgumentException.class, () -> engine.setBroadPhase("octree"));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package simulations.physics;
+
+import java.awt.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.PointMass;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContinuousCollisionTest {
+
+    /** Two bodies heading at each other fast enough to pass through in one 1/60 step */
+    static PhysicsEngine headOn(boolean continuous) {
+        PhysicsEngine engine = new PhysicsEngine(2);
+        engine.setGravitationalConstant(0.0);
+        engine.setContinuousCollisions(continuous);
+        engine.addPlanet(new Planet(1.0, 1.0, -12.0, 0.0, 1200.0, 0.0, 0.0, 0.0, Color.WHITE, null, "a"));
+        engine.addPlanet(new Planet(1.0, 1.0, 12.0, 0.0, -1200.0, 0.0, 0.0, 0.0, Color.WHITE, null, "b"));
+        return engine;
+    }
+
+    /**
+     * Twenty projectiles crossing a row of targets, one target per lane, with no
+     * gravity. Returns how many projectiles merged with their target.
+     */
+    static int shootingGallery(boolean continuous, double timeFactor, int steps) {
+        PhysicsEngine engine = new PhysicsEngine(2);
+        engine.setGravitationalConstant(0.0);
+        engine.setContinuousCollisions(continuous);
+        engine.setTimeFactor(timeFactor);
+        for (int lane = 0; lane < 20; lane++) {
+            double y = 10.0 * lane;
+            engine.addPlanet(new Planet(1.0, 0.5, 0.0, y, 600.0, 0.0, 0.0, 0.0, Color.WHITE, null, "shot" + lane));
+            engine.addPlanet(new Planet(1.0, 1.0, 100.0 + 17.0 * lane, y, 0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "target" + lane));
+        }
+        for (int s = 0; s < steps; s++) {
+            engine.update(1.0 / 60.0);
+        }
+        return 40 - engine.getPlanets().size();
+    }
+
+    @Nested
+    @DisplayName("Tunnelling")
+    class Tunnelling {
+        @Test
+        void discreteChecksMissFastBodies() {
+            PhysicsEngine engine = headOn(false);
+            engine.update(1.0 / 60.0);
+            engine.update(1.0 / 60.0);
+            assertEquals(2, engine.getPlanets().size());
+        }
+
+        @Test
+        void fastBodiesMergeWhereTheyMeet() {
+            PhysicsEngine engine = headOn(true);
+            engine.update(1.0 / 60.0);
+            assertEquals(1, engine.getPlanets().size());
+            Planet merged = engine.getPlanets().get(0);
+            assertEquals(2.0, merged.getMass(), 0.0);
+            assertEquals(0.0, merged.getPosition().get(0), 1e-9);
+            assertEquals(0.0, merged.getVelocity().get(0), 1e-9);
+        }
+
+        @Test
+        void bounceHappensAtTheTimeOfImpact() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            engine.setGravitationalConstant(0.0);
+            engine.setContinuousCollisions(true);
+            engine.setBounce(true);
+            engine.addPlanet(new PointMass(1.0, 1.0, 0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "wall"));
+            Planet ball = new Planet(1.0, 1.0, -12.0, 0.0, 1200.0, 0.0, 0.0, 0.0, Color.WHITE, null, "ball");
+            engine.addPlanet(ball);
+            engine.update(1.0 / 60.0);
+            // Touches at x = -2 halfway through the step, then travels back for the other half
+            assertEquals(-1200.0, ball.getVelocity().get(0), 1e-9);
+            assertEquals(-12.0, ball.getPosition().get(0), 1e-9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Larger time steps")
+    class LargerSteps {
+        @Test
+        void thirtyTimesLongerStepsFindEveryHit() {
+            // 1/60 steps at 600 units/s move 10 units, more than the 3-unit overlap window
+            assertEquals(20, shootingGallery(false, 0.1, 600));
+            assertTrue(shootingGallery(false, 3.0, 20) < 20);
+            assertEquals(20, shootingGallery(true, 3.0, 20));
+            assertEquals(20, shootingGallery(true, 30.0, 2));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package simulations.physics;
+
+import java.util.Random;
+
+/**
+ * DirectSumBenchmark - Times the scalar and SIMD direct-sum kernels at several N,
+ * in double precision and in float with double accumulation ("mixed").
+ *
+ * Not a unit test. Run after a Maven build on JDK 17+:
+ *   java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *        simulations.physics.DirectSumBenchmark [N ...]
+ */
+public class DirectSumBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1000, 2000, 5000, 10000, 20000};
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ForceSolver vector = SimdSupport.createVectorSolver();
+        if (vector == null) {
+            System.out.println("SIMD kernel unavailable (needs the simd/ classes and --add-modules jdk.incubator.vector)");
+        }
+        ForceSolver scalar = new DirectSumSolver();
+        FloatDirectSumSolver scalarFloat = new FloatDirectSumSolver();
+        scalarFloat.setDoubleAccumulation(true);
+        FloatDirectSumSolver vectorFloat = SimdSupport.createVectorFloatSolver();
+        if (vectorFloat != null) {
+            vectorFloat.setDoubleAccumulation(true);
+        }
+
+        System.out.printf("%8s %12s %12s %12s %12s%n", "N", "scalar ms", "simd ms", "mixed ms", "simd mixed");
+        for (int n : sizes) {
+            double[][] bodies = BarnesHutSolverTest.randomBodies(n, 3, n);
+            System.out.printf("%8d %12s %12s %12s %12s%n", n, format(time(scalar, bodies)),
+                              vector == null ? "-" : format(time(vector, bodies)),
+                              format(time(scalarFloat, bodies)),
+                              vectorFloat == null ? "-" : format(time(vectorFloat, bodies)));
+        }
+    }
+
+    private static String format(double ms) {
+        return String.format("%.2f", ms);
+    }
+
+    /** Best of several timed runs after warm-up, in milliseconds */
+    private static double time(ForceSolver solver, double[][] bodies) {
+        int n = bodies[0].length;
+        double[] ax = new double[n];
+        double[] ay = new double[n];
+        double[] az = new double[n];
+        // Aim for about the same pair count per measurement at every N
+        int repeats = Math.max(1, (int) (4e8 / ((double) n * n)));
+        for (int warm = 0; warm < 3; warm++) {
+            solver.computeAccelerations(n, 3, bodies[0], bodies[1], bodies[2], bodies[3], 1.0, ax, ay, az);
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                solver.computeAccelerations(n, 3, bodies[0], bodies[1], bodies[2], bodies[3], 1.0, ax, ay, az);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1e6 / repeats);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,94 @@
+package simulations.physics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static simulations.physics.BarnesHutSolverTest.accelerations;
+import static simulations.physics.BarnesHutSolverTest.randomBodies;
+import static simulations.physics.BarnesHutSolverTest.rmsRelativeError;
+
+public class DirectSumSolverTest {
+
+    /** Per-body reference sums, independent of the tiled kernel */
+    static double[][] perBodyAccelerations(double[][] bodies) {
+        int count = bodies[0].length;
+        double[][] acc = new double[3][count];
+        DirectSumSolver solver = new DirectSumSolver();
+        for (int i = 0; i < count; i++) {
+            solver.computeAcceleration(i, count, bodies[0], bodies[1], bodies[2], bodies[3],
+                                       BarnesHutSolverTest.G, acc[0], acc[1], acc[2], i);
+        }
+        return acc;
+    }
+
+    @Nested
+    @DisplayName("Symmetric tiled kernel")
+    class Tiled {
+        @Test
+        void matchesPerBodySumsAcrossTileCounts() {
+            // One partial tile, an odd tile count (dummy slot) and an even one
+            int[] counts = {100, 3 * DirectSumSolver.TILE_SIZE + 17, 4 * DirectSumSolver.TILE_SIZE};
+            for (int count : counts) {
+                double[][] bodies = randomBodies(count, 3, count);
+                double error = rmsRelativeError(accelerations(new DirectSumSolver(), bodies, 3),
+                                                perBodyAccelerations(bodies));
+                assertTrue(error < 1e-12, count + " bodies: error " + error);
+            }
+        }
+
+        @Test
+        void conservesMomentum() {
+            double[][] bodies = randomBodies(1000, 3, 31L);
+            double[][] acc = accelerations(new DirectSumSolver(), bodies, 3);
+            double px = 0.0;
+            double scale = 0.0;
+            for (int i = 0; i < 1000; i++) {
+                px += bodies[3][i] * acc[0][i];
+                scale += Math.abs(bodies[3][i] * acc[0][i]);
+            }
+            assertEquals(0.0, px, scale * 1e-12);
+        }
+
+        @Test
+        void skipsCoincidentBodies() {
+            double[][] bodies = {{0.0, 0.0, 3.0}, {0.0, 0.0, 4.0}, {0.0, 0.0, 0.0}, {1.0, 1.0, 1.0}};
+            double[][] acc = accelerations(new DirectSumSolver(), bodies, 2);
+            assertEquals(acc[0][0], acc[0][1]);
+            assertEquals(BarnesHutSolverTest.G * 3.0 / 125.0, acc[0][0], 1e-9);
+            assertEquals(-BarnesHutSolverTest.G * 6.0 / 125.0, acc[0][2], 1e-9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Optional SIMD kernel")
+    class Simd {
+        @Test
+        void matchesScalarWhenAvailable() {
+            ForceSolver vector = SimdSupport.createVectorSolver();
+            if (vector == null) return; // JVM without the Vector API - nothing to compare
+
+            // Not a multiple of any lane count, so the scalar tail runs too
+            double[][] bodies = randomBodies(1001, 3, 32L);
+            bodies[0][7] = bodies[0][8];
+            bodies[1][7] = bodies[1][8];
+            bodies[2][7] = bodies[2][8];
+            double error = rmsRelativeError(accelerations(vector, bodies, 3), perBodyAccelerations(bodies));
+            assertTrue(error < 1e-12, "error " + error);
+        }
+
+        @Test
+        void engineFallsBackToScalar() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            engine.setSimd(true);
+            assertTrue(engine.isSimd());
+            engine.addPlanet(BodyStoreTest.planet(0.0, 0.0, 0.0, 0.0));
+            engine.addPlanet(BodyStoreTest.planet(100.0, 0.0, 0.0, 0.0));
+            engine.update(1.0 / 60.0);
+            // Either kernel gives the same exact answer
+            assertEquals(6000.0 / 10000.0 / 60.0, engine.getPlanets().get(0).getVelocity().get(0), 1e-12);
+            assertEquals("direct", engine.getLastSolverUsed());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static simulations.physics.BarnesHutSolverTest.accelerations;
+import static simulations.physics.BarnesHutSolverTest.randomBodies;
+import static simulations.physics.BarnesHutSolverTest.rmsRelativeError;
+
+public class DistributedSolverTest {
+
+    @Nested
+    @DisplayName("Local worker processes")
+    class Workers {
+        private DistributedSolver solver;
+
+        @BeforeEach
+        void launch() throws IOException {
+            solver = DistributedSolver.launchLocal(3, 0.5);
+        }
+
+        @AfterEach
+        void close() {
+            solver.close();
+        }
+
+        @Test
+        void matchesDirectSummation() {
+            double[][] bodies = randomBodies(3000, 3, 41L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            assertEquals(3, solver.getWorkerCount());
+            assertTrue(rmsRelativeError(accelerations(solver, bodies, 3), direct) < 1e-2);
+            // Far cells go out as pseudo-bodies, so no worker gets a copy of everything
+            assertTrue(solver.getLastSourceCount() < 3 * 3000);
+        }
+
+        @Test
+        void zeroOpeningAngleIsExact() {
+            double[][] bodies = randomBodies(400, 2, 42L);
+            solver.setOpeningAngle(0.0);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 2);
+            assertEquals(0.0, rmsRelativeError(accelerations(solver, bodies, 2), direct), 1e-12);
+        }
+
+        @Test
+        void clusteredBodiesStayAccurate() {
+            double[][] bodies = ParallelForceTest.centralCluster(3000, 43L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            assertTrue(rmsRelativeError(accelerations(solver, bodies, 3), direct) < 1e-2);
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine")
+    class Engine {
+        PhysicsEngine engine(String solver) {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            engine.setForceSolver(solver);
+            engine.setIntegrator("leapfrog");
+            double[][] bodies = randomBodies(300, 3, 44L);
+            for (int i = 0; i < 300; i++) {
+                Vector pos = new Vector(new double[]{bodies[0][i], bodies[1][i], bodies[2][i]});
+                engine.addPlanet(new Planet(3, bodies[3][i], 0.1, pos, new Vector(3), 0.0, 0.0, Color.WHITE, null, "p" + i));
+            }
+            return engine;
+        }
+
+        /** Steps both engines together until the distributed one has its workers */
+        void stepUntilConnected(PhysicsEngine local, PhysicsEngine distributed, int workers) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (distributed.getConnectedWorkers() < workers && System.nanoTime() < deadline) {
+                local.update(1.0 / 60.0);
+                distributed.update(1.0 / 60.0);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        @Test
+        void runsOnLocalWorkers() {
+            PhysicsEngine local = engine("barnes-hut");
+            PhysicsEngine distributed = engine("distributed");
+            distributed.setWorkers(2);
+            try {
+                // Workers launch in the background; until then the step runs locally
+                stepUntilConnected(local, distributed, 2);
+                for (int step = 0; step < 5; step++) {
+                    local.update(1.0 / 60.0);
+                    distributed.update(1.0 / 60.0);
+                }
+                assertEquals(2, distributed.getConnectedWorkers());
+                assertEquals("distributed", distributed.getLastSolverUsed());
+                for (int i = 0; i < 300; i += 37) {
+                    Planet expected = local.getPlanets().get(i);
+                    Planet actual = distributed.getPlanets().get(i);
+                    assertEquals(expected.getPosition().get(0), actual.getPosition().get(0), 1e-3);
+                }
+            } finally {
+                distributed.stop();
+            }
+            assertEquals(0, distributed.getConnectedWorkers());
+        }
+
+        @Test
+        void unreachableWorkersFallBackToBarnesHut() throws IOException {
+            int port;
+            try (ServerSocketChannel closed = ServerSocketChannel.open()) {
+                closed.bind(new InetSocketAddress("127.0.0.1", 0));
+                port = ((InetSocketAddress) closed.getLocalAddress()).getPort();
+            }
+            PhysicsEngine engine = engine("distributed");
+            engine.setWorkerAddresses("127.0.0.1:" + port);
+            for (int step = 0; step < 5; step++) {
+                engine.update(1.0 / 60.0);
+            }
+            assertEquals(0, engine.getConnectedWorkers());
+            assertEquals("barnes-hut", engine.getLastSolverUsed());
+            assertThrows(IOException.class, () -> DistributedSolver.connect(
+                Collections.singletonList(new InetSocketAddress("127.0.0.1", port)), 0.5));
+        }
+
+        @Test
+        void rejectsBadWorkerSettings() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            assertThrows(IllegalArgumentException.class, () -> engine.setWorkers(-1));
+            assertThrows(IllegalArgumentException.class, () -> engine.setWorkerAddresses("localhost"));
+            assertThrows(IllegalArgumentException.class, () -> engine.setWorkerAddresses("localhost:99999"));
+            engine.setWorkerAddresses(" 10.0.0.2:7000, worker:7001 ");
+            assertEquals("10.0.0.2:7000,worker:7001", engine.getWorkerAddresses());
+        }
+
+        @Test
+        void workerLaunchDoesNotHoldTheEngine() throws InterruptedException {
+            PhysicsEngine engine = engine("distributed");
+            engine.setWorkers(1);
+            try {
+                long start = System.nanoTime();
+                engine.update(1.0 / 60.0);
+                engine.setOpeningAngle(0.4);
+                engine.update(1.0 / 60.0);
+                // Starting a worker JVM takes far longer than two small steps
+                assertEquals(0, engine.getConnectedWorkers());
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            } finally {
+                engine.stop();
+            }
+            Thread.sleep(100);
+            assertEquals(0, engine.getConnectedWorkers());
+        }
+
+        @Test
+        void rejectsMalformedRequests() throws Exception {
+            Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), ForceWorker.class.getName(), "0").start();
+            try {
+                String ready = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+                int port = Integer.parseInt(ready.substring(ready.lastIndexOf(':') + 1));
+                try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port))) {
+                    ByteBuffer header = ByteBuffer.allocate(ForceWorker.HEADER_BYTES);
+                    header.putInt(ForceWorker.STEP).putInt(3).putDouble(1.0).putDouble(0.5)
+                          .putInt(1).putInt(Integer.MAX_VALUE).flip();
+                    channel.write(header);
+                    // The worker drops the connection instead of allocating
+                    assertEquals(-1, channel.read(ByteBuffer.allocate(8)));
+                }
+                // and keeps serving
+                try (DistributedSolver solver = DistributedSolver.connect(
+                         Collections.singletonList(new InetSocketAddress("127.0.0.1", port)), 0.5)) {
+                    double[][] bodies = randomBodies(200, 3, 45L);
+                    double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+                    assertTrue(rmsRelativeError(accelerations(solver, bodies, 3), direct) < 1e-2);
+                }
+            } finally {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.PointMass;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EnsembleEngineTest {
+
+    /** A star with light planets (2D) on roughly circular orbits, far enough apart not to collide */
+    static PhysicsEngine planetarySystem(int planets) {
+        PhysicsEngine engine = new PhysicsEngine(2);
+        engine.setGravitationalConstant(1.0);
+        engine.setIntegrator("leapfrog");
+        engine.addPlanet(new PointMass(1000.0, 5.0, 0.0, 0.0, 0.0, 0.0, Color.YELLOW, null, "star"));
+        Random random = new Random(3L);
+        for (int i = 0; i < planets; i++) {
+            double r = 100.0 + 40.0 * i;
+            double angle = random.nextDouble() * 2.0 * Math.PI;
+            double speed = Math.sqrt(1000.0 / r);
+            engine.addPlanet(new Planet(0.01, 1.0, r * Math.cos(angle), r * Math.sin(angle),
+                                        -speed * Math.sin(angle), speed * Math.cos(angle), 0.0, 300.0, Color.WHITE, null, "p" + i));
+        }
+        return engine;
+    }
+
+    static EnsembleEngine ensemble(PhysicsEngine engine, int members, double spread) {
+        try (StateSnapshot state = engine.acquireSnapshot()) {
+            EnsembleEngine ensemble = new EnsembleEngine(state, members, spread, 0.0, 7L);
+            ensemble.setGravitationalConstant(engine.getGravitationalConstant());
+            return ensemble;
+        }
+    }
+
+    @Nested
+    @DisplayName("Stepping")
+    class Stepping {
+        @Test
+        void unperturbedMemberFollowsTheEngine() {
+            PhysicsEngine engine = planetarySystem(5);
+            EnsembleEngine ensemble = ensemble(engine, 16, 0.5);
+            for (int s = 0; s < 600; s++) {
+                engine.update(1.0 / 60.0);
+            }
+            ensemble.advance(600, 1.0 / 60.0);
+            for (int i = 0; i < 6; i++) {
+                Vector pos = engine.getPlanets().get(i).getPosition();
+                assertEquals(pos.get(0), ensemble.x[i * 16], 1e-9);
+                assertEquals(pos.get(1), ensemble.y[i * 16], 1e-9);
+            }
+        }
+
+        @Test
+        void membersDiverge() {
+            EnsembleEngine ensemble = ensemble(planetarySystem(5), 4, 0.5);
+            ensemble.advance(60, 1.0 / 60.0);
+            assertNotEquals(ensemble.x[4], ensemble.x[5]);
+        }
+
+        @Test
+        void threadCountDoesNotChangeResults() {
+            PhysicsEngine engine = planetarySystem(6);
+            EnsembleEngine serial = ensemble(engine, 64, 2.0);
+            EnsembleEngine parallel = ensemble(engine, 64, 2.0);
+            parallel.setParallelism(4);
+            try {
+                serial.advance(200, 1.0 / 60.0);
+                parallel.advance(200, 1.0 / 60.0);
+                for (int s = 0; s < serial.x.length; s++) {
+                    assertEquals(serial.x[s], parallel.x[s], 0.0);
+                    assertEquals(serial.vy[s], parallel.vy[s], 0.0);
+                }
+            } finally {
+                parallel.close();
+            }
+        }
+
+        @Test
+        void energyErrorStaysSmall() {
+            EnsembleEngine ensemble = ensemble(planetarySystem(5), 8, 0.5);
+            ensemble.advance(1200, 1.0 / 60.0);
+            for (EnsembleEngine.MemberSummary summary : ensemble.getSummaries()) {
+                assertEquals(0, summary.getMerges());
+                assertTrue(summary.getEnergyError() < 1e-4);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Summaries")
+    class Summaries {
+        @Test
+        void countsMergesAndEjections() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            engine.setGravitationalConstant(1.0);
+            engine.addPlanet(new Planet(1.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "a"));
+            engine.addPlanet(new Planet(1.0, 1.0, 5.0, 0.0, -30.0, 0.0, 0.0, 0.0, Color.WHITE, null, "b"));
+            engine.addPlanet(new Planet(1.0, 1.0, 0.0, 50.0, 0.0, 40.0, 0.0, 0.0, Color.WHITE, null, "runaway"));
+            EnsembleEngine ensemble = ensemble(engine, 3, 0.0);
+            ensemble.setEjectionDistance(100.0);
+            ensemble.advance(300, 1.0 / 60.0);
+
+            for (EnsembleEngine.MemberSummary summary : ensemble.getSummaries()) {
+                assertEquals(1, summary.getMerges());
+                assertEquals(2, summary.getBodies());
+                assertEquals(1, summary.getEjections());
+            }
+        }
+
+        @Test
+        void pointMassAbsorbsAndStays() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            engine.setGravitationalConstant(0.0);
+            engine.addPlanet(new Planet(1.0, 1.0, 5.0, 0.0, -60.0, 0.0, 0.0, 0.0, Color.WHITE, null, "a"));
+            engine.addPlanet(new PointMass(10.0, 1.0, 0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "sun"));
+            EnsembleEngine ensemble = ensemble(engine, 2, 0.0);
+            ensemble.advance(10, 1.0 / 60.0);
+            assertEquals(1, ensemble.getSummary(1).getBodies());
+            // Slot of the sun, member 1
+            assertEquals(11.0, ensemble.mass[1 * 2 + 1], 0.0);
+            assertEquals(0.0, ensemble.x[1 * 2 + 1], 0.0);
+        }
+
+        @Test
+        void rejectsBadSettings() {
+            PhysicsEngine engine = planetarySystem(1);
+            try (StateSnapshot state = engine.acquireSnapshot()) {
+                assertThrows(IllegalArgumentException.class, () -> new EnsembleEngine(state, 0, 0.0, 0.0, 1L));
+                assertThrows(IllegalArgumentException.class, () -> new EnsembleEngine(state, 2, -1.0, 0.0, 1L));
+            }
+            assertThrows(IllegalArgumentException.class, () -> ensemble(engine, 2, 0.0).getSummary(2));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static simulations.physics.BarnesHutSolverTest.accelerations;
+import static simulations.physics.BarnesHutSolverTest.randomBodies;
+import static simulations.physics.BarnesHutSolverTest.rmsRelativeError;
+
+public class FastMultipoleSolverTest {
+
+    @Nested
+    @DisplayName("Accuracy against direct summation")
+    class Accuracy {
+        @Test
+        void errorFallsWithExpansionOrder3D() {
+            double[][] bodies = randomBodies(4000, 3, 5L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            double previous = Double.POSITIVE_INFINITY;
+            for (int order = 0; order <= 6; order += 2) {
+                double error = rmsRelativeError(accelerations(new FastMultipoleSolver(0.5, order), bodies, 3), direct);
+                assertTrue(error < previous, "order " + order + " should beat the previous order");
+                previous = error;
+            }
+            assertTrue(previous < 1e-4);
+        }
+
+        @Test
+        void worksIn2D() {
+            double[][] bodies = randomBodies(4000, 2, 6L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 2);
+            double error = rmsRelativeError(accelerations(new FastMultipoleSolver(0.5, 6), bodies, 2), direct);
+            assertTrue(error < 1e-3);
+        }
+
+        @Test
+        void zeroOpeningAngleIsExact() {
+            double[][] bodies = randomBodies(500, 3, 7L);
+            double[][] direct = accelerations(new DirectSumSolver(), bodies, 3);
+            double[][] fmm = accelerations(new FastMultipoleSolver(0.0, 2), bodies, 3);
+            assertEquals(0.0, rmsRelativeError(fmm, direct), 1e-12);
+        }
+
+        @Test
+        void rejectsOutOfRangeOrder() {
+            assertThrows(IllegalArgumentException.class, () -> new FastMultipoleSolver(0.5, -1));
+            assertThrows(IllegalArgumentException.class,
+                    () -> new FastMultipoleSolver(0.5, FastMultipoleSolver.MAX_ORDER + 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine diagnostics")
+    class Diagnostics {
+        PhysicsEngine engineWith(int count) {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            Random random = new Random(8L);
+            for (int i = 0; i < count; i++) {
+                Vector pos = new Vector(new double[]{random.nextDouble() * 1e4, random.nextDouble() * 1e4,
+                                                     random.nextDouble() * 1e4});
+                engine.addPlanet(new Planet(3, 1.0, 0.1, pos, new Vector(3), 0.0, 0.0, Color.WHITE, null, null));
+            }
+            return engine;
+        }
+
+        @Test
+        void reportsSolverAndSampledError() {
+            PhysicsEngine engine = engineWith(1000);
+            engine.setForceSolver("fmm");
+            engine.setExpansionOrder(4);
+            engine.update(1.0 / 60.0);
+            assertEquals("fmm", engine.getLastSolverUsed());
+            assertTrue(engine.getForceErrorRms() > 0.0);
+            assertTrue(engine.getForceErrorRms() < 1e-2);
+            assertTrue(engine.getForceErrorMax() >= engine.getForceErrorRms());
+        }
+
+        @Test
+        void smallSystemsFallBackToDirect() {
+            PhysicsEngine engine = engineWith(10);
+            engine.setForceSolver("fmm");
+            engine.update(1.0 / 60.0);
+            assertEquals("direct", engine.getLastSolverUsed());
+            assertEquals(0.0, engine.getForceErrorRms(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package simulations.physics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FixedStepClockTest {
+
+    static final long STEP = 10_000_000L;
+
+    @Nested
+    @DisplayName("Steps per tick")
+    class StepsPerTick {
+        @Test
+        void onTimeTicksRunOneStep() {
+            FixedStepClock clock = new FixedStepClock(STEP, 4);
+            assertEquals(0, clock.tick(0));
+            for (int i = 1; i <= 10; i++) {
+                assertEquals(1, clock.tick(i * STEP));
+            }
+            assertEquals(0L, clock.getDroppedSteps());
+        }
+
+        @Test
+        void lateTicksCatchUp() {
+            FixedStepClock clock = new FixedStepClock(STEP, 4);
+            clock.tick(0);
+            // Early tick carries its remainder over to the next one
+            assertEquals(0, clock.tick(STEP / 2));
+            assertEquals(3, clock.tick(3 * STEP + STEP / 2));
+            assertEquals(1, clock.tick(4 * STEP + STEP / 2));
+            assertEquals(0L, clock.getDroppedSteps());
+        }
+
+        @Test
+        void workBeyondTheCapIsDropped() {
+            FixedStepClock clock = new FixedStepClock(STEP, 4);
+            clock.tick(0);
+            assertEquals(4, clock.tick(10 * STEP));
+            assertEquals(6L, clock.getDroppedSteps());
+            assertEquals(1, clock.tick(11 * STEP));
+        }
+
+        @Test
+        void resetSkipsPausedTime() {
+            FixedStepClock clock = new FixedStepClock(STEP, 4);
+            clock.tick(0);
+            clock.tick(STEP);
+            clock.reset();
+            assertEquals(0, clock.tick(100 * STEP));
+            assertEquals(1, clock.tick(101 * STEP));
+            assertEquals(0L, clock.getDroppedSteps());
+        }
+
+        @Test
+        void rejectsBadSettings() {
+            assertThrows(IllegalArgumentException.class, () -> new FixedStepClock(0, 4));
+            assertThrows(IllegalArgumentException.class, () -> new FixedStepClock(STEP, 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Real-time factor")
+    class RealTimeFactor {
+        @Test
+        void keepingUpReadsOne() {
+            FixedStepClock clock = new FixedStepClock(STEP, 4);
+            for (int i = 0; i <= 100; i++) {
+                clock.tick(i * STEP);
+            }
+            assertEquals(1.0, clock.getRealTimeFactor(), 1e-12);
+        }
+
+        @Test
+        void droppingReadsTheFractionRun() {
+            FixedStepClock clock = new FixedStepClock(STEP, 2);
+            // Ticks every 4 steps' worth of time, but only 2 steps may run
+            for (int i = 0; i <= 25; i++) {
+                clock.tick(i * 4 * STEP);
+            }
+            assertEquals(0.5, clock.getRealTimeFactor(), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package simulations.physics;
+
+import java.awt.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static simulations.physics.BarnesHutSolverTest.accelerations;
+import static simulations.physics.BarnesHutSolverTest.randomBodies;
+import static simulations.physics.BarnesHutSolverTest.rmsRelativeError;
+
+public class FloatDirectSumSolverTest {
+
+    static FloatDirectSumSolver solver(boolean doubleAccumulation) {
+        FloatDirectSumSolver solver = new FloatDirectSumSolver();
+        solver.setDoubleAccumulation(doubleAccumulation);
+        return solver;
+    }
+
+    @Nested
+    @DisplayName("Accuracy")
+    class Accuracy {
+        @Test
+        void floatSumsMatchDoubleToFloatRounding() {
+            double[][] bodies = randomBodies(2000, 3, 11L);
+            double[][] reference = accelerations(new DirectSumSolver(), bodies, 3);
+            assertTrue(rmsRelativeError(accelerations(solver(false), bodies, 3), reference) < 1e-5);
+            assertTrue(rmsRelativeError(accelerations(solver(true), bodies, 3), reference) < 2e-6);
+        }
+
+        @Test
+        void farFromTheOriginStaysAccurate() {
+            // A float can't resolve 1000 units at 1e7, but the offsets from the centre can
+            double[][] bodies = randomBodies(500, 3, 12L);
+            for (int i = 0; i < 500; i++) {
+                bodies[0][i] += 1e7;
+                bodies[1][i] -= 1e7;
+            }
+            double[][] reference = accelerations(new DirectSumSolver(), bodies, 3);
+            assertTrue(rmsRelativeError(accelerations(solver(true), bodies, 3), reference) < 1e-5);
+        }
+
+        @Test
+        void targetsMatchTheFullPass() {
+            double[][] bodies = randomBodies(300, 2, 13L);
+            FloatDirectSumSolver solver = solver(false);
+            double[][] full = accelerations(solver, bodies, 2);
+            int[] targets = {5, 77, 299};
+            double[][] some = new double[3][300];
+            solver.computeAccelerations(targets, 3, 300, 2, bodies[0], bodies[1], bodies[2], bodies[3],
+                                        BarnesHutSolverTest.G, some[0], some[1], some[2]);
+            for (int target : targets) {
+                assertEquals(full[0][target], some[0][target], 0.0);
+                assertEquals(full[1][target], some[1][target], 0.0);
+            }
+        }
+
+        @Test
+        void simdKernelMatchesTheScalarOne() {
+            FloatDirectSumSolver vector = SimdSupport.createVectorFloatSolver();
+            if (vector == null) return;
+            double[][] bodies = randomBodies(1001, 3, 14L);
+            double[][] reference = accelerations(new DirectSumSolver(), bodies, 3);
+            for (boolean mixed : new boolean[]{false, true}) {
+                vector.setDoubleAccumulation(mixed);
+                double scalarError = rmsRelativeError(accelerations(solver(mixed), bodies, 3), reference);
+                double vectorError = rmsRelativeError(accelerations(vector, bodies, 3), reference);
+                assertTrue(vectorError < Math.max(2.0 * scalarError, 1e-6));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine")
+    class Engine {
+        @Test
+        void precisionIsSelectable() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            assertEquals("double", engine.getPrecision());
+            engine.setPrecision("mixed");
+            assertEquals("mixed", engine.getPrecision());
+            assertThrows(IllegalArgumentException.class, () -> engine.setPrecision("half"));
+        }
+
+        @Test
+        void floatErrorIsSampled() {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            double[][] bodies = randomBodies(2000, 3, 21L);
+            for (int i = 0; i < 2000; i++) {
+                Vector pos = new Vector(new double[]{bodies[0][i], bodies[1][i], bodies[2][i]});
+                engine.addPlanet(new Planet(3, bodies[3][i], 0.1, pos, new Vector(3), 0.0, 0.0, Color.WHITE, null, "p" + i));
+            }
+            engine.update(1.0 / 60.0);
+            assertEquals(0.0, engine.getForceErrorRms());
+            engine.setPrecision("float");
+            for (int s = 0; s < 60; s++) {
+                engine.update(1.0 / 60.0);
+            }
+            assertEquals("direct", engine.getLastSolverUsed());
+            assertTrue(engine.getForceErrorRms() > 0.0);
+            assertTrue(engine.getForceErrorMax() >= engine.getForceErrorRms());
+            assertTrue(engine.getForceErrorMax() < 1e-3);
+        }
+
+        @Test
+        void floatRunsTrackTheDoubleRun() {
+            PhysicsEngine[] engines = new PhysicsEngine[2];
+            for (int e = 0; e < 2; e++) {
+                engines[e] = new PhysicsEngine(2);
+                engines[e].setGravitationalConstant(1.0);
+                engines[e].setIntegrator("leapfrog");
+                engines[e].addPlanet(new Planet(1000.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "star"));
+                engines[e].addPlanet(new Planet(1.0, 1.0, 100.0, 0.0, 0.0, Math.sqrt(10.0), 0.0, 0.0, Color.WHITE, null, "p"));
+            }
+            engines[1].setPrecision("float");
+            double energy = engines[1].computeTotalEnergy();
+            for (int s = 0; s < 6000; s++) {
+                engines[0].update(1.0 / 60.0);
+                engines[1].update(1.0 / 60.0);
+            }
+            double dx = engines[0].getPlanets().get(1).getPosition().get(0) - engines[1].getPlanets().get(1).getPosition().get(0);
+            assertTrue(Math.abs(dx) < 1e-2);
+            assertTrue(Math.abs(engines[1].computeTotalEnergy() - energy) / Math.abs(energy) < 1e-4);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package simulations.physics;
+
+import java.awt.Color;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+
+/**
+ * IntegratorComparison - Energy drift of each integrator at equal cost.
+ *
+ * Not a unit test. Integrates a star with eight planets on eccentric, inclined orbits
+ * for 100 orbits of the innermost planet. Every fixed-step integrator gets the same
+ * number of force evaluations, so Yoshida-4 and RK4 take steps three and four times as
+ * long. Dormand-Prince is called once per RK4 step and picks its own sub-steps; its
+ * "steps" column counts accepted sub-steps. For block timesteps it counts events,
+ * each of which evaluates only some of the bodies. Prints the largest relative energy error,
+ * the final error and the wall-clock time. Run with:
+ *   java -cp target/classes:target/test-classes simulations.physics.IntegratorComparison [evaluations per inner orbit]
+ */
+public class IntegratorComparison {
+
+    private static final double G = 6000.0;
+    private static final double STAR_MASS = 1000.0;
+
+    public static void main(String[] args) {
+        int evaluationsPerOrbit = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+        double innerPeriod = 2.0 * Math.PI * Math.sqrt(Math.pow(100.0, 3) / (G * STAR_MASS));
+        double totalTime = 100.0 * innerPeriod;
+
+        // The first round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            if (round == 1) {
+                System.out.printf("%-10s %10s %14s %14s %10s%n", "integrator", "steps", "max |dE/E|", "final |dE/E|", "wall ms");
+            }
+            compare(evaluationsPerOrbit, innerPeriod, totalTime, round == 1);
+        }
+    }
+
+    private static void compare(int evaluationsPerOrbit, double innerPeriod, double totalTime, boolean print) {
+        for (IntegratorType type : IntegratorType.values()) {
+            int perStep = type == IntegratorType.YOSHIDA4 ? 3 : type == IntegratorType.RK4 || type == IntegratorType.DOPRI5 ? 4 : 1;
+            double dt = innerPeriod * perStep / evaluationsPerOrbit;
+            int steps = (int) Math.round(totalTime / dt);
+
+            PhysicsEngine engine = planetarySystem();
+            engine.setIntegrator(type.getName());
+            double initial = engine.computeTotalEnergy();
+            double maxError = 0.0;
+            long wall = 0;
+            long substeps = 0;
+            for (int s = 0; s < steps; s++) {
+                long start = System.nanoTime();
+                engine.update(dt);
+                wall += System.nanoTime() - start;
+                substeps += engine.getLastSubsteps();
+                if (s % 10 == 0) {
+                    maxError = Math.max(maxError, Math.abs(engine.computeTotalEnergy() / initial - 1.0));
+                }
+            }
+            double finalError = Math.abs(engine.computeTotalEnergy() / initial - 1.0);
+            if (print) {
+                System.out.printf("%-10s %10d %14.3e %14.3e %10.1f%n", type.getName(), substeps,
+                                  Math.max(maxError, finalError), finalError, wall / 1e6);
+            }
+        }
+    }
+
+    /** A star and eight planets with semi-major axes 100..800, e = 0.3, inclined up to 0.2 rad */
+    static PhysicsEngine planetarySystem() {
+        PhysicsEngine engine = new PhysicsEngine(3);
+        engine.addPlanet(new Planet(3, STAR_MASS, 5.0, new Vector(3), new Vector(3), 0.0, 5000.0,
+                                    Color.YELLOW, null, "star"));
+        for (int k = 1; k <= 8; k++) {
+            double a = 100.0 * k;
+            double e = 0.3;
+            double inclination = 0.025 * k;
+            double phase = 0.7 * k;
+            // Start at apoapsis
+            double r = a * (1.0 + e);
+            double speed = Math.sqrt(G * STAR_MASS * (1.0 - e) / r);
+            double cos = Math.cos(phase);
+            double sin = Math.sin(phase);
+            Vector pos = new Vector(new double[]{r * cos, r * sin * Math.cos(inclination), r * sin * Math.sin(inclination)});
+            Vector vel = new Vector(new double[]{-speed * sin, speed * cos * Math.cos(inclination), speed * cos * Math.sin(inclination)});
+            engine.addPlanet(new Planet(3, 1e-3, 1.0, pos, vel, 0.0, 300.0, Color.WHITE, null, "planet" + k));
+        }
+        return engine;
+    }
+}
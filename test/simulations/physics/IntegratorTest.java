@@ -0,0 +1,378 @@
+package simulations.physics;
+
+import java.awt.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.PointMass;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IntegratorTest {
+
+    /** Period of the orbit set up by {@link #kepler}: a = 100, GM = 6e6 */
+    static final double PERIOD = 2.0 * Math.PI * Math.sqrt(1e6 / 6e6);
+
+    /** Force evaluations per step for each integrator */
+    static int evaluationsPerStep(String integrator) {
+        switch (integrator) {
+            case "yoshida4":
+                return 3;
+            case "rk4":
+                return 4;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * A light body on an e = 0.5 orbit around a heavy one, starting at apoapsis.
+     */
+    static PhysicsEngine kepler(String integrator) {
+        PhysicsEngine engine = new PhysicsEngine(2);
+        engine.setIntegrator(integrator);
+        engine.addPlanet(new Planet(1000.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, Color.YELLOW, null, "sun"));
+        double speed = Math.sqrt(6000.0 * 1000.0 * 0.5 / 150.0);
+        engine.addPlanet(new Planet(1e-6, 1.0, 150.0, 0.0, 0.0, speed, 0.0, 0.0, Color.WHITE, null, "planet"));
+        return engine;
+    }
+
+    /**
+     * Largest relative energy error over {@code periods} orbits, with the step size
+     * scaled so every integrator makes the same number of force evaluations.
+     */
+    static double maxEnergyError(String integrator, int evaluationsPerPeriod, int periods) {
+        PhysicsEngine engine = kepler(integrator);
+        double dt = PERIOD * evaluationsPerStep(integrator) / evaluationsPerPeriod;
+        int steps = (int) Math.round(periods * PERIOD / dt);
+        double initial = engine.computeTotalEnergy();
+        double max = 0.0;
+        for (int i = 0; i < steps; i++) {
+            engine.update(dt);
+            max = Math.max(max, Math.abs(engine.computeTotalEnergy() / initial - 1.0));
+        }
+        return max;
+    }
+
+    /**
+     * Distance from the starting point after one period in {@code steps} steps.
+     * The exact orbit closes, so this is the global position error.
+     */
+    static double returnError(String integrator, int steps) {
+        PhysicsEngine engine = kepler(integrator);
+        for (int i = 0; i < steps; i++) {
+            engine.update(PERIOD / steps);
+        }
+        Planet planet = engine.getPlanets().get(1);
+        return Math.hypot(planet.getPosition().get(0) - 150.0, planet.getPosition().get(1));
+    }
+
+    @Nested
+    @DisplayName("Energy error at equal force evaluations")
+    class EnergyError {
+        @Test
+        void higherOrderSchemesDoBetter() {
+            double euler = maxEnergyError("euler", 400, 5);
+            double leapfrog = maxEnergyError("leapfrog", 400, 5);
+            double yoshida = maxEnergyError("yoshida4", 400, 5);
+            assertTrue(leapfrog < euler / 10.0, "leapfrog " + leapfrog + " vs euler " + euler);
+            assertTrue(yoshida < leapfrog / 5.0, "yoshida " + yoshida + " vs leapfrog " + leapfrog);
+        }
+
+        @Test
+        void energyErrorDoesNotGrow() {
+            // Symplectic schemes oscillate around the true energy instead of drifting
+            double fivePeriods = maxEnergyError("leapfrog", 200, 5);
+            double fiftyPeriods = maxEnergyError("leapfrog", 200, 50);
+            assertTrue(fiftyPeriods < fivePeriods * 1.5, "5 periods " + fivePeriods + ", 50 periods " + fiftyPeriods);
+        }
+
+        @Test
+        void secondOrderErrorScaling() {
+            double coarse = maxEnergyError("verlet", 200, 2);
+            double fine = maxEnergyError("verlet", 400, 2);
+            assertEquals(4.0, coarse / fine, 0.5);
+        }
+
+        @Test
+        void fourthOrderErrorScaling() {
+            double coarse = returnError("rk4", 200);
+            double fine = returnError("rk4", 400);
+            assertEquals(16.0, coarse / fine, 3.0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Adaptive Dormand-Prince")
+    class Adaptive {
+        @Test
+        void oneCallCoversAWholeOrbit() {
+            PhysicsEngine engine = kepler("dopri5");
+            engine.setIntegratorTolerance(1e-10);
+            Planet planet = engine.getPlanets().get(1);
+            double initial = engine.computeTotalEnergy();
+            engine.update(PERIOD);
+            assertTrue(engine.getLastSubsteps() > 10, "substeps " + engine.getLastSubsteps());
+            assertEquals(150.0, planet.getPosition().get(0), 1e-3);
+            assertEquals(0.0, planet.getPosition().get(1), 1e-3);
+            assertEquals(1.0, engine.computeTotalEnergy() / initial, 1e-7);
+        }
+
+        @Test
+        void stepsShrinkNearPeriapsis() {
+            PhysicsEngine engine = kepler("dopri5");
+            engine.setIntegratorTolerance(1e-10);
+            int[] substeps = new int[20];
+            for (int i = 0; i < substeps.length; i++) {
+                engine.update(PERIOD / substeps.length);
+                substeps[i] = engine.getLastSubsteps();
+            }
+            // The orbit starts at apoapsis; periapsis is half a period later
+            int apoapsis = substeps[0] + substeps[19];
+            int periapsis = substeps[9] + substeps[10];
+            assertTrue(periapsis > 2 * apoapsis, "apoapsis " + apoapsis + ", periapsis " + periapsis);
+        }
+
+        @Test
+        void tighterToleranceIsMoreAccurate() {
+            double[] errors = new double[2];
+            double[] tolerances = {1e-6, 1e-9};
+            for (int t = 0; t < 2; t++) {
+                PhysicsEngine engine = kepler("dopri5");
+                engine.setIntegratorTolerance(tolerances[t]);
+                double initial = engine.computeTotalEnergy();
+                for (int i = 0; i < 120; i++) {
+                    engine.update(PERIOD / 60.0);
+                }
+                errors[t] = Math.abs(engine.computeTotalEnergy() / initial - 1.0);
+            }
+            assertTrue(errors[1] < errors[0] / 10.0, "errors " + errors[0] + ", " + errors[1]);
+        }
+
+        @Test
+        void rejectsNonPositiveTolerance() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            assertThrows(IllegalArgumentException.class, () -> engine.setIntegratorTolerance(0.0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Integrator behaviour")
+    class Behaviour {
+        @Test
+        void leapfrogAndVerletFollowTheSameTrajectory() {
+            PhysicsEngine leapfrog = kepler("leapfrog");
+            PhysicsEngine verlet = kepler("verlet");
+            for (int i = 0; i < 500; i++) {
+                leapfrog.update(PERIOD / 250.0);
+                verlet.update(PERIOD / 250.0);
+            }
+            for (int d = 0; d < 2; d++) {
+                assertEquals(leapfrog.getPlanets().get(1).getPosition().get(d),
+                             verlet.getPlanets().get(1).getPosition().get(d), 1e-8);
+            }
+        }
+
+        @Test
+        void leapfrogIsTimeReversible() {
+            PhysicsEngine engine = kepler("leapfrog");
+            Planet planet = engine.getPlanets().get(1);
+            double x0 = planet.getPosition().get(0);
+            double y0 = planet.getPosition().get(1);
+            for (int i = 0; i < 300; i++) {
+                engine.update(PERIOD / 200.0);
+            }
+            for (int i = 0; i < 300; i++) {
+                engine.update(-PERIOD / 200.0);
+            }
+            assertEquals(x0, planet.getPosition().get(0), 1e-8);
+            assertEquals(y0, planet.getPosition().get(1), 1e-8);
+        }
+
+        @Test
+        void fixedBodiesNeverMove() {
+            for (IntegratorType type : IntegratorType.values()) {
+                PhysicsEngine engine = new PhysicsEngine(2);
+                engine.setIntegrator(type.getName());
+                PointMass sun = new PointMass(1000.0, 1.0, 0.0, 0.0, 0.0, 0.0, Color.YELLOW, null, "sun");
+                engine.addPlanet(sun);
+                engine.addPlanet(new Planet(1.0, 1.0, 100.0, 0.0, 0.0, 50.0, 0.0, 0.0, Color.WHITE, null, "p"));
+                for (int i = 0; i < 20; i++) {
+                    engine.update(1.0 / 60.0);
+                }
+                assertEquals(0.0, sun.getPosition().get(0), type.getName());
+                assertEquals(0.0, sun.getVelocity().get(1), type.getName());
+            }
+        }
+
+        @Test
+        void solverSettingsInvalidateReusedForces() {
+            PhysicsEngine[] engines = new PhysicsEngine[2];
+            double[][] bodies = BarnesHutSolverTest.randomBodies(200, 3, 12L);
+            for (int e = 0; e < 2; e++) {
+                engines[e] = new PhysicsEngine(3);
+                engines[e].setForceSolver("barnes-hut");
+                engines[e].setIntegrator("leapfrog");
+                for (int i = 0; i < 200; i++) {
+                    Vector pos = new Vector(new double[]{bodies[0][i], bodies[1][i], bodies[2][i]});
+                    engines[e].addPlanet(new Planet(3, bodies[3][i], 0.1, pos, new Vector(3), 0.0, 0.0, Color.WHITE, null, "p" + i));
+                }
+                engines[e].update(1.0 / 60.0);
+                engines[e].setOpeningAngle(0.0);
+            }
+            // Reference: G was already known to invalidate, so the next step starts from exact forces
+            engines[1].setGravitationalConstant(engines[1].getGravitationalConstant());
+            engines[0].update(1.0 / 60.0);
+            engines[1].update(1.0 / 60.0);
+            for (int i = 0; i < 200; i += 23) {
+                assertEquals(engines[1].getPlanets().get(i).getVelocity().get(0),
+                             engines[0].getPlanets().get(i).getVelocity().get(0), 0.0);
+            }
+        }
+
+        @Test
+        void rejectsUnknownIntegrators() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            assertThrows(IllegalArgumentException.class, () -> engine.setIntegrator("rk2"));
+            assertEquals("euler", engine.getIntegrator());
+        }
+    }
+
+    /**
+     * Direct-sum forces that count how many body accelerations were computed.
+     */
+    static final class CountingForces implements ForceEvaluator {
+        final BodyStore bodies;
+        final DirectSumSolver solver = new DirectSumSolver();
+        final double[] ax = new double[64];
+        final double[] ay = new double[64];
+        final double[] az = new double[64];
+        long bodyEvaluations = 0;
+
+        CountingForces(BodyStore bodies) {
+            this.bodies = bodies;
+        }
+
+        @Override
+        public void ensureCurrent() {
+            evaluate();
+        }
+
+        @Override
+        public void evaluate() {
+            int count = bodies.size();
+            solver.computeAccelerations(count, bodies.getDimension(), bodies.x, bodies.y, bodies.z,
+                                        bodies.mass, 6000.0, ax, ay, az);
+            bodyEvaluations += count;
+        }
+
+        @Override
+        public void evaluate(int[] targets, int targetCount) {
+            solver.computeAccelerations(targets, targetCount, bodies.size(), bodies.getDimension(),
+                                        bodies.x, bodies.y, bodies.z, bodies.mass, 6000.0, ax, ay, az);
+            bodyEvaluations += targetCount;
+        }
+
+        @Override
+        public double[] getAccelX() {
+            return ax;
+        }
+
+        @Override
+        public double[] getAccelY() {
+            return ay;
+        }
+
+        @Override
+        public double[] getAccelZ() {
+            return az;
+        }
+    }
+
+    /**
+     * A tight binary (period about 0.016) at the origin and 30 light bodies on slow
+     * circular orbits around it at radius 2000 and beyond.
+     */
+    static BodyStore binaryWithField() {
+        BodyStore bodies = new BodyStore(3);
+        double speed = Math.sqrt(6000.0 * 200.0 / 2.0) / 2.0;
+        bodies.add(new Planet(3, 100.0, 0.01, new Vector(new double[]{1, 0, 0}),
+                              new Vector(new double[]{0, speed, 0}), 0.0, 0.0, Color.WHITE, null, "a"));
+        bodies.add(new Planet(3, 100.0, 0.01, new Vector(new double[]{-1, 0, 0}),
+                              new Vector(new double[]{0, -speed, 0}), 0.0, 0.0, Color.WHITE, null, "b"));
+        for (int k = 0; k < 30; k++) {
+            double r = 2000.0 + 50.0 * k;
+            double angle = 0.7 * k;
+            double v = Math.sqrt(6000.0 * 200.0 / r);
+            bodies.add(new Planet(3, 1e-3, 0.01,
+                                  new Vector(new double[]{r * Math.cos(angle), r * Math.sin(angle), 0}),
+                                  new Vector(new double[]{-v * Math.sin(angle), v * Math.cos(angle), 0}),
+                                  0.0, 0.0, Color.WHITE, null, "field" + k));
+        }
+        return bodies;
+    }
+
+    @Nested
+    @DisplayName("Block timesteps")
+    class BlockTimesteps {
+        @Test
+        void onlyTheBinaryTakesShortSteps() {
+            BodyStore bodies = binaryWithField();
+            CountingForces forces = new CountingForces(bodies);
+            BlockTimestepIntegrator integrator = new BlockTimestepIntegrator();
+            for (int frame = 0; frame < 10; frame++) {
+                integrator.step(bodies, 1.0 / 60.0, forces);
+            }
+            assertTrue(integrator.getLastDeepestLevel() >= 6, "level " + integrator.getLastDeepestLevel());
+            // Every body on the binary's step would cost 32 evaluations per event
+            long everyBody = 32L * integrator.getLastSubsteps() * 10;
+            assertTrue(forces.bodyEvaluations < everyBody / 5,
+                       forces.bodyEvaluations + " evaluations vs " + everyBody);
+        }
+
+        @Test
+        void matchesAFineFixedStep() {
+            BodyStore block = binaryWithField();
+            BodyStore fixed = binaryWithField();
+            BlockTimestepIntegrator integrator = new BlockTimestepIntegrator();
+            LeapfrogIntegrator leapfrog = new LeapfrogIntegrator();
+            CountingForces blockForces = new CountingForces(block);
+            CountingForces fixedForces = new CountingForces(fixed);
+            for (int frame = 0; frame < 6; frame++) {
+                integrator.step(block, 1.0 / 60.0, blockForces);
+                for (int s = 0; s < 2048; s++) {
+                    fixedForces.evaluate();
+                    leapfrog.step(fixed, 1.0 / 60.0 / 2048, fixedForces);
+                }
+            }
+            // Synchronised at the frame boundary: every body is at the same time
+            for (int i = 0; i < block.size(); i++) {
+                assertEquals(fixed.x[i], block.x[i], 1e-2, "x of body " + i);
+                assertEquals(fixed.y[i], block.y[i], 1e-2, "y of body " + i);
+            }
+        }
+
+        @Test
+        void conservesEnergyThroughTheEngine() {
+            PhysicsEngine engine = kepler("block");
+            double initial = engine.computeTotalEnergy();
+            for (int i = 0; i < 20; i++) {
+                engine.update(PERIOD / 10.0);
+            }
+            assertTrue(engine.getLastSubsteps() > 1, "substeps " + engine.getLastSubsteps());
+            assertEquals(1.0, engine.computeTotalEnergy() / initial, 1e-4);
+        }
+
+        @Test
+        void rejectsBadSettings() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            assertThrows(IllegalArgumentException.class, () -> engine.setBlockAccuracy(0.0));
+            assertThrows(IllegalArgumentException.class, () -> engine.setMaxBlockLevel(-1));
+            assertThrows(IllegalArgumentException.class,
+                         () -> engine.setMaxBlockLevel(BlockTimestepIntegrator.LEVEL_LIMIT + 1));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package simulations.physics;
+
+import java.awt.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KSRegularizationTest {
+
+    /**
+     * Two unit masses (G = 1) at apocentre on an orbit with a = 1 and eccentricity ecc,
+     * centre of mass at rest at the origin.
+     */
+    static BodyStore pair(double ecc) {
+        BodyStore bodies = new BodyStore(3);
+        double apocentre = 1.0 + ecc;
+        double speed = Math.sqrt(2.0 * (1.0 - ecc) / (1.0 + ecc));
+        bodies.add(new Planet(3, 1.0, 1e-3, new Vector(new double[]{0.5 * apocentre, 0, 0}),
+                              new Vector(new double[]{0, 0.5 * speed, 0}), 0.0, 0.0, Color.WHITE, null, "a"));
+        bodies.add(new Planet(3, 1.0, 1e-3, new Vector(new double[]{-0.5 * apocentre, 0, 0}),
+                              new Vector(new double[]{0, -0.5 * speed, 0}), 0.0, 0.0, Color.WHITE, null, "b"));
+        return bodies;
+    }
+
+    /** Period of {@link #pair}: GM = 2, a = 1 */
+    static final double PERIOD = 2.0 * Math.PI / Math.sqrt(2.0);
+
+    @Nested
+    @DisplayName("Relative orbit")
+    class RelativeOrbit {
+        @Test
+        void closesAfterManyOrbits() {
+            BodyStore bodies = pair(0.9);
+            KSRegularization ks = new KSRegularization();
+            ks.begin(bodies, 1.0, 10.0 * PERIOD);
+            assertEquals(1, ks.getPairCount());
+            ks.end(bodies, 1.0, 10.0 * PERIOD);
+            assertEquals(0.95, bodies.x[0], 1e-5);
+            assertEquals(0.0, bodies.y[0], 1e-5);
+            assertEquals(-0.95, bodies.x[1], 1e-5);
+        }
+
+        @Test
+        void stepsPerOrbitDontDependOnEccentricity() {
+            for (double ecc : new double[]{0.0, 0.9, 0.999}) {
+                BodyStore bodies = pair(ecc);
+                KSRegularization ks = new KSRegularization();
+                ks.begin(bodies, 1.0, 10.0 * PERIOD);
+                ks.end(bodies, 1.0, 10.0 * PERIOD);
+                long steps = ks.getLastSteps();
+                assertTrue(steps >= 10 * KSRegularization.STEPS_PER_ORBIT
+                           && steps <= 10 * KSRegularization.STEPS_PER_ORBIT + 10,
+                           "e = " + ecc + ": " + steps + " steps");
+            }
+        }
+
+        @Test
+        void runsBackwards() {
+            BodyStore bodies = pair(0.5);
+            KSRegularization ks = new KSRegularization();
+            for (double dt : new double[]{0.3, -0.3}) {
+                ks.begin(bodies, 1.0, dt);
+                ks.end(bodies, 1.0, dt);
+            }
+            assertEquals(0.75, bodies.x[0], 1e-9);
+            assertEquals(0.0, bodies.y[0], 1e-9);
+        }
+    }
+
+    /** Adds new bodies with the state of the store's bodies, which belong to the store */
+    static void addCopies(PhysicsEngine engine, BodyStore bodies) {
+        for (Planet planet : bodies.getPlanets()) {
+            engine.addPlanet(new Planet(3, planet.getMass(), planet.getRadius(), planet.getPosition(),
+                                        planet.getVelocity(), 0.0, 0.0, Color.WHITE, null, planet.getName()));
+        }
+    }
+
+    /** A hard binary (about one orbit per frame) inside 30 slow field bodies */
+    static PhysicsEngine binaryInField(boolean regularization) {
+        PhysicsEngine engine = new PhysicsEngine(3);
+        engine.setIntegrator("leapfrog");
+        engine.setRegularization(regularization);
+        addCopies(engine, IntegratorTest.binaryWithField());
+        return engine;
+    }
+
+    @Nested
+    @DisplayName("Engine")
+    class Engine {
+        @Test
+        void hardBinaryConservesEnergy() {
+            PhysicsEngine plain = binaryInField(false);
+            PhysicsEngine regularized = binaryInField(true);
+            double initial = plain.computeTotalEnergy();
+            for (int frame = 0; frame < 30; frame++) {
+                plain.update(1.0 / 60.0);
+                regularized.update(1.0 / 60.0);
+            }
+            assertEquals(1, regularized.getRegularizedPairs());
+            assertEquals(1.0, regularized.computeTotalEnergy() / initial, 1e-10);
+            assertTrue(Math.abs(plain.computeTotalEnergy() / initial - 1.0) > 1e-2);
+        }
+
+        /** A circular pair with a third body heading straight for it */
+        PhysicsEngine pairWithIntruder(int reorderInterval) {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            engine.setGravitationalConstant(1.0);
+            engine.setRegularization(true);
+            engine.setReorderInterval(reorderInterval);
+            addCopies(engine, pair(0.0));
+            engine.addPlanet(new Planet(3, 1.0, 1e-3, new Vector(new double[]{30, 0.5, 0}),
+                                        new Vector(new double[]{-5, 0, 0}), 0.0, 0.0, Color.RED, null, "intruder"));
+            return engine;
+        }
+
+        @Test
+        void approachingBodyEndsRegularization() {
+            PhysicsEngine engine = pairWithIntruder(0);
+            engine.update(0.2);
+            assertEquals(1, engine.getRegularizedPairs());
+            while (engine.getPlanets().get(2).getPosition().get(0) > 4.0) {
+                engine.update(0.2);
+            }
+            assertEquals(0, engine.getRegularizedPairs());
+        }
+
+        @Test
+        void reSortingKeepsPairsThroughTheHysteresisBand() {
+            PhysicsEngine unsorted = pairWithIntruder(0);
+            PhysicsEngine sorted = pairWithIntruder(1);
+            for (int step = 0; step < 30; step++) {
+                unsorted.update(0.2);
+                sorted.update(0.2);
+                assertEquals(unsorted.getRegularizedPairs(), sorted.getRegularizedPairs(), "step " + step);
+            }
+            assertEquals(0, sorted.getRegularizedPairs());
+        }
+
+        @Test
+        void orbitingPairIsNotSweptIntoItself() {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            engine.setIntegrator("leapfrog");
+            engine.setRegularization(true);
+            engine.setContinuousCollisions(true);
+            engine.setTimeFactor(0.5);
+            // Members 2.0 apart with radii summing to 1.0 never touch
+            for (Planet planet : IntegratorTest.binaryWithField().getPlanets()) {
+                double radius = planet.getMass() > 1.0 ? 0.5 : planet.getRadius();
+                engine.addPlanet(new Planet(3, planet.getMass(), radius, planet.getPosition(),
+                                            planet.getVelocity(), 0.0, 0.0, Color.WHITE, null, planet.getName()));
+            }
+            for (int frame = 0; frame < 60; frame++) {
+                engine.update(1.0 / 60.0);
+            }
+            assertEquals(32, engine.getPlanets().size());
+            assertEquals(1, engine.getRegularizedPairs());
+        }
+
+        @Test
+        void turningOffDissolvesPairs() {
+            PhysicsEngine engine = binaryInField(true);
+            engine.update(1.0 / 60.0);
+            assertEquals(1, engine.getRegularizedPairs());
+            engine.setRegularization(false);
+            assertEquals(0, engine.getRegularizedPairs());
+            engine.update(1.0 / 60.0);
+            assertEquals(0, engine.getRegularizedPairs());
+        }
+    }
+}
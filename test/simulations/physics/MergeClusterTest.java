@@ -0,0 +1,91 @@
+package simulations.physics;
+
+import java.awt.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.PointMass;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MergeClusterTest {
+
+    /** Engine without gravity, so a step only resolves collisions and drifts */
+    static PhysicsEngine engine() {
+        PhysicsEngine engine = new PhysicsEngine(2);
+        engine.setGravitationalConstant(0.0);
+        return engine;
+    }
+
+    static Planet body(double x, double vx) {
+        return new Planet(1.0, 1.0, x, 0.0, vx, 0.0, 0.0, 0.0, Color.WHITE, null, "b" + x);
+    }
+
+    @Nested
+    @DisplayName("Clusters")
+    class Clusters {
+        @Test
+        void chainMergesInOneStep() {
+            PhysicsEngine engine = engine();
+            // Each body only overlaps its neighbours
+            for (int i = 0; i < 5; i++) {
+                engine.addPlanet(body(1.5 * i, i == 0 ? 5.0 : 0.0));
+            }
+            engine.update(1e-9);
+            assertEquals(1, engine.getPlanets().size());
+            Planet merged = engine.getPlanets().get(0);
+            assertEquals(5.0, merged.getMass(), 1e-12);
+            assertEquals(3.0, merged.getPosition().get(0), 1e-6);
+            assertEquals(1.0, merged.getVelocity().get(0), 1e-12);
+        }
+
+        @Test
+        void separateClustersMergeSeparately() {
+            PhysicsEngine engine = engine();
+            engine.addPlanet(body(0.0, 0.0));
+            engine.addPlanet(body(100.0, 0.0));
+            engine.addPlanet(body(1.5, 0.0));
+            engine.addPlanet(body(101.5, 0.0));
+            engine.addPlanet(body(3.0, 0.0));
+            engine.update(1e-9);
+            assertEquals(2, engine.getPlanets().size());
+            double total = 0.0;
+            for (Planet planet : engine.getPlanets()) {
+                total += planet.getMass();
+            }
+            assertEquals(5.0, total, 1e-12);
+        }
+    }
+
+    @Nested
+    @DisplayName("Point masses")
+    class PointMasses {
+        @Test
+        void pointMassAbsorbsItsCluster() {
+            PhysicsEngine engine = engine();
+            engine.addPlanet(body(1.5, 0.0));
+            engine.addPlanet(new PointMass(10.0, 1.0, 0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "sun"));
+            engine.addPlanet(body(3.0, 0.0));
+            engine.update(1e-9);
+            assertEquals(1, engine.getPlanets().size());
+            Planet merged = engine.getPlanets().get(0);
+            assertTrue(merged instanceof PointMass);
+            assertEquals(12.0, merged.getMass(), 1e-12);
+            assertEquals(0.0, merged.getPosition().get(0), 0.0);
+        }
+
+        @Test
+        void twoPointMassesNeverMerge() {
+            PhysicsEngine engine = engine();
+            engine.addPlanet(new PointMass(10.0, 1.0, 0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "left"));
+            engine.addPlanet(body(1.5, 0.0));
+            engine.addPlanet(new PointMass(10.0, 1.0, 3.0, 0.0, 0.0, 0.0, Color.WHITE, null, "right"));
+            engine.update(1e-9);
+            assertEquals(2, engine.getPlanets().size());
+            for (Planet planet : engine.getPlanets()) {
+                assertTrue(planet instanceof PointMass);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static simulations.physics.BarnesHutSolverTest.randomBodies;
+
+public class MortonOrderTest {
+
+    @Nested
+    @DisplayName("Sorting")
+    class Sorting {
+        @Test
+        void interleavesAxisBits() {
+            assertEquals(0b1001001L, MortonOrder.spread3(0b111L));
+            assertEquals(0b1010101L, MortonOrder.spread2(0b1111L));
+        }
+
+        @Test
+        void cornersFollowTheZCurve() {
+            // (0,0), (1,0), (0,1), (1,1) is the Z shape
+            double[] x = {1.0, 0.0, 1.0, 0.0};
+            double[] y = {1.0, 1.0, 0.0, 0.0};
+            int[] order = new MortonOrder().sort(4, 2, x, y, new double[4], null);
+            assertArrayEquals(new int[]{3, 2, 1, 0}, Arrays.copyOf(order, 4));
+        }
+
+        @Test
+        void parallelSortMatchesSerial() {
+            double[][] bodies = randomBodies(50000, 3, 31L);
+            int[] serial = new MortonOrder().sort(50000, 3, bodies[0], bodies[1], bodies[2], null).clone();
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                int[] parallel = new MortonOrder().sort(50000, 3, bodies[0], bodies[1], bodies[2], pool);
+                assertArrayEquals(Arrays.copyOf(serial, 50000), Arrays.copyOf(parallel, 50000));
+            } finally {
+                pool.shutdown();
+            }
+            boolean[] seen = new boolean[50000];
+            for (int k = 0; k < 50000; k++) {
+                assertTrue(!seen[serial[k]]);
+                seen[serial[k]] = true;
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine")
+    class Engine {
+        static final int BODIES = 40;
+
+        PhysicsEngine cluster(int reorderInterval) {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            engine.setIntegrator("leapfrog");
+            engine.setGravitationalConstant(1.0);
+            engine.setReorderInterval(reorderInterval);
+            double[][] bodies = randomBodies(BODIES, 2, 32L);
+            for (int i = 0; i < BODIES; i++) {
+                engine.addPlanet(new Planet(bodies[3][i], 1e-3, bodies[0][i], bodies[1][i],
+                                            0.0, 0.0, 0.0, 0.0, Color.WHITE, null, "p" + i));
+            }
+            return engine;
+        }
+
+        @Test
+        void idsFollowBodiesThroughReordering() {
+            PhysicsEngine plain = cluster(0);
+            PhysicsEngine sorted = cluster(5);
+            for (int s = 0; s < 20; s++) {
+                plain.update(0.01);
+                sorted.update(0.01);
+            }
+            try (StateSnapshot a = plain.acquireSnapshot(); StateSnapshot b = sorted.acquireSnapshot()) {
+                boolean moved = false;
+                for (int k = 0; k < BODIES; k++) {
+                    // Ids are insertion order, so body i has id i in both engines
+                    int i = (int) b.getId(k);
+                    moved |= i != k;
+                    assertEquals((long) i, a.getId(i));
+                    assertEquals("p" + i, b.getName(k));
+                    assertEquals(a.getX(i), b.getX(k), 1e-9);
+                    assertEquals(a.getVelocityY(i), b.getVelocityY(k), 1e-9);
+                }
+                assertTrue(moved);
+            }
+            Planet planet = sorted.getPlanets().get(7);
+            assertEquals("p" + sorted.getBodyId(planet), planet.getName());
+        }
+    }
+}
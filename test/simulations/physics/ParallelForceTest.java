@@ -0,0 +1,223 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static simulations.physics.BarnesHutSolverTest.accelerations;
+import static simulations.physics.BarnesHutSolverTest.randomBodies;
+
+public class ParallelForceTest {
+
+    static void assertBitIdentical(double[][] expected, double[][] actual) {
+        for (int c = 0; c < expected.length; c++) {
+            for (int i = 0; i < expected[c].length; i++) {
+                assertEquals(Double.doubleToLongBits(expected[c][i]), Double.doubleToLongBits(actual[c][i]),
+                             "component " + c + " of body " + i);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Solvers with a pool")
+    class Solvers {
+        private ForkJoinPool pool;
+
+        @BeforeEach
+        void createPool() {
+            pool = new ForkJoinPool(4);
+        }
+
+        @AfterEach
+        void shutdownPool() {
+            pool.shutdown();
+        }
+
+        @Test
+        void directMatchesSerial() {
+            double[][] bodies = randomBodies(3000, 3, 21L);
+            double[][] serial = accelerations(new DirectSumSolver(), bodies, 3);
+            DirectSumSolver parallel = new DirectSumSolver();
+            parallel.setPool(pool);
+            assertBitIdentical(serial, accelerations(parallel, bodies, 3));
+        }
+
+        @Test
+        void barnesHutMatchesSerial() {
+            double[][] bodies = randomBodies(5000, 2, 22L);
+            double[][] serial = accelerations(new BarnesHutSolver(0.5), bodies, 2);
+            BarnesHutSolver parallel = new BarnesHutSolver(0.5);
+            parallel.setPool(pool);
+            assertBitIdentical(serial, accelerations(parallel, bodies, 2));
+        }
+    }
+
+    /** Bodies concentrated around a heavy body at the origin, density falling like 1/r² */
+    static double[][] centralCluster(int count, long seed) {
+        Random random = new Random(seed);
+        double[][] bodies = new double[4][count];
+        bodies[3][0] = 1000.0;
+        for (int i = 1; i < count; i++) {
+            double r = 1000.0 * random.nextDouble() * random.nextDouble();
+            double cosTheta = 2.0 * random.nextDouble() - 1.0;
+            double sinTheta = Math.sqrt(1.0 - cosTheta * cosTheta);
+            double phi = 2.0 * Math.PI * random.nextDouble();
+            bodies[0][i] = r * sinTheta * Math.cos(phi);
+            bodies[1][i] = r * sinTheta * Math.sin(phi);
+            bodies[2][i] = r * cosTheta;
+            bodies[3][i] = 1.0;
+        }
+        return bodies;
+    }
+
+    @Nested
+    @DisplayName("Load balancing")
+    class LoadBalancing {
+        private ForkJoinPool pool;
+
+        @BeforeEach
+        void createPool() {
+            pool = new ForkJoinPool(4);
+        }
+
+        @AfterEach
+        void shutdownPool() {
+            pool.shutdown();
+        }
+
+        @Test
+        void domainsCoverEveryBodyWithEqualCost() {
+            double[][] bodies = centralCluster(4000, 31L);
+            double[] cost = new double[4000];
+            for (int i = 0; i < 4000; i++) {
+                cost[i] = 1.0 + 1000.0 / (1.0 + Math.abs(bodies[0][i]));
+            }
+            OrbDecomposition orb = new OrbDecomposition();
+            orb.split(4000, 3, bodies[0], bodies[1], bodies[2], cost, 5);
+
+            boolean[] seen = new boolean[4000];
+            double total = 0.0;
+            for (double c : cost) total += c;
+            for (int d = 0; d < 5; d++) {
+                double share = 0.0;
+                for (int k = orb.domainStart[d]; k < orb.domainStart[d + 1]; k++) {
+                    int i = orb.order[k];
+                    assertTrue(!seen[i]);
+                    seen[i] = true;
+                    share += cost[i];
+                }
+                assertEquals(0.2, share / total, 0.02);
+            }
+            assertEquals(4000, orb.domainStart[5]);
+        }
+
+        @Test
+        void balancedWalksMatchSerial() {
+            double[][] bodies = centralCluster(5000, 32L);
+            double[][] serial = accelerations(new BarnesHutSolver(0.5), bodies, 3);
+            BarnesHutSolver parallel = new BarnesHutSolver(0.5);
+            parallel.setPool(pool);
+            parallel.setLoadBalancing(true);
+            for (int pass = 0; pass < 2; pass++) {
+                assertBitIdentical(serial, accelerations(parallel, bodies, 3));
+            }
+            assertEquals(4, parallel.getThreadTimes().length);
+        }
+
+        @Test
+        void changedBodiesResplit() {
+            double[][] bodies = centralCluster(2000, 33L);
+            BarnesHutSolver solver = new BarnesHutSolver(0.5);
+            solver.setPool(pool);
+            solver.setLoadBalancing(true);
+            accelerations(solver, bodies, 3);
+            int before = solver.getRebalanceCount();
+            solver.bodiesChanged();
+            accelerations(solver, bodies, 3);
+            assertEquals(before + 1, solver.getRebalanceCount());
+        }
+
+        @Test
+        void serialPassReportsNoThreads() {
+            BarnesHutSolver solver = new BarnesHutSolver(0.5);
+            solver.setLoadBalancing(true);
+            accelerations(solver, centralCluster(500, 34L), 3);
+            assertEquals(0, solver.getThreadTimes().length);
+        }
+    }
+
+    @Nested
+    @DisplayName("Engine parallelism setting")
+    class Engine {
+        PhysicsEngine crowdedEngine(int parallelism) {
+            PhysicsEngine engine = new PhysicsEngine(3);
+            engine.setParallelism(parallelism);
+            engine.setForceSolver("barnes-hut");
+            Random random = new Random(23L);
+            for (int i = 0; i < 400; i++) {
+                Vector pos = new Vector(new double[]{random.nextDouble() * 400.0, random.nextDouble() * 400.0,
+                                                     random.nextDouble() * 400.0});
+                Vector vel = new Vector(new double[]{random.nextGaussian(), random.nextGaussian(), random.nextGaussian()});
+                engine.addPlanet(new Planet(3, 1.0, 3.0, pos, vel, 0.0, 300.0, Color.WHITE, null, "p" + i));
+            }
+            return engine;
+        }
+
+        @Test
+        void stepsMatchSerialThroughMerges() {
+            PhysicsEngine serial = crowdedEngine(1);
+            PhysicsEngine parallel = crowdedEngine(4);
+            for (int step = 0; step < 30; step++) {
+                serial.update(1.0 / 60.0);
+                parallel.update(1.0 / 60.0);
+            }
+            parallel.stop();
+
+            List<Planet> expected = serial.getPlanets();
+            List<Planet> actual = parallel.getPlanets();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                for (int d = 0; d < 3; d++) {
+                    assertEquals(expected.get(i).getPosition().get(d), actual.get(i).getPosition().get(d));
+                    assertEquals(expected.get(i).getVelocity().get(d), actual.get(i).getVelocity().get(d));
+                }
+            }
+        }
+
+        @Test
+        void loadBalancedStepsMatchSerial() {
+            PhysicsEngine serial = crowdedEngine(1);
+            PhysicsEngine parallel = crowdedEngine(3);
+            parallel.setLoadBalancing(true);
+            for (int step = 0; step < 10; step++) {
+                serial.update(1.0 / 60.0);
+                parallel.update(1.0 / 60.0);
+            }
+            assertEquals(3, parallel.getThreadTimes().length);
+            parallel.stop();
+
+            List<Planet> expected = serial.getPlanets();
+            List<Planet> actual = parallel.getPlanets();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getPosition().get(0), actual.get(i).getPosition().get(0));
+            }
+        }
+
+        @Test
+        void rejectsParallelismBelowOne() {
+            PhysicsEngine engine = new PhysicsEngine(2);
+            assertThrows(IllegalArgumentException.class, () -> engine.setParallelism(0));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package simulations.physics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParticleMeshSolverTest {
+
+    /** A heavy body at (500, 500[, 500]) and light test bodies along +x */
+    static double[][] pointMassAndProbes(int dimension, int probes, double spacing) {
+        int count = probes + 1;
+        double[][] bodies = new double[4][count];
+        bodies[0][0] = 500.0;
+        bodies[1][0] = 500.0;
+        bodies[2][0] = dimension == 3 ? 500.0 : 0.0;
+        bodies[3][0] = 1000.0;
+        for (int i = 1; i < count; i++) {
+            bodies[0][i] = 500.0 + i * spacing;
+            bodies[1][i] = 500.0;
+            bodies[2][i] = bodies[2][0];
+            bodies[3][i] = 1e-9;
+        }
+        return bodies;
+    }
+
+    static double[][] accelerations(ParticleMeshSolver solver, double[][] bodies, int dimension) {
+        int count = bodies[0].length;
+        double[][] acc = new double[3][count];
+        solver.computeAccelerations(count, dimension, bodies[0], bodies[1], bodies[2], bodies[3],
+                                    1.0, acc[0], acc[1], acc[2]);
+        return acc;
+    }
+
+    @Nested
+    @DisplayName("Isolated boundaries")
+    class Isolated {
+        void checkInverseSquare(int dimension) {
+            double[][] bodies = pointMassAndProbes(dimension, 8, 40.0);
+            double[][] acc = accelerations(new ParticleMeshSolver(64, false, 1000.0), bodies, dimension);
+            // Probes from three cells (about 65 units) out should see G M / r² towards the mass
+            for (int i = 2; i < bodies[0].length; i++) {
+                double r = bodies[0][i] - 500.0;
+                double expected = -1000.0 / (r * r);
+                assertEquals(expected, acc[0][i], Math.abs(expected) * 0.03);
+                assertEquals(0.0, acc[1][i], Math.abs(expected) * 0.03);
+            }
+        }
+
+        @Test
+        void inverseSquareIn2D() {
+            checkInverseSquare(2);
+        }
+
+        @Test
+        void inverseSquareIn3D() {
+            checkInverseSquare(3);
+        }
+    }
+
+    @Nested
+    @DisplayName("Periodic boundaries")
+    class Periodic {
+        @Test
+        void uniformLatticeFeelsNoForce() {
+            int side = 16;
+            double[][] bodies = new double[4][side * side];
+            for (int i = 0; i < side; i++) {
+                for (int j = 0; j < side; j++) {
+                    bodies[0][i * side + j] = (i + 0.5) * 1000.0 / side;
+                    bodies[1][i * side + j] = (j + 0.5) * 1000.0 / side;
+                    bodies[3][i * side + j] = 1.0;
+                }
+            }
+            double[][] acc = accelerations(new ParticleMeshSolver(32, true, 1000.0), bodies, 2);
+            for (int i = 0; i < side * side; i++) {
+                assertEquals(0.0, acc[0][i], 1e-9);
+                assertEquals(0.0, acc[1][i], 1e-9);
+            }
+        }
+
+        @Test
+        void imagesCancelAtHalfTheBox() {
+            double[][] bodies = new double[4][2];
+            bodies[0][0] = 250.0;
+            bodies[1][0] = 250.0;
+            bodies[2][0] = 250.0;
+            bodies[3][0] = 1000.0;
+            bodies[0][1] = 750.0;
+            bodies[1][1] = 250.0;
+            bodies[2][1] = 250.0;
+            bodies[3][1] = 1e-9;
+            double[][] acc = accelerations(new ParticleMeshSolver(32, true, 1000.0), bodies, 3);
+            assertEquals(0.0, acc[0][1], 1e-9);
+        }
+
+        @Test
+        void wrapsPositionsIntoTheBox() {
+            double[][] inside = pointMassAndProbes(3, 1, 100.0);
+            double[][] shifted = pointMassAndProbes(3, 1, 100.0);
+            shifted[0][1] += 1000.0;
+            double[][] a = accelerations(new ParticleMeshSolver(32, true, 1000.0), inside, 3);
+            double[][] b = accelerations(new ParticleMeshSolver(32, true, 1000.0), shifted, 3);
+            assertEquals(a[0][1], b[0][1], Math.abs(a[0][1]) * 1e-9);
+        }
+    }
+
+    @Test
+    void rejectsMeshSizesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ParticleMeshSolver(48, false, 1000.0));
+        assertThrows(IllegalArgumentException.class, () -> new ParticleMeshSolver(4, false, 1000.0));
+        PhysicsEngine engine = new PhysicsEngine(2);
+        assertThrows(IllegalArgumentException.class, () -> engine.setMeshBoundary("open"));
+    }
+
+    @Test
+    void rejectsMeshesTooLargeForTheDimension() {
+        PhysicsEngine flat = new PhysicsEngine(2);
+        flat.setMeshSize(1024);
+        assertEquals(1024, flat.getMeshSize());
+
+        PhysicsEngine engine = new PhysicsEngine(3);
+        assertThrows(IllegalArgumentException.class, () -> engine.setMeshSize(1024));
+        assertThrows(IllegalArgumentException.class, () -> engine.setMeshSize(128));
+        engine.setMeshBoundary("periodic");
+        engine.setMeshSize(128);
+        // Padding the 128 mesh for isolated boundaries would need 256³ cells
+        assertThrows(IllegalArgumentException.class, () -> engine.setMeshBoundary("isolated"));
+        assertEquals("periodic", engine.getMeshBoundary());
+        assertEquals(128, engine.getMeshSize());
+    }
+}
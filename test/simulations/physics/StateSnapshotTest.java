@@ -0,0 +1,102 @@
+package simulations.physics;
+
+import java.awt.Color;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.PointMass;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StateSnapshotTest {
+
+    /** Bodies drifting in lockstep without gravity, so every body has the same x */
+    static PhysicsEngine convoy(int count) {
+        PhysicsEngine engine = new PhysicsEngine(2);
+        engine.setGravitationalConstant(0.0);
+        for (int i = 0; i < count; i++) {
+            engine.addPlanet(new Planet(1.0, 1.0, 0.0, 10.0 * i, 3.0, 0.0, 0.0, 0.0, Color.WHITE, null, "p" + i));
+        }
+        return engine;
+    }
+
+    @Nested
+    @DisplayName("Publishing")
+    class Publishing {
+        @Test
+        void snapshotFollowsSteps() {
+            PhysicsEngine engine = convoy(3);
+            engine.addPlanet(new PointMass(5.0, 1.0, 0.0, -50.0, 0.0, 0.0, Color.RED, null, "sun"));
+            try (StateSnapshot state = engine.acquireSnapshot()) {
+                assertEquals(0L, state.getStep());
+                assertEquals(4, state.size());
+                assertTrue(state.isFixed(3));
+                assertEquals("sun", state.getName(3));
+            }
+            engine.update(1.0);
+            try (StateSnapshot state = engine.acquireSnapshot()) {
+                assertEquals(1L, state.getStep());
+                assertEquals(3.0, state.getX(0), 1e-12);
+                assertEquals(3.0, state.getVelocityX(0), 0.0);
+                assertEquals(0.0, state.getX(3), 0.0);
+            }
+        }
+
+        @Test
+        void heldSnapshotNeverChanges() {
+            PhysicsEngine engine = convoy(3);
+            engine.update(1.0);
+            StateSnapshot held = engine.acquireSnapshot();
+            for (int i = 0; i < 5; i++) {
+                engine.update(1.0);
+            }
+            assertEquals(1L, held.getStep());
+            assertEquals(3.0, held.getX(0), 1e-12);
+            held.close();
+
+            try (StateSnapshot state = engine.acquireSnapshot()) {
+                assertNotSame(held, state);
+                assertEquals(6L, state.getStep());
+                assertEquals(18.0, state.getX(0), 1e-12);
+            }
+        }
+
+        @Test
+        void engineChangesArePublished() {
+            PhysicsEngine engine = convoy(3);
+            engine.clearPlanets();
+            try (StateSnapshot state = engine.acquireSnapshot()) {
+                assertEquals(0, state.size());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent readers")
+    class ConcurrentReaders {
+        @Test
+        void readersSeeWholeSteps() throws InterruptedException {
+            PhysicsEngine engine = convoy(200);
+            engine.start();
+            try {
+                long deadline = System.nanoTime() + 300_000_000L;
+                long lastStep = -1;
+                while (System.nanoTime() < deadline) {
+                    try (StateSnapshot state = engine.acquireSnapshot()) {
+                        double x = state.getX(0);
+                        for (int i = 1; i < state.size(); i++) {
+                            assertEquals(x, state.getX(i), 0.0);
+                        }
+                        assertTrue(state.getStep() >= lastStep);
+                        lastStep = state.getStep();
+                    }
+                }
+                assertTrue(lastStep > 0);
+            } finally {
+                engine.stop();
+            }
+        }
+    }
+}
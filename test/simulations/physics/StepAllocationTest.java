@@ -0,0 +1,81 @@
+package simulations.physics;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import simulations.NewtonianGravity.Planet;
+import simulations.NewtonianGravity.Vector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StepAllocationTest {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Bytes allocated by the current thread so far */
+    static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Smallest allocation seen over a few measurement windows. A single window can
+     * pick up one-off allocations from the JIT swapping in compiled code.
+     */
+    static long steadyStateAllocation(Runnable window) {
+        long min = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            long before = allocatedBytes();
+            window.run();
+            min = Math.min(min, allocatedBytes() - before);
+        }
+        return min;
+    }
+
+    @Test
+    void engineStepAllocatesNothing() {
+        PhysicsEngine engine = new PhysicsEngine(3);
+        Random random = new Random(1L);
+        for (int i = 0; i < 40; i++) {
+            // Spread out and light enough that nothing collides
+            Vector pos = new Vector(new double[]{i * 100.0, random.nextDouble() * 1000.0, random.nextDouble() * 1000.0});
+            Vector vel = new Vector(new double[]{0.0, 0.0, 0.0});
+            engine.addPlanet(new Planet(3, 1e-3, 1.0, pos, vel, 0.1, 300.0, Color.WHITE, null, "p" + i));
+        }
+        for (int i = 0; i < 2000; i++) {
+            engine.update(1.0 / 60.0);
+        }
+
+        long allocated = steadyStateAllocation(() -> {
+            for (int i = 0; i < 200; i++) {
+                engine.update(1.0 / 60.0);
+            }
+        });
+        assertEquals(0L, allocated);
+        assertEquals(40, engine.getPlanets().size());
+    }
+
+    @Test
+    void planetUpdatesAllocateNothing() {
+        Planet planet = new Planet(1.0, 1.0, 0.0, 0.0, 1.0, 0.0, 0.5, 300.0, Color.WHITE, null, "p");
+        Planet other = new Planet(1.0, 1.0, 100.0, 0.0, 0.0, 0.0, 0.0, 300.0, Color.WHITE, null, "q");
+        Vector accel = new Vector(2);
+        for (int i = 0; i < 20000; i++) {
+            step(planet, other, accel);
+        }
+
+        long allocated = steadyStateAllocation(() -> {
+            for (int i = 0; i < 1000; i++) {
+                step(planet, other, accel);
+            }
+        });
+        assertEquals(0L, allocated);
+    }
+
+    private static void step(Planet planet, Planet other, Vector accel) {
+        accel.zero();
+        planet.addGravitationalAccelerationFrom(other, 1.0, accel);
+        planet.updateVelocity(accel, 1e-3);
+        planet.updatePosition(1e-3, 1.0);
+    }
+}